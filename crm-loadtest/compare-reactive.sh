@@ -0,0 +1,63 @@
+#!/usr/bin/env bash
+# Runs the same k6 read load against the blocking JPA controllers and the reactive R2DBC controllers
+# of one application instance, and prints p99 latency and throughput side by side.
+set -euo pipefail
+
+cd "$(dirname "$0")"
+
+JAR=${JAR:-../target/DS-CRM-1.0.0-SNAPSHOT.jar}
+PORT=${PORT:-8081}
+POOL_SIZE=${POOL_SIZE:-10}
+VUS=${VUS:-200}
+DURATION=${DURATION:-60s}
+SEED_SIZE=${SEED_SIZE:-1000}
+JWT_KEY=${JWT_KEY:-your-very-strong-32-character-secret-key}
+RESULTS_DIR=${RESULTS_DIR:-results}
+# Extra Spring arguments, e.g. the databases of the two pools to test against
+APP_ARGS=${APP_ARGS:---spring.datasource.url=jdbc:mysql://localhost:3306/dscrm --reactive.r2dbc.url=r2dbc:mysql://localhost:3306/dscrm}
+
+if [[ ! -f "$JAR" ]]; then
+	(cd .. && mvn -B package -DskipTests)
+fi
+
+mkdir -p "$RESULTS_DIR"
+
+run_k6() {
+	local api=$1
+	if command -v k6 >/dev/null; then
+		k6 run -e MODE="$api" -e READ_API="$api" -e BASE_URL="http://localhost:$PORT" -e VUS="$VUS" \
+			-e DURATION="$DURATION" -e SEED_SIZE="$SEED_SIZE" -e JWT_KEY="$JWT_KEY" -e RESULTS_DIR="$RESULTS_DIR" loadtest.js
+	else
+		docker run --rm --network host -v "$PWD:/scripts" -w /scripts grafana/k6 run \
+			-e MODE="$api" -e READ_API="$api" -e BASE_URL="http://localhost:$PORT" -e VUS="$VUS" \
+			-e DURATION="$DURATION" -e SEED_SIZE="$SEED_SIZE" -e JWT_KEY="$JWT_KEY" -e RESULTS_DIR="$RESULTS_DIR" loadtest.js
+	fi
+}
+
+# Both pools get the same number of connections, so the comparison shows the effect of the I/O model alone
+java -jar "$JAR" \
+	--server.port="$PORT" \
+	--jwt.key="$JWT_KEY" \
+	--spring.datasource.hikari.maximum-pool-size="$POOL_SIZE" \
+	--reactive.r2dbc.pool.max-size="$POOL_SIZE" \
+	--spring.jpa.show-sql=false \
+	$APP_ARGS >"$RESULTS_DIR/reads.log" 2>&1 &
+PID=$!
+trap "kill $PID 2>/dev/null || true" EXIT
+
+# Any HTTP answer, even a 403 without token, means the application is up
+until [[ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/actuator/health")" != "000" ]]; do
+	kill -0 $PID 2>/dev/null || { echo "Application exited, see $RESULTS_DIR/reads.log" >&2; exit 1; }
+	sleep 1
+done
+
+run_k6 blocking
+run_k6 reactive
+
+printf '\n%-10s %12s %12s %12s\n' api "p99 (ms)" "p95 (ms)" "req/s"
+for api in blocking reactive; do
+	printf '%-10s %12.2f %12.2f %12.2f\n' "$api" \
+		"$(jq '.metrics.http_req_duration.values["p(99)"]' "$RESULTS_DIR/$api.json")" \
+		"$(jq '.metrics.http_req_duration.values["p(95)"]' "$RESULTS_DIR/$api.json")" \
+		"$(jq '.metrics.http_reqs.values.rate' "$RESULTS_DIR/$api.json")"
+done
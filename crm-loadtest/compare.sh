@@ -0,0 +1,80 @@
+#!/usr/bin/env bash
+# Runs the same k6 load against the application on platform threads and on virtual threads,
+# with the same Hikari pool size, and prints p99 latency and throughput side by side.
+set -euo pipefail
+
+cd "$(dirname "$0")"
+
+JAR=${JAR:-../target/DS-CRM-1.0.0-SNAPSHOT.jar}
+PORT=${PORT:-8081}
+POOL_SIZE=${POOL_SIZE:-10}
+VUS=${VUS:-200}
+DURATION=${DURATION:-60s}
+SEED_SIZE=${SEED_SIZE:-1000}
+JWT_KEY=${JWT_KEY:-your-very-strong-32-character-secret-key}
+RESULTS_DIR=${RESULTS_DIR:-results}
+# Extra Spring arguments, e.g. the datasource of the database to test against
+APP_ARGS=${APP_ARGS:---spring.datasource.url=jdbc:mysql://localhost:3306/dscrm}
+
+if ! java -version 2>&1 | grep -qE 'version "(2[1-9]|[3-9][0-9])'; then
+	echo "Virtual threads need a Java 21+ runtime on the PATH." >&2
+	exit 1
+fi
+
+if [[ ! -f "$JAR" ]]; then
+	(cd .. && mvn -B -Pjava21 package -DskipTests)
+fi
+
+mkdir -p "$RESULTS_DIR"
+
+run_k6() {
+	local mode=$1
+	if command -v k6 >/dev/null; then
+		k6 run -e MODE="$mode" -e BASE_URL="http://localhost:$PORT" -e VUS="$VUS" -e DURATION="$DURATION" \
+			-e SEED_SIZE="$SEED_SIZE" -e JWT_KEY="$JWT_KEY" -e RESULTS_DIR="$RESULTS_DIR" loadtest.js
+	else
+		docker run --rm --network host -v "$PWD:/scripts" -w /scripts grafana/k6 run \
+			-e MODE="$mode" -e BASE_URL="http://localhost:$PORT" -e VUS="$VUS" -e DURATION="$DURATION" \
+			-e SEED_SIZE="$SEED_SIZE" -e JWT_KEY="$JWT_KEY" -e RESULTS_DIR="$RESULTS_DIR" loadtest.js
+	fi
+}
+
+run_mode() {
+	local mode=$1 virtual=$2
+	echo "=== Running $mode threads"
+
+	# tracePinnedThreads logs a stack trace whenever a virtual thread pins its carrier
+	java -Djdk.tracePinnedThreads=short -jar "$JAR" \
+		--server.port="$PORT" \
+		--jwt.key="$JWT_KEY" \
+		--spring.threads.virtual.enabled="$virtual" \
+		--spring.datasource.hikari.maximum-pool-size="$POOL_SIZE" \
+		--spring.jpa.show-sql=false \
+		$APP_ARGS >"$RESULTS_DIR/$mode.log" 2>&1 &
+	local pid=$!
+	trap "kill $pid 2>/dev/null || true" EXIT
+
+	# Any HTTP answer, even a 403 without token, means the application is up
+	until [[ "$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/actuator/health")" != "000" ]]; do
+		kill -0 $pid 2>/dev/null || { echo "Application exited, see $RESULTS_DIR/$mode.log" >&2; exit 1; }
+		sleep 1
+	done
+
+	run_k6 "$mode"
+
+	kill $pid
+	wait $pid 2>/dev/null || true
+	trap - EXIT
+}
+
+run_mode platform false
+run_mode virtual true
+
+printf '\n%-10s %12s %12s %12s %10s\n' mode "p99 (ms)" "p95 (ms)" "req/s" pinned
+for mode in platform virtual; do
+	printf '%-10s %12.2f %12.2f %12.2f %10d\n' "$mode" \
+		"$(jq '.metrics.http_req_duration.values["p(99)"]' "$RESULTS_DIR/$mode.json")" \
+		"$(jq '.metrics.http_req_duration.values["p(95)"]' "$RESULTS_DIR/$mode.json")" \
+		"$(jq '.metrics.http_reqs.values.rate' "$RESULTS_DIR/$mode.json")" \
+		"$(grep -c '<== monitors' "$RESULTS_DIR/$mode.log" || true)"
+done
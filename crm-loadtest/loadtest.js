@@ -0,0 +1,80 @@
+import http from 'k6/http';
+import crypto from 'k6/crypto';
+import encoding from 'k6/encoding';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8081';
+const JWT_KEY = __ENV.JWT_KEY || 'your-very-strong-32-character-secret-key';
+const MODE = __ENV.MODE || 'platform';
+const RESULTS_DIR = __ENV.RESULTS_DIR || 'results';
+const SEED_SIZE = parseInt(__ENV.SEED_SIZE || '1000');
+// Empty for the mixed load, 'blocking' or 'reactive' to compare the read APIs
+const READ_API = __ENV.READ_API || '';
+const READ_PREFIX = { blocking: '/api/v1', reactive: '/api/v1/reactive' }[READ_API];
+
+export const options = {
+    scenarios: {
+        api: {
+            executor: 'constant-vus',
+            vus: parseInt(__ENV.VUS || '200'),
+            duration: __ENV.DURATION || '60s',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+/* Same HS256 token nginx injects in front of the application */
+function jwt() {
+    const header = encoding.b64encode(JSON.stringify({ alg: 'HS256', typ: 'JWT' }), 'rawurl');
+    const payload = encoding.b64encode(
+        JSON.stringify({ iss: 'nginx', sub: 'nginx-api', exp: Math.floor(Date.now() / 1000) + 3600 }),
+        'rawurl');
+    const signature = crypto.hmac('sha256', JWT_KEY, `${header}.${payload}`, 'base64rawurl');
+    return `${header}.${payload}.${signature}`;
+}
+
+function seed(path, items) {
+    const response = http.post(`${BASE_URL}${path}`, JSON.stringify(items), {
+        headers: { 'Content-Type': 'application/json', 'X-JWT-Token': jwt() },
+    });
+    check(response, { 'seeded': (r) => r.status === 200 });
+    return JSON.parse(response.body).data;
+}
+
+export function setup() {
+    const customers = seed('/api/v1/customers/createAll', Array.from({ length: SEED_SIZE }, (_, i) => ({
+        name: `customer${i}`, email: `customer${i}@crm.gr`, phone: `210${i}`, address: 'Athens',
+    })));
+    seed('/api/v1/leads/createAll', Array.from({ length: SEED_SIZE }, (_, i) => ({
+        name: `lead${i}`, email: `lead${i}@crm.gr`, phone: `690${i}`, source: i % 2 ? 'web' : 'fair',
+    })));
+    seed('/api/v1/opportunities/createAll', customers.map((customer, i) => ({
+        description: `opportunity${i}`, value: i, status: 'OPEN', customer: { id: customer.id },
+    })));
+    return { token: jwt(), customerIds: customers.map((customer) => customer.id) };
+}
+
+/* The polling pattern of the dashboards, served by the blocking or the reactive controllers */
+function reads(params, customerId) {
+    return http.batch([
+        ['GET', `${BASE_URL}${READ_PREFIX}/customers/find/${customerId}`, null, params],
+        ['GET', `${BASE_URL}${READ_PREFIX}/customers/findAll`, null, params],
+        ['GET', `${BASE_URL}${READ_PREFIX}/opportunities/findAll`, null, params],
+    ]);
+}
+
+export default function (data) {
+    const params = { headers: { 'X-JWT-Token': data.token } };
+    const customerId = data.customerIds[Math.floor(Math.random() * data.customerIds.length)];
+    const responses = READ_PREFIX ? reads(params, customerId) : http.batch([
+        ['GET', `${BASE_URL}/api/v1/customers/find/${customerId}`, null, params],
+        ['GET', `${BASE_URL}/api/v1/customers/findAll/page?size=50`, null, params],
+        ['GET', `${BASE_URL}/api/v1/leads/search?source=web&size=50`, null, params],
+        ['GET', `${BASE_URL}/api/v1/opportunities/findAll/page?size=50`, null, params],
+    ]);
+    responses.forEach((response) => check(response, { 'status is 200': (r) => r.status === 200 }));
+}
+
+export function handleSummary(data) {
+    return { [`${RESULTS_DIR}/${MODE}.json`]: JSON.stringify(data, null, 2) };
+}
@@ -0,0 +1,68 @@
+package gr.digital.systems.crm.component;
+
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtRequestFilterBenchmark {
+
+	private static final String KEY = "your-very-strong-32-character-secret-key";
+
+	private JwtRequestFilter jwtRequestFilter;
+	private JwtParser jwtParser;
+	private String token;
+
+	@Setup
+	public void setUp() {
+		final var environmentPropertiesConfig = Mockito.mock(EnvironmentPropertiesConfig.class);
+		Mockito.when(environmentPropertiesConfig.getJwtKey()).thenReturn(KEY);
+		Mockito.when(environmentPropertiesConfig.getJwtCacheMaxSize()).thenReturn(10_000L);
+		this.jwtRequestFilter =
+				new JwtRequestFilter(environmentPropertiesConfig, new SimpleMeterRegistry());
+
+		final var key = Keys.hmacShaKeyFor(KEY.getBytes(StandardCharsets.UTF_8));
+		this.jwtParser = Jwts.parserBuilder().setSigningKey(key).build();
+		this.token =
+				Jwts.builder()
+						.setIssuer("nginx")
+						.setSubject("nginx-api")
+						.setExpiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+						.signWith(key)
+						.compact();
+	}
+
+	/** Repeated token as nginx sends it, served from the verification cache. */
+	@Benchmark
+	public Claims verifyCached() {
+		return this.jwtRequestFilter.verify(this.token);
+	}
+
+	/** Full parse and HMAC check, the cost of every cache miss. */
+	@Benchmark
+	public Claims verifyUncached() {
+		return this.jwtParser.parseClaimsJws(this.token).getBody();
+	}
+}
@@ -0,0 +1,72 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.DsCrmApplication;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.repository.CustomerRepository;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateAllBenchmark {
+
+	@Param({"100", "1000"})
+	private int customers;
+
+	private ConfigurableApplicationContext context;
+	private CustomerService customerService;
+	private CustomerRepository customerRepository;
+
+	@Setup(Level.Trial)
+	public void startApplication() {
+		/* The test profile runs on an in-memory H2 database */
+		this.context =
+				new SpringApplicationBuilder(DsCrmApplication.class)
+						.profiles("test")
+						.web(WebApplicationType.NONE)
+						.properties("spring.jpa.show-sql=false", "logging.level.root=WARN")
+						.run();
+		this.customerService = this.context.getBean(CustomerService.class);
+		this.customerRepository = this.context.getBean(CustomerRepository.class);
+	}
+
+	@Setup(Level.Iteration)
+	public void emptyTable() {
+		this.customerRepository.deleteAllInBatch();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopApplication() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public List<Customer> createAll() {
+		return this.customerService.createAll(
+				IntStream.range(0, this.customers)
+						.mapToObj(
+								i -> new Customer("customer" + i, "customer" + i + "@crm.gr", "210" + i, "Athens"))
+						.toList());
+	}
+}
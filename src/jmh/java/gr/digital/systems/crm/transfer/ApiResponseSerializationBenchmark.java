@@ -0,0 +1,60 @@
+package gr.digital.systems.crm.transfer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.digital.systems.crm.model.Customer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+	@Param({"10", "1000"})
+	private int customers;
+
+	private ObjectMapper objectMapper;
+	private ApiResponse<List<Customer>> response;
+
+	@Setup
+	public void setUp() {
+		/* Same defaults as the mapper Spring MVC uses for the controllers */
+		this.objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		this.response =
+				ApiResponse.<List<Customer>>builder()
+						.data(
+								LongStream.range(0, this.customers)
+										.mapToObj(
+												i -> {
+													final var customer =
+															new Customer(
+																	"customer" + i, "customer" + i + "@crm.gr", "210" + i, "Athens");
+													customer.setId(i);
+													return customer;
+												})
+										.toList())
+						.build();
+	}
+
+	@Benchmark
+	public byte[] serialize() throws JsonProcessingException {
+		return this.objectMapper.writeValueAsBytes(this.response);
+	}
+}
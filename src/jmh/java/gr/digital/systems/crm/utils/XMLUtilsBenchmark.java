@@ -0,0 +1,50 @@
+package gr.digital.systems.crm.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XMLUtilsBenchmark {
+
+	@Param({"10", "1000"})
+	private int parameters;
+
+	private String directory;
+	private Map<String, Map<String, String>> fileStructure;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.directory = Files.createTempDirectory("xml-benchmark").toString();
+
+		final var environment = new LinkedHashMap<String, String>();
+		for (int i = 0; i < this.parameters; i++) {
+			environment.put("key" + i, "value" + i);
+		}
+		this.fileStructure = Map.of("environment", environment);
+	}
+
+	@Benchmark
+	public Document createXmlDocument() {
+		return XMLUtils.createXmlDocument(this.directory, "/environment.xml", this.fileStructure);
+	}
+}
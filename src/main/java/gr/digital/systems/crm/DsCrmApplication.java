@@ -2,8 +2,11 @@ package gr.digital.systems.crm;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 
-@SpringBootApplication
+/* The reactive read pool is built by ReactiveDatabaseConfig, an auto-configured R2DBC
+ConnectionFactory bean would make the JDBC DataSource and JPA back off */
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class DsCrmApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,126 @@
+package gr.digital.systems.crm.component;
+
+import gr.digital.systems.crm.service.TenantService;
+import gr.digital.systems.crm.utils.TenantContext;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves every pooled id sequence past the highest id of its table at startup, before any insert.
+ * Tables that had IDENTITY ids already hold rows when Hibernate creates the sequence at 1, the
+ * generated ids would collide with them. Runs against the shared datasource and the datasource of
+ * every tenant that has one of its own.
+ */
+@Component
+public class IdSequenceSeeder extends BaseComponent {
+
+	private final SessionFactoryImplementor sessionFactory;
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final TenantService tenantService;
+
+	@Autowired
+	public IdSequenceSeeder(
+			final EntityManagerFactory entityManagerFactory,
+			final JdbcTemplate jdbcTemplate,
+			final PlatformTransactionManager transactionManager,
+			final TenantService tenantService) {
+		this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.tenantService = tenantService;
+	}
+
+	@Override
+	public void init() {
+		super.init();
+		final var tenants = new LinkedHashSet<String>();
+		tenants.add(TenantContext.DEFAULT_TENANT);
+		tenants.addAll(this.tenantService.getDedicated());
+		tenants.forEach(tenant -> TenantContext.run(tenant, this::seed));
+	}
+
+	/** Seeds the sequences of the datasource of the current tenant. */
+	public void seed() {
+		for (final var sequence : this.sequences()) {
+			this.transactionTemplate.executeWithoutResult(status -> this.seed(sequence));
+		}
+	}
+
+	private void seed(final IdSequence sequence) {
+		final var maxId =
+				this.jdbcTemplate.queryForObject(
+						"select max(" + sequence.idColumn() + ") from " + sequence.table(), Long.class);
+		if (maxId == null) {
+			return;
+		}
+		/* The pooled optimizer hands out the increment ids below each value it reads */
+		final var next = maxId + sequence.structure().getIncrementSize() + 1;
+		final var name =
+				this.sessionFactory
+						.getSqlStringGenerationContext()
+						.format(sequence.structure().getPhysicalName());
+
+		if (sequence.structure().isPhysicalSequence()) {
+			final var current =
+					this.jdbcTemplate.queryForObject(
+							this.sessionFactory
+									.getJdbcServices()
+									.getDialect()
+									.getSequenceSupport()
+									.getSequenceNextValString(name),
+							Long.class);
+			if (current != null && current < next) {
+				this.jdbcTemplate.execute("alter sequence " + name + " restart with " + next);
+				logger.info("Moved sequence {} from {} to {}.", name, current, next);
+			}
+			return;
+		}
+
+		/* Without sequences, e.g. on MySQL, Hibernate keeps the next value in a single-row table */
+		final var column = SequenceStyleGenerator.DEF_VALUE_COLUMN;
+		final var current =
+				this.jdbcTemplate.queryForList("select " + column + " from " + name, Long.class);
+		if (current.isEmpty()) {
+			this.jdbcTemplate.update("insert into " + name + " (" + column + ") values (?)", next);
+			logger.info("Seeded sequence table {} at {}.", name, next);
+		} else if (current.get(0) < next) {
+			this.jdbcTemplate.update(
+					"update " + name + " set " + column + " = ? where " + column + " < ?", next, next);
+			logger.info("Moved sequence table {} from {} to {}.", name, current.get(0), next);
+		}
+	}
+
+	/* The root entities with a sequence style generator, subclasses share the table of their root */
+	private List<IdSequence> sequences() {
+		final var sequences = new ArrayList<IdSequence>();
+		this.sessionFactory
+				.getMappingMetamodel()
+				.forEachEntityDescriptor(
+						persister -> {
+							if (persister.getEntityName().equals(persister.getRootEntityName())
+									&& persister.getGenerator() instanceof SequenceStyleGenerator generator
+									&& persister instanceof AbstractEntityPersister entityPersister) {
+								sequences.add(
+										new IdSequence(
+												entityPersister.getIdentifierTableName(),
+												entityPersister.getIdentifierColumnNames()[0],
+												generator.getDatabaseStructure()));
+							}
+						});
+		return sequences;
+	}
+
+	private record IdSequence(String table, String idColumn, DatabaseStructure structure) {}
+}
@@ -1,35 +1,97 @@
 package gr.digital.systems.crm.component;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
 import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.nio.charset.StandardCharsets;
-import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
 import lombok.NonNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
-	private final Key secretKey;
+	public static final String PROMETHEUS_PATH = "/actuator/prometheus";
+
+	/* Request attribute holding the subject of the verified token */
+	public static final String SUBJECT_ATTRIBUTE = JwtRequestFilter.class.getName() + ".subject";
+
+	private final JwtParser jwtParser;
+
+	/* Claim naming the tenant of the token, blank puts every token in the default tenant */
+	private final String tenantClaim;
+
+	/* Verified claims keyed by the token digest, each entry lives until the token expires */
+	private final Cache<String, Claims> verifiedTokens;
+
+	private final Counter cacheHits;
+	private final Counter cacheMisses;
+	private final Timer parseTimer;
 
 	@Autowired
-	public JwtRequestFilter(final EnvironmentPropertiesConfig environmentPropertiesConfig) {
-		this.secretKey =
-				Keys.hmacShaKeyFor(
-						environmentPropertiesConfig.getJwtKey().getBytes(StandardCharsets.UTF_8));
+	public JwtRequestFilter(
+			final EnvironmentPropertiesConfig environmentPropertiesConfig,
+			final MeterRegistry meterRegistry) {
+		/* The parser is immutable and thread safe, build it once with the initialized key */
+		this.jwtParser =
+				Jwts.parserBuilder()
+						.setSigningKey(
+								Keys.hmacShaKeyFor(
+										environmentPropertiesConfig.getJwtKey().getBytes(StandardCharsets.UTF_8)))
+						.build();
+		this.tenantClaim = environmentPropertiesConfig.getTenantClaim();
+		this.verifiedTokens =
+				Caffeine.newBuilder()
+						.maximumSize(environmentPropertiesConfig.getJwtCacheMaxSize())
+						.expireAfter(new TokenExpiry())
+						.build();
+		this.cacheHits =
+				Counter.builder("jwt.verification.cache")
+						.tag("result", "hit")
+						.description("JWT verifications served from the cache")
+						.register(meterRegistry);
+		this.cacheMisses =
+				Counter.builder("jwt.verification.cache")
+						.tag("result", "miss")
+						.description("JWT verifications that required a full signature check")
+						.register(meterRegistry);
+		this.parseTimer =
+				Timer.builder("jwt.parse")
+						.description("Time spent parsing and verifying the signature of a JWT")
+						.publishPercentileHistogram()
+						.register(meterRegistry);
 	}
 
 	private static final Logger LOG = LoggerFactory.getLogger(JwtRequestFilter.class);
 
+	/* Prometheus scrapes the metrics without a token */
+	@Override
+	protected boolean shouldNotFilter(@NonNull final HttpServletRequest request) {
+		return PROMETHEUS_PATH.equals(
+				request.getRequestURI().substring(request.getContextPath().length()));
+	}
+
 	@Override
 	protected void doFilterInternal(
 			@NonNull final HttpServletRequest request,
@@ -45,23 +107,17 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 		}
 
 		try {
-			/* Parse and validate the JWT */
-			var claims =
-					Jwts.parserBuilder()
-							/* Initialized key */
-							.setSigningKey(this.secretKey)
-							.build()
-							.parseClaimsJws(jwtToken)
-							.getBody();
-
-			/* Log details about the JWT */
-			LOG.info(
-					"Valid JWT: Issuer={}, Subject={}, Expiration={}",
-					claims.getIssuer(),
-					claims.getSubject(),
-					claims.getExpiration());
-
-			chain.doFilter(request, response); // Proceed with the request
+			/* Parse and validate the JWT, or reuse a previous verification of the same token */
+			final var claims = this.verify(jwtToken);
+			request.setAttribute(SUBJECT_ATTRIBUTE, claims.getSubject());
+
+			/* Every query of the request is restricted to the tenant of the token */
+			TenantContext.set(this.tenantOf(claims));
+			try {
+				chain.doFilter(request, response); // Proceed with the request
+			} finally {
+				TenantContext.clear();
+			}
 
 		} catch (final Exception e) {
 			LOG.warn("Invalid JWT token from IP: {}. Error: {}", request.getRemoteAddr(), e.getMessage());
@@ -69,6 +125,61 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 		}
 	}
 
+	/**
+	 * Returns the claims of the given token, verifying its signature only the first time it is seen.
+	 *
+	 * @param jwtToken The compact JWT to verify.
+	 * @return The claims of the verified token.
+	 */
+	Claims verify(final String jwtToken) {
+		final var digest = digest(jwtToken);
+		final var cached = this.verifiedTokens.getIfPresent(digest);
+		if (cached != null) {
+			this.cacheHits.increment();
+			return cached;
+		}
+
+		this.cacheMisses.increment();
+		final var sample = Timer.start();
+		final Claims claims;
+		try {
+			claims = this.jwtParser.parseClaimsJws(jwtToken).getBody();
+		} finally {
+			sample.stop(this.parseTimer);
+		}
+
+		/* Log details about the JWT */
+		LOG.debug(
+				"Valid JWT: Issuer={}, Subject={}, Expiration={}",
+				claims.getIssuer(),
+				claims.getSubject(),
+				claims.getExpiration());
+
+		this.verifiedTokens.put(digest, claims);
+		return claims;
+	}
+
+	/**
+	 * @param claims The claims of a verified token.
+	 * @return The tenant named by the tenant claim, the default tenant without one.
+	 */
+	String tenantOf(final Claims claims) {
+		final var tenant =
+				StringUtils.hasText(this.tenantClaim) ? claims.get(this.tenantClaim, String.class) : null;
+		return tenant == null ? TenantContext.DEFAULT_TENANT : tenant;
+	}
+
+	private static String digest(final String jwtToken) {
+		try {
+			return HexFormat.of()
+					.formatHex(
+							MessageDigest.getInstance("SHA-256")
+									.digest(jwtToken.getBytes(StandardCharsets.UTF_8)));
+		} catch (final NoSuchAlgorithmException e) {
+			throw new CrmException("SHA-256 is not available", e);
+		}
+	}
+
 	private void sendErrorResponse(
 			final HttpServletResponse response, final Integer responseStatus, final String message) {
 		try {
@@ -77,4 +188,30 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 			throw new CrmException("Internal Server Error");
 		}
 	}
+
+	/** Expires each cached verification at the exp claim of its token. */
+	private static final class TokenExpiry implements Expiry<String, Claims> {
+
+		@Override
+		public long expireAfterCreate(final String key, final Claims claims, final long currentTime) {
+			if (claims.getExpiration() == null) {
+				/* Tokens without exp never expire, keep them only until evicted by size */
+				return Long.MAX_VALUE;
+			}
+			final var remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+			return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+		}
+
+		@Override
+		public long expireAfterUpdate(
+				final String key, final Claims claims, final long currentTime, final long currentDuration) {
+			return this.expireAfterCreate(key, claims, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(
+				final String key, final Claims claims, final long currentTime, final long currentDuration) {
+			return currentDuration;
+		}
+	}
 }
@@ -0,0 +1,18 @@
+package gr.digital.systems.crm.component;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Reads the annotated service method on the primary even in a read-only transaction. For reads
+ * whose result outlives the request, e.g. entries of the entity cache and the validators of
+ * conditional requests, where a lagging replica would serve an old row until it expires. Overriding
+ * methods must be annotated again.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface PrimaryRead {}
@@ -0,0 +1,28 @@
+package gr.digital.systems.crm.component;
+
+import gr.digital.systems.crm.utils.PrimaryReadContext;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Binds {@link PrimaryReadContext} around the methods annotated with {@link PrimaryRead}. The
+ * connection is requested lazily by the first statement of the method, so it is routed with the
+ * context bound whichever of this and the transaction advice runs first.
+ */
+@Aspect
+@Component
+public class PrimaryReadAspect {
+
+	@Around("@annotation(gr.digital.systems.crm.component.PrimaryRead)")
+	public Object readOnPrimary(final ProceedingJoinPoint joinPoint) throws Throwable {
+		final var previous = PrimaryReadContext.isActive();
+		PrimaryReadContext.set(true);
+		try {
+			return joinPoint.proceed();
+		} finally {
+			PrimaryReadContext.set(previous);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package gr.digital.systems.crm.component;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import lombok.NonNull;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records the number of SQL statements each request runs, tagged by the matched URI pattern, so N+1
+ * selects show up per endpoint.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryCountFilter extends OncePerRequestFilter {
+
+	/* Statements run by the current request thread, null outside of a request */
+	private static final ThreadLocal<int[]> QUERIES = new ThreadLocal<>();
+
+	private final MeterRegistry meterRegistry;
+
+	@Autowired
+	public QueryCountFilter(final MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	protected void doFilterInternal(
+			@NonNull final HttpServletRequest request,
+			@NonNull final HttpServletResponse response,
+			@NonNull final FilterChain chain)
+			throws ServletException, IOException {
+		final var queries = new int[1];
+		QUERIES.set(queries);
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			QUERIES.remove();
+			final var uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+			DistributionSummary.builder("crm.request.queries")
+					.description("SQL statements run by each request")
+					.tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+					.publishPercentileHistogram()
+					.maximumExpectedValue(1000d)
+					.register(this.meterRegistry)
+					.record(queries[0]);
+		}
+	}
+
+	/**
+	 * Counts the statements Hibernate prepares on the request thread, registered by MetricsConfig.
+	 */
+	public static class Inspector implements StatementInspector {
+
+		@Override
+		public String inspect(final String sql) {
+			final var queries = QUERIES.get();
+			if (queries != null) {
+				queries[0]++;
+			}
+			return sql;
+		}
+	}
+}
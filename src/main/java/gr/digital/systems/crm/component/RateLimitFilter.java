@@ -0,0 +1,249 @@
+package gr.digital.systems.crm.component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.utils.TenantContext;
+import gr.digital.systems.crm.utils.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Limits the API requests of every JWT subject with a token bucket, answered with 429, and the
+ * requests in flight across all subjects, answered with 503. The in-flight limit adapts to the
+ * database: it shrinks while the mean wait for a pooled connection exceeds the threshold and grows
+ * back by one per interval while requests are turned away at the limit, so excess requests are shed
+ * before they queue on the connection pool. The subjects of a proxy that signs the requests of all
+ * its clients, such as nginx, are limited per client address the proxy forwards instead.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RateLimitFilter.class);
+
+	private static final String API_PATH = "/api/";
+	private static final String CONNECTION_ACQUIRE_TIMER = "hikaricp.connections.acquire";
+	private static final long OVERLOAD_RETRY_AFTER_SECONDS = 1;
+	private static final double DECREASE_FACTOR = 0.75;
+
+	private final boolean enabled;
+	private final double rate;
+	private final int burst;
+	private final int minInFlight;
+	private final int maxInFlight;
+	private final double dbWaitThreshold;
+	private final Set<String> proxySubjects;
+	private final String clientHeader;
+	private final MeterRegistry meterRegistry;
+
+	private final Cache<String, TokenBucket> buckets;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicBoolean saturated = new AtomicBoolean();
+	private volatile int inFlightLimit;
+
+	/* Mean connection wait of the last interval in milliseconds, and the totals it was taken from */
+	private volatile double dbWait;
+	private long acquireCount;
+	private double acquireTime;
+
+	private final Counter rateLimited;
+	private final Counter shed;
+	private final ScheduledExecutorService adjuster =
+			Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("rate-limit-"));
+
+	@Autowired
+	public RateLimitFilter(
+			final EnvironmentPropertiesConfig environmentPropertiesConfig,
+			final MeterRegistry meterRegistry) {
+		this.enabled = environmentPropertiesConfig.isRateLimitEnabled();
+		this.rate = environmentPropertiesConfig.getRateLimitRate();
+		this.burst = environmentPropertiesConfig.getRateLimitBurst();
+		this.minInFlight = environmentPropertiesConfig.getRateLimitMinInFlight();
+		this.maxInFlight = environmentPropertiesConfig.getRateLimitMaxInFlight();
+		this.dbWaitThreshold = environmentPropertiesConfig.getRateLimitDbWaitThreshold();
+		this.proxySubjects = environmentPropertiesConfig.getRateLimitProxySubjects();
+		this.clientHeader = environmentPropertiesConfig.getRateLimitClientHeader();
+		this.inFlightLimit = this.maxInFlight;
+		this.meterRegistry = meterRegistry;
+		this.buckets =
+				Caffeine.newBuilder()
+						.maximumSize(environmentPropertiesConfig.getRateLimitBucketsMaxSize())
+						.expireAfterAccess(Duration.ofMinutes(10))
+						.build();
+
+		this.rateLimited =
+				Counter.builder("crm.ratelimit.rejected")
+						.tag("reason", "rate")
+						.description("Requests refused because the subject exceeded its rate")
+						.register(meterRegistry);
+		this.shed =
+				Counter.builder("crm.ratelimit.rejected")
+						.tag("reason", "overload")
+						.description("Requests shed at the in-flight limit")
+						.register(meterRegistry);
+		Gauge.builder("crm.ratelimit.in-flight", this.inFlight, AtomicInteger::get)
+				.description("API requests being served")
+				.register(meterRegistry);
+		Gauge.builder("crm.ratelimit.in-flight.limit", this, filter -> filter.inFlightLimit)
+				.description("Current adaptive limit of API requests in flight")
+				.register(meterRegistry);
+		Gauge.builder("crm.ratelimit.db-wait", this, filter -> filter.dbWait)
+				.description("Mean wait for a pooled connection over the last interval")
+				.baseUnit("milliseconds")
+				.register(meterRegistry);
+		Gauge.builder("crm.ratelimit.buckets", this.buckets, Cache::estimatedSize)
+				.description("Subjects with a token bucket")
+				.register(meterRegistry);
+
+		final var interval = environmentPropertiesConfig.getRateLimitAdjustInterval();
+		if (this.enabled && interval > 0) {
+			this.adjuster.scheduleWithFixedDelay(this::adjust, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	protected boolean shouldNotFilter(@NonNull final HttpServletRequest request) {
+		return !this.enabled
+				|| !request
+						.getRequestURI()
+						.substring(request.getContextPath().length())
+						.startsWith(API_PATH);
+	}
+
+	@Override
+	protected void doFilterInternal(
+			@NonNull final HttpServletRequest request,
+			@NonNull final HttpServletResponse response,
+			@NonNull final FilterChain chain)
+			throws ServletException, IOException {
+		final var key = this.key(request);
+		final var now = System.nanoTime();
+		final var wait =
+				this.buckets.get(key, k -> new TokenBucket(this.rate, this.burst, now)).tryAcquire(now);
+		if (wait > 0) {
+			this.rateLimited.increment();
+			this.reject(
+					response,
+					HttpStatus.TOO_MANY_REQUESTS,
+					Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1)),
+					"Rate limit exceeded");
+			return;
+		}
+
+		if (!this.tryAcquire()) {
+			this.shed.increment();
+			this.reject(
+					response,
+					HttpStatus.SERVICE_UNAVAILABLE,
+					OVERLOAD_RETRY_AFTER_SECONDS,
+					"Service overloaded");
+			return;
+		}
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			this.inFlight.decrementAndGet();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		this.adjuster.shutdownNow();
+	}
+
+	/* Subjects are only unique within their tenant */
+	private String key(final HttpServletRequest request) {
+		final var subject = request.getAttribute(JwtRequestFilter.SUBJECT_ATTRIBUTE);
+		if (subject == null) {
+			return request.getRemoteAddr();
+		}
+		final var key = TenantContext.get() + ":" + subject;
+		if (!this.proxySubjects.contains(subject)) {
+			return key;
+		}
+		/* Set by the proxy from the address of its client, a direct request has none */
+		final var client = request.getHeader(this.clientHeader);
+		return key + ":" + (StringUtils.hasText(client) ? client.trim() : request.getRemoteAddr());
+	}
+
+	/* Lock-free, a slot is only taken while the count is below the limit */
+	boolean tryAcquire() {
+		while (true) {
+			final var current = this.inFlight.get();
+			if (current >= this.inFlightLimit) {
+				this.saturated.set(true);
+				return false;
+			}
+			if (this.inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	int getInFlightLimit() {
+		return this.inFlightLimit;
+	}
+
+	/* Multiplicative decrease while connections are slow to get, additive increase while saturated */
+	void adjust() {
+		var count = 0L;
+		var time = 0d;
+		for (final var timer : this.meterRegistry.find(CONNECTION_ACQUIRE_TIMER).timers()) {
+			count += timer.count();
+			time += timer.totalTime(TimeUnit.MILLISECONDS);
+		}
+		final var acquired = count - this.acquireCount;
+		this.dbWait = acquired > 0 ? (time - this.acquireTime) / acquired : 0;
+		this.acquireCount = count;
+		this.acquireTime = time;
+
+		final var limit = this.inFlightLimit;
+		final var saturatedSinceLastAdjust = this.saturated.getAndSet(false);
+		if (this.dbWait > this.dbWaitThreshold) {
+			this.inFlightLimit = Math.max(this.minInFlight, (int) (limit * DECREASE_FACTOR));
+		} else if (saturatedSinceLastAdjust) {
+			this.inFlightLimit = Math.min(this.maxInFlight, limit + 1);
+		}
+		if (this.inFlightLimit != limit) {
+			LOG.info(
+					"In-flight limit {} -> {}, mean connection wait {} ms.",
+					limit,
+					this.inFlightLimit,
+					String.format("%.1f", this.dbWait));
+		}
+	}
+
+	private void reject(
+			final HttpServletResponse response,
+			final HttpStatus status,
+			final long retryAfterSeconds,
+			final String message)
+			throws IOException {
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+		response.sendError(status.value(), message);
+	}
+}
@@ -0,0 +1,67 @@
+package gr.digital.systems.crm.component;
+
+import gr.digital.systems.crm.service.BaseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.stereotype.Component;
+
+/** Times every service call, tagged by entity type, so a slow service stands out under load. */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+	private static final String NONE = "none";
+
+	private final MeterRegistry meterRegistry;
+
+	/* Entity tag of each service class, resolved once from the BaseService type argument */
+	private final Map<Class<?>, String> entities = new ConcurrentHashMap<>();
+
+	@Autowired
+	public ServiceMetricsAspect(final MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Around(
+			"execution(public * gr.digital.systems.crm.service.BaseService+.*(..))"
+					+ " && !execution(* get*Repository())"
+					+ " && !execution(* getCacheName())"
+					+ " && !execution(* getExportColumns())")
+	public Object time(final ProceedingJoinPoint joinPoint) throws Throwable {
+		final var sample = Timer.start(this.meterRegistry);
+		var exception = NONE;
+		try {
+			return joinPoint.proceed();
+		} catch (final Throwable e) {
+			exception = e.getClass().getSimpleName();
+			throw e;
+		} finally {
+			sample.stop(
+					Timer.builder("crm.service")
+							.description("Latency of the entity service methods")
+							.tag("entity", this.entity(joinPoint.getTarget()))
+							.tag("method", joinPoint.getSignature().getName())
+							.tag("exception", exception)
+							.publishPercentileHistogram()
+							.register(this.meterRegistry));
+		}
+	}
+
+	private String entity(final Object service) {
+		return this.entities.computeIfAbsent(
+				AopUtils.getTargetClass(service),
+				type -> {
+					final var entityType = GenericTypeResolver.resolveTypeArgument(type, BaseService.class);
+					return entityType == null ? NONE : entityType.getSimpleName().toLowerCase(Locale.ROOT);
+				});
+	}
+}
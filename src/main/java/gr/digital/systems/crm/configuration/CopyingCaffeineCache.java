@@ -0,0 +1,32 @@
+package gr.digital.systems.crm.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import gr.digital.systems.crm.model.BaseEntity;
+import gr.digital.systems.crm.utils.EntityCopyUtils;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+/**
+ * Stores a copy of every entity put and hands out a copy on every read. A caller changing the
+ * entity it saved or read never changes the cached entry seen by the other callers.
+ */
+class CopyingCaffeineCache extends CaffeineCache {
+
+	CopyingCaffeineCache(
+			final String name, final Cache<Object, Object> cache, final boolean allowNullValues) {
+		super(name, cache, allowNullValues);
+	}
+
+	@Override
+	protected Object toStoreValue(final Object userValue) {
+		return super.toStoreValue(copy(userValue));
+	}
+
+	@Override
+	protected Object fromStoreValue(final Object storeValue) {
+		return copy(super.fromStoreValue(storeValue));
+	}
+
+	private static Object copy(final Object value) {
+		return value instanceof BaseEntity entity ? EntityCopyUtils.copy(entity) : value;
+	}
+}
@@ -0,0 +1,136 @@
+package gr.digital.systems.crm.configuration;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * The primary pool is configured by spring.datasource.hikari as before. Each datasource.replicas[n]
+ * entry adds a Hikari pool that serves read-only transactions, e.g.
+ * datasource.replicas[0].jdbc-url, username, password and maximum-pool-size. Each
+ * datasource.tenants.&lt;tenant&gt; entry gives the tenant a Hikari pool of its own, e.g. on a
+ * schema of its own, the other tenants share the primary and replica pools.
+ */
+@Configuration
+public class DataSourceConfig {
+
+	public static final String TENANTS_PROPERTY = "datasource.tenants";
+
+	private Closeable routingDataSource;
+
+	@Bean
+	public DataSource dataSource(
+			final DataSourceProperties dataSourceProperties,
+			final Environment environment,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig,
+			final ObjectProvider<MeterRegistry> meterRegistry) {
+		final var binder = Binder.get(environment);
+		final var primary =
+				dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+
+		final var shared = this.shared(primary, binder, environmentPropertiesConfig, meterRegistry);
+
+		final var tenantConfigs =
+				binder
+						.bind(TENANTS_PROPERTY, Bindable.mapOf(String.class, HikariConfig.class))
+						.orElse(Map.of());
+		final var maxConnections = environmentPropertiesConfig.getTenantMaxConnections();
+		if (tenantConfigs.isEmpty() && maxConnections <= 0) {
+			return lazy(shared);
+		}
+
+		final var dedicated = new HashMap<String, HikariDataSource>();
+		tenantConfigs.forEach(
+				(tenant, config) -> {
+					if (!TenantContext.isValid(tenant)) {
+						throw new CrmException("Invalid tenant id: " + tenant);
+					}
+					if (config.getPoolName() == null) {
+						config.setPoolName(primary.getPoolName() + "Tenant-" + tenant);
+					}
+					/* A tenant database that is down at startup fails only the requests of the tenant */
+					config.setInitializationFailTimeout(-1);
+					meterRegistry.ifAvailable(
+							registry ->
+									config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+					dedicated.put(tenant, new HikariDataSource(config));
+				});
+		final var tenantRouting =
+				new TenantRoutingDataSource(
+						shared, dedicated, maxConnections, primary.getConnectionTimeout());
+		this.routingDataSource = tenantRouting;
+		return shared instanceof ReplicaRoutingDataSource ? lazy(tenantRouting) : tenantRouting;
+	}
+
+	/* Routing needs the read-only flag, which is set after the connection is requested, a pool not */
+	private static DataSource lazy(final DataSource dataSource) {
+		return dataSource instanceof HikariDataSource
+				? dataSource
+				: new LazyConnectionDataSourceProxy(dataSource);
+	}
+
+	/* The primary pool, or the primary and replica pools routed by the read-only flag */
+	private DataSource shared(
+			final HikariDataSource primary,
+			final Binder binder,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig,
+			final ObjectProvider<MeterRegistry> meterRegistry) {
+		final var replicaConfigs =
+				binder.bind("datasource.replicas", Bindable.listOf(HikariConfig.class)).orElse(List.of());
+		if (replicaConfigs.isEmpty()) {
+			return primary;
+		}
+
+		final var replicas = new ArrayList<HikariDataSource>(replicaConfigs.size());
+		for (var i = 0; i < replicaConfigs.size(); i++) {
+			final var config = replicaConfigs.get(i);
+			if (config.getPoolName() == null) {
+				config.setPoolName(primary.getPoolName() + "Replica" + i);
+			}
+			/* A replica that is down at startup stays out of rotation instead of failing the start */
+			config.setInitializationFailTimeout(-1);
+			config.setReadOnly(true);
+			meterRegistry.ifAvailable(
+					registry ->
+							config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+			replicas.add(new HikariDataSource(config));
+		}
+		final var replicaRouting =
+				new ReplicaRoutingDataSource(
+						primary,
+						replicas,
+						environmentPropertiesConfig.getReplicaLagQuery(),
+						environmentPropertiesConfig.getReplicaLagColumn(),
+						environmentPropertiesConfig.getReplicaMaxLag(),
+						environmentPropertiesConfig.getReplicaHealthInterval());
+		this.routingDataSource = replicaRouting;
+		return replicaRouting;
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		if (this.routingDataSource != null) {
+			this.routingDataSource.close();
+		}
+	}
+}
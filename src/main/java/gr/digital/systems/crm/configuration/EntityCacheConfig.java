@@ -0,0 +1,89 @@
+package gr.digital.systems.crm.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gr.digital.systems.crm.service.BaseServiceImpl;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.micrometer.core.instrument.Tag;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.cache.CacheMetricsRegistrar;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.CacheResolver;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@EnableCaching
+@Configuration
+public class EntityCacheConfig {
+
+	public static final String CUSTOMERS = "customers";
+	public static final String LEADS = "leads";
+	public static final String OPPORTUNITIES = "opportunities";
+
+	private final String entityCacheSpec;
+
+	@Autowired
+	public EntityCacheConfig(final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		this.entityCacheSpec = environmentPropertiesConfig.getEntityCacheSpec();
+	}
+
+	@Bean
+	public CacheManager cacheManager() {
+		/*
+		 * Size and TTL bounded caches, the spec must keep recordStats for the hit ratio metrics. Entries
+		 * are copied in and out, callers may change the entities they get
+		 */
+		final var caffeineCacheManager =
+				new CaffeineCacheManager() {
+					@Override
+					protected org.springframework.cache.Cache adaptCaffeineCache(
+							final String name, final Cache<Object, Object> cache) {
+						return new CopyingCaffeineCache(name, cache, this.isAllowNullValues());
+					}
+				};
+		caffeineCacheManager.setCaffeine(Caffeine.from(this.entityCacheSpec));
+		/* Created on first use, one cache per entity type and tenant */
+		caffeineCacheManager.setAllowNullValues(false);
+
+		/* Puts and evictions are applied after commit, a rolled back write never reaches the cache */
+		return new TransactionAwareCacheManagerProxy(caffeineCacheManager);
+	}
+
+	/**
+	 * @param name The cache name of an entity type.
+	 * @param tenant The tenant id.
+	 * @return The name of the cache of the entity type for the tenant.
+	 */
+	public static String cacheName(final String name, final String tenant) {
+		return TenantContext.DEFAULT_TENANT.equals(tenant) ? name : name + ":" + tenant;
+	}
+
+	/**
+	 * Each service caches its own entity type in the cache it names, separately per tenant. Every
+	 * tenant cache is bounded by the spec on its own, so a large tenant cannot evict the entries of
+	 * the others. The caches of the default tenant keep the plain names.
+	 */
+	@Bean
+	public CacheResolver entityCacheResolver(
+			final CacheManager cacheManager,
+			final ObjectProvider<CacheMetricsRegistrar> cacheMetricsRegistrar) {
+		final var bound = ConcurrentHashMap.<String>newKeySet();
+		return context -> {
+			final var tenant = TenantContext.get();
+			final var cacheName =
+					cacheName(((BaseServiceImpl<?>) context.getTarget()).getCacheName(), tenant);
+			final var cache = cacheManager.getCache(cacheName);
+			if (bound.add(cacheName)) {
+				cacheMetricsRegistrar.ifAvailable(
+						registrar -> registrar.bindCacheToRegistry(cache, Tag.of("tenant", tenant)));
+			}
+			return List.of(cache);
+		};
+	}
+}
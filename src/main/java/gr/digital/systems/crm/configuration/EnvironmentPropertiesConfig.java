@@ -1,5 +1,6 @@
 package gr.digital.systems.crm.configuration;
 
+import java.util.Set;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
@@ -18,4 +19,163 @@ public class EnvironmentPropertiesConfig {
 
 	@Value("${jwt.key}")
 	private String jwtKey;
+
+	@Value("${jwt.cache.max-size:10000}")
+	private long jwtCacheMaxSize;
+
+	@Value("${cache.entity.spec:maximumSize=10000,expireAfterWrite=10m,recordStats}")
+	private String entityCacheSpec;
+
+	@Value("${export.batch-size:1000}")
+	private int exportBatchSize;
+
+	@Value("${import.directory:${java.io.tmpdir}/ds-crm-imports}")
+	private String importDirectory;
+
+	@Value("${import.chunk-size:1000}")
+	private int importChunkSize;
+
+	@Value("${import.workers:4}")
+	private int importWorkers;
+
+	@Value("${reactive.r2dbc.url}")
+	private String reactiveUrl;
+
+	@Value("${reactive.r2dbc.username}")
+	private String reactiveUsername;
+
+	@Value("${reactive.r2dbc.password}")
+	private String reactivePassword;
+
+	@Value("${reactive.r2dbc.pool.max-size:20}")
+	private int reactivePoolMaxSize;
+
+	@Value("${reactive.r2dbc.fetch-size:500}")
+	private int reactiveFetchSize;
+
+	@Value("${changes.buffer-size:256}")
+	private int changesBufferSize;
+
+	@Value("${changes.senders:4}")
+	private int changesSenders;
+
+	@Value("${changes.timeout:1800000}")
+	private long changesTimeout;
+
+	@Value("${changes.write-timeout:5000}")
+	private long changesWriteTimeout;
+
+	@Value("${http.cache.max-age:10}")
+	private long httpCacheMaxAge;
+
+	@Value("${matching.parallelism:0}")
+	private int matchingParallelism;
+
+	@Value("${matching.name-threshold:0.92}")
+	private double matchingNameThreshold;
+
+	@Value("${matching.max-group-size:200}")
+	private int matchingMaxGroupSize;
+
+	@Value("${matching.chunk-size:1000}")
+	private int matchingChunkSize;
+
+	@Value("${conversion.chunk-size:1000}")
+	private int conversionChunkSize;
+
+	@Value("${capture.queue-size:10000}")
+	private int captureQueueSize;
+
+	@Value("${capture.batch-size:500}")
+	private int captureBatchSize;
+
+	@Value("${capture.offer-timeout:100}")
+	private long captureOfferTimeout;
+
+	@Value("${capture.status.max-size:100000}")
+	private long captureStatusMaxSize;
+
+	@Value("${capture.journal.enabled:true}")
+	private boolean captureJournalEnabled;
+
+	@Value("${capture.journal.fsync:true}")
+	private boolean captureJournalFsync;
+
+	@Value("${capture.journal.directory:data/capture}")
+	private String captureJournalDirectory;
+
+	@Value("${capture.journal.segment-size:67108864}")
+	private long captureJournalSegmentSize;
+
+	@Value("${purge.cron:0 */10 1-4 * * *}")
+	private String purgeCron;
+
+	@Value("${purge.retention-days:30}")
+	private long purgeRetentionDays;
+
+	@Value("${purge.batch-size:500}")
+	private int purgeBatchSize;
+
+	@Value("${purge.max-batches:100}")
+	private int purgeMaxBatches;
+
+	@Value("${purge.archive.enabled:true}")
+	private boolean purgeArchiveEnabled;
+
+	@Value("${purge.archive.directory:}")
+	private String purgeArchiveDirectory;
+
+	@Value("${datasource.replica.max-lag:5}")
+	private long replicaMaxLag;
+
+	@Value("${datasource.replica.health-interval:5000}")
+	private long replicaHealthInterval;
+
+	@Value("${datasource.replica.lag-query:SHOW REPLICA STATUS}")
+	private String replicaLagQuery;
+
+	@Value("${datasource.replica.lag-column:Seconds_Behind_Source}")
+	private String replicaLagColumn;
+
+	@Value("${datasource.tenant.max-connections:0}")
+	private int tenantMaxConnections;
+
+	@Value("${tenant.claim:tenant}")
+	private String tenantClaim;
+
+	@Value("${search.parallelism:0}")
+	private int searchParallelism;
+
+	@Value("${search.max-expansions:50}")
+	private int searchMaxExpansions;
+
+	@Value("${ratelimit.enabled:true}")
+	private boolean rateLimitEnabled;
+
+	@Value("${ratelimit.rate:30}")
+	private double rateLimitRate;
+
+	@Value("${ratelimit.burst:10}")
+	private int rateLimitBurst;
+
+	@Value("${ratelimit.buckets.max-size:10000}")
+	private long rateLimitBucketsMaxSize;
+
+	@Value("${ratelimit.in-flight.min:4}")
+	private int rateLimitMinInFlight;
+
+	@Value("${ratelimit.in-flight.max:64}")
+	private int rateLimitMaxInFlight;
+
+	@Value("${ratelimit.db-wait-threshold:50}")
+	private double rateLimitDbWaitThreshold;
+
+	@Value("${ratelimit.adjust-interval:1000}")
+	private long rateLimitAdjustInterval;
+
+	@Value("${ratelimit.proxy-subjects:nginx-api}")
+	private Set<String> rateLimitProxySubjects;
+
+	@Value("${ratelimit.client-header:X-Real-IP}")
+	private String rateLimitClientHeader;
 }
@@ -1,10 +1,14 @@
 package gr.digital.systems.crm.configuration;
 
 import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.exception.ServiceOverloadedException;
+import gr.digital.systems.crm.exception.VersionRequiredException;
 import gr.digital.systems.crm.transfer.ApiError;
 import gr.digital.systems.crm.transfer.ApiResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -65,6 +69,58 @@ public class ExceptionHandlerConfig {
 								.build());
 	}
 
+	/* A stale version or If-Match header means the client edited an outdated copy */
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	protected ResponseEntity<ApiResponse<Void>> handleOptimisticLockingFailure(
+			final OptimisticLockingFailureException ex, final WebRequest webRequest) {
+		LOG.warn("OptimisticLockingFailureException caught: {}", ex.getMessage());
+		return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+				.body(
+						ApiResponse.<Void>builder()
+								.apiError(
+										ApiError.builder()
+												.description(ex.getMessage())
+												.httpStatus(HttpStatus.PRECONDITION_FAILED.value())
+												.path(webRequest.getDescription(false))
+												.build())
+								.build());
+	}
+
+	/* An update without a version would overwrite changes the client never saw */
+	@ExceptionHandler(VersionRequiredException.class)
+	protected ResponseEntity<ApiResponse<Void>> handleVersionRequired(
+			final VersionRequiredException ex, final WebRequest webRequest) {
+		LOG.warn("VersionRequiredException caught: {}", ex.getMessage());
+		return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED)
+				.body(
+						ApiResponse.<Void>builder()
+								.apiError(
+										ApiError.builder()
+												.description(ex.getMessage())
+												.httpStatus(HttpStatus.PRECONDITION_REQUIRED.value())
+												.path(webRequest.getDescription(false))
+												.build())
+								.build());
+	}
+
+	/* Shed load, clients retry after the advertised delay */
+	@ExceptionHandler(ServiceOverloadedException.class)
+	protected ResponseEntity<ApiResponse<Void>> handleServiceOverloaded(
+			final ServiceOverloadedException ex, final WebRequest webRequest) {
+		LOG.warn("ServiceOverloadedException caught: {}", ex.getMessage());
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+				.body(
+						ApiResponse.<Void>builder()
+								.apiError(
+										ApiError.builder()
+												.description(ex.getMessage())
+												.httpStatus(HttpStatus.SERVICE_UNAVAILABLE.value())
+												.path(webRequest.getDescription(false))
+												.build())
+								.build());
+	}
+
 	@ExceptionHandler(AssertionError.class)
 	protected ResponseEntity<ApiResponse<Void>> handleAssertionError(
 			final AssertionError ex, final WebRequest webRequest) {
@@ -0,0 +1,18 @@
+package gr.digital.systems.crm.configuration;
+
+import gr.digital.systems.crm.component.QueryCountFilter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+	/* Hibernate calls the inspector for every statement it prepares */
+	@Bean
+	public HibernatePropertiesCustomizer queryCountCustomizer() {
+		return properties ->
+				properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountFilter.Inspector());
+	}
+}
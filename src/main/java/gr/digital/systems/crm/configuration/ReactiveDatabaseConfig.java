@@ -0,0 +1,47 @@
+package gr.digital.systems.crm.configuration;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+@Configuration
+public class ReactiveDatabaseConfig {
+
+	/* Kept out of the context on purpose, a ConnectionFactory bean disables the JDBC DataSource */
+	private final ConnectionPool connectionPool;
+
+	@Autowired
+	public ReactiveDatabaseConfig(final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		final var options =
+				ConnectionFactoryOptions.parse(environmentPropertiesConfig.getReactiveUrl())
+						.mutate()
+						.option(
+								ConnectionFactoryOptions.USER, environmentPropertiesConfig.getReactiveUsername())
+						.option(
+								ConnectionFactoryOptions.PASSWORD,
+								environmentPropertiesConfig.getReactivePassword())
+						.build();
+		this.connectionPool =
+				new ConnectionPool(
+						ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+								.name("dsCrmReactivePool")
+								.maxSize(environmentPropertiesConfig.getReactivePoolMaxSize())
+								.build());
+	}
+
+	@Bean
+	public DatabaseClient databaseClient() {
+		return DatabaseClient.create(this.connectionPool);
+	}
+
+	@PreDestroy
+	public void close() {
+		this.connectionPool.dispose();
+	}
+}
@@ -0,0 +1,167 @@
+package gr.digital.systems.crm.configuration;
+
+import gr.digital.systems.crm.utils.PrimaryReadContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+/**
+ * Hands out replica connections to read-only transactions, round robin over the healthy replicas,
+ * and primary connections to everything else, including the reads bound to {@link
+ * PrimaryReadContext}. A replica is healthy while it accepts connections and lags at most the
+ * tolerated seconds behind the primary; with no healthy replica the reads fail over to the primary.
+ * Must be wrapped in a LazyConnectionDataSourceProxy, the transaction manager asks for the
+ * connection before the read-only flag of the transaction is set.
+ */
+class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	private final DataSource primary;
+	private final List<Replica> replicas;
+	private final String lagQuery;
+	private final String lagColumn;
+	private final long maxLag;
+	private final AtomicInteger next = new AtomicInteger();
+	private final ScheduledExecutorService healthChecker =
+			Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("replica-health-"));
+
+	/**
+	 * @param primary The datasource of writes and of reads when no replica is healthy.
+	 * @param replicas The datasources of read-only transactions.
+	 * @param lagQuery The query returning the replication lag in seconds, blank to only check the
+	 *     connection, no row means the database does not replicate.
+	 * @param lagColumn The column of the lag in the result of the lag query.
+	 * @param maxLag The lag in seconds above which a replica is taken out of rotation.
+	 * @param healthInterval The milliseconds between health checks, 0 disables the scheduled checks.
+	 */
+	ReplicaRoutingDataSource(
+			final DataSource primary,
+			final List<? extends DataSource> replicas,
+			final String lagQuery,
+			final String lagColumn,
+			final long maxLag,
+			final long healthInterval) {
+		this.primary = primary;
+		this.replicas = replicas.stream().map(Replica::new).toList();
+		this.lagQuery = lagQuery;
+		this.lagColumn = lagColumn;
+		this.maxLag = maxLag;
+
+		/* Checked before the first read, then in the background */
+		this.checkHealth();
+		if (healthInterval > 0) {
+			this.healthChecker.scheduleWithFixedDelay(
+					this::checkHealth, healthInterval, healthInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return this.target().getConnection();
+	}
+
+	@Override
+	public Connection getConnection(final String username, final String password)
+			throws SQLException {
+		return this.target().getConnection(username, password);
+	}
+
+	/* Pool metrics and health indicators look for the primary pool */
+	@Override
+	public <T> T unwrap(final Class<T> type) throws SQLException {
+		return type.isInstance(this) ? type.cast(this) : this.primary.unwrap(type);
+	}
+
+	@Override
+	public boolean isWrapperFor(final Class<?> type) throws SQLException {
+		return type.isInstance(this) || this.primary.isWrapperFor(type);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.healthChecker.shutdownNow();
+		for (final var replica : this.replicas) {
+			if (replica.dataSource instanceof Closeable closeable) {
+				closeable.close();
+			}
+		}
+		if (this.primary instanceof Closeable closeable) {
+			closeable.close();
+		}
+	}
+
+	DataSource target() {
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+				|| PrimaryReadContext.isActive()) {
+			return this.primary;
+		}
+		final var start = this.next.getAndIncrement();
+		for (var i = 0; i < this.replicas.size(); i++) {
+			final var replica = this.replicas.get(Math.floorMod(start + i, this.replicas.size()));
+			if (replica.healthy) {
+				return replica.dataSource;
+			}
+		}
+		return this.primary;
+	}
+
+	void checkHealth() {
+		for (var i = 0; i < this.replicas.size(); i++) {
+			final var replica = this.replicas.get(i);
+			final var healthy = this.isHealthy(replica.dataSource);
+			if (healthy != replica.healthy) {
+				if (healthy) {
+					LOG.info("Replica {} is back in the read rotation.", i);
+				} else {
+					LOG.warn("Replica {} is out of the read rotation.", i);
+				}
+			}
+			replica.healthy = healthy;
+		}
+	}
+
+	private boolean isHealthy(final DataSource dataSource) {
+		try (var connection = dataSource.getConnection()) {
+			if (!StringUtils.hasText(this.lagQuery)) {
+				return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+			}
+			try (var statement = connection.createStatement();
+					var resultSet = statement.executeQuery(this.lagQuery)) {
+				if (!resultSet.next()) {
+					return true;
+				}
+				/* A null lag means the replication threads are stopped */
+				final var lag = resultSet.getLong(this.lagColumn);
+				return !resultSet.wasNull() && lag <= this.maxLag;
+			}
+		} catch (final SQLException e) {
+			LOG.debug("Replica health check failed: {}", e.getMessage());
+			return false;
+		}
+	}
+
+	private static final class Replica {
+		private final DataSource dataSource;
+		private volatile boolean healthy;
+
+		private Replica(final DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package gr.digital.systems.crm.configuration;
+
+import gr.digital.systems.crm.utils.TenantContext;
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+@Configuration
+public class TenantConfig {
+
+	/* Streamed responses are written on the task executor, they keep the tenant of the request */
+	@Bean
+	public TaskDecorator tenantTaskDecorator() {
+		return TenantContext::wrap;
+	}
+
+	/**
+	 * Resolves the tenant of the thread that opens the session. Hibernate sets the tenant column of
+	 * every insert and restricts every query to the tenant, the resolver is named in the
+	 * hibernate.tenant_identifier_resolver property so JPA test slices pick it up as well.
+	 */
+	public static final class Resolver implements CurrentTenantIdentifierResolver<String> {
+
+		@Override
+		public String resolveCurrentTenantIdentifier() {
+			return TenantContext.get();
+		}
+
+		/* Sessions are opened per transaction by Spring, never reused across tenants */
+		@Override
+		public boolean validateExistingCurrentSessions() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,201 @@
+package gr.digital.systems.crm.configuration;
+
+import gr.digital.systems.crm.utils.TenantContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Hands out the connections of a tenant with a datasource of its own, e.g. a large tenant moved to
+ * its own schema, from that datasource and the connections of all other tenants from the shared
+ * datasource. A tenant holds at most maxConnections shared connections at a time, further requests
+ * of the tenant wait for one of them to close, so a busy tenant cannot take the whole shared pool.
+ * Permits are re-entrant per thread: a thread that holds a connection of the budget opens further
+ * ones without waiting, e.g. the isolated connection of the table based id generator or a nested
+ * transaction, which would otherwise wait for a permit the same thread holds. The budget applies to
+ * every tenant, also when there is only one, so it is set below the pool size only when the shared
+ * pool has several tenants.
+ */
+class TenantRoutingDataSource extends AbstractDataSource implements Closeable {
+
+	private final DataSource shared;
+	private final Map<String, ? extends DataSource> dedicated;
+	private final int maxConnections;
+	private final long timeout;
+	private final Map<String, Semaphore> budgets = new ConcurrentHashMap<>();
+
+	/* The open connections of the current thread per budget, counted down by the close of each */
+	private final ThreadLocal<Map<Semaphore, AtomicInteger>> held =
+			ThreadLocal.withInitial(HashMap::new);
+
+	/**
+	 * @param shared The datasource of the tenants without one of their own.
+	 * @param dedicated The datasources keyed by tenant id.
+	 * @param maxConnections The shared connections a tenant may hold at once, 0 for no limit.
+	 * @param timeout The milliseconds to wait for a free connection of the budget of the tenant.
+	 */
+	TenantRoutingDataSource(
+			final DataSource shared,
+			final Map<String, ? extends DataSource> dedicated,
+			final int maxConnections,
+			final long timeout) {
+		this.shared = shared;
+		this.dedicated = dedicated;
+		this.maxConnections = maxConnections;
+		this.timeout = timeout;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		final var tenant = TenantContext.get();
+		final var dataSource = this.dedicated.get(tenant);
+		if (dataSource != null) {
+			return dataSource.getConnection();
+		}
+		final var lease = this.acquire(tenant);
+		try {
+			return budgeted(this.shared.getConnection(), lease);
+		} catch (final SQLException | RuntimeException e) {
+			release(lease);
+			throw e;
+		}
+	}
+
+	@Override
+	public Connection getConnection(final String username, final String password)
+			throws SQLException {
+		final var tenant = TenantContext.get();
+		final var dataSource = this.dedicated.get(tenant);
+		if (dataSource != null) {
+			return dataSource.getConnection(username, password);
+		}
+		final var lease = this.acquire(tenant);
+		try {
+			return budgeted(this.shared.getConnection(username, password), lease);
+		} catch (final SQLException | RuntimeException e) {
+			release(lease);
+			throw e;
+		}
+	}
+
+	/* Pool metrics and health indicators look for the shared pool */
+	@Override
+	public <T> T unwrap(final Class<T> type) throws SQLException {
+		return type.isInstance(this) ? type.cast(this) : this.shared.unwrap(type);
+	}
+
+	@Override
+	public boolean isWrapperFor(final Class<?> type) throws SQLException {
+		return type.isInstance(this) || this.shared.isWrapperFor(type);
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (final var dataSource : this.dedicated.values()) {
+			if (dataSource instanceof Closeable closeable) {
+				closeable.close();
+			}
+		}
+		if (this.shared instanceof Closeable closeable) {
+			closeable.close();
+		}
+	}
+
+	/**
+	 * @param tenant The tenant id.
+	 * @return The shared connections the tenant could still take, -1 without a limit.
+	 */
+	int available(final String tenant) {
+		final var budget = this.budgets.get(tenant);
+		return this.maxConnections <= 0
+				? -1
+				: budget == null ? this.maxConnections : budget.availablePermits();
+	}
+
+	/* Fails like an exhausted pool, the caller sees the same transient exception as from Hikari */
+	private Lease acquire(final String tenant) throws SQLException {
+		if (this.maxConnections <= 0) {
+			return null;
+		}
+		final var budget =
+				this.budgets.computeIfAbsent(tenant, key -> new Semaphore(this.maxConnections, true));
+		final var held = this.held.get().computeIfAbsent(budget, key -> new AtomicInteger());
+		/* The thread holds the permit already, another connection of it must not wait for itself */
+		if (held.getAndIncrement() > 0) {
+			return new Lease(budget, held);
+		}
+		try {
+			if (!budget.tryAcquire(this.timeout, TimeUnit.MILLISECONDS)) {
+				held.decrementAndGet();
+				throw new SQLTransientConnectionException(
+						"Tenant "
+								+ tenant
+								+ " holds all of its "
+								+ this.maxConnections
+								+ " shared connections, request timed out after "
+								+ this.timeout
+								+ "ms");
+			}
+		} catch (final InterruptedException e) {
+			held.decrementAndGet();
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted waiting for a connection", e);
+		}
+		return new Lease(budget, held);
+	}
+
+	/* The permit goes back with the last open connection of the thread */
+	private static void release(final Lease lease) {
+		if (lease != null && lease.held().decrementAndGet() == 0) {
+			lease.budget().release();
+		}
+	}
+
+	/* Each connection counts once, with its first close */
+	private static Connection budgeted(final Connection connection, final Lease lease) {
+		if (lease == null) {
+			return connection;
+		}
+		final var closed = new AtomicBoolean();
+		return (Connection)
+				Proxy.newProxyInstance(
+						Connection.class.getClassLoader(),
+						new Class<?>[] {Connection.class},
+						(proxy, method, args) -> {
+							if ("equals".equals(method.getName())) {
+								return proxy == args[0];
+							}
+							if ("hashCode".equals(method.getName())) {
+								return System.identityHashCode(proxy);
+							}
+							if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+								try {
+									connection.close();
+								} finally {
+									release(lease);
+								}
+								return null;
+							}
+							try {
+								return method.invoke(connection, args);
+							} catch (final InvocationTargetException e) {
+								throw e.getTargetException();
+							}
+						});
+	}
+
+	private record Lease(Semaphore budget, AtomicInteger held) {}
+}
@@ -0,0 +1,76 @@
+package gr.digital.systems.crm.configuration;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.WebContentInterceptor;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+	private final EnvironmentPropertiesConfig environmentPropertiesConfig;
+	private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+	@Autowired
+	public WebMvcConfig(
+			final EnvironmentPropertiesConfig environmentPropertiesConfig,
+			final Jackson2ObjectMapperBuilder objectMapperBuilder) {
+		this.environmentPropertiesConfig = environmentPropertiesConfig;
+		this.objectMapperBuilder = objectMapperBuilder;
+	}
+
+	/*
+	 * Same serialization settings as the JSON responses, picked by Accept: application/cbor. Added
+	 * last, so requests without a specific Accept header keep getting JSON.
+	 */
+	@Override
+	public void extendMessageConverters(final List<HttpMessageConverter<?>> converters) {
+		converters.add(
+				new MappingJackson2CborHttpMessageConverter(
+						this.objectMapperBuilder.factory(new CBORFactory()).build()));
+	}
+
+	/*
+	 * The conditional reads may be cached by the client for a short time, then revalidated with their
+	 * ETag. Private, the responses depend on the tenant of the token, which shared caches such as
+	 * nginx do not key on. Set before the handler runs, so 304 responses carry it too.
+	 */
+	@Override
+	public void addInterceptors(final InterceptorRegistry registry) {
+		final var interceptor = new WebContentInterceptor();
+		interceptor.addCacheMapping(
+				CacheControl.maxAge(this.environmentPropertiesConfig.getHttpCacheMaxAge(), TimeUnit.SECONDS)
+						.cachePrivate()
+						.mustRevalidate(),
+				"/api/v1/*/find/*",
+				"/api/v1/*/findAll");
+		registry.addInterceptor(interceptor);
+
+		/* JSON or CBOR by Accept, a cache must not serve one to a client asking for the other */
+		registry
+				.addInterceptor(
+						new HandlerInterceptor() {
+							@Override
+							public boolean preHandle(
+									final HttpServletRequest request,
+									final HttpServletResponse response,
+									final Object handler) {
+								response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+								return true;
+							}
+						})
+				.addPathPatterns("/api/**");
+	}
+}
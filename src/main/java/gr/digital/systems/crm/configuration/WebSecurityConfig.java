@@ -1,6 +1,7 @@
 package gr.digital.systems.crm.configuration;
 
 import gr.digital.systems.crm.component.JwtRequestFilter;
+import gr.digital.systems.crm.component.RateLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -15,10 +16,13 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class WebSecurityConfig {
 
 	private final JwtRequestFilter jwtRequestFilter;
+	private final RateLimitFilter rateLimitFilter;
 
 	@Autowired
-	public WebSecurityConfig(final JwtRequestFilter jwtRequestFilter) {
+	public WebSecurityConfig(
+			final JwtRequestFilter jwtRequestFilter, final RateLimitFilter rateLimitFilter) {
 		this.jwtRequestFilter = jwtRequestFilter;
+		this.rateLimitFilter = rateLimitFilter;
 	}
 
 	@Bean
@@ -34,14 +38,16 @@ public class WebSecurityConfig {
 				.authorizeHttpRequests(
 						authorizeRequests ->
 								authorizeRequests
-										.requestMatchers("/authenticate", "/api/**")
+										.requestMatchers("/authenticate", "/api/**", JwtRequestFilter.PROMETHEUS_PATH)
 										/* Allow public access */
 										.permitAll()
 										.anyRequest()
 										/* Protect all other routes */
 										.authenticated())
 				/* Add the JWT filter before UsernamePasswordAuthenticationFilter */
-				.addFilterBefore(this.jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
+				.addFilterBefore(this.jwtRequestFilter, UsernamePasswordAuthenticationFilter.class)
+				/* Limit after the JWT filter, the buckets are keyed by the token subject */
+				.addFilterAfter(this.rateLimitFilter, JwtRequestFilter.class);
 
 		return http.build();
 	}
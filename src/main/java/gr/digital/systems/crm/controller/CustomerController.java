@@ -1,31 +1,152 @@
 package gr.digital.systems.crm.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.service.ChangeFeedService;
 import gr.digital.systems.crm.service.CustomerService;
+import gr.digital.systems.crm.service.ExportService;
 import gr.digital.systems.crm.transfer.ApiResponse;
+import gr.digital.systems.crm.transfer.CustomerFilter;
+import gr.digital.systems.crm.transfer.FileFormat;
+import gr.digital.systems.crm.transfer.KeysetPage;
+import gr.digital.systems.crm.utils.EntityTagUtils;
+import gr.digital.systems.crm.utils.NdjsonUtils;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/v1/customers")
 public class CustomerController {
 	private final CustomerService customerService;
+	private final ObjectMapper objectMapper;
+	private final ExportService exportService;
+	private final ChangeFeedService changeFeedService;
 
 	@Autowired
-	public CustomerController(final CustomerService customerService) {
+	public CustomerController(
+			final CustomerService customerService,
+			final ObjectMapper objectMapper,
+			final ExportService exportService,
+			final ChangeFeedService changeFeedService) {
 		this.customerService = customerService;
+		this.objectMapper = objectMapper;
+		this.exportService = exportService;
+		this.changeFeedService = changeFeedService;
 	}
 
 	@GetMapping("/findAll")
-	public ResponseEntity<ApiResponse<List<Customer>>> getAllCustomers() {
+	public ResponseEntity<ApiResponse<List<Customer>>> getAllCustomers(final WebRequest request) {
+		/* Answered with 304 from the aggregate revision, without loading the customers */
+		if (EntityTagUtils.notModified(request, this.customerService.getRevision())) {
+			return null;
+		}
 		return ResponseEntity.ok(
 				ApiResponse.<List<Customer>>builder().data(this.customerService.findAll()).build());
 	}
 
+	/* Only the listed columns are read and sent, e.g. ?fields=name,email */
+	@GetMapping(value = "/findAll", params = "fields")
+	public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getAllCustomersFields(
+			@RequestParam final Set<String> fields, final WebRequest request) {
+		if (EntityTagUtils.notModified(request, this.customerService.getRevision())) {
+			return null;
+		}
+		return ResponseEntity.ok(
+				ApiResponse.<List<Map<String, Object>>>builder()
+						.data(this.customerService.findAll(fields))
+						.build());
+	}
+
+	@GetMapping("/findAll/page")
+	public ResponseEntity<ApiResponse<KeysetPage<Customer>>> getCustomersPage(
+			@RequestParam(required = false) final Long after,
+			@RequestParam(defaultValue = "100") final int size) {
+		return ResponseEntity.ok(
+				ApiResponse.<KeysetPage<Customer>>builder()
+						.data(this.customerService.findAfter(after, size))
+						.build());
+	}
+
+	@GetMapping(value = "/findAll/page", params = "fields")
+	public ResponseEntity<ApiResponse<KeysetPage<Map<String, Object>>>> getCustomersPageFields(
+			@RequestParam final Set<String> fields,
+			@RequestParam(required = false) final Long after,
+			@RequestParam(defaultValue = "100") final int size) {
+		return ResponseEntity.ok(
+				ApiResponse.<KeysetPage<Map<String, Object>>>builder()
+						.data(this.customerService.findAfter(fields, after, size))
+						.build());
+	}
+
+	@GetMapping(value = "/findAll/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamCustomers() {
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.body(
+						outputStream ->
+								this.customerService.streamAll(
+										NdjsonUtils.lineWriter(this.objectMapper, outputStream)));
+	}
+
+	@GetMapping("/search")
+	public ResponseEntity<ApiResponse<KeysetPage<Customer>>> searchCustomers(
+			final CustomerFilter filter,
+			@RequestParam(required = false) final Long after,
+			@RequestParam(defaultValue = "100") final int size) {
+		return ResponseEntity.ok(
+				ApiResponse.<KeysetPage<Customer>>builder()
+						.data(this.customerService.search(filter, after, size))
+						.build());
+	}
+
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportCustomers(
+			@RequestParam(defaultValue = "csv") final String format,
+			@RequestParam(defaultValue = "false") final boolean gzip) {
+		final var exportFormat = FileFormat.from(format);
+		final var fileName = "customers." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+		return ResponseEntity.ok()
+				.contentType(
+						MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getMediaType()))
+				.header(
+						HttpHeaders.CONTENT_DISPOSITION,
+						ContentDisposition.attachment().filename(fileName).build().toString())
+				.body(
+						outputStream ->
+								this.exportService.export(
+										this.customerService,
+										exportFormat,
+										gzip,
+										"customers",
+										"customer",
+										outputStream));
+	}
+
+	/* Proxies must not buffer the stream, nginx honours X-Accel-Buffering */
+	@GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> streamCustomerChanges() {
+		return ResponseEntity.ok()
+				.header("X-Accel-Buffering", "no")
+				.body(this.changeFeedService.subscribe(Customer.class));
+	}
+
 	@GetMapping("find/{id}")
-	public ResponseEntity<ApiResponse<Customer>> getCustomerById(@PathVariable final Long id) {
+	public ResponseEntity<ApiResponse<Customer>> getCustomerById(
+			@PathVariable final Long id, final WebRequest request) {
+		/* The validators are set from the revision, the customer is only loaded when it changed */
+		if (EntityTagUtils.notModified(request, this.customerService.getRevision(id))) {
+			return null;
+		}
 		return ResponseEntity.ok(
 				ApiResponse.<Customer>builder().data(this.customerService.get(id)).build());
 	}
@@ -37,6 +158,15 @@ public class CustomerController {
 				ApiResponse.<Customer>builder().data(this.customerService.create(customer)).build());
 	}
 
+	@PostMapping("/createAll")
+	public ResponseEntity<ApiResponse<List<Customer>>> createCustomers(
+			@RequestBody final List<Customer> customerList) {
+		return ResponseEntity.ok(
+				ApiResponse.<List<Customer>>builder()
+						.data(this.customerService.createAll(customerList))
+						.build());
+	}
+
 	@DeleteMapping("/delete/{id}")
 	public ResponseEntity<ApiResponse<Customer>> deleteCustomer(@PathVariable final Long id) {
 		return ResponseEntity.ok(
@@ -45,8 +175,30 @@ public class CustomerController {
 
 	@PutMapping("/update")
 	public ResponseEntity<ApiResponse<Customer>> updateCustomer(
-			@RequestBody final Customer customer) {
-		return ResponseEntity.ok(
-				ApiResponse.<Customer>builder().data(this.customerService.update(customer)).build());
+			@RequestBody final Customer customer,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
+		/* The If-Match version takes precedence over the version in the body */
+		final var version = EntityTagUtils.version(ifMatch);
+		if (version != null) {
+			customer.setVersion(version);
+		}
+		final var updated = this.customerService.update(customer);
+		return ResponseEntity.ok()
+				.eTag(EntityTagUtils.of(updated))
+				.body(ApiResponse.<Customer>builder().data(updated).build());
+	}
+
+	@PatchMapping("/update/{id}")
+	public ResponseEntity<ApiResponse<Void>> patchCustomer(
+			@PathVariable final Long id,
+			@RequestBody final Map<String, Object> changes,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
+		final var version = EntityTagUtils.version(ifMatch);
+		this.customerService.patch(id, changes, version);
+		final var response = ResponseEntity.ok();
+		if (version != null) {
+			response.eTag(String.valueOf(version + 1));
+		}
+		return response.body(ApiResponse.<Void>builder().build());
 	}
 }
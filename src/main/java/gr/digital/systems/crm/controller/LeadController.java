@@ -1,31 +1,264 @@
 package gr.digital.systems.crm.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.digital.systems.crm.model.ConversionJob;
+import gr.digital.systems.crm.model.ImportJob;
 import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.model.LeadMatch;
+import gr.digital.systems.crm.service.ChangeFeedService;
+import gr.digital.systems.crm.service.ExportService;
+import gr.digital.systems.crm.service.LeadCaptureService;
+import gr.digital.systems.crm.service.LeadConversionService;
+import gr.digital.systems.crm.service.LeadImportService;
 import gr.digital.systems.crm.service.LeadService;
+import gr.digital.systems.crm.service.MatchingService;
 import gr.digital.systems.crm.transfer.ApiResponse;
+import gr.digital.systems.crm.transfer.CaptureStatus;
+import gr.digital.systems.crm.transfer.ConversionResult;
+import gr.digital.systems.crm.transfer.FileFormat;
+import gr.digital.systems.crm.transfer.KeysetPage;
+import gr.digital.systems.crm.transfer.LeadConversion;
+import gr.digital.systems.crm.transfer.LeadFilter;
+import gr.digital.systems.crm.transfer.MatchReport;
+import gr.digital.systems.crm.utils.EntityTagUtils;
+import gr.digital.systems.crm.utils.NdjsonUtils;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/v1/leads")
 public class LeadController {
 	private final LeadService leadService;
+	private final ObjectMapper objectMapper;
+	private final ExportService exportService;
+	private final ChangeFeedService changeFeedService;
+	private final LeadImportService leadImportService;
+	private final MatchingService matchingService;
+	private final LeadConversionService leadConversionService;
+	private final LeadCaptureService leadCaptureService;
 
 	@Autowired
-	public LeadController(final LeadService leadService) {
+	public LeadController(
+			final LeadService leadService,
+			final ObjectMapper objectMapper,
+			final ExportService exportService,
+			final ChangeFeedService changeFeedService,
+			final LeadImportService leadImportService,
+			final MatchingService matchingService,
+			final LeadConversionService leadConversionService,
+			final LeadCaptureService leadCaptureService) {
 		this.leadService = leadService;
+		this.objectMapper = objectMapper;
+		this.exportService = exportService;
+		this.changeFeedService = changeFeedService;
+		this.leadImportService = leadImportService;
+		this.matchingService = matchingService;
+		this.leadConversionService = leadConversionService;
+		this.leadCaptureService = leadCaptureService;
 	}
 
 	@GetMapping("/findAll")
-	public ResponseEntity<ApiResponse<List<Lead>>> getAllLeads() {
+	public ResponseEntity<ApiResponse<List<Lead>>> getAllLeads(final WebRequest request) {
+		/* Answered with 304 from the aggregate revision, without loading the leads */
+		if (EntityTagUtils.notModified(request, this.leadService.getRevision())) {
+			return null;
+		}
 		return ResponseEntity.ok(
 				ApiResponse.<List<Lead>>builder().data(this.leadService.findAll()).build());
 	}
 
+	/* Only the listed columns are read and sent, e.g. ?fields=name,email */
+	@GetMapping(value = "/findAll", params = "fields")
+	public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getAllLeadsFields(
+			@RequestParam final Set<String> fields, final WebRequest request) {
+		if (EntityTagUtils.notModified(request, this.leadService.getRevision())) {
+			return null;
+		}
+		return ResponseEntity.ok(
+				ApiResponse.<List<Map<String, Object>>>builder()
+						.data(this.leadService.findAll(fields))
+						.build());
+	}
+
+	@GetMapping("/findAll/page")
+	public ResponseEntity<ApiResponse<KeysetPage<Lead>>> getLeadsPage(
+			@RequestParam(required = false) final Long after,
+			@RequestParam(defaultValue = "100") final int size) {
+		return ResponseEntity.ok(
+				ApiResponse.<KeysetPage<Lead>>builder()
+						.data(this.leadService.findAfter(after, size))
+						.build());
+	}
+
+	@GetMapping(value = "/findAll/page", params = "fields")
+	public ResponseEntity<ApiResponse<KeysetPage<Map<String, Object>>>> getLeadsPageFields(
+			@RequestParam final Set<String> fields,
+			@RequestParam(required = false) final Long after,
+			@RequestParam(defaultValue = "100") final int size) {
+		return ResponseEntity.ok(
+				ApiResponse.<KeysetPage<Map<String, Object>>>builder()
+						.data(this.leadService.findAfter(fields, after, size))
+						.build());
+	}
+
+	@GetMapping(value = "/findAll/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamLeads() {
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.body(
+						outputStream ->
+								this.leadService.streamAll(
+										NdjsonUtils.lineWriter(this.objectMapper, outputStream)));
+	}
+
+	@GetMapping("/search")
+	public ResponseEntity<ApiResponse<KeysetPage<Lead>>> searchLeads(
+			final LeadFilter filter,
+			@RequestParam(required = false) final Long after,
+			@RequestParam(defaultValue = "100") final int size) {
+		return ResponseEntity.ok(
+				ApiResponse.<KeysetPage<Lead>>builder()
+						.data(this.leadService.search(filter, after, size))
+						.build());
+	}
+
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportLeads(
+			@RequestParam(defaultValue = "csv") final String format,
+			@RequestParam(defaultValue = "false") final boolean gzip) {
+		final var exportFormat = FileFormat.from(format);
+		final var fileName = "leads." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+		return ResponseEntity.ok()
+				.contentType(
+						MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getMediaType()))
+				.header(
+						HttpHeaders.CONTENT_DISPOSITION,
+						ContentDisposition.attachment().filename(fileName).build().toString())
+				.body(
+						outputStream ->
+								this.exportService.export(
+										this.leadService, exportFormat, gzip, "leads", "lead", outputStream));
+	}
+
+	@PostMapping("/import")
+	public ResponseEntity<ApiResponse<ImportJob>> importLeads(
+			@RequestParam(defaultValue = "csv") final String format, final InputStream inputStream) {
+		return ResponseEntity.accepted()
+				.body(
+						ApiResponse.<ImportJob>builder()
+								.data(this.leadImportService.submit(inputStream, FileFormat.from(format)))
+								.build());
+	}
+
+	@GetMapping("/import/{id}")
+	public ResponseEntity<ApiResponse<ImportJob>> getImport(@PathVariable final Long id) {
+		return ResponseEntity.ok(
+				ApiResponse.<ImportJob>builder().data(this.leadImportService.get(id)).build());
+	}
+
+	@PostMapping("/import/{id}/resume")
+	public ResponseEntity<ApiResponse<ImportJob>> resumeImport(@PathVariable final Long id) {
+		return ResponseEntity.accepted()
+				.body(ApiResponse.<ImportJob>builder().data(this.leadImportService.resume(id)).build());
+	}
+
+	/* Acknowledged once queued, the lead is stored shortly after by a batched background write */
+	@PostMapping("/capture")
+	public ResponseEntity<ApiResponse<CaptureStatus>> captureLead(@RequestBody final Lead lead) {
+		return ResponseEntity.accepted()
+				.body(
+						ApiResponse.<CaptureStatus>builder()
+								.data(this.leadCaptureService.capture(lead))
+								.build());
+	}
+
+	@GetMapping("/capture/{trackingId}")
+	public ResponseEntity<ApiResponse<CaptureStatus>> getCapture(
+			@PathVariable final String trackingId) {
+		return ResponseEntity.ok(
+				ApiResponse.<CaptureStatus>builder().data(this.leadCaptureService.get(trackingId)).build());
+	}
+
+	@PostMapping("/convert/{id}")
+	public ResponseEntity<ApiResponse<ConversionResult>> convertLead(
+			@PathVariable final Long id, @RequestBody(required = false) final LeadConversion conversion) {
+		return ResponseEntity.ok(
+				ApiResponse.<ConversionResult>builder()
+						.data(
+								this.leadConversionService.convert(
+										id, conversion == null ? LeadConversion.builder().build() : conversion))
+						.build());
+	}
+
+	@PostMapping("/conversions")
+	public ResponseEntity<ApiResponse<ConversionJob>> convertLeads(
+			@RequestBody final LeadConversion conversion) {
+		return ResponseEntity.accepted()
+				.body(
+						ApiResponse.<ConversionJob>builder()
+								.data(this.leadConversionService.submit(conversion))
+								.build());
+	}
+
+	@GetMapping("/conversions/{id}")
+	public ResponseEntity<ApiResponse<ConversionJob>> getConversion(@PathVariable final Long id) {
+		return ResponseEntity.ok(
+				ApiResponse.<ConversionJob>builder().data(this.leadConversionService.get(id)).build());
+	}
+
+	@PostMapping("/conversions/{id}/resume")
+	public ResponseEntity<ApiResponse<ConversionJob>> resumeConversion(@PathVariable final Long id) {
+		return ResponseEntity.accepted()
+				.body(
+						ApiResponse.<ConversionJob>builder()
+								.data(this.leadConversionService.resume(id))
+								.build());
+	}
+
+	@PostMapping("/matches")
+	public ResponseEntity<ApiResponse<MatchReport>> runMatching() {
+		return ResponseEntity.accepted()
+				.body(ApiResponse.<MatchReport>builder().data(this.matchingService.runBatch()).build());
+	}
+
+	@GetMapping("/matches")
+	public ResponseEntity<ApiResponse<MatchReport>> getMatchingReport() {
+		return ResponseEntity.ok(
+				ApiResponse.<MatchReport>builder().data(this.matchingService.getReport()).build());
+	}
+
+	@GetMapping("/matches/{id}")
+	public ResponseEntity<ApiResponse<List<LeadMatch>>> getLeadMatches(@PathVariable final Long id) {
+		return ResponseEntity.ok(
+				ApiResponse.<List<LeadMatch>>builder().data(this.matchingService.getMatches(id)).build());
+	}
+
+	/* Proxies must not buffer the stream, nginx honours X-Accel-Buffering */
+	@GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> streamLeadChanges() {
+		return ResponseEntity.ok()
+				.header("X-Accel-Buffering", "no")
+				.body(this.changeFeedService.subscribe(Lead.class));
+	}
+
 	@GetMapping("find/{id}")
-	public ResponseEntity<ApiResponse<Lead>> getLeadById(@PathVariable final Long id) {
+	public ResponseEntity<ApiResponse<Lead>> getLeadById(
+			@PathVariable final Long id, final WebRequest request) {
+		/* The validators are set from the revision, the lead is only loaded when it changed */
+		if (EntityTagUtils.notModified(request, this.leadService.getRevision(id))) {
+			return null;
+		}
 		return ResponseEntity.ok(ApiResponse.<Lead>builder().data(this.leadService.get(id)).build());
 	}
 
@@ -35,6 +268,13 @@ public class LeadController {
 				ApiResponse.<Lead>builder().data(this.leadService.create(lead)).build());
 	}
 
+	@PostMapping("/createAll")
+	public ResponseEntity<ApiResponse<List<Lead>>> createLeads(
+			@RequestBody final List<Lead> leadList) {
+		return ResponseEntity.ok(
+				ApiResponse.<List<Lead>>builder().data(this.leadService.createAll(leadList)).build());
+	}
+
 	@DeleteMapping("/delete/{id}")
 	public ResponseEntity<ApiResponse<Lead>> deleteLead(@PathVariable final Long id) {
 		return ResponseEntity.ok(
@@ -42,8 +282,31 @@ public class LeadController {
 	}
 
 	@PutMapping("/update")
-	public ResponseEntity<ApiResponse<Lead>> updateLead(@RequestBody final Lead lead) {
-		return ResponseEntity.ok(
-				ApiResponse.<Lead>builder().data(this.leadService.update(lead)).build());
+	public ResponseEntity<ApiResponse<Lead>> updateLead(
+			@RequestBody final Lead lead,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
+		/* The If-Match version takes precedence over the version in the body */
+		final var version = EntityTagUtils.version(ifMatch);
+		if (version != null) {
+			lead.setVersion(version);
+		}
+		final var updated = this.leadService.update(lead);
+		return ResponseEntity.ok()
+				.eTag(EntityTagUtils.of(updated))
+				.body(ApiResponse.<Lead>builder().data(updated).build());
+	}
+
+	@PatchMapping("/update/{id}")
+	public ResponseEntity<ApiResponse<Void>> patchLead(
+			@PathVariable final Long id,
+			@RequestBody final Map<String, Object> changes,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
+		final var version = EntityTagUtils.version(ifMatch);
+		this.leadService.patch(id, changes, version);
+		final var response = ResponseEntity.ok();
+		if (version != null) {
+			response.eTag(String.valueOf(version + 1));
+		}
+		return response.body(ApiResponse.<Void>builder().build());
 	}
 }
@@ -1,31 +1,161 @@
 package gr.digital.systems.crm.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.service.ChangeFeedService;
+import gr.digital.systems.crm.service.ExportService;
 import gr.digital.systems.crm.service.OpportunityService;
+import gr.digital.systems.crm.service.PipelineService;
 import gr.digital.systems.crm.transfer.ApiResponse;
+import gr.digital.systems.crm.transfer.FileFormat;
+import gr.digital.systems.crm.transfer.KeysetPage;
+import gr.digital.systems.crm.transfer.OpportunitySummary;
+import gr.digital.systems.crm.transfer.PipelineReport;
+import gr.digital.systems.crm.utils.EntityTagUtils;
+import gr.digital.systems.crm.utils.NdjsonUtils;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/v1/opportunities")
 public class OpportunityController {
 	private final OpportunityService opportunityService;
+	private final ObjectMapper objectMapper;
+	private final ExportService exportService;
+	private final ChangeFeedService changeFeedService;
+	private final PipelineService pipelineService;
 
 	@Autowired
-	public OpportunityController(final OpportunityService opportunityService) {
+	public OpportunityController(
+			final OpportunityService opportunityService,
+			final ObjectMapper objectMapper,
+			final ExportService exportService,
+			final ChangeFeedService changeFeedService,
+			final PipelineService pipelineService) {
 		this.opportunityService = opportunityService;
+		this.objectMapper = objectMapper;
+		this.exportService = exportService;
+		this.changeFeedService = changeFeedService;
+		this.pipelineService = pipelineService;
 	}
 
 	@GetMapping("/findAll")
-	public ResponseEntity<ApiResponse<List<Opportunity>>> getAllOpportunities() {
+	public ResponseEntity<ApiResponse<List<Opportunity>>> getAllOpportunities(
+			final WebRequest request) {
+		/* Answered with 304 from the aggregate revision, without loading the opportunities */
+		if (EntityTagUtils.notModified(request, this.opportunityService.getRevision())) {
+			return null;
+		}
 		return ResponseEntity.ok(
 				ApiResponse.<List<Opportunity>>builder().data(this.opportunityService.findAll()).build());
 	}
 
+	@GetMapping("/findAll/summary")
+	public ResponseEntity<ApiResponse<List<OpportunitySummary>>> getAllOpportunitySummaries() {
+		return ResponseEntity.ok(
+				ApiResponse.<List<OpportunitySummary>>builder()
+						.data(this.opportunityService.findAllSummaries())
+						.build());
+	}
+
+	@GetMapping("/pipeline")
+	public ResponseEntity<ApiResponse<PipelineReport>> getPipeline() {
+		return ResponseEntity.ok(
+				ApiResponse.<PipelineReport>builder().data(this.pipelineService.getReport()).build());
+	}
+
+	/* Only the listed columns are read and sent, e.g. ?fields=name,email */
+	@GetMapping(value = "/findAll", params = "fields")
+	public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getAllOpportunitiesFields(
+			@RequestParam final Set<String> fields, final WebRequest request) {
+		if (EntityTagUtils.notModified(request, this.opportunityService.getRevision())) {
+			return null;
+		}
+		return ResponseEntity.ok(
+				ApiResponse.<List<Map<String, Object>>>builder()
+						.data(this.opportunityService.findAll(fields))
+						.build());
+	}
+
+	@GetMapping("/findAll/page")
+	public ResponseEntity<ApiResponse<KeysetPage<Opportunity>>> getOpportunitiesPage(
+			@RequestParam(required = false) final Long after,
+			@RequestParam(defaultValue = "100") final int size) {
+		return ResponseEntity.ok(
+				ApiResponse.<KeysetPage<Opportunity>>builder()
+						.data(this.opportunityService.findAfter(after, size))
+						.build());
+	}
+
+	@GetMapping(value = "/findAll/page", params = "fields")
+	public ResponseEntity<ApiResponse<KeysetPage<Map<String, Object>>>> getOpportunitiesPageFields(
+			@RequestParam final Set<String> fields,
+			@RequestParam(required = false) final Long after,
+			@RequestParam(defaultValue = "100") final int size) {
+		return ResponseEntity.ok(
+				ApiResponse.<KeysetPage<Map<String, Object>>>builder()
+						.data(this.opportunityService.findAfter(fields, after, size))
+						.build());
+	}
+
+	@GetMapping(value = "/findAll/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamOpportunities() {
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_NDJSON)
+				.body(
+						outputStream ->
+								this.opportunityService.streamAll(
+										NdjsonUtils.lineWriter(this.objectMapper, outputStream)));
+	}
+
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportOpportunities(
+			@RequestParam(defaultValue = "csv") final String format,
+			@RequestParam(defaultValue = "false") final boolean gzip) {
+		final var exportFormat = FileFormat.from(format);
+		final var fileName = "opportunities." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+		return ResponseEntity.ok()
+				.contentType(
+						MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getMediaType()))
+				.header(
+						HttpHeaders.CONTENT_DISPOSITION,
+						ContentDisposition.attachment().filename(fileName).build().toString())
+				.body(
+						outputStream ->
+								this.exportService.export(
+										this.opportunityService,
+										exportFormat,
+										gzip,
+										"opportunities",
+										"opportunity",
+										outputStream));
+	}
+
+	/* Proxies must not buffer the stream, nginx honours X-Accel-Buffering */
+	@GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public ResponseEntity<SseEmitter> streamOpportunityChanges() {
+		return ResponseEntity.ok()
+				.header("X-Accel-Buffering", "no")
+				.body(this.changeFeedService.subscribe(Opportunity.class));
+	}
+
 	@GetMapping("find/{id}")
-	public ResponseEntity<ApiResponse<Opportunity>> getOpportunityById(@PathVariable final Long id) {
+	public ResponseEntity<ApiResponse<Opportunity>> getOpportunityById(
+			@PathVariable final Long id, final WebRequest request) {
+		/* The validators are set from the revision, the opportunity is only loaded when it changed */
+		if (EntityTagUtils.notModified(request, this.opportunityService.getRevision(id))) {
+			return null;
+		}
 		return ResponseEntity.ok(
 				ApiResponse.<Opportunity>builder().data(this.opportunityService.get(id)).build());
 	}
@@ -39,6 +169,15 @@ public class OpportunityController {
 						.build());
 	}
 
+	@PostMapping("/createAll")
+	public ResponseEntity<ApiResponse<List<Opportunity>>> createOpportunities(
+			@RequestBody final List<Opportunity> opportunityList) {
+		return ResponseEntity.ok(
+				ApiResponse.<List<Opportunity>>builder()
+						.data(this.opportunityService.createAll(opportunityList))
+						.build());
+	}
+
 	@DeleteMapping("/delete/{id}")
 	public ResponseEntity<ApiResponse<Opportunity>> deleteOpportunity(@PathVariable final Long id) {
 		return ResponseEntity.ok(
@@ -47,10 +186,31 @@ public class OpportunityController {
 
 	@PutMapping("/update")
 	public ResponseEntity<ApiResponse<Opportunity>> updateOpportunity(
-			@RequestBody final Opportunity opportunity) {
-		return ResponseEntity.ok(
-				ApiResponse.<Opportunity>builder()
-						.data(this.opportunityService.update(opportunity))
-						.build());
+			@RequestBody final Opportunity opportunity,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
+		/* The If-Match version takes precedence over the version in the body */
+		final var version = EntityTagUtils.version(ifMatch);
+		if (version != null) {
+			opportunity.setVersion(version);
+		}
+		final var updated = this.opportunityService.update(opportunity);
+		return ResponseEntity.ok()
+				.eTag(EntityTagUtils.of(updated))
+				.body(ApiResponse.<Opportunity>builder().data(updated).build());
+	}
+
+	@PatchMapping("/update/{id}")
+	public ResponseEntity<ApiResponse<Void>> patchOpportunity(
+			@PathVariable final Long id,
+			@RequestBody final Map<String, Object> changes,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
+		final var version = EntityTagUtils.version(ifMatch);
+		this.opportunityService.patch(id, changes, version);
+		final var response = ResponseEntity.ok();
+		/* The tag also holds the version of the customer, which the patch may have replaced */
+		if (version != null) {
+			response.eTag(this.opportunityService.getRevision(id).getEntityTag());
+		}
+		return response.body(ApiResponse.<Void>builder().build());
 	}
 }
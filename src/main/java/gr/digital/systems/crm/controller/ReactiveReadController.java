@@ -0,0 +1,103 @@
+package gr.digital.systems.crm.controller;
+
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.BaseEntity;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.repository.CustomerReactiveRepository;
+import gr.digital.systems.crm.repository.LeadReactiveRepository;
+import gr.digital.systems.crm.repository.OpportunityReactiveRepository;
+import gr.digital.systems.crm.transfer.ApiResponse;
+import gr.digital.systems.crm.utils.EntityTagUtils;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Read only mirror of the find endpoints over R2DBC. The request thread is released while the
+ * database answers, writes stay on the blocking controllers.
+ */
+@RestController
+@RequestMapping("/api/v1/reactive")
+public class ReactiveReadController {
+	private final CustomerReactiveRepository customerRepository;
+	private final LeadReactiveRepository leadRepository;
+	private final OpportunityReactiveRepository opportunityRepository;
+
+	@Autowired
+	public ReactiveReadController(
+			final CustomerReactiveRepository customerRepository,
+			final LeadReactiveRepository leadRepository,
+			final OpportunityReactiveRepository opportunityRepository) {
+		this.customerRepository = customerRepository;
+		this.leadRepository = leadRepository;
+		this.opportunityRepository = opportunityRepository;
+	}
+
+	@GetMapping("/customers/findAll")
+	public Mono<ApiResponse<List<Customer>>> getAllCustomers() {
+		return list(this.customerRepository.findAll());
+	}
+
+	@GetMapping(value = "/customers/findAll/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<Customer> streamCustomers() {
+		return this.customerRepository.findAll();
+	}
+
+	@GetMapping("/customers/find/{id}")
+	public Mono<ResponseEntity<ApiResponse<Customer>>> getCustomerById(@PathVariable final Long id) {
+		return one(this.customerRepository.findById(id));
+	}
+
+	@GetMapping("/leads/findAll")
+	public Mono<ApiResponse<List<Lead>>> getAllLeads() {
+		return list(this.leadRepository.findAll());
+	}
+
+	@GetMapping(value = "/leads/findAll/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<Lead> streamLeads() {
+		return this.leadRepository.findAll();
+	}
+
+	@GetMapping("/leads/find/{id}")
+	public Mono<ResponseEntity<ApiResponse<Lead>>> getLeadById(@PathVariable final Long id) {
+		return one(this.leadRepository.findById(id));
+	}
+
+	@GetMapping("/opportunities/findAll")
+	public Mono<ApiResponse<List<Opportunity>>> getAllOpportunities() {
+		return list(this.opportunityRepository.findAll());
+	}
+
+	@GetMapping(
+			value = "/opportunities/findAll/stream",
+			produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<Opportunity> streamOpportunities() {
+		return this.opportunityRepository.findAll();
+	}
+
+	@GetMapping("/opportunities/find/{id}")
+	public Mono<ResponseEntity<ApiResponse<Opportunity>>> getOpportunityById(
+			@PathVariable final Long id) {
+		return one(this.opportunityRepository.findById(id));
+	}
+
+	private static <T> Mono<ApiResponse<List<T>>> list(final Flux<T> items) {
+		return items.collectList().map(list -> ApiResponse.<List<T>>builder().data(list).build());
+	}
+
+	private static <T extends BaseEntity> Mono<ResponseEntity<ApiResponse<T>>> one(
+			final Mono<T> item) {
+		return item.switchIfEmpty(Mono.error(() -> new CrmException("Element not found")))
+				.map(
+						found ->
+								ResponseEntity.ok()
+										.eTag(EntityTagUtils.of(found))
+										.body(ApiResponse.<T>builder().data(found).build()));
+	}
+}
@@ -0,0 +1,51 @@
+package gr.digital.systems.crm.controller;
+
+import gr.digital.systems.crm.service.SearchService;
+import gr.digital.systems.crm.transfer.ApiResponse;
+import gr.digital.systems.crm.transfer.SearchResult;
+import gr.digital.systems.crm.transfer.SearchType;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api/v1/search")
+public class SearchController {
+
+	/* Upper bound for a single page of hits */
+	private static final int MAX_PAGE_SIZE = 100;
+
+	private final SearchService searchService;
+
+	@Autowired
+	public SearchController(final SearchService searchService) {
+		this.searchService = searchService;
+	}
+
+	/* Ranked hits of all types unless narrowed, e.g. ?q=acme ath&types=customer,lead */
+	@GetMapping
+	public ResponseEntity<ApiResponse<SearchResult>> search(
+			@RequestParam final String q,
+			@RequestParam(required = false) final Set<String> types,
+			@RequestParam(defaultValue = "0") final int page,
+			@RequestParam(defaultValue = "20") final int size) {
+		final var searchTypes =
+				types == null || types.isEmpty()
+						? EnumSet.allOf(SearchType.class)
+						: types.stream()
+								.map(SearchType::from)
+								.collect(Collectors.toCollection(() -> EnumSet.noneOf(SearchType.class)));
+		return ResponseEntity.ok(
+				ApiResponse.<SearchResult>builder()
+						.data(
+								this.searchService.search(
+										q, searchTypes, Math.max(0, page), Math.max(1, Math.min(size, MAX_PAGE_SIZE))))
+						.build());
+	}
+}
@@ -0,0 +1,19 @@
+package gr.digital.systems.crm.exception;
+
+import java.io.Serial;
+import lombok.Getter;
+
+/** Thrown when a request is shed because the service is at capacity, mapped to 503. */
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+
+	@Serial private static final long serialVersionUID = 1L;
+
+	/* Sent as the Retry-After header */
+	private final long retryAfterSeconds;
+
+	public ServiceOverloadedException(final String message, final long retryAfterSeconds) {
+		super(message);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+}
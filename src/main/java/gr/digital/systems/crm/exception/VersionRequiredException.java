@@ -0,0 +1,13 @@
+package gr.digital.systems.crm.exception;
+
+import java.io.Serial;
+
+/** Thrown when an update of a stored item names no version to check, mapped to 428. */
+public class VersionRequiredException extends RuntimeException {
+
+	@Serial private static final long serialVersionUID = 1L;
+
+	public VersionRequiredException(final String message) {
+		super(message);
+	}
+}
@@ -1,17 +1,70 @@
 package gr.digital.systems.crm.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import gr.digital.systems.crm.utils.TenantContext;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import java.time.Instant;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.annotations.TenantId;
+import org.hibernate.annotations.UpdateTimestamp;
 
 @Entity
+@EntityListeners(TenantListener.class)
+/* All entity types share this single table, so the search indexes of the subclasses live here */
+@Table(
+		indexes = {
+			@Index(name = "idx_entity_email", columnList = "email"),
+			@Index(name = "idx_entity_phone", columnList = "phone"),
+			@Index(name = "idx_entity_name", columnList = "name"),
+			@Index(name = "idx_entity_source", columnList = "source"),
+			@Index(name = "idx_entity_tenant", columnList = "tenantId, DTYPE"),
+			@Index(name = "idx_entity_deleted", columnList = "deletedAt")
+		})
+/* Deleted rows stay as tombstones until purged, no query or load by id returns them */
+@SQLRestriction("deletedAt is null")
 @Getter
 @Setter
-public abstract class BaseEntity {
+public abstract class BaseEntity implements TenantScoped {
+	/* Pooled sequence ids let Hibernate batch inserts, on MySQL the sequence is kept in a table */
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "crm_id_generator")
+	@SequenceGenerator(
+			name = "crm_id_generator",
+			sequenceName = "crm_id_sequence",
+			allocationSize = 50)
 	private Long id;
+
+	/*
+	 * Checked and incremented by every update, a stale version fails instead of overwriting. An
+	 * update without a version is rejected, unless update.last-write-wins lets it overwrite
+	 */
+	@Version private Long version;
+
+	/*
+	 * Set from the current tenant on insert and added to every query, rows that existed before the
+	 * column was added belong to the default tenant
+	 */
+	@TenantId
+	@JsonIgnore
+	@ColumnDefault("'" + TenantContext.DEFAULT_TENANT + "'")
+	@Column(length = 64, nullable = false, updatable = false)
+	private String tenantId;
+
+	/* Set by a delete, the purge job removes or archives the row once it is old enough */
+	@JsonIgnore private Instant deletedAt;
+
+	/* Set on every insert and update, served as Last-Modified */
+	@UpdateTimestamp private Instant lastModified;
 }
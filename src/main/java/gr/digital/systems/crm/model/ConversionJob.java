@@ -0,0 +1,73 @@
+package gr.digital.systems.crm.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import gr.digital.systems.crm.utils.TenantContext;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import java.time.Instant;
+import java.util.List;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.TenantId;
+
+/* Kept out of the BaseEntity hierarchy so conversion bookkeeping does not share the entity table */
+@Entity
+@EntityListeners(TenantListener.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString(exclude = "leadIds")
+public class ConversionJob implements TenantScoped {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	/* Jobs and matches are only visible to the tenant that created them */
+	@TenantId
+	@JsonIgnore
+	@ColumnDefault("'" + TenantContext.DEFAULT_TENANT + "'")
+	@Column(length = 64, nullable = false, updatable = false)
+	private String tenantId;
+
+	@Enumerated(EnumType.STRING)
+	private JobStatus status;
+
+	/* The selected leads, either listed or all leads of a source */
+	@JsonIgnore
+	@ElementCollection
+	@CollectionTable(name = "ConversionJobLead", joinColumns = @JoinColumn(name = "jobId"))
+	@Column(name = "leadId")
+	private List<Long> leadIds;
+
+	private String source;
+
+	/* The values of the created opportunities */
+	private String description;
+	private double value;
+	private String opportunityStatus;
+
+	/* Highest lead id covered by committed chunks, a restart continues after it */
+	private long lastLeadId;
+
+	private long totalLeads;
+	private long processedLeads;
+	private long convertedLeads;
+
+	/* Listed leads that no longer exist, e.g. converted or deleted meanwhile */
+	private long missingLeads;
+
+	@Column(length = 1024)
+	private String error;
+
+	private Instant createdAt;
+	private Instant updatedAt;
+}
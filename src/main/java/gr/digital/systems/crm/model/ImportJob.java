@@ -0,0 +1,58 @@
+package gr.digital.systems.crm.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import gr.digital.systems.crm.transfer.FileFormat;
+import gr.digital.systems.crm.utils.TenantContext;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import java.time.Instant;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.TenantId;
+
+/* Kept out of the BaseEntity hierarchy so import bookkeeping does not share the entity table */
+@Entity
+@EntityListeners(TenantListener.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@ToString
+public class ImportJob implements TenantScoped {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	/* Jobs and matches are only visible to the tenant that created them */
+	@TenantId
+	@JsonIgnore
+	@ColumnDefault("'" + TenantContext.DEFAULT_TENANT + "'")
+	@Column(length = 64, nullable = false, updatable = false)
+	private String tenantId;
+
+	private String fileName;
+
+	@Enumerated(EnumType.STRING)
+	private FileFormat format;
+
+	@Enumerated(EnumType.STRING)
+	private JobStatus status;
+
+	/* Records of the file covered by committed chunks, a restart skips this many records */
+	private long processedRows;
+
+	private long importedRows;
+	private long duplicateRows;
+	private long invalidRows;
+
+	@Column(length = 1024)
+	private String error;
+
+	private Instant createdAt;
+	private Instant updatedAt;
+}
@@ -0,0 +1,8 @@
+package gr.digital.systems.crm.model;
+
+public enum JobStatus {
+	QUEUED,
+	RUNNING,
+	COMPLETED,
+	FAILED
+}
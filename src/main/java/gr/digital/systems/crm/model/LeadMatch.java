@@ -0,0 +1,63 @@
+package gr.digital.systems.crm.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import gr.digital.systems.crm.utils.TenantContext;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import java.time.Instant;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.TenantId;
+
+/* Kept out of the BaseEntity hierarchy, a batch run replaces the matches of its leads at once */
+@Entity
+@EntityListeners(TenantListener.class)
+@Table(indexes = @Index(name = "idx_lead_match_lead", columnList = "leadId"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@ToString
+public class LeadMatch implements TenantScoped {
+	/* Pooled like the entity ids, so a batch run inserts its matches in JDBC batches */
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lead_match_generator")
+	@SequenceGenerator(
+			name = "lead_match_generator",
+			sequenceName = "lead_match_sequence",
+			allocationSize = 50)
+	private Long id;
+
+	/* Jobs and matches are only visible to the tenant that created them */
+	@TenantId
+	@JsonIgnore
+	@ColumnDefault("'" + TenantContext.DEFAULT_TENANT + "'")
+	@Column(length = 64, nullable = false, updatable = false)
+	private String tenantId;
+
+	private Long leadId;
+
+	/* The id of the matched lead or customer */
+	private Long matchedId;
+
+	@Enumerated(EnumType.STRING)
+	private MatchTarget target;
+
+	@Enumerated(EnumType.STRING)
+	private MatchReason reason;
+
+	/* 1 for email and phone matches, the name similarity otherwise */
+	private double score;
+
+	private Instant createdAt;
+}
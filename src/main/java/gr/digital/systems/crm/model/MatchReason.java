@@ -0,0 +1,8 @@
+package gr.digital.systems.crm.model;
+
+/* In order of strength, a pair matching on several keys is recorded with the first */
+public enum MatchReason {
+	EMAIL,
+	PHONE,
+	NAME
+}
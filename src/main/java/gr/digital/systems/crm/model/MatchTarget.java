@@ -0,0 +1,8 @@
+package gr.digital.systems.crm.model;
+
+public enum MatchTarget {
+	/* An older lead of the same person */
+	LEAD,
+	/* An existing customer the lead belongs to */
+	CUSTOMER
+}
@@ -4,12 +4,17 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
+@NamedEntityGraph(
+		name = Opportunity.WITH_CUSTOMER,
+		attributeNodes = @NamedAttributeNode("customer"))
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @ToString
 public class Opportunity extends BaseEntity {
+	public static final String WITH_CUSTOMER = "Opportunity.withCustomer";
+
 	private String description;
 	private double value;
 	private String status;
@@ -0,0 +1,19 @@
+package gr.digital.systems.crm.model;
+
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.utils.TenantContext;
+import jakarta.persistence.PostLoad;
+
+/**
+ * The tenant column restricts queries and bulk statements but not loads by id, e.g. find,
+ * getReference or the load of a merge. Those fail here as if the row did not exist.
+ */
+public class TenantListener {
+
+	@PostLoad
+	public void verify(final TenantScoped entity) {
+		if (!TenantContext.get().equals(entity.getTenantId())) {
+			throw new CrmException("Element not found");
+		}
+	}
+}
@@ -0,0 +1,6 @@
+package gr.digital.systems.crm.model;
+
+/** An entity owned by one tenant, see {@link TenantListener}. */
+public interface TenantScoped {
+	String getTenantId();
+}
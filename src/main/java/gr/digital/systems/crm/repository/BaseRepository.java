@@ -0,0 +1,42 @@
+package gr.digital.systems.crm.repository;
+
+import gr.digital.systems.crm.model.BaseEntity;
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.NoRepositoryBean;
+
+@NoRepositoryBean
+public interface BaseRepository<T extends BaseEntity>
+		extends JpaRepository<T, Long>, JpaSpecificationExecutor<T> {
+
+	/** Number of rows the JDBC driver pulls per round trip while streaming. */
+	String STREAM_FETCH_SIZE = "500";
+
+	/**
+	 * Keyset pagination on the primary key, the next page starts right after the given id.
+	 *
+	 * @param id The last id of the previous page.
+	 * @param limit The maximum number of rows to return.
+	 * @return The rows with an id greater than the given one, ordered by id.
+	 */
+	List<T> findByIdGreaterThanOrderByIdAsc(final Long id, final Limit limit);
+
+	/**
+	 * Streams every row ordered by id over a forward-only, read-only cursor. Must be consumed inside
+	 * a transaction and closed afterwards.
+	 *
+	 * @return A stream of all the rows.
+	 */
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+		@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+	})
+	Stream<T> streamAllByOrderByIdAsc();
+}
@@ -0,0 +1,18 @@
+package gr.digital.systems.crm.repository;
+
+import gr.digital.systems.crm.model.ConversionJob;
+import gr.digital.systems.crm.model.JobStatus;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ConversionJobRepository extends JpaRepository<ConversionJob, Long> {
+	List<ConversionJob> findByStatusIn(final Collection<JobStatus> statuses);
+
+	@Query("select l from ConversionJob j join j.leadIds l where j.id = :id order by l")
+	List<Long> findLeadIds(@Param("id") final Long id);
+}
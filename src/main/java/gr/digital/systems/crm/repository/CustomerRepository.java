@@ -1,8 +1,56 @@
 package gr.digital.systems.crm.repository;
 
 import gr.digital.systems.crm.model.Customer;
-import org.springframework.data.jpa.repository.JpaRepository;
+import gr.digital.systems.crm.transfer.MatchCandidate;
+import gr.digital.systems.crm.transfer.SearchDocument;
+import jakarta.persistence.QueryHint;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {}
+public interface CustomerRepository extends BaseRepository<Customer> {
+
+	/**
+	 * Streams the matching fields of every customer over a read-only cursor. Must be consumed inside
+	 * a transaction and closed afterwards.
+	 *
+	 * @return A stream of the match candidates.
+	 */
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query(
+			"select new gr.digital.systems.crm.transfer.MatchCandidate(c.id, c.name, c.email, c.phone) "
+					+ "from Customer c")
+	Stream<MatchCandidate> streamMatchCandidates();
+
+	@Query(
+			"select new gr.digital.systems.crm.transfer.MatchCandidate(c.id, c.name, c.email, c.phone) "
+					+ "from Customer c where c.id = :id")
+	Optional<MatchCandidate> findMatchCandidate(@Param("id") final Long id);
+
+	/**
+	 * Streams the searchable fields of every customer over a read-only cursor. Must be consumed
+	 * inside a transaction and closed afterwards.
+	 *
+	 * @return A stream of the search documents.
+	 */
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query(
+			"select new gr.digital.systems.crm.transfer.SearchDocument(c.id, c.name, c.address) from Customer c")
+	Stream<SearchDocument> streamSearchDocuments();
+
+	@Query(
+			"select new gr.digital.systems.crm.transfer.SearchDocument(c.id, c.name, c.address) "
+					+ "from Customer c where c.id = :id")
+	Optional<SearchDocument> findSearchDocument(@Param("id") final Long id);
+}
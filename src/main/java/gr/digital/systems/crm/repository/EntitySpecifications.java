@@ -0,0 +1,48 @@
+package gr.digital.systems.crm.repository;
+
+import gr.digital.systems.crm.model.BaseEntity;
+import org.springframework.data.jpa.domain.Specification;
+
+public class EntitySpecifications {
+
+	private EntitySpecifications() {}
+
+	private static final char ESCAPE = '\\';
+
+	/**
+	 * Matches rows whose attribute equals the value, a blank value matches everything.
+	 *
+	 * @param attribute The entity attribute to compare.
+	 * @param value The value to look for.
+	 * @return Specification or null when there is nothing to filter on.
+	 */
+	public static <T extends BaseEntity> Specification<T> equalTo(
+			final String attribute, final String value) {
+		if (value == null || value.isBlank()) {
+			return null;
+		}
+		return (root, query, builder) -> builder.equal(root.get(attribute), value.trim());
+	}
+
+	/**
+	 * Matches rows whose attribute starts with the prefix, written as a LIKE 'prefix%' so an index on
+	 * the attribute can serve it. A blank prefix matches everything.
+	 *
+	 * @param attribute The entity attribute to compare.
+	 * @param prefix The prefix to look for.
+	 * @return Specification or null when there is nothing to filter on.
+	 */
+	public static <T extends BaseEntity> Specification<T> startsWith(
+			final String attribute, final String prefix) {
+		if (prefix == null || prefix.isBlank()) {
+			return null;
+		}
+		final var pattern = escape(prefix.trim()) + "%";
+		return (root, query, builder) -> builder.like(root.get(attribute), pattern, ESCAPE);
+	}
+
+	/* Wildcards typed by the user are matched literally */
+	private static String escape(final String value) {
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+}
@@ -0,0 +1,13 @@
+package gr.digital.systems.crm.repository;
+
+import gr.digital.systems.crm.model.ImportJob;
+import gr.digital.systems.crm.model.JobStatus;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+	List<ImportJob> findByStatusIn(final Collection<JobStatus> statuses);
+}
@@ -0,0 +1,24 @@
+package gr.digital.systems.crm.repository;
+
+import gr.digital.systems.crm.model.LeadMatch;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LeadMatchRepository extends JpaRepository<LeadMatch, Long> {
+	List<LeadMatch> findByLeadIdOrderByIdAsc(final Long leadId);
+
+	@Modifying
+	@Query("delete from LeadMatch m where m.leadId in :leadIds")
+	int deleteByLeadIds(@Param("leadIds") final Collection<Long> leadIds);
+
+	/* Matches of leads deleted since they were matched */
+	@Modifying
+	@Query("delete from LeadMatch m where not exists (select 1 from Lead l where l.id = m.leadId)")
+	int deleteOrphans();
+}
@@ -0,0 +1,36 @@
+package gr.digital.systems.crm.repository;
+
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.model.Lead;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class LeadReactiveRepository extends ReactiveReadRepository<Lead> {
+
+	@Autowired
+	public LeadReactiveRepository(
+			final DatabaseClient databaseClient,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		super(databaseClient, environmentPropertiesConfig);
+	}
+
+	@Override
+	protected String select() {
+		return "select e.id, e.version, e.name, e.email, e.phone, e.source"
+				+ " from BaseEntity e where e.DTYPE = 'Lead'";
+	}
+
+	@Override
+	protected Lead map(final Readable row) {
+		return withId(
+				new Lead(
+						row.get("name", String.class),
+						row.get("email", String.class),
+						row.get("phone", String.class),
+						row.get("source", String.class)),
+				row);
+	}
+}
@@ -1,8 +1,78 @@
 package gr.digital.systems.crm.repository;
 
 import gr.digital.systems.crm.model.Lead;
-import org.springframework.data.jpa.repository.JpaRepository;
+import gr.digital.systems.crm.transfer.MatchCandidate;
+import gr.digital.systems.crm.transfer.SearchDocument;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface LeadRepository extends JpaRepository<Lead, Long> {}
+public interface LeadRepository extends BaseRepository<Lead> {
+
+	/* Answered from the email index, used to drop replayed captures that were already stored */
+	@Query("select l.email from Lead l where l.email in :emails")
+	Set<String> findExistingEmails(@Param("emails") final Collection<String> emails);
+
+	/*
+	 * Emails are case-insensitive, leads stored by other paths keep the case they were sent with. The
+	 * column is compared as it is, so the email index serves the lookup, and the _ci collation of the
+	 * column matches any case. Only the result is lower-cased, to compare with the lower-cased chunk
+	 */
+	@Query("select lower(l.email) from Lead l where l.email in :emails")
+	Set<String> findExistingLowerCaseEmails(@Param("emails") final Collection<String> emails);
+
+	/* Keyset pages over the leads of a source, converted leads drop out of later pages */
+	List<Lead> findBySourceAndIdGreaterThanOrderByIdAsc(
+			final String source, final Long id, final Limit limit);
+
+	long countBySource(final String source);
+
+	/**
+	 * Streams the matching fields of every lead over a read-only cursor. Must be consumed inside a
+	 * transaction and closed afterwards.
+	 *
+	 * @return A stream of the match candidates.
+	 */
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query(
+			"select new gr.digital.systems.crm.transfer.MatchCandidate(l.id, l.name, l.email, l.phone) "
+					+ "from Lead l")
+	Stream<MatchCandidate> streamMatchCandidates();
+
+	@Query(
+			"select new gr.digital.systems.crm.transfer.MatchCandidate(l.id, l.name, l.email, l.phone) "
+					+ "from Lead l where l.id = :id")
+	Optional<MatchCandidate> findMatchCandidate(@Param("id") final Long id);
+
+	/**
+	 * Streams the searchable fields of every lead over a read-only cursor. Must be consumed inside a
+	 * transaction and closed afterwards.
+	 *
+	 * @return A stream of the search documents.
+	 */
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query(
+			"select new gr.digital.systems.crm.transfer.SearchDocument(l.id, l.name, l.source) from Lead l")
+	Stream<SearchDocument> streamSearchDocuments();
+
+	@Query(
+			"select new gr.digital.systems.crm.transfer.SearchDocument(l.id, l.name, l.source) "
+					+ "from Lead l where l.id = :id")
+	Optional<SearchDocument> findSearchDocument(@Param("id") final Long id);
+}
@@ -0,0 +1,53 @@
+package gr.digital.systems.crm.repository;
+
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Opportunity;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class OpportunityReactiveRepository extends ReactiveReadRepository<Opportunity> {
+
+	@Autowired
+	public OpportunityReactiveRepository(
+			final DatabaseClient databaseClient,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		super(databaseClient, environmentPropertiesConfig);
+	}
+
+	/* The customer is joined in the same statement, as the JPA entity graph does */
+	@Override
+	protected String select() {
+		return "select e.id, e.version, e.description, e.value, e.status,"
+				+ " c.id as customer_id, c.version as customer_version, c.name as customer_name,"
+				+ " c.email as customer_email, c.phone as customer_phone, c.address as customer_address"
+				+ " from BaseEntity e left join BaseEntity c on c.id = e.customer_id"
+				+ " where e.DTYPE = 'Opportunity'";
+	}
+
+	@Override
+	protected Opportunity map(final Readable row) {
+		Customer customer = null;
+		final var customerId = row.get("customer_id", Long.class);
+		if (customerId != null) {
+			customer =
+					new Customer(
+							row.get("customer_name", String.class),
+							row.get("customer_email", String.class),
+							row.get("customer_phone", String.class),
+							row.get("customer_address", String.class));
+			customer.setId(customerId);
+			customer.setVersion(row.get("customer_version", Long.class));
+		}
+		return withId(
+				new Opportunity(
+						row.get("description", String.class),
+						row.get("value", Double.class),
+						row.get("status", String.class),
+						customer),
+				row);
+	}
+}
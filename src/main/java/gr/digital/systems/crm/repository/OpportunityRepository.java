@@ -1,8 +1,84 @@
 package gr.digital.systems.crm.repository;
 
 import gr.digital.systems.crm.model.Opportunity;
-import org.springframework.data.jpa.repository.JpaRepository;
+import gr.digital.systems.crm.transfer.OpportunitySummary;
+import gr.digital.systems.crm.transfer.PipelineTotals;
+import gr.digital.systems.crm.transfer.SearchDocument;
+import jakarta.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+/* Every entity read joins the customer in the same query instead of one select per customer */
 @Repository
-public interface OpportunityRepository extends JpaRepository<Opportunity, Long> {}
+public interface OpportunityRepository extends BaseRepository<Opportunity> {
+
+	@EntityGraph(Opportunity.WITH_CUSTOMER)
+	@Override
+	List<Opportunity> findAll();
+
+	@EntityGraph(Opportunity.WITH_CUSTOMER)
+	@Override
+	List<Opportunity> findByIdGreaterThanOrderByIdAsc(final Long id, final Limit limit);
+
+	@EntityGraph(Opportunity.WITH_CUSTOMER)
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+		@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+	})
+	@Override
+	Stream<Opportunity> streamAllByOrderByIdAsc();
+
+	/**
+	 * Summary fetch plan, reads the customer id from the foreign key without touching the customer.
+	 *
+	 * @return All the opportunities as summaries.
+	 */
+	@Query(
+			"select new gr.digital.systems.crm.transfer.OpportunitySummary("
+					+ "o.id, o.description, o.value, o.status, o.customer.id) "
+					+ "from Opportunity o order by o.id")
+	List<OpportunitySummary> findAllSummaries();
+
+	/* Deleted opportunities do not count, their rows are restricted like in every other query */
+	boolean existsByCustomerId(final Long customerId);
+
+	@Query(
+			"select new gr.digital.systems.crm.transfer.PipelineTotals("
+					+ "o.status, count(o), sum(o.value)) "
+					+ "from Opportunity o group by o.status")
+	List<PipelineTotals> sumByStatus();
+
+	@Query(
+			"select new gr.digital.systems.crm.transfer.PipelineTotals("
+					+ "cast(o.customer.id as String), count(o), sum(o.value)) "
+					+ "from Opportunity o group by o.customer.id")
+	List<PipelineTotals> sumByCustomer();
+
+	/**
+	 * Streams the searchable fields of every opportunity over a read-only cursor. Must be consumed
+	 * inside a transaction and closed afterwards.
+	 *
+	 * @return A stream of the search documents.
+	 */
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query(
+			"select new gr.digital.systems.crm.transfer.SearchDocument(o.id, o.description) from Opportunity o")
+	Stream<SearchDocument> streamSearchDocuments();
+
+	@Query(
+			"select new gr.digital.systems.crm.transfer.SearchDocument(o.id, o.description) "
+					+ "from Opportunity o where o.id = :id")
+	Optional<SearchDocument> findSearchDocument(@Param("id") final Long id);
+}
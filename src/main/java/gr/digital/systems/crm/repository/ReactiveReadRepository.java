@@ -0,0 +1,76 @@
+package gr.digital.systems.crm.repository;
+
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.BaseEntity;
+import gr.digital.systems.crm.service.TenantService;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking reads of one entity type over R2DBC. Writes stay on the JPA repositories, so the
+ * queries read the shared entity table directly and map the rows by hand. The rows are restricted
+ * to the tenant of the calling thread and deleted rows are skipped, as Hibernate does for the JPA
+ * queries; the R2DBC pool only reaches the shared database, so tenants with a datasource of their
+ * own cannot read here.
+ */
+public abstract class ReactiveReadRepository<T extends BaseEntity> {
+
+	private final DatabaseClient databaseClient;
+	private final int fetchSize;
+
+	@Autowired private TenantService tenantService;
+
+	protected ReactiveReadRepository(
+			final DatabaseClient databaseClient,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		this.databaseClient = databaseClient;
+		this.fetchSize = environmentPropertiesConfig.getReactiveFetchSize();
+	}
+
+	/**
+	 * @return The select of the entity with the entity table aliased as e and ending in a where
+	 *     clause on its type.
+	 */
+	protected abstract String select();
+
+	protected abstract T map(final Readable row);
+
+	/* Rows are fetched in batches of the fetch size as the subscriber requests them */
+	public Flux<T> findAll() {
+		return this.databaseClient
+				.sql(this.select() + " and e.tenantId = :tenant and e.deletedAt is null order by e.id")
+				.bind("tenant", this.tenant())
+				.filter(statement -> statement.fetchSize(this.fetchSize))
+				.map(this::map)
+				.all();
+	}
+
+	public Mono<T> findById(final Long id) {
+		return this.databaseClient
+				.sql(this.select() + " and e.tenantId = :tenant and e.deletedAt is null and e.id = :id")
+				.bind("tenant", this.tenant())
+				.bind("id", id)
+				.map(this::map)
+				.one();
+	}
+
+	/* Bound when the query is built, on the request thread that holds the tenant */
+	private String tenant() {
+		final var tenant = TenantContext.get();
+		if (this.tenantService.isDedicated(tenant)) {
+			throw new CrmException("Reactive reads are not available for tenant " + tenant);
+		}
+		return tenant;
+	}
+
+	protected static <T extends BaseEntity> T withId(final T entity, final Readable row) {
+		entity.setId(row.get("id", Long.class));
+		entity.setVersion(row.get("version", Long.class));
+		return entity;
+	}
+}
@@ -1,7 +1,14 @@
 package gr.digital.systems.crm.service;
 
 import gr.digital.systems.crm.model.BaseEntity;
+import gr.digital.systems.crm.transfer.EntityRevision;
+import gr.digital.systems.crm.transfer.KeysetPage;
+import gr.digital.systems.crm.utils.ExportColumn;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.springframework.data.jpa.domain.Specification;
 
 public interface BaseService<T extends BaseEntity> {
 	T create(final T entity);
@@ -12,6 +19,8 @@ public interface BaseService<T extends BaseEntity> {
 
 	T update(final T entity);
 
+	void patch(final Long id, final Map<String, Object> changes, final Long version);
+
 	T delete(final T entity);
 
 	T deleteById(final Long id);
@@ -20,5 +29,22 @@ public interface BaseService<T extends BaseEntity> {
 
 	T get(final Long id);
 
+	EntityRevision getRevision(final Long id);
+
+	EntityRevision getRevision();
+
 	List<T> findAll();
+
+	List<Map<String, Object>> findAll(final Set<String> fields);
+
+	KeysetPage<T> findAfter(final Long after, final int size);
+
+	KeysetPage<T> findAfter(final Specification<T> specification, final Long after, final int size);
+
+	KeysetPage<Map<String, Object>> findAfter(
+			final Set<String> fields, final Long after, final int size);
+
+	void streamAll(final Consumer<T> consumer);
+
+	List<ExportColumn<T>> getExportColumns();
 }
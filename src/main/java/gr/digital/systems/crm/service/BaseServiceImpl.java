@@ -1,23 +1,109 @@
 package gr.digital.systems.crm.service;
 
+import static jakarta.persistence.metamodel.Attribute.PersistentAttributeType.BASIC;
+import static jakarta.persistence.metamodel.Attribute.PersistentAttributeType.MANY_TO_ONE;
+import static jakarta.persistence.metamodel.Attribute.PersistentAttributeType.ONE_TO_ONE;
+
 import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.component.PrimaryRead;
 import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.exception.VersionRequiredException;
 import gr.digital.systems.crm.model.BaseEntity;
+import gr.digital.systems.crm.repository.BaseRepository;
+import gr.digital.systems.crm.transfer.ChangeType;
+import gr.digital.systems.crm.transfer.EntityChange;
+import gr.digital.systems.crm.transfer.EntityChanges;
+import gr.digital.systems.crm.transfer.EntityRevision;
+import gr.digital.systems.crm.transfer.KeysetPage;
+import gr.digital.systems.crm.utils.TenantContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.metamodel.SingularAttribute;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.GenericTypeResolver;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.ClassUtils;
 
 @Transactional(
 		propagation = Propagation.REQUIRED,
 		isolation = Isolation.READ_COMMITTED,
 		rollbackFor = Exception.class)
+@CacheConfig(cacheResolver = "entityCacheResolver")
 public abstract class BaseServiceImpl<T extends BaseEntity> extends BaseComponent
 		implements BaseService<T> {
 
-	public abstract JpaRepository<T, Long> getRepository();
+	/* Upper bound for a single keyset page, protects the heap from oversized requests */
+	private static final int MAX_PAGE_SIZE = 1000;
+
+	/* Set once on insert, a patch must not move an item to another tenant */
+	private static final String TENANT_ATTRIBUTE = "tenantId";
+
+	/* Only set by a delete, a patch must not hide or restore an item */
+	private static final String DELETED_ATTRIBUTE = "deletedAt";
+
+	private static final ConversionService CONVERSION_SERVICE =
+			DefaultConversionService.getSharedInstance();
+
+	@PersistenceContext private EntityManager entityManager;
+
+	/* Entity class of the service, resolved from the type argument for criteria queries */
+	@SuppressWarnings("unchecked")
+	private final Class<T> entityType =
+			(Class<T>)
+					GenericTypeResolver.resolveTypeArgument(
+							ClassUtils.getUserClass(this.getClass()), BaseServiceImpl.class);
+
+	/* Changes reach the change feed only once the surrounding transaction commits */
+	@Autowired private ApplicationEventPublisher eventPublisher;
+
+	@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+	private int batchSize;
+
+	/* Lets an update without a version overwrite whatever is stored, as before versions existed */
+	@Value("${update.last-write-wins:false}")
+	private boolean lastWriteWins;
+
+	public abstract BaseRepository<T> getRepository();
+
+	public abstract String getCacheName();
+
+	/**
+	 * The attributes clients may select with a projection, besides the id. Internal columns such as
+	 * the version, the tenant and the deletion time are left out.
+	 *
+	 * @return The attribute names, attributes of an association as "association.attribute".
+	 */
+	public abstract Set<String> getProjectableFields();
 
 	@SafeVarargs
 	@Override
@@ -25,39 +111,237 @@ public abstract class BaseServiceImpl<T extends BaseEntity> extends BaseComponen
 		return this.createAll(Arrays.asList(items));
 	}
 
+	/**
+	 * Saves the items in JDBC batches. Each batch is flushed and its items are detached, so a large
+	 * list is never held in the persistence context. Entities that were managed before the call,
+	 * including items the caller loaded in the same transaction, stay managed. Items carrying an id
+	 * are merged, so any cached copy may be stale afterwards. The changes are published once per
+	 * batch.
+	 *
+	 * @param items The items to save.
+	 * @return The saved items, detached.
+	 */
+	@CacheEvict(allEntries = true)
 	@Override
 	public List<T> createAll(final List<T> items) {
-		return this.getRepository().saveAll(items);
+		logger.trace("Creating {} items in batches of {}.", items.size(), this.batchSize);
+		final var created = new ArrayList<T>(items.size());
+		final var batch = new ArrayList<T>(this.batchSize);
+		final var changes = new ArrayList<EntityChange>(this.batchSize);
+		for (final T item : items) {
+			final var type = item.getId() == null ? ChangeType.CREATED : ChangeType.UPDATED;
+			final var managed = this.isManaged(item);
+			this.assignTenant(item);
+			this.requireVersion(item);
+			this.resolveReferences(item);
+			final var saved = this.getRepository().save(item);
+			created.add(saved);
+			if (!managed) {
+				batch.add(saved);
+			}
+			changes.add(this.change(type, saved.getId(), saved));
+
+			/* Send each full batch to the database and release it from the persistence context */
+			if (batch.size() == this.batchSize) {
+				this.flush(batch);
+				this.publish(changes);
+			}
+		}
+		this.flush(batch);
+		this.publish(changes);
+		return created;
+	}
+
+	/* Whether the caller already holds a managed instance of the item, it must stay managed */
+	private boolean isManaged(final T item) {
+		if (item.getId() == null) {
+			return false;
+		}
+		final var session = this.entityManager.unwrap(SessionImplementor.class);
+		final var key = session.generateEntityKey(item.getId(), session.getEntityPersister(null, item));
+		return session.getPersistenceContextInternal().containsEntity(key);
+	}
+
+	private void flush(final List<T> batch) {
+		this.entityManager.flush();
+		batch.forEach(this.entityManager::detach);
+		batch.clear();
 	}
 
 	@Override
 	public T create(final T item) {
 		logger.trace("Creating {}.", item);
-		return this.getRepository().save(item);
+		this.resolveReferences(item);
+		final var created = this.getRepository().save(item);
+		this.publish(ChangeType.CREATED, created.getId(), created);
+		return created;
 	}
 
+	@CachePut(key = "#result.id")
 	@Override
 	public T update(final T item) {
 		logger.trace("Updating {}.", item);
-		return this.getRepository().save(item);
+		this.assignTenant(item);
+		this.requireVersion(item);
+		this.resolveReferences(item);
+		final var updated = this.getRepository().save(item);
+		this.publish(ChangeType.UPDATED, updated.getId(), updated);
+		return updated;
+	}
+
+	/* The tenant is not part of a request, a merge would copy the missing tenant over the stored one */
+	private void assignTenant(final T item) {
+		if (item.getId() != null) {
+			item.setTenantId(TenantContext.get());
+		}
+	}
+
+	/*
+	 * A stored item is only overwritten at the version the client read, unless last-write-wins is
+	 * enabled. The stored version is then loaded, which costs a select per item
+	 */
+	private void requireVersion(final T item) {
+		if (item.getId() == null || item.getVersion() != null) {
+			return;
+		}
+		if (!this.lastWriteWins) {
+			throw new VersionRequiredException(
+					"Element " + item.getId() + " needs a version, in the body or an If-Match header");
+		}
+		item.setVersion(
+				this.getRepository()
+						.findById(item.getId())
+						.orElseThrow(() -> new CrmException("Element not found"))
+						.getVersion());
+	}
+
+	/**
+	 * Replaces the related entities a request names by id with references, before the item is saved.
+	 * A related entity sent without its version would otherwise be taken for a new one, null is the
+	 * unsaved value of the version.
+	 *
+	 * @param item The item about to be saved.
+	 */
+	protected void resolveReferences(final T item) {}
+
+	/**
+	 * Applies the changes with a single UPDATE statement, without loading the entity first. The
+	 * version is incremented as with a regular update.
+	 *
+	 * @param id The id of the entity to update.
+	 * @param changes The new values keyed by attribute name, only basic attributes can be changed.
+	 * @param version The expected version of the entity, or null to update any version.
+	 */
+	@CacheEvict(key = "#id")
+	@Override
+	public void patch(final Long id, final Map<String, Object> changes, final Long version) {
+		logger.trace("Patching item with id {} at version {} with {}.", id, version, changes);
+		final var entity = this.entityManager.getMetamodel().entity(this.entityType);
+		final var values = new LinkedHashMap<String, Object>();
+		changes.forEach(
+				(name, value) -> {
+					final var attribute =
+							entity.getSingularAttributes().stream()
+									.filter(candidate -> candidate.getName().equals(name))
+									.filter(candidate -> candidate.getPersistentAttributeType() == BASIC)
+									.filter(candidate -> !candidate.isId() && !candidate.isVersion())
+									.filter(candidate -> !TENANT_ATTRIBUTE.equals(candidate.getName()))
+									.filter(candidate -> !DELETED_ATTRIBUTE.equals(candidate.getName()))
+									.findFirst()
+									.orElseThrow(() -> new CrmException("Attribute cannot be patched: " + name));
+					values.put(
+							name,
+							CONVERSION_SERVICE.convert(
+									value, ClassUtils.resolvePrimitiveIfNecessary(attribute.getJavaType())));
+				});
+
+		if (this.loadsOnPatch(values.keySet())) {
+			this.publish(ChangeType.UPDATED, id, this.patchLoaded(id, values, version));
+			return;
+		}
+
+		final var builder = this.entityManager.getCriteriaBuilder();
+		final var update = builder.createCriteriaUpdate(this.entityType);
+		final var root = update.from(this.entityType);
+		values.forEach((name, value) -> update.set(root.get(name), value));
+		update.set(root.<Long>get("version"), builder.sum(root.get("version"), 1L));
+		/* Bulk updates skip the entity timestamp generators */
+		update.set(root.<Instant>get("lastModified"), Instant.now());
+
+		final var matchesId =
+				builder.and(builder.equal(root.get("id"), id), builder.isNull(root.get(DELETED_ATTRIBUTE)));
+		update.where(
+				version == null
+						? matchesId
+						: builder.and(matchesId, builder.equal(root.get("version"), version)));
+
+		if (this.entityManager.createQuery(update).executeUpdate() == 0) {
+			if (version != null && this.getRepository().existsById(id)) {
+				throw new OptimisticLockingFailureException(
+						"Element " + id + " was modified, expected version " + version);
+			}
+			throw new CrmException("Element not found");
+		}
+		this.publish(ChangeType.UPDATED, id, null);
+	}
+
+	/**
+	 * Whether a patch of the given attributes has to load the entity and update it through the
+	 * persistence context, e.g. because entity listeners need the previous state of the attributes.
+	 *
+	 * @param attributes The names of the patched attributes.
+	 * @return False to patch with a single UPDATE statement.
+	 */
+	protected boolean loadsOnPatch(final Set<String> attributes) {
+		return false;
+	}
+
+	private T patchLoaded(final Long id, final Map<String, Object> values, final Long version) {
+		final var item =
+				this.getRepository().findById(id).orElseThrow(() -> new CrmException("Element not found"));
+		if (version != null && !version.equals(item.getVersion())) {
+			throw new OptimisticLockingFailureException(
+					"Element " + id + " was modified, expected version " + version);
+		}
+		final var wrapper = PropertyAccessorFactory.forBeanPropertyAccess(item);
+		values.forEach(wrapper::setPropertyValue);
+		this.entityManager.flush();
+		return item;
 	}
 
+	@CacheEvict(key = "#item.id")
 	@Override
 	public T delete(final T item) {
-		final T itemFound = this.getRepository().getReferenceById(item.getId());
-		logger.trace("Deleting {}.", itemFound);
-		this.getRepository().delete(itemFound);
-		return itemFound;
+		return this.deleteById(item.getId());
 	}
 
+	/**
+	 * Marks the item as deleted, it disappears from all queries but its row stays until the purge job
+	 * removes it. Only the row of the item is updated, rows referencing it are not locked.
+	 *
+	 * @param id The id of the item to delete.
+	 * @return The deleted item.
+	 */
+	@CacheEvict(key = "#id")
 	@Override
 	public T deleteById(final Long id) {
-		final T itemFound = getRepository().getReferenceById(id);
+		final var itemFound =
+				this.getRepository().findById(id).orElseThrow(() -> new CrmException("Element not found"));
+		this.checkDelete(itemFound);
 		logger.trace("Deleting {}.", itemFound);
-		this.getRepository().deleteById(id);
+		itemFound.setDeletedAt(Instant.now());
+		this.publish(ChangeType.DELETED, id, null);
 		return itemFound;
 	}
 
+	/**
+	 * Rejects the delete of an item that live items still reference, they would lose it from their
+	 * queries and the purge could not remove its row.
+	 *
+	 * @param item The item about to be deleted.
+	 */
+	protected void checkDelete(final T item) {}
+
 	@Transactional(readOnly = true)
 	@Override
 	public boolean exists(final T item) {
@@ -65,6 +349,9 @@ public abstract class BaseServiceImpl<T extends BaseEntity> extends BaseComponen
 		return this.getRepository().existsById(item.getId());
 	}
 
+	/* The loaded item is cached for the TTL, a row from a lagging replica would outlive the lag */
+	@PrimaryRead
+	@Cacheable(key = "#id")
 	@Transactional(readOnly = true)
 	@Override
 	public T get(final Long id) {
@@ -74,10 +361,292 @@ public abstract class BaseServiceImpl<T extends BaseEntity> extends BaseComponen
 				.orElseThrow(() -> new CrmException("Element not found"));
 	}
 
+	/**
+	 * Reads only the version and modification time of an item, so conditional requests can be
+	 * answered without loading and serializing it. Read on the primary, like the item it validates,
+	 * so a client is never told an older version is current.
+	 *
+	 * @param id The id of the item.
+	 * @return The version as the entity tag and the modification time of the item.
+	 */
+	@PrimaryRead
+	@Transactional(readOnly = true)
+	@Override
+	public EntityRevision getRevision(final Long id) {
+		final var builder = this.entityManager.getCriteriaBuilder();
+		final var query = builder.createTupleQuery();
+		final var root = query.from(this.entityType);
+		query.multiselect(root.<Long>get("version"), root.<Instant>get("lastModified"));
+		query.where(builder.equal(root.get("id"), id));
+
+		final var revision =
+				this.entityManager
+						.createQuery(query)
+						.getResultStream()
+						.findFirst()
+						.orElseThrow(() -> new CrmException("Element not found"));
+		return new EntityRevision(String.valueOf(revision.get(0)), revision.get(1, Instant.class));
+	}
+
+	/**
+	 * Summarizes all items in one aggregate query. The count and the highest id change with every
+	 * insert and delete, the sum of the versions with every update. No modification time is given,
+	 * the latest one of the remaining items does not move when an item is deleted. Read on the
+	 * primary, like the list it validates, a tag and body from different nodes could pin an old list
+	 * in the client cache.
+	 *
+	 * @return A weak entity tag of all items.
+	 */
+	@PrimaryRead
+	@Transactional(readOnly = true)
+	@Override
+	public EntityRevision getRevision() {
+		final var builder = this.entityManager.getCriteriaBuilder();
+		final var query = builder.createTupleQuery();
+		final var root = query.from(this.entityType);
+		query.multiselect(
+				builder.count(root),
+				builder.max(root.<Long>get("id")),
+				builder.sum(root.<Long>get("version")));
+
+		final var revision = this.entityManager.createQuery(query).getSingleResult();
+		return new EntityRevision(
+				"W/\"" + revision.get(0) + "-" + revision.get(1) + "-" + revision.get(2) + "\"", null);
+	}
+
+	@PrimaryRead
 	@Transactional(readOnly = true)
 	@Override
 	public List<T> findAll() {
 		logger.trace("Retrieving all items.");
 		return this.getRepository().findAll();
 	}
+
+	/**
+	 * Selects only the requested attributes, the id is always included. Attributes of a to-one
+	 * association are requested as "association.attribute", the association alone selects its id.
+	 *
+	 * @param fields The attribute names.
+	 * @return One map per item in id order, association attributes nested under the association.
+	 */
+	@PrimaryRead
+	@Transactional(readOnly = true)
+	@Override
+	public List<Map<String, Object>> findAll(final Set<String> fields) {
+		logger.trace("Retrieving {} of all items.", fields);
+		return this.project(fields, null, null);
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public KeysetPage<Map<String, Object>> findAfter(
+			final Set<String> fields, final Long after, final int size) {
+		final var pageSize = pageSize(size);
+		final var rows = this.project(fields, after == null ? 0L : after, pageSize + 1);
+		final var hasMore = rows.size() > pageSize;
+		final var items = hasMore ? rows.subList(0, pageSize) : rows;
+
+		return KeysetPage.<Map<String, Object>>builder()
+				.items(items)
+				.hasMore(hasMore)
+				.nextCursor(hasMore ? (Long) items.get(items.size() - 1).get("id") : null)
+				.build();
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public KeysetPage<T> findAfter(final Long after, final int size) {
+		final var pageSize = pageSize(size);
+		final var cursor = after == null ? 0L : after;
+		logger.trace("Retrieving {} items after id {}.", pageSize, cursor);
+
+		/* Fetch one extra row to know whether another page follows without a count query */
+		return this.toPage(
+				this.getRepository().findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(pageSize + 1)),
+				pageSize);
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public KeysetPage<T> findAfter(
+			final Specification<T> specification, final Long after, final int size) {
+		final var pageSize = pageSize(size);
+		final var cursor = after == null ? 0L : after;
+		logger.trace("Searching {} items after id {}.", pageSize, cursor);
+
+		final Specification<T> afterCursor =
+				(root, query, builder) -> builder.greaterThan(root.get("id"), cursor);
+		return this.toPage(
+				this.getRepository()
+						.findBy(
+								afterCursor.and(specification),
+								query -> query.sortBy(Sort.by("id")).limit(pageSize + 1).all()),
+				pageSize);
+	}
+
+	/* A tuple query of the requested paths, so the unrequested columns are never read */
+	private List<Map<String, Object>> project(
+			final Set<String> fields, final Long after, final Integer limit) {
+		final var projectable = this.getProjectableFields();
+		for (final var field : fields) {
+			if (!"id".equals(field) && !projectable.contains(field)) {
+				throw new CrmException("Unknown field: " + field);
+			}
+		}
+
+		final var builder = this.entityManager.getCriteriaBuilder();
+		final var query = builder.createTupleQuery();
+		final var root = query.from(this.entityType);
+		final var joins = new HashMap<String, Join<T, ?>>();
+		final var names = new ArrayList<String>();
+		names.add("id");
+		fields.stream()
+				.map(this::qualify)
+				.filter(field -> !"id".equals(field))
+				.distinct()
+				.forEach(names::add);
+
+		query.multiselect(
+				names.stream().<Selection<?>>map(name -> this.path(root, joins, name)).toList());
+		if (after != null) {
+			query.where(builder.greaterThan(root.get("id"), after));
+		}
+		query.orderBy(builder.asc(root.get("id")));
+
+		final var typedQuery = this.entityManager.createQuery(query);
+		if (limit != null) {
+			typedQuery.setMaxResults(limit);
+		}
+		return typedQuery.getResultList().stream()
+				.map(
+						tuple -> {
+							final var row = new LinkedHashMap<String, Object>();
+							for (var i = 0; i < names.size(); i++) {
+								put(row, names.get(i), tuple.get(i));
+							}
+							return (Map<String, Object>) row;
+						})
+				.toList();
+	}
+
+	private Path<?> path(final Root<T> root, final Map<String, Join<T, ?>> joins, final String name) {
+		final var dot = name.indexOf('.');
+		final var attribute = this.attribute(dot < 0 ? name : name.substring(0, dot));
+		if (attribute.getPersistentAttributeType() == BASIC) {
+			if (dot >= 0) {
+				throw new CrmException("Unknown field: " + name);
+			}
+			return root.get(attribute.getName());
+		}
+		if (!isAssociation(attribute) || dot < 0) {
+			throw new CrmException("Unknown field: " + name);
+		}
+
+		/* Left joined once per association, items without one keep null values */
+		final var join =
+				joins.computeIfAbsent(
+						attribute.getName(), association -> root.join(association, JoinType.LEFT));
+		final var nested = name.substring(dot + 1);
+		final var target =
+				this.entityManager.getMetamodel().entity(attribute.getJavaType()).getSingularAttributes();
+		if (target.stream()
+				.noneMatch(
+						candidate ->
+								candidate.getName().equals(nested)
+										&& candidate.getPersistentAttributeType() == BASIC)) {
+			throw new CrmException("Unknown field: " + name);
+		}
+		return join.get(nested);
+	}
+
+	/* An association alone selects its id, nested like the association in the entity */
+	private String qualify(final String field) {
+		return field.indexOf('.') < 0 && isAssociation(this.attribute(field)) ? field + ".id" : field;
+	}
+
+	private static boolean isAssociation(final SingularAttribute<?, ?> attribute) {
+		return attribute.getPersistentAttributeType() == MANY_TO_ONE
+				|| attribute.getPersistentAttributeType() == ONE_TO_ONE;
+	}
+
+	private SingularAttribute<? super T, ?> attribute(final String name) {
+		return this.entityManager
+				.getMetamodel()
+				.entity(this.entityType)
+				.getSingularAttributes()
+				.stream()
+				.filter(candidate -> candidate.getName().equals(name))
+				.findFirst()
+				.orElseThrow(() -> new CrmException("Unknown field: " + name));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void put(final Map<String, Object> row, final String name, final Object value) {
+		final var dot = name.indexOf('.');
+		if (dot < 0) {
+			row.put(name, value);
+		} else {
+			((Map<String, Object>)
+							row.computeIfAbsent(name.substring(0, dot), association -> new LinkedHashMap<>()))
+					.put(name.substring(dot + 1), value);
+		}
+	}
+
+	private void publish(final ChangeType type, final Long id, final T item) {
+		this.eventPublisher.publishEvent(this.change(type, id, item));
+	}
+
+	/* Publishes the collected changes as one event and clears them */
+	private void publish(final List<EntityChange> changes) {
+		if (changes.isEmpty()) {
+			return;
+		}
+		this.eventPublisher.publishEvent(
+				EntityChanges.builder()
+						.entityType(this.entityType)
+						.tenantId(TenantContext.get())
+						.changes(List.copyOf(changes))
+						.build());
+		changes.clear();
+	}
+
+	private EntityChange change(final ChangeType type, final Long id, final T item) {
+		return EntityChange.builder()
+				.entityType(this.entityType)
+				.tenantId(TenantContext.get())
+				.type(type)
+				.id(id)
+				.data(item)
+				.build();
+	}
+
+	private static int pageSize(final int size) {
+		return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+	}
+
+	/* Rows hold one row more than the page when another page follows */
+	private KeysetPage<T> toPage(final List<T> rows, final int pageSize) {
+		final var hasMore = rows.size() > pageSize;
+		final var items = hasMore ? rows.subList(0, pageSize) : rows;
+
+		return KeysetPage.<T>builder()
+				.items(items)
+				.hasMore(hasMore)
+				.nextCursor(hasMore ? items.get(items.size() - 1).getId() : null)
+				.build();
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public void streamAll(final Consumer<T> consumer) {
+		logger.trace("Streaming all items.");
+		try (var stream = this.getRepository().streamAllByOrderByIdAsc()) {
+			stream.forEach(
+					item -> {
+						consumer.accept(item);
+						/* Detach each row once written so the persistence context stays empty */
+						this.entityManager.detach(item);
+					});
+		}
+	}
 }
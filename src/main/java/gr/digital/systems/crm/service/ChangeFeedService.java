@@ -0,0 +1,8 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.model.BaseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public interface ChangeFeedService {
+	SseEmitter subscribe(final Class<? extends BaseEntity> entityType);
+}
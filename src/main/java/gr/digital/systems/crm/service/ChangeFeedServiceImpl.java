@@ -0,0 +1,241 @@
+package gr.digital.systems.crm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.model.BaseEntity;
+import gr.digital.systems.crm.transfer.EntityChange;
+import gr.digital.systems.crm.transfer.EntityChanges;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@Service
+public class ChangeFeedServiceImpl extends BaseComponent implements ChangeFeedService {
+
+	private final Map<Class<? extends BaseEntity>, Set<Subscriber>> subscribers =
+			new ConcurrentHashMap<>();
+
+	/* Event ids, increasing across all entity types */
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final ObjectMapper objectMapper;
+	private final ExecutorService senders;
+	private final ExecutorService writers;
+	private final int bufferSize;
+	private final long timeout;
+	private final long writeTimeout;
+	private final Counter droppedSubscribers;
+
+	@Autowired
+	public ChangeFeedServiceImpl(
+			final EnvironmentPropertiesConfig environmentPropertiesConfig,
+			final ObjectMapper objectMapper,
+			final MeterRegistry meterRegistry) {
+		this.objectMapper = objectMapper;
+		this.bufferSize = environmentPropertiesConfig.getChangesBufferSize();
+		this.timeout = environmentPropertiesConfig.getChangesTimeout();
+		this.writeTimeout = environmentPropertiesConfig.getChangesWriteTimeout();
+		this.senders =
+				Executors.newFixedThreadPool(
+						environmentPropertiesConfig.getChangesSenders(),
+						new CustomizableThreadFactory("change-feed-"));
+		/* At most one write per subscriber is in flight, so this pool is bounded by the subscribers */
+		this.writers =
+				Executors.newCachedThreadPool(new CustomizableThreadFactory("change-feed-writer-"));
+		this.droppedSubscribers =
+				Counter.builder("crm.changes.dropped")
+						.description("Change feed subscribers dropped for falling behind or stalling")
+						.register(meterRegistry);
+	}
+
+	/**
+	 * Subscribes to the committed changes of an entity type within the current tenant. Events are
+	 * sent with the change type as name and the EntityChange as JSON data.
+	 *
+	 * @param entityType The entity type to follow.
+	 * @return The emitter of the subscription.
+	 */
+	@Override
+	public SseEmitter subscribe(final Class<? extends BaseEntity> entityType) {
+		return this.subscribe(entityType, new SseEmitter(this.timeout));
+	}
+
+	SseEmitter subscribe(final Class<? extends BaseEntity> entityType, final SseEmitter emitter) {
+		final var subscriber =
+				new Subscriber(
+						entityType, TenantContext.get(), emitter, new ArrayBlockingQueue<>(this.bufferSize));
+		final var entitySubscribers =
+				this.subscribers.computeIfAbsent(entityType, type -> ConcurrentHashMap.newKeySet());
+		entitySubscribers.add(subscriber);
+
+		emitter.onCompletion(() -> entitySubscribers.remove(subscriber));
+		emitter.onTimeout(() -> entitySubscribers.remove(subscriber));
+		emitter.onError(e -> entitySubscribers.remove(subscriber));
+		logger.debug("Change feed subscriber added for {}.", entityType.getSimpleName());
+		return emitter;
+	}
+
+	/* Runs on the committing thread, so it only enqueues and never waits for a client */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onChange(final EntityChange change) {
+		final var entitySubscribers = this.subscribers.get(change.getEntityType());
+		if (entitySubscribers == null
+				|| entitySubscribers.stream()
+						.noneMatch(subscriber -> subscriber.tenant().equals(change.getTenantId()))) {
+			return;
+		}
+
+		/* Serialized once for all subscribers, and before later changes can touch the entity */
+		final String json;
+		try {
+			json = this.objectMapper.writeValueAsString(change);
+		} catch (final JsonProcessingException e) {
+			logger.error("Cannot serialize change of {} {}.", change.getEntityType(), change.getId(), e);
+			return;
+		}
+		final var delivery =
+				new Delivery(
+						this.sequence.incrementAndGet(),
+						change.getType().name().toLowerCase(Locale.ROOT),
+						json);
+		for (final var subscriber : entitySubscribers) {
+			if (!subscriber.tenant().equals(change.getTenantId())) {
+				continue;
+			}
+			if (subscriber.queue().offer(delivery)) {
+				this.schedule(subscriber);
+			} else {
+				/* The buffer is full, the client cannot keep up with the writers */
+				this.drop(subscriber, "slow");
+				this.writers.execute(subscriber.emitter()::complete);
+			}
+		}
+	}
+
+	/* The changes of a bulk save are delivered one by one, in save order */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onChanges(final EntityChanges changes) {
+		if (this.subscribers.containsKey(changes.getEntityType())) {
+			changes.getChanges().forEach(this::onChange);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		this.subscribers.values().stream()
+				.flatMap(Set::stream)
+				.forEach(subscriber -> subscriber.emitter().complete());
+		this.senders.shutdownNow();
+		this.writers.shutdownNow();
+	}
+
+	private void schedule(final Subscriber subscriber) {
+		if (subscriber.draining().compareAndSet(false, true)) {
+			this.senders.execute(() -> this.drain(subscriber));
+		}
+	}
+
+	/* At most one sender drains a subscriber at a time, which keeps its events in order */
+	private void drain(final Subscriber subscriber) {
+		try {
+			Delivery delivery;
+			while ((delivery = subscriber.queue().poll()) != null) {
+				if (!this.send(subscriber, delivery)) {
+					return;
+				}
+			}
+		} finally {
+			subscriber.draining().set(false);
+		}
+
+		/* Changes enqueued after the last poll but before the flag was cleared */
+		if (!subscriber.queue().isEmpty()) {
+			this.schedule(subscriber);
+		}
+	}
+
+	/*
+	 * The write blocks while the socket buffer of the client is full. It runs on a writer thread and
+	 * the sender waits at most changes.write-timeout for it, so a stalled client ties up its own writer
+	 * and never a shared sender. The emitter is completed on a writer too, it waits for the write
+	 */
+	private boolean send(final Subscriber subscriber, final Delivery delivery) {
+		final var event =
+				SseEmitter.event()
+						.id(String.valueOf(delivery.id()))
+						.name(delivery.name())
+						.data(delivery.json());
+		final var write =
+				this.writers.submit(
+						() -> {
+							subscriber.emitter().send(event);
+							return null;
+						});
+		try {
+			write.get(this.writeTimeout, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (final TimeoutException e) {
+			write.cancel(true);
+			this.drop(subscriber, "stalled");
+			this.writers.execute(() -> subscriber.emitter().completeWithError(e));
+		} catch (final ExecutionException e) {
+			logger.debug("Change feed subscriber disconnected: {}", e.getCause().getMessage());
+			subscriber.emitter().completeWithError(e.getCause());
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	private void drop(final Subscriber subscriber, final String reason) {
+		final var entitySubscribers = this.subscribers.get(subscriber.entityType());
+		if (entitySubscribers != null) {
+			entitySubscribers.remove(subscriber);
+		}
+		subscriber.queue().clear();
+		this.droppedSubscribers.increment();
+		logger.warn(
+				"Dropping {} change feed subscriber of {}.",
+				reason,
+				subscriber.entityType().getSimpleName());
+	}
+
+	private record Subscriber(
+			Class<? extends BaseEntity> entityType,
+			String tenant,
+			SseEmitter emitter,
+			BlockingQueue<Delivery> queue,
+			AtomicBoolean draining) {
+		private Subscriber(
+				final Class<? extends BaseEntity> entityType,
+				final String tenant,
+				final SseEmitter emitter,
+				final BlockingQueue<Delivery> queue) {
+			this(entityType, tenant, emitter, queue, new AtomicBoolean());
+		}
+	}
+
+	private record Delivery(long id, String name, String json) {}
+}
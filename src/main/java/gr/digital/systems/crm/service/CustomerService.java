@@ -1,5 +1,9 @@
 package gr.digital.systems.crm.service;
 
 import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.transfer.CustomerFilter;
+import gr.digital.systems.crm.transfer.KeysetPage;
 
-public interface CustomerService extends BaseService<Customer> {}
+public interface CustomerService extends BaseService<Customer> {
+	KeysetPage<Customer> search(final CustomerFilter filter, final Long after, final int size);
+}
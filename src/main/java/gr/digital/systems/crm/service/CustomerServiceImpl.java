@@ -1,23 +1,89 @@
 package gr.digital.systems.crm.service;
 
+import gr.digital.systems.crm.configuration.EntityCacheConfig;
+import gr.digital.systems.crm.exception.CrmException;
 import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.repository.BaseRepository;
 import gr.digital.systems.crm.repository.CustomerRepository;
+import gr.digital.systems.crm.repository.EntitySpecifications;
+import gr.digital.systems.crm.repository.OpportunityRepository;
+import gr.digital.systems.crm.transfer.CustomerFilter;
+import gr.digital.systems.crm.transfer.KeysetPage;
+import gr.digital.systems.crm.utils.ExportColumn;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class CustomerServiceImpl extends BaseServiceImpl<Customer> implements CustomerService {
 
 	private final CustomerRepository customerRepository;
+	private final OpportunityRepository opportunityRepository;
+
+	@PersistenceContext private EntityManager entityManager;
 
 	@Autowired
-	public CustomerServiceImpl(final CustomerRepository customerRepository) {
+	public CustomerServiceImpl(
+			final CustomerRepository customerRepository,
+			final OpportunityRepository opportunityRepository) {
 		this.customerRepository = customerRepository;
+		this.opportunityRepository = opportunityRepository;
 	}
 
 	@Override
-	public JpaRepository<Customer, Long> getRepository() {
+	public BaseRepository<Customer> getRepository() {
 		return this.customerRepository;
 	}
+
+	@Override
+	public String getCacheName() {
+		return EntityCacheConfig.CUSTOMERS;
+	}
+
+	@Override
+	public Set<String> getProjectableFields() {
+		return Set.of("name", "email", "phone", "address");
+	}
+
+	/*
+	 * A customer with opportunities would vanish from them, the opportunities go first. The row lock
+	 * makes an opportunity created for the customer meanwhile wait for the delete, see
+	 * OpportunityServiceImpl.resolveReferences
+	 */
+	@Override
+	protected void checkDelete(final Customer customer) {
+		this.entityManager.lock(customer, LockModeType.PESSIMISTIC_WRITE);
+		if (this.opportunityRepository.existsByCustomerId(customer.getId())) {
+			throw new CrmException("Customer " + customer.getId() + " still has opportunities");
+		}
+	}
+
+	@Override
+	public List<ExportColumn<Customer>> getExportColumns() {
+		return List.of(
+				ExportColumn.of("id", Customer::getId),
+				ExportColumn.of("name", Customer::getName),
+				ExportColumn.of("email", Customer::getEmail),
+				ExportColumn.of("phone", Customer::getPhone),
+				ExportColumn.of("address", Customer::getAddress));
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public KeysetPage<Customer> search(
+			final CustomerFilter filter, final Long after, final int size) {
+		/* Blank criteria resolve to null specifications and are left out of the query */
+		final var specification =
+				Specification.allOf(
+						EntitySpecifications.<Customer>startsWith("name", filter.getName()),
+						EntitySpecifications.<Customer>equalTo("email", filter.getEmail()),
+						EntitySpecifications.<Customer>equalTo("phone", filter.getPhone()));
+		return this.findAfter(specification, after, size);
+	}
 }
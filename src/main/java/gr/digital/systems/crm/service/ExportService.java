@@ -0,0 +1,15 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.model.BaseEntity;
+import gr.digital.systems.crm.transfer.FileFormat;
+import java.io.OutputStream;
+
+public interface ExportService {
+	<T extends BaseEntity> long export(
+			final BaseService<T> service,
+			final FileFormat format,
+			final boolean gzip,
+			final String rootElement,
+			final String rowElement,
+			final OutputStream outputStream);
+}
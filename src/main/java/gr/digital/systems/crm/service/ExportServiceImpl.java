@@ -0,0 +1,101 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.BaseEntity;
+import gr.digital.systems.crm.transfer.FileFormat;
+import gr.digital.systems.crm.utils.CsvExportWriter;
+import gr.digital.systems.crm.utils.ExportColumn;
+import gr.digital.systems.crm.utils.ExportWriter;
+import gr.digital.systems.crm.utils.XmlExportWriter;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Service;
+
+@Service
+public class ExportServiceImpl extends BaseComponent implements ExportService {
+
+	private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+	private final EntityManagerFactory entityManagerFactory;
+	private final int batchSize;
+
+	@Autowired
+	public ExportServiceImpl(
+			final EntityManagerFactory entityManagerFactory,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		this.entityManagerFactory = entityManagerFactory;
+		this.batchSize = environmentPropertiesConfig.getExportBatchSize();
+	}
+
+	/**
+	 * Streams every row of the service's table to the output stream. Rows are read in keyset batches
+	 * and written as soon as they are read. Open-session-in-view binds the persistence context of the
+	 * request to the streaming thread as well, so it is cleared after every batch. Memory use then
+	 * depends on the batch size only. Must not be called with unflushed changes in that context.
+	 *
+	 * @return The number of exported rows.
+	 */
+	@Override
+	public <T extends BaseEntity> long export(
+			final BaseService<T> service,
+			final FileFormat format,
+			final boolean gzip,
+			final String rootElement,
+			final String rowElement,
+			final OutputStream outputStream) {
+		try {
+			final var target = gzip ? new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE) : outputStream;
+
+			/* The channel writer encodes into its own buffer and hands full buffers to the channel */
+			final var writer = Channels.newWriter(Channels.newChannel(target), StandardCharsets.UTF_8);
+			final ExportWriter exportWriter =
+					switch (format) {
+						case CSV -> new CsvExportWriter(writer);
+						case XML -> new XmlExportWriter(writer, rootElement, rowElement);
+					};
+
+			final var columns = service.getExportColumns();
+			exportWriter.begin(columns.stream().map(ExportColumn::getName).toList());
+
+			var rows = 0L;
+			Long cursor = null;
+			do {
+				final var page = service.findAfter(cursor, this.batchSize);
+				for (final T item : page.getItems()) {
+					exportWriter.write(
+							columns.stream().map(column -> column.getValue().apply(item)).toList());
+				}
+				rows += page.getItems().size();
+				cursor = page.getNextCursor();
+				this.release();
+			} while (cursor != null);
+
+			exportWriter.end();
+			if (target instanceof GZIPOutputStream gzipOutputStream) {
+				gzipOutputStream.finish();
+			}
+
+			logger.debug("Exported {} {} as {}.", rows, rootElement, format);
+			return rows;
+		} catch (final IOException e) {
+			throw new CrmException("Cannot export " + rootElement, e);
+		}
+	}
+
+	/* Drops the written batch, with its eagerly fetched associations, from the bound context */
+	private void release() {
+		final var entityManager =
+				EntityManagerFactoryUtils.getTransactionalEntityManager(this.entityManagerFactory);
+		if (entityManager != null) {
+			entityManager.clear();
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.transfer.CaptureStatus;
+
+public interface LeadCaptureService {
+	CaptureStatus capture(final Lead lead);
+
+	CaptureStatus get(final String trackingId);
+}
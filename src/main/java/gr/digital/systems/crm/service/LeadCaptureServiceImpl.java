@@ -0,0 +1,463 @@
+package gr.digital.systems.crm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.exception.ServiceOverloadedException;
+import gr.digital.systems.crm.model.JobStatus;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.repository.LeadRepository;
+import gr.digital.systems.crm.transfer.CaptureStatus;
+import gr.digital.systems.crm.utils.AppendOnlyJournal;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Accepts leads into a bounded in-memory queue and stores them in batches from a background thread,
+ * one READ_COMMITTED transaction per batch. Accepted leads are appended to a local journal first,
+ * the journal is committed after every stored batch and replayed on startup, so a crash loses no
+ * accepted lead but may store a lead twice, replayed leads are therefore dropped when a lead with
+ * the same email exists. When the queue stays full the capture is rejected with a 503. Every
+ * capture is stored for the tenant that sent it, a batch holding several tenants is stored in one
+ * transaction per tenant. The journal is replayed before the web server starts, so replayed leads
+ * are queued ahead of every new capture, and it is committed only up to the lowest capture not yet
+ * stored. A capture is acknowledged once the journal has forced it to disk, concurrent captures
+ * share one force.
+ */
+@Service
+public class LeadCaptureServiceImpl extends BaseComponent
+		implements LeadCaptureService, SmartLifecycle {
+
+	/* Before the web server starts accepting captures */
+	private static final int REPLAY_PHASE =
+			WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+
+	private static final int ERROR_LENGTH = 1000;
+	private static final long RETRY_AFTER_SECONDS = 1;
+	private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+	private final LeadService leadService;
+	private final LeadRepository leadRepository;
+	private final ObjectMapper objectMapper;
+	private final TransactionTemplate transactionTemplate;
+	private final int batchSize;
+	private final long offerTimeout;
+	private final AppendOnlyJournal journal;
+
+	/* The permits bound the captures that are queued or being stored */
+	private final Semaphore capacity;
+
+	private final BlockingQueue<Capture> queue = new LinkedBlockingQueue<>();
+
+	/* The journal sequences of the captures queued or being stored, or left by a failed batch */
+	private final NavigableSet<Long> pending = new ConcurrentSkipListSet<>();
+
+	/*
+	 * Journal sequences and queue order must agree, the journal is committed up to a batch. A lock
+	 * rather than a monitor, a virtual thread waiting for it does not pin its carrier
+	 */
+	private final ReentrantLock appendLock = new ReentrantLock();
+
+	private final Cache<String, CaptureStatus> statuses;
+	private final Counter rejected;
+
+	private final ExecutorService flusher =
+			Executors.newSingleThreadExecutor(new CustomizableThreadFactory("lead-capture-"));
+
+	private volatile boolean running = true;
+	private volatile boolean replayed;
+
+	@Autowired
+	public LeadCaptureServiceImpl(
+			final LeadService leadService,
+			final LeadRepository leadRepository,
+			final ObjectMapper objectMapper,
+			final PlatformTransactionManager transactionManager,
+			final MeterRegistry meterRegistry,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		this.leadService = leadService;
+		this.leadRepository = leadRepository;
+		this.objectMapper = objectMapper;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+		this.batchSize = environmentPropertiesConfig.getCaptureBatchSize();
+		this.offerTimeout = environmentPropertiesConfig.getCaptureOfferTimeout();
+		this.capacity = new Semaphore(environmentPropertiesConfig.getCaptureQueueSize());
+		this.journal =
+				environmentPropertiesConfig.isCaptureJournalEnabled()
+						? new AppendOnlyJournal(
+								Path.of(environmentPropertiesConfig.getCaptureJournalDirectory()),
+								environmentPropertiesConfig.isCaptureJournalFsync(),
+								environmentPropertiesConfig.getCaptureJournalSegmentSize())
+						: null;
+		this.statuses =
+				Caffeine.newBuilder()
+						.maximumSize(environmentPropertiesConfig.getCaptureStatusMaxSize())
+						.expireAfterWrite(Duration.ofHours(1))
+						.build();
+		this.rejected =
+				Counter.builder("crm.capture.rejected")
+						.description("Lead captures rejected because the queue was full")
+						.register(meterRegistry);
+		Gauge.builder("crm.capture.queue", this.queue, BlockingQueue::size)
+				.description("Captured leads waiting to be stored")
+				.register(meterRegistry);
+	}
+
+	@Override
+	public void init() {
+		super.init();
+		this.flusher.execute(this::flush);
+	}
+
+	@Override
+	public CaptureStatus capture(final Lead lead) {
+		try {
+			if (!this.capacity.tryAcquire(this.offerTimeout, TimeUnit.MILLISECONDS)) {
+				this.rejected.increment();
+				throw new ServiceOverloadedException("Lead capture queue is full", RETRY_AFTER_SECONDS);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CrmException("Interrupted while waiting for the lead capture queue", e);
+		}
+
+		final var record =
+				new CaptureRecord(
+						TenantContext.get(),
+						UUID.randomUUID().toString(),
+						lead.getName(),
+						lead.getEmail(),
+						lead.getPhone(),
+						lead.getSource());
+		var accepted = false;
+		try {
+			final var payload = this.objectMapper.writeValueAsString(record);
+			final var status = this.queued(record);
+			final long sequence;
+			this.appendLock.lock();
+			try {
+				sequence = this.journal == null ? 0 : this.journal.append(payload);
+				this.enqueue(new Capture(record, sequence, false));
+			} finally {
+				this.appendLock.unlock();
+			}
+			/* Queued, the flusher releases the permit from here on */
+			accepted = true;
+			/* Outside the append lock, so the captures arriving meanwhile join the same force */
+			if (this.journal != null) {
+				this.journal.sync(sequence);
+			}
+			return status;
+		} catch (final JsonProcessingException e) {
+			throw new CrmException("Cannot capture the lead", e);
+		} finally {
+			if (!accepted) {
+				this.capacity.release();
+				this.statuses.invalidate(key(record.tenant(), record.trackingId()));
+			}
+		}
+	}
+
+	@Override
+	public CaptureStatus get(final String trackingId) {
+		final var status = this.statuses.getIfPresent(key(TenantContext.get(), trackingId));
+		if (status == null) {
+			throw new CrmException("Lead capture not found");
+		}
+		return status;
+	}
+
+	@Override
+	public void start() {
+		this.replay();
+		this.replayed = true;
+	}
+
+	/* Shutdown is left to destroy, which stores what is still queued */
+	@Override
+	public void stop() {
+		this.replayed = false;
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.replayed;
+	}
+
+	@Override
+	public int getPhase() {
+		return REPLAY_PHASE;
+	}
+
+	/* Leads accepted before a crash or shutdown are queued again, ahead of new captures */
+	private void replay() {
+		if (this.journal == null) {
+			return;
+		}
+		final var pending = this.journal.getPending();
+		if (pending.isEmpty()) {
+			return;
+		}
+		logger.info("Replaying {} journaled lead captures.", pending.size());
+		for (final var entry : pending) {
+			try {
+				final var record = this.objectMapper.readValue(entry.payload(), CaptureRecord.class);
+				this.capacity.acquire();
+				this.queued(record);
+				this.appendLock.lock();
+				try {
+					this.enqueue(new Capture(record, entry.sequence(), true));
+				} finally {
+					this.appendLock.unlock();
+				}
+			} catch (final IOException e) {
+				logger.warn("Skipping unreadable journaled capture {}.", entry.sequence(), e);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/* Stores what is already queued, whatever is left stays in the journal for the next start */
+	@Override
+	public void destroy() {
+		super.destroy();
+		this.running = false;
+		this.flusher.shutdown();
+		try {
+			if (!this.flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+				logger.warn("{} captured leads left unstored at shutdown.", this.queue.size());
+				this.flusher.shutdownNow();
+			}
+			if (this.journal != null) {
+				this.journal.close();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final IOException e) {
+			logger.warn("Cannot close the lead capture journal.", e);
+		}
+	}
+
+	private void flush() {
+		while (this.running || !this.queue.isEmpty()) {
+			try {
+				final var first = this.queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				final var batch = new ArrayList<Capture>(this.batchSize);
+				batch.add(first);
+				this.queue.drainTo(batch, this.batchSize - 1);
+				try {
+					if (this.persistByTenant(batch) && this.journal != null) {
+						this.commit(batch);
+					}
+				} finally {
+					this.capacity.release(batch.size());
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private void enqueue(final Capture capture) {
+		if (this.journal != null) {
+			this.pending.add(capture.sequence());
+		}
+		this.queue.add(capture);
+	}
+
+	/* Never past a capture still pending, e.g. of a batch left in the journal by a shutdown */
+	private void commit(final List<Capture> batch) {
+		batch.forEach(capture -> this.pending.remove(capture.sequence()));
+		final var last = batch.get(batch.size() - 1).sequence();
+		final var lowest = this.pending.ceiling(Long.MIN_VALUE);
+		this.journal.commit(lowest == null ? last : Math.min(last, lowest - 1));
+	}
+
+	/* The journal may only be committed past a batch once the captures of every tenant are stored */
+	private boolean persistByTenant(final List<Capture> batch) throws InterruptedException {
+		final var byTenant = new LinkedHashMap<String, List<Capture>>();
+		batch.forEach(
+				capture ->
+						byTenant
+								.computeIfAbsent(capture.record().tenant(), tenant -> new ArrayList<>())
+								.add(capture));
+		for (final var tenantBatch : byTenant.entrySet()) {
+			TenantContext.set(tenantBatch.getKey());
+			try {
+				if (!this.persist(tenantBatch.getValue())) {
+					return false;
+				}
+			} finally {
+				TenantContext.clear();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Stores a batch, retrying while the database is unreachable. A batch rejected by the database is
+	 * stored lead by lead, so one invalid lead fails alone.
+	 *
+	 * @return False when the batch was left in the journal because of a shutdown.
+	 */
+	private boolean persist(final List<Capture> batch) throws InterruptedException {
+		while (true) {
+			try {
+				this.store(batch);
+				return true;
+			} catch (final TransientDataAccessException
+					| RecoverableDataAccessException
+					| CannotCreateTransactionException e) {
+				if (!this.running) {
+					/* Left uncommitted in the journal, replayed on the next start */
+					return false;
+				}
+				logger.warn("Cannot store {} captured leads, retrying.", batch.size(), e);
+				Thread.sleep(RETRY_DELAY.toMillis());
+			} catch (final RuntimeException e) {
+				logger.warn("Captured batch of {} leads failed, storing them one by one.", batch.size(), e);
+				this.storeEach(batch);
+				return true;
+			}
+		}
+	}
+
+	private void storeEach(final List<Capture> batch) {
+		for (final var capture : batch) {
+			try {
+				this.store(List.of(capture));
+			} catch (final RuntimeException e) {
+				logger.error("Captured lead {} failed.", capture.record().trackingId(), e);
+				this.statuses.put(
+						key(capture.record().tenant(), capture.record().trackingId()),
+						CaptureStatus.builder()
+								.trackingId(capture.record().trackingId())
+								.status(JobStatus.FAILED)
+								.error(StringUtils.truncate(String.valueOf(e.getMessage()), ERROR_LENGTH))
+								.build());
+			}
+		}
+	}
+
+	private void store(final List<Capture> batch) {
+		final var stored =
+				Objects.requireNonNull(
+						this.transactionTemplate.execute(
+								status -> {
+									final var existing =
+											this.leadRepository.findExistingEmails(
+													batch.stream()
+															.filter(Capture::replayed)
+															.map(capture -> capture.record().email())
+															.filter(Objects::nonNull)
+															.toList());
+									final var captures =
+											batch.stream()
+													.filter(
+															capture ->
+																	!capture.replayed()
+																			|| !existing.contains(capture.record().email()))
+													.toList();
+									final var leads =
+											this.leadService.createAll(
+													captures.stream().map(capture -> capture.record().toLead()).toList());
+									final var created = new ArrayList<CaptureStatus>(batch.size());
+									for (var i = 0; i < captures.size(); i++) {
+										created.add(completed(captures.get(i), leads.get(i).getId()));
+									}
+									return created;
+								}));
+		/* Replayed leads stored before the crash complete without an id */
+		final var tenant = TenantContext.get();
+		batch.stream()
+				.filter(Capture::replayed)
+				.forEach(
+						capture ->
+								this.statuses.put(
+										key(tenant, capture.record().trackingId()), completed(capture, null)));
+		stored.forEach(status -> this.statuses.put(key(tenant, status.getTrackingId()), status));
+	}
+
+	private CaptureStatus queued(final CaptureRecord record) {
+		final var status =
+				CaptureStatus.builder().trackingId(record.trackingId()).status(JobStatus.QUEUED).build();
+		this.statuses.put(key(record.tenant(), record.trackingId()), status);
+		return status;
+	}
+
+	/* A tracking id only finds the captures of its own tenant */
+	private static String key(final String tenant, final String trackingId) {
+		return tenant + ":" + trackingId;
+	}
+
+	private static CaptureStatus completed(final Capture capture, final Long leadId) {
+		return CaptureStatus.builder()
+				.trackingId(capture.record().trackingId())
+				.status(JobStatus.COMPLETED)
+				.leadId(leadId)
+				.build();
+	}
+
+	/** The journaled form of a captured lead. */
+	record CaptureRecord(
+			String tenant, String trackingId, String name, String email, String phone, String source) {
+
+		/* Journals written before tenants existed hold captures of the default tenant */
+		CaptureRecord {
+			tenant = tenant == null ? TenantContext.DEFAULT_TENANT : tenant;
+		}
+
+		Lead toLead() {
+			final var lead = new Lead();
+			lead.setName(this.name);
+			lead.setEmail(this.email);
+			lead.setPhone(this.phone);
+			lead.setSource(this.source);
+			return lead;
+		}
+	}
+
+	private record Capture(CaptureRecord record, long sequence, boolean replayed) {}
+}
@@ -0,0 +1,15 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.model.ConversionJob;
+import gr.digital.systems.crm.transfer.ConversionResult;
+import gr.digital.systems.crm.transfer.LeadConversion;
+
+public interface LeadConversionService {
+	ConversionResult convert(final Long leadId, final LeadConversion conversion);
+
+	ConversionJob submit(final LeadConversion conversion);
+
+	ConversionJob get(final Long id);
+
+	ConversionJob resume(final Long id);
+}
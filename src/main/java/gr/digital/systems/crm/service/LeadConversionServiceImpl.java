@@ -0,0 +1,294 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.ConversionJob;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.JobStatus;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.repository.ConversionJobRepository;
+import gr.digital.systems.crm.repository.LeadRepository;
+import gr.digital.systems.crm.transfer.ConversionResult;
+import gr.digital.systems.crm.transfer.LeadConversion;
+import gr.digital.systems.crm.utils.TenantContext;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Promotes leads to a customer and an opportunity and deletes the lead. Bulk conversions run as
+ * jobs, one short READ_COMMITTED transaction per chunk of leads, so locks are held for one chunk
+ * only and an interrupted job continues after its last committed chunk.
+ */
+@Service
+public class LeadConversionServiceImpl extends BaseComponent implements LeadConversionService {
+
+	private static final int ERROR_LENGTH = 1000;
+	private static final String DEFAULT_STATUS = "OPEN";
+
+	private final LeadService leadService;
+	private final CustomerService customerService;
+	private final OpportunityService opportunityService;
+	private final LeadRepository leadRepository;
+	private final ConversionJobRepository conversionJobRepository;
+	private final TenantService tenantService;
+	private final TransactionTemplate transactionTemplate;
+	private final int chunkSize;
+
+	private final ExecutorService jobExecutor =
+			Executors.newSingleThreadExecutor(new CustomizableThreadFactory("lead-conversion-"));
+
+	@Autowired
+	public LeadConversionServiceImpl(
+			final LeadService leadService,
+			final CustomerService customerService,
+			final OpportunityService opportunityService,
+			final LeadRepository leadRepository,
+			final ConversionJobRepository conversionJobRepository,
+			final TenantService tenantService,
+			final PlatformTransactionManager transactionManager,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		this.leadService = leadService;
+		this.customerService = customerService;
+		this.opportunityService = opportunityService;
+		this.leadRepository = leadRepository;
+		this.conversionJobRepository = conversionJobRepository;
+		this.tenantService = tenantService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+		this.chunkSize = environmentPropertiesConfig.getConversionChunkSize();
+	}
+
+	@Transactional(isolation = Isolation.READ_COMMITTED, rollbackFor = Exception.class)
+	@Override
+	public ConversionResult convert(final Long leadId, final LeadConversion conversion) {
+		final var lead = this.leadService.get(leadId);
+		final var customer =
+				conversion.getCustomerId() == null
+						? this.customerService.create(toCustomer(lead))
+						: this.customerService.get(conversion.getCustomerId());
+		final var opportunity =
+				this.opportunityService.create(
+						toOpportunity(
+								lead,
+								customer,
+								conversion.getDescription(),
+								conversion.getValue() == null ? 0 : conversion.getValue(),
+								conversion.getStatus()));
+		this.leadService.delete(lead);
+		logger.debug("Lead {} converted to customer {}.", leadId, customer.getId());
+		return ConversionResult.builder()
+				.leadId(leadId)
+				.customer(customer)
+				.opportunity(opportunity)
+				.build();
+	}
+
+	@Override
+	public ConversionJob submit(final LeadConversion conversion) {
+		final var ids = conversion.getIds();
+		if ((ids == null || ids.isEmpty()) && !StringUtils.hasText(conversion.getSource())) {
+			throw new CrmException("Select the leads to convert by ids or by source");
+		}
+		final var job = new ConversionJob();
+		if (ids != null && !ids.isEmpty()) {
+			job.setLeadIds(ids.stream().distinct().sorted().toList());
+			job.setTotalLeads(job.getLeadIds().size());
+		} else {
+			job.setSource(conversion.getSource());
+			job.setTotalLeads(this.leadRepository.countBySource(conversion.getSource()));
+		}
+		job.setDescription(conversion.getDescription());
+		job.setValue(conversion.getValue() == null ? 0 : conversion.getValue());
+		job.setOpportunityStatus(conversion.getStatus());
+		job.setStatus(JobStatus.QUEUED);
+		job.setCreatedAt(Instant.now());
+
+		final var saved = this.saveJob(job);
+		logger.info("Conversion job {} queued for {} leads.", saved.getId(), saved.getTotalLeads());
+		this.schedule(saved.getId());
+		return saved;
+	}
+
+	@Override
+	public ConversionJob get(final Long id) {
+		return this.conversionJobRepository
+				.findById(id)
+				.orElseThrow(() -> new CrmException("Conversion job not found"));
+	}
+
+	@Override
+	public ConversionJob resume(final Long id) {
+		final var job = this.get(id);
+		if (job.getStatus() == JobStatus.COMPLETED) {
+			throw new CrmException("Conversion job is already completed");
+		}
+		this.schedule(id);
+		return job;
+	}
+
+	/* Jobs interrupted by a shutdown continue from their last committed chunk */
+	@EventListener(ApplicationReadyEvent.class)
+	public void resumeInterrupted() {
+		for (final var tenant : this.tenantService.getTenants()) {
+			TenantContext.run(
+					tenant,
+					() ->
+							this.conversionJobRepository
+									.findByStatusIn(EnumSet.of(JobStatus.QUEUED, JobStatus.RUNNING))
+									.forEach(job -> this.schedule(job.getId())));
+		}
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		this.jobExecutor.shutdownNow();
+	}
+
+	private void schedule(final Long id) {
+		/* The job runs for the tenant that submitted or resumed it */
+		this.jobExecutor.execute(TenantContext.wrap(() -> this.run(id)));
+	}
+
+	private void run(final Long id) {
+		var job = this.get(id);
+		if (job.getStatus() == JobStatus.COMPLETED) {
+			return;
+		}
+		job.setStatus(JobStatus.RUNNING);
+		job.setError(null);
+		job = this.saveJob(job);
+		logger.info("Conversion job {} started after lead {}.", id, job.getLastLeadId());
+
+		try {
+			final var leadIds =
+					job.getSource() == null ? this.conversionJobRepository.findLeadIds(id) : null;
+			ConversionJob converted;
+			while ((converted = this.convertChunk(job, leadIds)) != null) {
+				job = converted;
+			}
+
+			job.setStatus(JobStatus.COMPLETED);
+			job = this.saveJob(job);
+			logger.info(
+					"Conversion job {} completed, {} converted, {} missing.",
+					id,
+					job.getConvertedLeads(),
+					job.getMissingLeads());
+		} catch (final Exception e) {
+			/* Reload the job, progress of a rolled back chunk must not be recorded */
+			final var failed = this.get(id);
+			logger.error("Conversion job {} failed after lead {}.", id, failed.getLastLeadId(), e);
+			failed.setStatus(JobStatus.FAILED);
+			failed.setError(StringUtils.truncate(String.valueOf(e.getMessage()), ERROR_LENGTH));
+			this.saveJob(failed);
+		}
+	}
+
+	/**
+	 * Converts the next chunk of leads with the job progress in the same transaction. The customers
+	 * and opportunities are inserted through createAll, in JDBC batches.
+	 *
+	 * @return The updated job, or null when no leads are left.
+	 */
+	private ConversionJob convertChunk(final ConversionJob job, final List<Long> leadIds) {
+		return this.transactionTemplate.execute(
+				status -> {
+					final List<Lead> leads;
+					final long selected;
+					final long lastLeadId;
+					if (leadIds == null) {
+						leads =
+								this.leadRepository.findBySourceAndIdGreaterThanOrderByIdAsc(
+										job.getSource(), job.getLastLeadId(), Limit.of(this.chunkSize));
+						if (leads.isEmpty()) {
+							return null;
+						}
+						selected = leads.size();
+						lastLeadId = leads.get(leads.size() - 1).getId();
+					} else {
+						final var chunk =
+								leadIds.stream()
+										.filter(leadId -> leadId > job.getLastLeadId())
+										.limit(this.chunkSize)
+										.toList();
+						if (chunk.isEmpty()) {
+							return null;
+						}
+						leads = new ArrayList<>(this.leadRepository.findAllById(chunk));
+						leads.sort(Comparator.comparing(Lead::getId));
+						selected = chunk.size();
+						lastLeadId = chunk.get(chunk.size() - 1);
+					}
+
+					/* The leads are managed, so the deletes go out in the same flush as the inserts */
+					leads.forEach(this.leadService::delete);
+					final var customers =
+							this.customerService.createAll(
+									leads.stream().map(LeadConversionServiceImpl::toCustomer).toList());
+					final var opportunities = new ArrayList<Opportunity>(leads.size());
+					for (var i = 0; i < leads.size(); i++) {
+						opportunities.add(
+								toOpportunity(
+										leads.get(i),
+										customers.get(i),
+										job.getDescription(),
+										job.getValue(),
+										job.getOpportunityStatus()));
+					}
+					this.opportunityService.createAll(opportunities);
+
+					job.setLastLeadId(lastLeadId);
+					job.setProcessedLeads(job.getProcessedLeads() + selected);
+					job.setConvertedLeads(job.getConvertedLeads() + leads.size());
+					job.setMissingLeads(job.getMissingLeads() + selected - leads.size());
+					job.setUpdatedAt(Instant.now());
+					final var saved = this.conversionJobRepository.save(job);
+					logger.debug("Conversion job {} committed lead {}.", saved.getId(), lastLeadId);
+					return saved;
+				});
+	}
+
+	private ConversionJob saveJob(final ConversionJob job) {
+		job.setUpdatedAt(Instant.now());
+		return this.transactionTemplate.execute(status -> this.conversionJobRepository.save(job));
+	}
+
+	private static Customer toCustomer(final Lead lead) {
+		return new Customer(lead.getName(), lead.getEmail(), lead.getPhone(), null);
+	}
+
+	private static Opportunity toOpportunity(
+			final Lead lead,
+			final Customer customer,
+			final String description,
+			final double value,
+			final String status) {
+		return new Opportunity(
+				StringUtils.hasText(description)
+						? description
+						: "Converted lead" + (lead.getSource() == null ? "" : " from " + lead.getSource()),
+				value,
+				StringUtils.hasText(status) ? status : DEFAULT_STATUS,
+				customer);
+	}
+}
@@ -0,0 +1,13 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.model.ImportJob;
+import gr.digital.systems.crm.transfer.FileFormat;
+import java.io.InputStream;
+
+public interface LeadImportService {
+	ImportJob submit(final InputStream inputStream, final FileFormat format);
+
+	ImportJob get(final Long id);
+
+	ImportJob resume(final Long id);
+}
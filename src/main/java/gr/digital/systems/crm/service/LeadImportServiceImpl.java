@@ -0,0 +1,286 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.ImportJob;
+import gr.digital.systems.crm.model.JobStatus;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.repository.ImportJobRepository;
+import gr.digital.systems.crm.repository.LeadRepository;
+import gr.digital.systems.crm.transfer.FileFormat;
+import gr.digital.systems.crm.utils.CsvImportReader;
+import gr.digital.systems.crm.utils.FileUtils;
+import gr.digital.systems.crm.utils.ImportReader;
+import gr.digital.systems.crm.utils.TenantContext;
+import gr.digital.systems.crm.utils.XmlImportReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+@Service
+public class LeadImportServiceImpl extends BaseComponent implements LeadImportService {
+
+	private static final int ERROR_LENGTH = 1000;
+
+	private static final Pattern EMAIL = Pattern.compile("^[^@\\s]+@[^@\\s]+\\.[^@\\s]+$");
+
+	private final LeadService leadService;
+	private final LeadRepository leadRepository;
+	private final ImportJobRepository importJobRepository;
+	private final TenantService tenantService;
+	private final TransactionTemplate transactionTemplate;
+	private final Path directory;
+	private final int chunkSize;
+	private final int workers;
+
+	/* Jobs run one at a time, their chunks are validated on the worker pool */
+	private final ExecutorService jobExecutor =
+			Executors.newSingleThreadExecutor(new CustomizableThreadFactory("lead-import-"));
+	private final ExecutorService workerExecutor;
+
+	@Autowired
+	public LeadImportServiceImpl(
+			final LeadService leadService,
+			final LeadRepository leadRepository,
+			final ImportJobRepository importJobRepository,
+			final TenantService tenantService,
+			final PlatformTransactionManager transactionManager,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		this.leadService = leadService;
+		this.leadRepository = leadRepository;
+		this.importJobRepository = importJobRepository;
+		this.tenantService = tenantService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+		this.directory = Path.of(environmentPropertiesConfig.getImportDirectory());
+		this.chunkSize = environmentPropertiesConfig.getImportChunkSize();
+		this.workers = environmentPropertiesConfig.getImportWorkers();
+		this.workerExecutor =
+				Executors.newFixedThreadPool(
+						this.workers, new CustomizableThreadFactory("lead-import-worker-"));
+	}
+
+	/**
+	 * Stores the uploaded file and queues its import. The file is kept on disk so the job can be
+	 * resumed after a failure or a restart.
+	 *
+	 * @param inputStream The content of the file.
+	 * @param format The format of the file.
+	 * @return The queued job.
+	 */
+	@Override
+	public ImportJob submit(final InputStream inputStream, final FileFormat format) {
+		FileUtils.createDirectory(this.directory.toString());
+		final var fileName = UUID.randomUUID() + "." + format.getExtension();
+		try {
+			Files.copy(inputStream, this.directory.resolve(fileName));
+		} catch (final IOException e) {
+			throw new CrmException("Cannot store the import file", e);
+		}
+
+		final var job = new ImportJob();
+		job.setFileName(fileName);
+		job.setFormat(format);
+		job.setStatus(JobStatus.QUEUED);
+		job.setCreatedAt(Instant.now());
+		job.setUpdatedAt(job.getCreatedAt());
+		final var saved =
+				this.transactionTemplate.execute(status -> this.importJobRepository.save(job));
+		this.schedule(saved.getId());
+		return saved;
+	}
+
+	@Override
+	public ImportJob get(final Long id) {
+		return this.importJobRepository
+				.findById(id)
+				.orElseThrow(() -> new CrmException("Import job not found"));
+	}
+
+	@Override
+	public ImportJob resume(final Long id) {
+		final var job = this.get(id);
+		if (job.getStatus() == JobStatus.COMPLETED) {
+			throw new CrmException("Import job is already completed");
+		}
+		this.schedule(id);
+		return job;
+	}
+
+	/* Jobs interrupted by a shutdown continue from their last committed chunk */
+	@EventListener(ApplicationReadyEvent.class)
+	public void resumeInterrupted() {
+		for (final var tenant : this.tenantService.getTenants()) {
+			TenantContext.run(
+					tenant,
+					() ->
+							this.importJobRepository
+									.findByStatusIn(EnumSet.of(JobStatus.QUEUED, JobStatus.RUNNING))
+									.forEach(job -> this.schedule(job.getId())));
+		}
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		this.jobExecutor.shutdownNow();
+		this.workerExecutor.shutdownNow();
+	}
+
+	private void schedule(final Long id) {
+		/* The job runs for the tenant that submitted or resumed it */
+		this.jobExecutor.execute(TenantContext.wrap(() -> this.run(id)));
+	}
+
+	private void run(final Long id) {
+		var job = this.get(id);
+		if (job.getStatus() == JobStatus.COMPLETED) {
+			return;
+		}
+		job.setStatus(JobStatus.RUNNING);
+		job.setError(null);
+		job = this.saveJob(job);
+		logger.info("Import job {} started at row {}.", id, job.getProcessedRows());
+
+		try (final var reader = this.open(job)) {
+			/* Skip the records of the chunks committed by a previous run */
+			for (long i = 0; i < job.getProcessedRows() && reader.next() != null; i++) {}
+
+			/* At most one chunk per worker is in flight, so memory stays bounded by the chunk size */
+			final var pending = new ArrayDeque<CompletableFuture<Chunk>>();
+			var records = this.readChunk(reader);
+			while (!records.isEmpty()) {
+				final var chunk = records;
+				pending.add(CompletableFuture.supplyAsync(() -> validate(chunk), this.workerExecutor));
+				if (pending.size() >= this.workers) {
+					job = this.persist(job, pending.poll().join());
+				}
+				records = this.readChunk(reader);
+			}
+			while (!pending.isEmpty()) {
+				job = this.persist(job, pending.poll().join());
+			}
+
+			job.setStatus(JobStatus.COMPLETED);
+			job = this.saveJob(job);
+			Files.deleteIfExists(this.directory.resolve(job.getFileName()));
+			logger.info(
+					"Import job {} completed, {} imported, {} duplicate, {} invalid.",
+					id,
+					job.getImportedRows(),
+					job.getDuplicateRows(),
+					job.getInvalidRows());
+		} catch (final Exception e) {
+			/* Reload the job, progress of a rolled back chunk must not be recorded */
+			final var failed = this.get(id);
+			logger.error("Import job {} failed after row {}.", id, failed.getProcessedRows(), e);
+			failed.setStatus(JobStatus.FAILED);
+			failed.setError(StringUtils.truncate(String.valueOf(e.getMessage()), ERROR_LENGTH));
+			this.saveJob(failed);
+		}
+	}
+
+	private ImportReader open(final ImportJob job) throws IOException {
+		final var reader =
+				Files.newBufferedReader(this.directory.resolve(job.getFileName()), StandardCharsets.UTF_8);
+		return switch (job.getFormat()) {
+			case CSV -> new CsvImportReader(reader);
+			case XML -> new XmlImportReader(reader, "lead");
+		};
+	}
+
+	private List<Map<String, String>> readChunk(final ImportReader reader) {
+		final var records = new ArrayList<Map<String, String>>(this.chunkSize);
+		Map<String, String> record;
+		while (records.size() < this.chunkSize && (record = reader.next()) != null) {
+			records.add(record);
+		}
+		return records;
+	}
+
+	/* Normalizes the records and drops invalid ones and repeated emails inside the chunk */
+	private static Chunk validate(final List<Map<String, String>> records) {
+		final var leads = new LinkedHashMap<String, Lead>();
+		var invalid = 0;
+		var duplicates = 0;
+		for (final var record : records) {
+			final var email = trim(record.get("email"));
+			if (email == null || !EMAIL.matcher(email).matches()) {
+				invalid++;
+				continue;
+			}
+			final var lead =
+					new Lead(
+							trim(record.get("name")),
+							email.toLowerCase(Locale.ROOT),
+							trim(record.get("phone")),
+							trim(record.get("source")));
+			if (leads.putIfAbsent(lead.getEmail(), lead) != null) {
+				duplicates++;
+			}
+		}
+		return new Chunk(records.size(), new ArrayList<>(leads.values()), invalid, duplicates);
+	}
+
+	/* Chunks are persisted in file order, each with the job progress in the same transaction */
+	private ImportJob persist(final ImportJob job, final Chunk chunk) {
+		return this.transactionTemplate.execute(
+				status -> {
+					/* The emails of the chunk are lower-cased, the stored ones are compared lower-cased */
+					final var existing =
+							this.leadRepository.findExistingLowerCaseEmails(
+									chunk.leads().stream().map(Lead::getEmail).toList());
+					final var leads =
+							chunk.leads().stream().filter(lead -> !existing.contains(lead.getEmail())).toList();
+					if (!leads.isEmpty()) {
+						this.leadService.createAll(leads);
+					}
+
+					job.setProcessedRows(job.getProcessedRows() + chunk.rows());
+					job.setImportedRows(job.getImportedRows() + leads.size());
+					job.setDuplicateRows(
+							job.getDuplicateRows() + chunk.duplicates() + chunk.leads().size() - leads.size());
+					job.setInvalidRows(job.getInvalidRows() + chunk.invalid());
+					job.setUpdatedAt(Instant.now());
+					final var saved = this.importJobRepository.save(job);
+					logger.debug("Import job {} committed row {}.", saved.getId(), saved.getProcessedRows());
+					return saved;
+				});
+	}
+
+	private ImportJob saveJob(final ImportJob job) {
+		job.setUpdatedAt(Instant.now());
+		return this.transactionTemplate.execute(status -> this.importJobRepository.save(job));
+	}
+
+	private static String trim(final String value) {
+		return value == null || value.isBlank() ? null : value.trim();
+	}
+
+	private record Chunk(int rows, List<Lead> leads, int invalid, int duplicates) {}
+}
@@ -1,5 +1,9 @@
 package gr.digital.systems.crm.service;
 
 import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.transfer.KeysetPage;
+import gr.digital.systems.crm.transfer.LeadFilter;
 
-public interface LeadService extends BaseService<Lead> {}
+public interface LeadService extends BaseService<Lead> {
+	KeysetPage<Lead> search(final LeadFilter filter, final Long after, final int size);
+}
@@ -1,22 +1,75 @@
 package gr.digital.systems.crm.service;
 
+import gr.digital.systems.crm.configuration.EntityCacheConfig;
 import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.repository.BaseRepository;
+import gr.digital.systems.crm.repository.EntitySpecifications;
 import gr.digital.systems.crm.repository.LeadRepository;
+import gr.digital.systems.crm.transfer.KeysetPage;
+import gr.digital.systems.crm.transfer.LeadFilter;
+import gr.digital.systems.crm.utils.ExportColumn;
+import java.util.List;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class LeadServiceImpl extends BaseServiceImpl<Lead> implements LeadService {
 	private final LeadRepository leadRepository;
+	private final MatchingService matchingService;
 
 	@Autowired
-	public LeadServiceImpl(final LeadRepository leadRepository) {
+	public LeadServiceImpl(
+			final LeadRepository leadRepository, final MatchingService matchingService) {
 		this.leadRepository = leadRepository;
+		this.matchingService = matchingService;
 	}
 
+	/* Matched in the same transaction, so the matches commit or roll back with the lead */
 	@Override
-	public JpaRepository<Lead, Long> getRepository() {
+	public Lead create(final Lead lead) {
+		final var created = super.create(lead);
+		this.matchingService.match(created);
+		return created;
+	}
+
+	@Override
+	public BaseRepository<Lead> getRepository() {
 		return this.leadRepository;
 	}
+
+	@Override
+	public String getCacheName() {
+		return EntityCacheConfig.LEADS;
+	}
+
+	@Override
+	public Set<String> getProjectableFields() {
+		return Set.of("name", "email", "phone", "source");
+	}
+
+	@Override
+	public List<ExportColumn<Lead>> getExportColumns() {
+		return List.of(
+				ExportColumn.of("id", Lead::getId),
+				ExportColumn.of("name", Lead::getName),
+				ExportColumn.of("email", Lead::getEmail),
+				ExportColumn.of("phone", Lead::getPhone),
+				ExportColumn.of("source", Lead::getSource));
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public KeysetPage<Lead> search(final LeadFilter filter, final Long after, final int size) {
+		/* Blank criteria resolve to null specifications and are left out of the query */
+		final var specification =
+				Specification.allOf(
+						EntitySpecifications.<Lead>startsWith("name", filter.getName()),
+						EntitySpecifications.<Lead>equalTo("email", filter.getEmail()),
+						EntitySpecifications.<Lead>equalTo("phone", filter.getPhone()),
+						EntitySpecifications.<Lead>equalTo("source", filter.getSource()));
+		return this.findAfter(specification, after, size);
+	}
 }
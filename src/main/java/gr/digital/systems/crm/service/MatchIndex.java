@@ -0,0 +1,88 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.utils.MatchKeys;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** Hashed in-memory index of the match keys of one entity type, safe for concurrent puts. */
+final class MatchIndex {
+
+	private final Map<Long, MatchKeys> entries = new ConcurrentHashMap<>();
+	private final Map<String, Set<Long>> byEmail = new ConcurrentHashMap<>();
+	private final Map<String, Set<Long>> byPhone = new ConcurrentHashMap<>();
+	private final Map<String, Set<Long>> byBlock = new ConcurrentHashMap<>();
+
+	void put(final Long id, final MatchKeys keys) {
+		final var previous = this.entries.put(id, keys);
+		if (previous != null) {
+			this.unlink(id, previous);
+		}
+		link(this.byEmail, keys.getEmail(), id);
+		link(this.byPhone, keys.getPhone(), id);
+		link(this.byBlock, keys.getBlock(), id);
+	}
+
+	void remove(final Long id) {
+		final var previous = this.entries.remove(id);
+		if (previous != null) {
+			this.unlink(id, previous);
+		}
+	}
+
+	MatchKeys get(final Long id) {
+		return this.entries.get(id);
+	}
+
+	int size() {
+		return this.entries.size();
+	}
+
+	Set<Long> withEmail(final String email) {
+		return group(this.byEmail, email);
+	}
+
+	Set<Long> withPhone(final String phone) {
+		return group(this.byPhone, phone);
+	}
+
+	Set<Long> inBlock(final String block) {
+		return group(this.byBlock, block);
+	}
+
+	private void unlink(final Long id, final MatchKeys keys) {
+		unlink(this.byEmail, keys.getEmail(), id);
+		unlink(this.byPhone, keys.getPhone(), id);
+		unlink(this.byBlock, keys.getBlock(), id);
+	}
+
+	private static Set<Long> group(final Map<String, Set<Long>> groups, final String key) {
+		return key == null ? Set.of() : groups.getOrDefault(key, Set.of());
+	}
+
+	/* Added inside compute, so a concurrent unlink cannot drop the group between lookup and add */
+	private static void link(final Map<String, Set<Long>> groups, final String key, final Long id) {
+		if (key == null) {
+			return;
+		}
+		groups.compute(
+				key,
+				(k, ids) -> {
+					final var group = ids == null ? ConcurrentHashMap.<Long>newKeySet() : ids;
+					group.add(id);
+					return group;
+				});
+	}
+
+	private static void unlink(final Map<String, Set<Long>> groups, final String key, final Long id) {
+		if (key == null) {
+			return;
+		}
+		groups.computeIfPresent(
+				key,
+				(k, ids) -> {
+					ids.remove(id);
+					return ids.isEmpty() ? null : ids;
+				});
+	}
+}
@@ -0,0 +1,16 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.model.LeadMatch;
+import gr.digital.systems.crm.transfer.MatchReport;
+import java.util.List;
+
+public interface MatchingService {
+	List<LeadMatch> match(final Lead lead);
+
+	MatchReport runBatch();
+
+	MatchReport getReport();
+
+	List<LeadMatch> getMatches(final Long leadId);
+}
@@ -0,0 +1,459 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.model.LeadMatch;
+import gr.digital.systems.crm.model.MatchReason;
+import gr.digital.systems.crm.model.MatchTarget;
+import gr.digital.systems.crm.repository.CustomerRepository;
+import gr.digital.systems.crm.repository.LeadMatchRepository;
+import gr.digital.systems.crm.repository.LeadRepository;
+import gr.digital.systems.crm.transfer.ChangeType;
+import gr.digital.systems.crm.transfer.EntityChange;
+import gr.digital.systems.crm.transfer.EntityChanges;
+import gr.digital.systems.crm.transfer.MatchCandidate;
+import gr.digital.systems.crm.transfer.MatchReport;
+import gr.digital.systems.crm.utils.MatchKeys;
+import gr.digital.systems.crm.utils.TenantContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Finds duplicate leads and leads of existing customers on normalized email and phone, and on
+ * similar names within a name block. The keys of all leads and customers are held in hashed
+ * in-memory indexes per tenant, loaded at startup and kept current from the committed entity
+ * changes.
+ *
+ * <p>A lead is matched when it is created, and all leads of a tenant at once by a batch run on a
+ * fork/join pool, which also reloads the indexes of the tenant.
+ */
+@Service
+public class MatchingServiceImpl extends BaseComponent implements MatchingService {
+
+	private final LeadRepository leadRepository;
+	private final CustomerRepository customerRepository;
+	private final LeadMatchRepository leadMatchRepository;
+	private final TenantService tenantService;
+	private final TransactionTemplate transactionTemplate;
+	private final TransactionTemplate readOnlyTransactionTemplate;
+	private final double nameThreshold;
+	private final int maxGroupSize;
+	private final int chunkSize;
+
+	@PersistenceContext private EntityManager entityManager;
+
+	private final ExecutorService runExecutor =
+			Executors.newSingleThreadExecutor(new CustomizableThreadFactory("lead-matching-"));
+	private final ForkJoinPool pool;
+	private final AtomicBoolean running = new AtomicBoolean();
+
+	/* Guards swapping the indexes against the change listener */
+	private final Object lock = new Object();
+
+	/* Indexes keyed by tenant, tenants that appear after the load get theirs with the first change */
+	private final Map<String, Indexes> indexes = new ConcurrentHashMap<>();
+	private volatile boolean ready;
+
+	/* Changes committed while a run loads the indexes, replayed onto the new indexes, guarded by lock */
+	private List<Runnable> pending;
+
+	private final Map<String, MatchReport> reports = new ConcurrentHashMap<>();
+
+	@Autowired
+	public MatchingServiceImpl(
+			final LeadRepository leadRepository,
+			final CustomerRepository customerRepository,
+			final LeadMatchRepository leadMatchRepository,
+			final TenantService tenantService,
+			final PlatformTransactionManager transactionManager,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		this.leadRepository = leadRepository;
+		this.customerRepository = customerRepository;
+		this.leadMatchRepository = leadMatchRepository;
+		this.tenantService = tenantService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+		this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+		this.readOnlyTransactionTemplate.setReadOnly(true);
+		this.nameThreshold = environmentPropertiesConfig.getMatchingNameThreshold();
+		this.maxGroupSize = environmentPropertiesConfig.getMatchingMaxGroupSize();
+		this.chunkSize = environmentPropertiesConfig.getMatchingChunkSize();
+		final var parallelism = environmentPropertiesConfig.getMatchingParallelism();
+		this.pool =
+				new ForkJoinPool(
+						parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadIndexes() {
+		this.start(false, this.tenantService.getTenants());
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		this.runExecutor.shutdownNow();
+		this.pool.shutdownNow();
+	}
+
+	/**
+	 * Matches a new lead against the indexes and stores the matches in the current transaction.
+	 * Matches are skipped until the indexes are loaded, the next batch run finds them.
+	 *
+	 * @param lead The persisted lead.
+	 * @return The stored matches.
+	 */
+	@Transactional(rollbackFor = Exception.class)
+	@Override
+	public List<LeadMatch> match(final Lead lead) {
+		final var tenantIndexes = this.indexes.get(TenantContext.get());
+		if (!this.ready || tenantIndexes == null) {
+			logger.debug("Lead {} not matched, the match indexes are still loading.", lead.getId());
+			return List.of();
+		}
+		final var matches =
+				this.match(
+						lead.getId(),
+						MatchKeys.of(lead.getName(), lead.getEmail(), lead.getPhone()),
+						tenantIndexes.leads(),
+						tenantIndexes.customers(),
+						Instant.now());
+		return matches.isEmpty() ? matches : this.leadMatchRepository.saveAll(matches);
+	}
+
+	@Override
+	public MatchReport runBatch() {
+		if (!this.start(true, Set.of(TenantContext.get()))) {
+			throw new CrmException("A matching run is already in progress");
+		}
+		return this.getReport();
+	}
+
+	@Override
+	public MatchReport getReport() {
+		return this.reports.getOrDefault(TenantContext.get(), MatchReport.builder().build());
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public List<LeadMatch> getMatches(final Long leadId) {
+		return this.leadMatchRepository.findByLeadIdOrderByIdAsc(leadId);
+	}
+
+	/* Keeps the indexes current, deletes and partial updates carry no entity */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onChange(final EntityChange change) {
+		final var type = change.getEntityType();
+		if (type != Lead.class && type != Customer.class) {
+			return;
+		}
+		final var keys = change.getType() == ChangeType.DELETED ? null : this.keysOf(change);
+		final var id = change.getId();
+		final var tenant = change.getTenantId();
+		synchronized (this.lock) {
+			this.apply(this.indexOf(tenant, type), id, keys);
+			if (this.pending != null) {
+				this.pending.add(() -> this.apply(this.indexOf(tenant, type), id, keys));
+			}
+		}
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onChanges(final EntityChanges changes) {
+		if (changes.getEntityType() == Lead.class || changes.getEntityType() == Customer.class) {
+			changes.getChanges().forEach(this::onChange);
+		}
+	}
+
+	/* Only called under lock */
+	private MatchIndex indexOf(final String tenant, final Class<?> type) {
+		final var tenantIndexes =
+				this.indexes.computeIfAbsent(
+						tenant, key -> new Indexes(new MatchIndex(), new MatchIndex()));
+		return type == Lead.class ? tenantIndexes.leads() : tenantIndexes.customers();
+	}
+
+	private MatchKeys keysOf(final EntityChange change) {
+		final var data = change.getData();
+		if (data instanceof Lead lead) {
+			return MatchKeys.of(lead.getName(), lead.getEmail(), lead.getPhone());
+		}
+		if (data instanceof Customer customer) {
+			return MatchKeys.of(customer.getName(), customer.getEmail(), customer.getPhone());
+		}
+		return (change.getEntityType() == Lead.class
+						? this.leadRepository.findMatchCandidate(change.getId())
+						: this.customerRepository.findMatchCandidate(change.getId()))
+				.map(MatchingServiceImpl::keysOf)
+				.orElse(null);
+	}
+
+	private static MatchKeys keysOf(final MatchCandidate candidate) {
+		return MatchKeys.of(candidate.getName(), candidate.getEmail(), candidate.getPhone());
+	}
+
+	private void apply(final MatchIndex index, final Long id, final MatchKeys keys) {
+		if (keys == null) {
+			index.remove(id);
+		} else {
+			index.put(id, keys);
+		}
+	}
+
+	private boolean start(final boolean batch, final Set<String> tenants) {
+		if (!this.running.compareAndSet(false, true)) {
+			return false;
+		}
+		final var started = Instant.now();
+		tenants.forEach(
+				tenant ->
+						this.reports.put(
+								tenant,
+								MatchReport.builder().running(true).batch(batch).startedAt(started).build()));
+		this.runExecutor.execute(() -> this.run(batch, tenants));
+		return true;
+	}
+
+	/* Tenants are loaded one after the other, their indexes are swapped in together at the end */
+	private void run(final boolean batch, final Set<String> tenants) {
+		synchronized (this.lock) {
+			this.pending = new ArrayList<>();
+		}
+		try {
+			final var built = new HashMap<String, Indexes>();
+			for (final var tenant : tenants) {
+				final var tenantIndexes = TenantContext.call(tenant, () -> this.run(batch, tenant));
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+				if (tenantIndexes != null) {
+					built.put(tenant, tenantIndexes);
+				}
+			}
+			synchronized (this.lock) {
+				this.indexes.putAll(built);
+				this.pending.forEach(Runnable::run);
+				this.pending = null;
+				this.ready = true;
+			}
+		} finally {
+			synchronized (this.lock) {
+				this.pending = null;
+			}
+			this.running.set(false);
+		}
+	}
+
+	/* Loads the indexes of the current tenant, a batch run also matches and stores all its leads */
+	private Indexes run(final boolean batch, final String tenant) {
+		final var builder =
+				MatchReport.builder().batch(batch).startedAt(this.reports.get(tenant).getStartedAt());
+		try {
+			final var leads = this.load(this.leadRepository::streamMatchCandidates);
+			final var customers = this.load(this.customerRepository::streamMatchCandidates);
+			builder.leads(leads.size()).customers(customers.size());
+
+			/* Normalization and matching are CPU bound, split across the fork/join pool */
+			final var leadKeys = new MatchIndex();
+			final var customerKeys = new MatchIndex();
+			this.pool
+					.submit(
+							() -> {
+								leads.parallelStream().forEach(lead -> leadKeys.put(lead.getId(), keysOf(lead)));
+								customers.parallelStream()
+										.forEach(customer -> customerKeys.put(customer.getId(), keysOf(customer)));
+							})
+					.get();
+
+			if (batch) {
+				final var now = Instant.now();
+				final var matches =
+						this.pool
+								.submit(
+										() ->
+												leads.parallelStream()
+														.flatMap(
+																lead ->
+																		this.match(
+																				lead.getId(),
+																				leadKeys.get(lead.getId()),
+																				leadKeys,
+																				customerKeys,
+																				now)
+																				.stream())
+														.toList())
+								.get();
+				this.store(leads, matches);
+				builder
+						.duplicateLeads(count(matches, MatchTarget.LEAD))
+						.customerMatches(count(matches, MatchTarget.CUSTOMER));
+			}
+
+			final var report = builder.finishedAt(Instant.now()).build();
+			this.reports.put(tenant, report);
+			logger.info("Matching run of tenant {} finished: {}", tenant, report);
+			return new Indexes(leadKeys, customerKeys);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final ExecutionException | RuntimeException e) {
+			logger.error("Matching run of tenant {} failed.", tenant, e);
+			this.reports.put(
+					tenant, builder.finishedAt(Instant.now()).error(String.valueOf(e.getMessage())).build());
+		}
+		return null;
+	}
+
+	private List<MatchCandidate> load(final Supplier<Stream<MatchCandidate>> query) {
+		return this.readOnlyTransactionTemplate.execute(
+				status -> {
+					try (var candidates = query.get()) {
+						return candidates.toList();
+					}
+				});
+	}
+
+	/*
+	 * Replaces the stored matches of the matched leads in one transaction, readers keep the previous
+	 * run until commit. Leads created during the run are not in the snapshot, the matches stored when
+	 * they were created are kept.
+	 */
+	private void store(final List<MatchCandidate> leads, final List<LeadMatch> matches) {
+		this.transactionTemplate.executeWithoutResult(
+				status -> {
+					for (var from = 0; from < leads.size(); from += this.chunkSize) {
+						this.leadMatchRepository.deleteByLeadIds(
+								leads.subList(from, Math.min(leads.size(), from + this.chunkSize)).stream()
+										.map(MatchCandidate::getId)
+										.toList());
+					}
+					this.leadMatchRepository.deleteOrphans();
+					for (var from = 0; from < matches.size(); from += this.chunkSize) {
+						this.leadMatchRepository.saveAll(
+								matches.subList(from, Math.min(matches.size(), from + this.chunkSize)));
+						this.entityManager.flush();
+						this.entityManager.clear();
+					}
+				});
+	}
+
+	/**
+	 * Matches one lead. A duplicate points at the oldest matching lead only, so a group of n
+	 * duplicates gives n - 1 matches. Customers are all reported.
+	 */
+	private List<LeadMatch> match(
+			final Long leadId,
+			final MatchKeys keys,
+			final MatchIndex leads,
+			final MatchIndex customers,
+			final Instant now) {
+		final var matches = new ArrayList<LeadMatch>();
+		this.candidates(keys, leads, id -> id < leadId, now).values().stream()
+				.min((first, second) -> Long.compare(first.getMatchedId(), second.getMatchedId()))
+				.ifPresent(
+						match -> {
+							match.setLeadId(leadId);
+							match.setTarget(MatchTarget.LEAD);
+							matches.add(match);
+						});
+		this.candidates(keys, customers, id -> true, now)
+				.values()
+				.forEach(
+						match -> {
+							match.setLeadId(leadId);
+							match.setTarget(MatchTarget.CUSTOMER);
+							matches.add(match);
+						});
+		return matches;
+	}
+
+	/* The strongest match per id, email before phone before name */
+	private Map<Long, LeadMatch> candidates(
+			final MatchKeys keys,
+			final MatchIndex index,
+			final Predicate<Long> accept,
+			final Instant now) {
+		final var candidates = new LinkedHashMap<Long, LeadMatch>();
+		this.exact(candidates, index.withEmail(keys.getEmail()), MatchReason.EMAIL, accept, now);
+		this.exact(candidates, index.withPhone(keys.getPhone()), MatchReason.PHONE, accept, now);
+
+		final var block = index.inBlock(keys.getBlock());
+		if (block.size() > this.maxGroupSize) {
+			return candidates;
+		}
+		for (final var id : block) {
+			final var other = index.get(id);
+			if (other == null || !accept.test(id) || candidates.containsKey(id)) {
+				continue;
+			}
+			final var score = MatchKeys.similarity(keys.getName(), other.getName());
+			if (score >= this.nameThreshold) {
+				candidates.put(id, match(id, MatchReason.NAME, score, now));
+			}
+		}
+		return candidates;
+	}
+
+	/* Groups above the limit are placeholder values such as a shared switchboard number */
+	private void exact(
+			final Map<Long, LeadMatch> candidates,
+			final Collection<Long> group,
+			final MatchReason reason,
+			final Predicate<Long> accept,
+			final Instant now) {
+		if (group.size() > this.maxGroupSize) {
+			return;
+		}
+		for (final var id : group) {
+			if (accept.test(id)) {
+				candidates.putIfAbsent(id, match(id, reason, 1, now));
+			}
+		}
+	}
+
+	private static LeadMatch match(
+			final Long matchedId, final MatchReason reason, final double score, final Instant now) {
+		return LeadMatch.builder()
+				.matchedId(matchedId)
+				.reason(reason)
+				.score(score)
+				.createdAt(now)
+				.build();
+	}
+
+	private static long count(final List<LeadMatch> matches, final MatchTarget target) {
+		return matches.stream().filter(match -> match.getTarget() == target).count();
+	}
+
+	private record Indexes(MatchIndex leads, MatchIndex customers) {}
+}
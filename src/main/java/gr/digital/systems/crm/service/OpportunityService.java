@@ -1,5 +1,9 @@
 package gr.digital.systems.crm.service;
 
 import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.transfer.OpportunitySummary;
+import java.util.List;
 
-public interface OpportunityService extends BaseService<Opportunity> {}
+public interface OpportunityService extends BaseService<Opportunity> {
+	List<OpportunitySummary> findAllSummaries();
+}
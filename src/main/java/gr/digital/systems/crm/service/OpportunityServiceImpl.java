@@ -1,23 +1,209 @@
 package gr.digital.systems.crm.service;
 
+import gr.digital.systems.crm.component.PrimaryRead;
+import gr.digital.systems.crm.configuration.EntityCacheConfig;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.Customer;
 import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.repository.BaseRepository;
 import gr.digital.systems.crm.repository.OpportunityRepository;
+import gr.digital.systems.crm.transfer.ChangeType;
+import gr.digital.systems.crm.transfer.EntityChange;
+import gr.digital.systems.crm.transfer.EntityChanges;
+import gr.digital.systems.crm.transfer.EntityRevision;
+import gr.digital.systems.crm.transfer.OpportunitySummary;
+import gr.digital.systems.crm.utils.EntityTagUtils;
+import gr.digital.systems.crm.utils.ExportColumn;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 @Service
 public class OpportunityServiceImpl extends BaseServiceImpl<Opportunity>
 		implements OpportunityService {
 	private final OpportunityRepository opportunityRepository;
 
+	@PersistenceContext private EntityManager entityManager;
+
+	@Autowired private CacheManager cacheManager;
+
 	@Autowired
 	public OpportunityServiceImpl(final OpportunityRepository opportunityRepository) {
 		this.opportunityRepository = opportunityRepository;
 	}
 
+	/* Cached opportunities embed their customer, a changed customer would be served stale */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onCustomerChange(final EntityChange change) {
+		if (change.getEntityType() == Customer.class && change.getType() != ChangeType.CREATED) {
+			this.invalidate(change.getTenantId());
+		}
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onCustomerChanges(final EntityChanges changes) {
+		if (changes.getEntityType() == Customer.class
+				&& changes.getChanges().stream()
+						.anyMatch(change -> change.getType() != ChangeType.CREATED)) {
+			this.invalidate(changes.getTenantId());
+		}
+	}
+
+	private void invalidate(final String tenant) {
+		final var cache =
+				this.cacheManager.getCache(EntityCacheConfig.cacheName(this.getCacheName(), tenant));
+		if (cache != null) {
+			cache.invalidate();
+		}
+	}
+
 	@Override
-	public JpaRepository<Opportunity, Long> getRepository() {
+	public BaseRepository<Opportunity> getRepository() {
 		return this.opportunityRepository;
 	}
+
+	@Override
+	public String getCacheName() {
+		return EntityCacheConfig.OPPORTUNITIES;
+	}
+
+	/* The customer is projected by its id or by its own projectable attributes */
+	@Override
+	public Set<String> getProjectableFields() {
+		return Set.of(
+				"description",
+				"value",
+				"status",
+				"customer",
+				"customer.id",
+				"customer.name",
+				"customer.email",
+				"customer.phone",
+				"customer.address");
+	}
+
+	@Override
+	public List<ExportColumn<Opportunity>> getExportColumns() {
+		return List.of(
+				ExportColumn.of("id", Opportunity::getId),
+				ExportColumn.of("description", Opportunity::getDescription),
+				ExportColumn.of("value", Opportunity::getValue),
+				ExportColumn.of("status", Opportunity::getStatus),
+				ExportColumn.of(
+						"customerId", o -> o.getCustomer() == null ? null : o.getCustomer().getId()));
+	}
+
+	/*
+	 * Clients name the customer of an opportunity by its id alone. The shared row lock waits for a
+	 * delete of the customer in progress, which then finds the opportunity or has hidden the customer
+	 */
+	@Override
+	protected void resolveReferences(final Opportunity item) {
+		final var customer = item.getCustomer();
+		if (customer != null && customer.getId() != null && !this.entityManager.contains(customer)) {
+			final var locked =
+					this.entityManager.find(Customer.class, customer.getId(), LockModeType.PESSIMISTIC_READ);
+			if (locked == null) {
+				throw new CrmException("Customer " + customer.getId() + " not found");
+			}
+			item.setCustomer(locked);
+		}
+	}
+
+	/* The pipeline rollups need the previous value and status of every change */
+	@Override
+	protected boolean loadsOnPatch(final Set<String> attributes) {
+		return attributes.contains("value")
+				|| attributes.contains("status")
+				|| attributes.contains("customer");
+	}
+
+	/**
+	 * Reads the versions and modification times of the opportunity and of its customer, which is
+	 * served embedded in the opportunity.
+	 *
+	 * @param id The id of the opportunity.
+	 * @return Both versions as the entity tag and the later modification time.
+	 */
+	@PrimaryRead
+	@Transactional(readOnly = true)
+	@Override
+	public EntityRevision getRevision(final Long id) {
+		final var builder = this.entityManager.getCriteriaBuilder();
+		final var query = builder.createTupleQuery();
+		final var root = query.from(Opportunity.class);
+		final Join<Opportunity, Customer> customer = root.join("customer", JoinType.LEFT);
+		query.multiselect(
+				root.<Long>get("version"),
+				root.<Instant>get("lastModified"),
+				customer.<Long>get("version"),
+				customer.<Instant>get("lastModified"));
+		query.where(builder.equal(root.get("id"), id));
+
+		final var revision =
+				this.entityManager
+						.createQuery(query)
+						.getResultStream()
+						.findFirst()
+						.orElseThrow(() -> new CrmException("Element not found"));
+		final var lastModified = revision.get(1, Instant.class);
+		final var customerModified = revision.get(3, Instant.class);
+		return new EntityRevision(
+				EntityTagUtils.of(revision.get(0, Long.class), revision.get(2, Long.class)),
+				lastModified == null || customerModified != null && customerModified.isAfter(lastModified)
+						? customerModified
+						: lastModified);
+	}
+
+	/**
+	 * Summarizes all opportunities as the base revision does, and the customers served in them by the
+	 * sum of their versions.
+	 *
+	 * @return A weak entity tag of all opportunities.
+	 */
+	@PrimaryRead
+	@Transactional(readOnly = true)
+	@Override
+	public EntityRevision getRevision() {
+		final var builder = this.entityManager.getCriteriaBuilder();
+		final var query = builder.createTupleQuery();
+		final var root = query.from(Opportunity.class);
+		final Join<Opportunity, Customer> customer = root.join("customer", JoinType.LEFT);
+		query.multiselect(
+				builder.count(root),
+				builder.max(root.<Long>get("id")),
+				builder.sum(root.<Long>get("version")),
+				builder.sum(customer.<Long>get("version")));
+
+		final var revision = this.entityManager.createQuery(query).getSingleResult();
+		return new EntityRevision(
+				"W/\""
+						+ revision.get(0)
+						+ "-"
+						+ revision.get(1)
+						+ "-"
+						+ revision.get(2)
+						+ "-"
+						+ revision.get(3)
+						+ "\"",
+				null);
+	}
+
+	@Transactional(readOnly = true)
+	@Override
+	public List<OpportunitySummary> findAllSummaries() {
+		logger.trace("Retrieving all item summaries.");
+		return this.opportunityRepository.findAllSummaries();
+	}
 }
@@ -0,0 +1,9 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.transfer.PipelineReport;
+
+public interface PipelineService {
+	PipelineReport getReport();
+
+	void rebuild();
+}
@@ -0,0 +1,356 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.repository.OpportunityRepository;
+import gr.digital.systems.crm.transfer.PipelineGroup;
+import gr.digital.systems.crm.transfer.PipelineReport;
+import gr.digital.systems.crm.transfer.PipelineTotals;
+import gr.digital.systems.crm.utils.TenantContext;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps the opportunity pipeline totals by status and by customer of every tenant in memory. The
+ * totals are loaded once at startup and then moved by every committed insert, update and delete of
+ * an opportunity, so a report costs O(groups) instead of a scan of the opportunities.
+ */
+@Service
+public class PipelineServiceImpl extends BaseComponent implements PipelineService {
+
+	private static final String NONE = "none";
+	private static final Rollup EMPTY = new Rollup(0, BigDecimal.ZERO);
+
+	/* Native, so the rows of deleted opportunities are read too */
+	private static final String VERSIONS_QUERY =
+			"select id, version from BaseEntity where id in :ids";
+
+	private final OpportunityRepository opportunityRepository;
+	private final EntityManagerFactory entityManagerFactory;
+	private final TenantService tenantService;
+	private final TransactionTemplate snapshotTransactionTemplate;
+
+	/* Totals keyed by tenant */
+	private final Map<String, Rollups> rollups = new ConcurrentHashMap<>();
+
+	/* The changes committed while a rebuild of their tenant runs, guarded by the lock */
+	private final List<Recording> recordings = new ArrayList<>();
+
+	/* Serializes the changes of the listener with recording them and swapping in a rebuild */
+	private final Object lock = new Object();
+
+	@Autowired
+	public PipelineServiceImpl(
+			final OpportunityRepository opportunityRepository,
+			final EntityManagerFactory entityManagerFactory,
+			final TenantService tenantService,
+			final PlatformTransactionManager transactionManager) {
+		this.opportunityRepository = opportunityRepository;
+		this.entityManagerFactory = entityManagerFactory;
+		this.tenantService = tenantService;
+		/* On the primary, and both sums and the versions read from one snapshot */
+		this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+		this.snapshotTransactionTemplate.setPropagationBehavior(
+				TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.snapshotTransactionTemplate.setIsolationLevel(
+				TransactionDefinition.ISOLATION_REPEATABLE_READ);
+	}
+
+	/* Runs before the web server accepts requests, so no write slips between load and listening */
+	@Override
+	public void init() {
+		super.init();
+		final var listener = new RollupListener();
+		final var registry =
+				this.entityManagerFactory
+						.unwrap(SessionFactoryImplementor.class)
+						.getServiceRegistry()
+						.getService(EventListenerRegistry.class);
+		registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+		registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+		registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+		this.tenantService.getTenants().forEach(tenant -> TenantContext.run(tenant, this::rebuild));
+	}
+
+	@Override
+	public PipelineReport getReport() {
+		final var tenantRollups = this.rollups.getOrDefault(TenantContext.get(), new Rollups());
+		final var byStatusGroups = groups(tenantRollups.byStatus());
+		final var count = byStatusGroups.stream().mapToLong(PipelineGroup::getCount).sum();
+		final var total =
+				byStatusGroups.stream()
+						.map(PipelineGroup::getTotal)
+						.reduce(BigDecimal.ZERO, BigDecimal::add);
+
+		return PipelineReport.builder()
+				.count(count)
+				.total(total)
+				.average(average(count, total))
+				.byStatus(byStatusGroups)
+				.byCustomer(groups(tenantRollups.byCustomer()))
+				.build();
+	}
+
+	/**
+	 * Reloads the totals of the current tenant from the database, e.g. after opportunities were
+	 * changed by bulk statements that bypass the persistence context. The totals are loaded into new
+	 * maps and swapped in at once, reports never see a half loaded tenant.
+	 *
+	 * <p>A change may commit before or after the snapshot of the sums while its listener runs during
+	 * the rebuild. Such changes are recorded, and each is added to the new totals only if the version
+	 * of its row in the snapshot is older than the change, so none is lost or counted twice.
+	 */
+	@Override
+	public void rebuild() {
+		final var tenant = TenantContext.get();
+		final var recording = new Recording(tenant, new ArrayList<>());
+		synchronized (this.lock) {
+			this.recordings.add(recording);
+		}
+		final var tenantRollups = new Rollups();
+		try {
+			this.snapshotTransactionTemplate.executeWithoutResult(
+					status -> {
+						load(tenantRollups.byStatus(), this.opportunityRepository.sumByStatus());
+						load(tenantRollups.byCustomer(), this.opportunityRepository.sumByCustomer());
+						while (true) {
+							final List<Change> changes;
+							synchronized (this.lock) {
+								if (recording.changes().isEmpty()) {
+									this.rollups.put(tenant, tenantRollups);
+									this.recordings.removeIf(other -> other == recording);
+									return;
+								}
+								changes = List.copyOf(recording.changes());
+								recording.changes().clear();
+							}
+							this.reconcile(tenantRollups, changes);
+						}
+					});
+		} finally {
+			synchronized (this.lock) {
+				this.recordings.removeIf(other -> other == recording);
+			}
+		}
+		logger.info(
+				"Loaded pipeline rollups of {} statuses and {} customers of tenant {}.",
+				tenantRollups.byStatus().size(),
+				tenantRollups.byCustomer().size(),
+				tenant);
+	}
+
+	/* Applies the changes the snapshot does not contain yet, in commit order */
+	private void reconcile(final Rollups tenantRollups, final List<Change> changes) {
+		final var versions = new HashMap<Long, Long>();
+		EntityManagerFactoryUtils.getTransactionalEntityManager(this.entityManagerFactory)
+				.createNativeQuery(VERSIONS_QUERY, Object[].class)
+				.setParameter("ids", changes.stream().map(Change::id).distinct().toList())
+				.getResultList()
+				.forEach(
+						row -> {
+							final var columns = (Object[]) row;
+							versions.put(((Number) columns[0]).longValue(), ((Number) columns[1]).longValue());
+						});
+		for (final var change : changes) {
+			final var version = versions.get(change.id());
+			final var contained =
+					change.version() == null
+							/* A removed row is absent once the snapshot contains the removal */
+							? version == null
+							: version != null && version >= change.version();
+			if (!contained) {
+				apply(tenantRollups, change.oldState(), change.persister(), -1);
+				apply(tenantRollups, change.state(), change.persister(), 1);
+			}
+		}
+	}
+
+	private static void load(final Map<String, Rollup> rollups, final List<PipelineTotals> totals) {
+		for (final var group : totals) {
+			rollups.put(
+					group.getKey() == null ? NONE : group.getKey(),
+					new Rollup(group.getCount(), BigDecimal.valueOf(group.getTotal())));
+		}
+	}
+
+	private static List<PipelineGroup> groups(final Map<String, Rollup> rollups) {
+		return rollups.entrySet().stream()
+				.map(
+						entry ->
+								PipelineGroup.builder()
+										.key(entry.getKey())
+										.count(entry.getValue().count())
+										.total(entry.getValue().total())
+										.average(average(entry.getValue().count(), entry.getValue().total()))
+										.build())
+				.sorted(Comparator.comparing(PipelineGroup::getTotal).reversed())
+				.toList();
+	}
+
+	private static BigDecimal average(final long count, final BigDecimal total) {
+		return count == 0
+				? BigDecimal.ZERO
+				: total.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64);
+	}
+
+	/*
+	 * Moves a committed change from its previous to its new state, either may be null. Recorded for
+	 * the rebuilds of its tenant under the same lock, so a rebuild either sees it or gets its totals
+	 * swapped in before it.
+	 */
+	private void commit(
+			final Object id,
+			final Object[] oldState,
+			final Object[] state,
+			final EntityPersister persister) {
+		final var names = Arrays.asList(persister.getPropertyNames());
+		final var tenant = (String) (state == null ? oldState : state)[names.indexOf("tenantId")];
+		final var version = state == null ? null : (Long) state[names.indexOf("version")];
+		synchronized (this.lock) {
+			final var tenantRollups = this.rollups.computeIfAbsent(tenant, key -> new Rollups());
+			apply(tenantRollups, oldState, persister, -1);
+			apply(tenantRollups, state, persister, 1);
+			for (final var recording : this.recordings) {
+				if (recording.tenant().equals(tenant)) {
+					recording.changes().add(new Change((Long) id, version, oldState, state, persister));
+				}
+			}
+		}
+	}
+
+	/* Adds or, with a negative sign, removes one opportunity from its status and customer groups */
+	private static void apply(
+			final Rollups tenantRollups,
+			final Object[] state,
+			final EntityPersister persister,
+			final int sign) {
+		if (state == null) {
+			return;
+		}
+		final var names = Arrays.asList(persister.getPropertyNames());
+		if (state[names.indexOf("deletedAt")] != null) {
+			/* A tombstone is in no group, deleting an opportunity only removes its previous state */
+			return;
+		}
+		final var value = (Double) state[names.indexOf("value")];
+		final var status = (String) state[names.indexOf("status")];
+		final var customer = (Customer) state[names.indexOf("customer")];
+
+		final var total = BigDecimal.valueOf(value).multiply(BigDecimal.valueOf(sign));
+		add(tenantRollups.byStatus(), status == null ? NONE : status, sign, total);
+		add(
+				tenantRollups.byCustomer(),
+				customer == null ? NONE : String.valueOf(customer.getId()),
+				sign,
+				total);
+	}
+
+	/* Atomic per group for the reports, empty groups are removed */
+	private static void add(
+			final Map<String, Rollup> rollups,
+			final String key,
+			final long count,
+			final BigDecimal total) {
+		rollups.compute(
+				key,
+				(k, rollup) -> {
+					final var updated = (rollup == null ? EMPTY : rollup).plus(count, total);
+					return updated.count() == 0 ? null : updated;
+				});
+	}
+
+	private record Rollups(Map<String, Rollup> byStatus, Map<String, Rollup> byCustomer) {
+		private Rollups() {
+			this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+		}
+	}
+
+	/* Removed by identity, two rebuilds of a tenant may record the same changes */
+	private record Recording(String tenant, List<Change> changes) {}
+
+	/* The version is the one of the new state, null when the row was removed */
+	private record Change(
+			Long id, Long version, Object[] oldState, Object[] state, EntityPersister persister) {}
+
+	/* Decimal totals, so repeated additions and removals of double values do not drift */
+	private record Rollup(long count, BigDecimal total) {
+		private Rollup plus(final long count, final BigDecimal total) {
+			return new Rollup(this.count + count, this.total.add(total));
+		}
+	}
+
+	/** Applies the opportunity changes only once their transaction has committed. */
+	private final class RollupListener
+			implements PostCommitInsertEventListener,
+					PostCommitUpdateEventListener,
+					PostCommitDeleteEventListener {
+
+		@Override
+		public boolean requiresPostCommitHandling(final EntityPersister persister) {
+			return persister.getMappedClass() == Opportunity.class;
+		}
+
+		@Override
+		public void onPostInsert(final PostInsertEvent event) {
+			if (event.getEntity() instanceof Opportunity) {
+				commit(event.getId(), null, event.getState(), event.getPersister());
+			}
+		}
+
+		@Override
+		public void onPostUpdate(final PostUpdateEvent event) {
+			if (!(event.getEntity() instanceof Opportunity)) {
+				return;
+			}
+			if (event.getOldState() == null) {
+				/* Without the previous state the change cannot be undone from the totals */
+				logger.warn("Opportunity {} updated without its previous state.", event.getId());
+				TenantContext.run(
+						((Opportunity) event.getEntity()).getTenantId(), PipelineServiceImpl.this::rebuild);
+				return;
+			}
+			commit(event.getId(), event.getOldState(), event.getState(), event.getPersister());
+		}
+
+		@Override
+		public void onPostDelete(final PostDeleteEvent event) {
+			if (event.getEntity() instanceof Opportunity) {
+				commit(event.getId(), event.getDeletedState(), null, event.getPersister());
+			}
+		}
+
+		@Override
+		public void onPostInsertCommitFailed(final PostInsertEvent event) {}
+
+		@Override
+		public void onPostUpdateCommitFailed(final PostUpdateEvent event) {}
+
+		@Override
+		public void onPostDeleteCommitFailed(final PostDeleteEvent event) {}
+	}
+}
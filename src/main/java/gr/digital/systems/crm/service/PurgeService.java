@@ -0,0 +1,5 @@
+package gr.digital.systems.crm.service;
+
+public interface PurgeService {
+	int purge();
+}
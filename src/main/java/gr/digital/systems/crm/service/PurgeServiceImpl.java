@@ -0,0 +1,236 @@
+package gr.digital.systems.crm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.utils.MonthlyArchive;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+/**
+ * Removes the tombstones left by deletes once they are older than the retention, in small batches
+ * of one short transaction each, so the purge never holds many row locks at once. Runs are started
+ * by the cron expression, which should cover the off-peak hours only. With the archive enabled each
+ * batch is appended to the monthly archive files of its tenant before it is deleted; a batch that
+ * fails after its archive append is archived again by the next run.
+ */
+@Service
+public class PurgeServiceImpl extends BaseComponent implements PurgeService {
+
+	/* Native, the tombstones are hidden from the entity queries. Rows still referenced by an
+	 * opportunity wait until the opportunity is purged, the foreign key would reject them */
+	private static final String TOMBSTONES_QUERY =
+			"select * from BaseEntity e where e.tenantId = :tenant and e.deletedAt < :before"
+					+ " and not exists (select 1 from BaseEntity r where r.customer_id = e.id)"
+					+ " order by e.id limit :size";
+
+	private static final String PURGE_STATEMENT =
+			"delete from BaseEntity where tenantId = :tenant and id in (:ids)";
+
+	private final TenantService tenantService;
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final CronExpression cron;
+	private final Duration retention;
+	private final int batchSize;
+	private final int maxBatches;
+	private final MonthlyArchive archive;
+	private final Counter purged;
+
+	/* Pending runs are dropped on shutdown, a running batch completes */
+	private final ScheduledThreadPoolExecutor scheduler =
+			new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("purge-"));
+
+	/*
+	 * One purge at a time, the batches run database statements and archive writes. A lock rather
+	 * than a monitor, a virtual thread waiting for it does not pin its carrier
+	 */
+	private final ReentrantLock purgeLock = new ReentrantLock();
+
+	private volatile boolean running = true;
+
+	@Autowired
+	public PurgeServiceImpl(
+			final TenantService tenantService,
+			final NamedParameterJdbcTemplate jdbcTemplate,
+			final ObjectMapper objectMapper,
+			final PlatformTransactionManager transactionManager,
+			final MeterRegistry meterRegistry,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		this.tenantService = tenantService;
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+		final var expression = environmentPropertiesConfig.getPurgeCron();
+		this.cron =
+				!StringUtils.hasText(expression) || Scheduled.CRON_DISABLED.equals(expression)
+						? null
+						: CronExpression.parse(expression);
+		this.retention = Duration.ofDays(environmentPropertiesConfig.getPurgeRetentionDays());
+		this.batchSize = environmentPropertiesConfig.getPurgeBatchSize();
+		this.maxBatches = environmentPropertiesConfig.getPurgeMaxBatches();
+		final var archiveDirectory = environmentPropertiesConfig.getPurgeArchiveDirectory();
+		if (environmentPropertiesConfig.isPurgeArchiveEnabled()
+				&& !StringUtils.hasText(archiveDirectory)) {
+			/* A temporary default would lose the archive with the container that wrote it */
+			throw new CrmException("purge.archive.directory is required with the archive enabled");
+		}
+		this.archive =
+				environmentPropertiesConfig.isPurgeArchiveEnabled()
+						? new MonthlyArchive(Path.of(archiveDirectory), objectMapper)
+						: null;
+		this.purged =
+				Counter.builder("crm.purge.rows")
+						.tag("archived", String.valueOf(this.archive != null))
+						.description("Deleted rows removed from the entity table by the purge job")
+						.register(meterRegistry);
+		this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	@Override
+	public void init() {
+		super.init();
+		this.schedule();
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		this.running = false;
+		this.scheduler.shutdown();
+		try {
+			if (!this.scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+				this.scheduler.shutdownNow();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Purges the tombstones of every tenant that are older than the retention, at most the configured
+	 * number of batches per run.
+	 *
+	 * @return The number of rows removed.
+	 */
+	@Override
+	public int purge() {
+		this.purgeLock.lock();
+		try {
+			final var before = Instant.now().minus(this.retention);
+			var total = 0;
+			var batches = 0;
+			for (final var tenant : this.tenantService.getTenants()) {
+				var count = this.batchSize;
+				while (this.running && count == this.batchSize && batches < this.maxBatches) {
+					count = TenantContext.call(tenant, () -> this.purgeBatch(tenant, before));
+					total += count;
+					batches++;
+				}
+			}
+			if (total > 0) {
+				logger.info("Purged {} deleted rows older than {} in {} batches.", total, before, batches);
+			}
+			return total;
+		} finally {
+			this.purgeLock.unlock();
+		}
+	}
+
+	private int purgeBatch(final String tenant, final Instant before) {
+		final Integer count =
+				this.transactionTemplate.execute(
+						status -> {
+							final var rows =
+									this.jdbcTemplate.queryForList(
+											TOMBSTONES_QUERY,
+											Map.of(
+													"tenant",
+													tenant,
+													"before",
+													Timestamp.from(before),
+													"size",
+													this.batchSize));
+							if (rows.isEmpty()) {
+								return 0;
+							}
+							if (this.archive != null) {
+								this.archive(tenant, rows);
+							}
+							this.jdbcTemplate.update(
+									PURGE_STATEMENT,
+									Map.of(
+											"tenant", tenant, "ids", rows.stream().map(row -> row.get("id")).toList()));
+							return rows.size();
+						});
+		this.purged.increment(count);
+		return count;
+	}
+
+	/* One append per month of deletion, in month order */
+	private void archive(final String tenant, final List<Map<String, Object>> rows) {
+		final var byMonth = new TreeMap<YearMonth, List<Map<String, Object>>>();
+		for (final var row : rows) {
+			byMonth.computeIfAbsent(month(row.get("deletedAt")), key -> new ArrayList<>()).add(row);
+		}
+		byMonth.forEach((month, monthRows) -> this.archive.append(tenant, month, monthRows));
+	}
+
+	/* Drivers return timestamps or date times depending on the column type */
+	private static YearMonth month(final Object deletedAt) {
+		return deletedAt instanceof Timestamp timestamp
+				? YearMonth.from(timestamp.toInstant().atOffset(ZoneOffset.UTC))
+				: YearMonth.from((TemporalAccessor) deletedAt);
+	}
+
+	/* A failed run is logged and the next run is scheduled all the same */
+	private void schedule() {
+		if (this.cron == null || !this.running) {
+			return;
+		}
+		final var now = ZonedDateTime.now();
+		final var next = this.cron.next(now);
+		if (next == null) {
+			return;
+		}
+		this.scheduler.schedule(
+				() -> {
+					try {
+						this.purge();
+					} catch (final RuntimeException e) {
+						logger.warn("Purge of deleted rows failed.", e);
+					} finally {
+						this.schedule();
+					}
+				},
+				Duration.between(now, next).toMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+}
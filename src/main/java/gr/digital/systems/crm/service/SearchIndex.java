@@ -0,0 +1,241 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.transfer.SearchHit;
+import gr.digital.systems.crm.transfer.SearchResult;
+import gr.digital.systems.crm.transfer.SearchType;
+import gr.digital.systems.crm.utils.SearchTerms;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory inverted index ranked by BM25, safe for concurrent puts of different documents. Every
+ * query term must match, exactly, as the prefix of a term or within one edit, two for long terms.
+ * Expanded matches rank below exact ones.
+ */
+final class SearchIndex {
+
+	/* BM25 term frequency saturation and length normalization */
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+
+	private static final int TITLE_WEIGHT = 2;
+	private static final double PREFIX_BOOST = 0.7;
+	private static final double FUZZY_BOOST = 0.5;
+	private static final int MIN_PREFIX_LENGTH = 2;
+	private static final int MIN_FUZZY_LENGTH = 4;
+	private static final int LONG_TERM_LENGTH = 8;
+
+	private static final Comparator<Map.Entry<Key, Double>> RANKING =
+			Map.Entry.<Key, Double>comparingByValue()
+					.reversed()
+					.thenComparing(entry -> entry.getKey().type())
+					.thenComparing(entry -> entry.getKey().id());
+
+	private final int maxExpansions;
+	private final Map<Key, Document> documents = new ConcurrentHashMap<>();
+
+	/* Sorted by term for the prefix and fuzzy scans */
+	private final ConcurrentNavigableMap<String, Map<Key, Posting>> postings =
+			new ConcurrentSkipListMap<>();
+
+	private final AtomicLong totalLength = new AtomicLong();
+
+	SearchIndex(final int maxExpansions) {
+		this.maxExpansions = maxExpansions;
+	}
+
+	void put(final SearchType type, final Long id, final String title, final String text) {
+		final var frequencies = new HashMap<String, Integer>();
+		SearchTerms.of(title).forEach(term -> frequencies.merge(term, TITLE_WEIGHT, Integer::sum));
+		SearchTerms.of(text).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+		final var key = new Key(type, id);
+		if (frequencies.isEmpty()) {
+			this.remove(type, id);
+			return;
+		}
+
+		final var length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+		final var previous = this.documents.put(key, new Document(title, frequencies, length));
+		if (previous != null) {
+			this.unlink(key, previous);
+		}
+		frequencies.forEach(
+				(term, frequency) ->
+						this.postings.compute(
+								term,
+								(t, keys) -> {
+									final var posting = keys == null ? new ConcurrentHashMap<Key, Posting>() : keys;
+									posting.put(key, new Posting(frequency, length));
+									return posting;
+								}));
+		this.totalLength.addAndGet(length);
+	}
+
+	void remove(final SearchType type, final Long id) {
+		final var key = new Key(type, id);
+		final var previous = this.documents.remove(key);
+		if (previous != null) {
+			this.unlink(key, previous);
+		}
+	}
+
+	int size() {
+		return this.documents.size();
+	}
+
+	SearchResult search(
+			final String query, final Set<SearchType> types, final int page, final int size) {
+		final var count = this.documents.size();
+		final var averageLength = count == 0 ? 1 : (double) this.totalLength.get() / count;
+
+		Map<Key, Double> scores = null;
+		for (final var token : new LinkedHashSet<>(SearchTerms.of(query))) {
+			final var expansions = this.expand(token);
+
+			/* One idf over all terms of the token, a rare prefixed term must not outrank the exact one */
+			final var frequency =
+					Math.min(
+							count,
+							expansions.keySet().stream()
+									.map(this.postings::get)
+									.filter(Objects::nonNull)
+									.mapToInt(Map::size)
+									.sum());
+			final var idf = Math.log(1 + (count - frequency + 0.5) / (frequency + 0.5));
+
+			/* A token scores once per document, through its best matching term */
+			final var best = new HashMap<Key, Double>();
+			expansions.forEach(
+					(term, boost) -> {
+						final var posting = this.postings.get(term);
+						if (posting == null) {
+							return;
+						}
+						posting.forEach(
+								(key, entry) -> {
+									if (!types.contains(key.type())) {
+										return;
+									}
+									final var saturation =
+											entry.frequency()
+													* (K1 + 1)
+													/ (entry.frequency() + K1 * (1 - B + B * entry.length() / averageLength));
+									best.merge(key, boost * idf * saturation, Math::max);
+								});
+					});
+			if (scores == null) {
+				scores = best;
+			} else {
+				scores.keySet().retainAll(best.keySet());
+				scores.replaceAll((key, score) -> score + best.get(key));
+			}
+			if (scores.isEmpty()) {
+				break;
+			}
+		}
+
+		final var matches = scores == null ? Map.<Key, Double>of() : scores;
+		final var hits =
+				top(matches, (page + 1) * size).stream()
+						.skip((long) page * size)
+						.map(
+								entry ->
+										SearchHit.builder()
+												.type(entry.getKey().type())
+												.id(entry.getKey().id())
+												.title(this.title(entry.getKey()))
+												.score(entry.getValue())
+												.build())
+						.toList();
+		return SearchResult.builder().total(matches.size()).page(page).size(size).hits(hits).build();
+	}
+
+	/* Keeps the best entries in a bounded heap instead of sorting every match */
+	private static List<Map.Entry<Key, Double>> top(final Map<Key, Double> matches, final int limit) {
+		final var heap = new PriorityQueue<Map.Entry<Key, Double>>(RANKING.reversed());
+		for (final var entry : matches.entrySet()) {
+			if (heap.size() < limit) {
+				heap.add(entry);
+			} else if (RANKING.compare(entry, heap.peek()) < 0) {
+				heap.poll();
+				heap.add(entry);
+			}
+		}
+		final var top = new ArrayList<>(heap);
+		top.sort(RANKING);
+		return top;
+	}
+
+	/* The exact term, then terms it prefixes, then terms within the edit distance */
+	private Map<String, Double> expand(final String token) {
+		final var terms = new LinkedHashMap<String, Double>();
+		if (this.postings.containsKey(token)) {
+			terms.put(token, 1.0);
+		}
+		if (token.length() >= MIN_PREFIX_LENGTH) {
+			for (final var term :
+					this.postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+				if (terms.size() >= this.maxExpansions) {
+					break;
+				}
+				terms.put(term, PREFIX_BOOST);
+			}
+		}
+		if (token.length() >= MIN_FUZZY_LENGTH) {
+			/* Typos are searched among the terms with the same first letter only */
+			final var maxEdits = token.length() >= LONG_TERM_LENGTH ? 2 : 1;
+			final var first = token.substring(0, 1);
+			var fuzzy = 0;
+			for (final var term :
+					this.postings.subMap(first, true, first + Character.MAX_VALUE, false).keySet()) {
+				if (fuzzy >= this.maxExpansions) {
+					break;
+				}
+				if (!terms.containsKey(term) && SearchTerms.distance(token, term, maxEdits) <= maxEdits) {
+					terms.put(term, FUZZY_BOOST);
+					fuzzy++;
+				}
+			}
+		}
+		return terms;
+	}
+
+	private String title(final Key key) {
+		final var document = this.documents.get(key);
+		return document == null ? null : document.title();
+	}
+
+	private void unlink(final Key key, final Document document) {
+		this.totalLength.addAndGet(-document.length());
+		document
+				.frequencies()
+				.keySet()
+				.forEach(
+						term ->
+								this.postings.computeIfPresent(
+										term,
+										(t, keys) -> {
+											keys.remove(key);
+											return keys.isEmpty() ? null : keys;
+										}));
+	}
+
+	private record Key(SearchType type, Long id) {}
+
+	private record Document(String title, Map<String, Integer> frequencies, int length) {}
+
+	/* The weighted frequency of the term and the length of the document */
+	private record Posting(int frequency, int length) {}
+}
@@ -0,0 +1,10 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.transfer.SearchResult;
+import gr.digital.systems.crm.transfer.SearchType;
+import java.util.Set;
+
+public interface SearchService {
+	SearchResult search(
+			final String query, final Set<SearchType> types, final int page, final int size);
+}
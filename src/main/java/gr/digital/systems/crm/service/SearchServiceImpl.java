@@ -0,0 +1,249 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.exception.ServiceOverloadedException;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.repository.CustomerRepository;
+import gr.digital.systems.crm.repository.LeadRepository;
+import gr.digital.systems.crm.repository.OpportunityRepository;
+import gr.digital.systems.crm.transfer.ChangeType;
+import gr.digital.systems.crm.transfer.EntityChange;
+import gr.digital.systems.crm.transfer.EntityChanges;
+import gr.digital.systems.crm.transfer.SearchDocument;
+import gr.digital.systems.crm.transfer.SearchResult;
+import gr.digital.systems.crm.transfer.SearchType;
+import gr.digital.systems.crm.utils.TenantContext;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Answers free text searches over customers, leads and opportunities from an in-memory inverted
+ * index per tenant. The indexes are built at startup, every type of every tenant read over its own
+ * cursor and tokenized on a fork/join pool, and kept current from the committed entity changes.
+ */
+@Service
+public class SearchServiceImpl extends BaseComponent implements SearchService {
+
+	private static final long RETRY_AFTER_SECONDS = 5;
+
+	/* A failed build is retried after 1, 2, 4... seconds, at most this many seconds apart */
+	private static final long MAX_REBUILD_DELAY_SECONDS = 300;
+
+	private final Map<SearchType, Supplier<Stream<SearchDocument>>> loaders =
+			new EnumMap<>(SearchType.class);
+	private final Map<SearchType, Function<Long, Optional<SearchDocument>>> finders =
+			new EnumMap<>(SearchType.class);
+	private final TransactionTemplate readOnlyTransactionTemplate;
+	private final TenantService tenantService;
+	private final int maxExpansions;
+
+	/* Searched by tenants that have no index yet, never written */
+	private final SearchIndex empty;
+
+	private final ScheduledExecutorService buildExecutor =
+			Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("search-index-"));
+	private final ForkJoinPool pool;
+
+	/* Guards swapping the index against the change listener */
+	private final Object lock = new Object();
+
+	/* Indexes keyed by tenant, tenants that appear after the build get theirs with the first change */
+	private volatile Map<String, SearchIndex> indexes = new ConcurrentHashMap<>();
+	private volatile boolean ready;
+
+	/* Changes committed while the index builds, replayed onto the new index, guarded by lock */
+	private List<Runnable> pending;
+
+	@Autowired
+	public SearchServiceImpl(
+			final CustomerRepository customerRepository,
+			final LeadRepository leadRepository,
+			final OpportunityRepository opportunityRepository,
+			final PlatformTransactionManager transactionManager,
+			final TenantService tenantService,
+			final EnvironmentPropertiesConfig environmentPropertiesConfig) {
+		this.loaders.put(SearchType.CUSTOMER, customerRepository::streamSearchDocuments);
+		this.loaders.put(SearchType.LEAD, leadRepository::streamSearchDocuments);
+		this.loaders.put(SearchType.OPPORTUNITY, opportunityRepository::streamSearchDocuments);
+		this.finders.put(SearchType.CUSTOMER, customerRepository::findSearchDocument);
+		this.finders.put(SearchType.LEAD, leadRepository::findSearchDocument);
+		this.finders.put(SearchType.OPPORTUNITY, opportunityRepository::findSearchDocument);
+		this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+		this.readOnlyTransactionTemplate.setReadOnly(true);
+		this.tenantService = tenantService;
+		this.maxExpansions = environmentPropertiesConfig.getSearchMaxExpansions();
+		this.empty = new SearchIndex(this.maxExpansions);
+		final var parallelism = environmentPropertiesConfig.getSearchParallelism();
+		this.pool =
+				new ForkJoinPool(
+						parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void buildIndex() {
+		this.buildExecutor.execute(() -> this.build(0));
+	}
+
+	@Override
+	public void destroy() {
+		super.destroy();
+		this.buildExecutor.shutdownNow();
+		this.pool.shutdownNow();
+	}
+
+	@Override
+	public SearchResult search(
+			final String query, final Set<SearchType> types, final int page, final int size) {
+		if (!this.ready) {
+			throw new ServiceOverloadedException(
+					"The search index is still loading", RETRY_AFTER_SECONDS);
+		}
+		return this.indexes
+				.getOrDefault(TenantContext.get(), this.empty)
+				.search(query, types, page, size);
+	}
+
+	/* Keeps the index current, deletes carry no entity and partial updates are read back */
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onChange(final EntityChange change) {
+		final var type = SearchType.of(change.getEntityType());
+		if (type == null) {
+			return;
+		}
+		final var document =
+				change.getType() == ChangeType.DELETED ? null : this.documentOf(type, change);
+		final var id = change.getId();
+		final var tenant = change.getTenantId();
+		synchronized (this.lock) {
+			apply(this.indexOf(tenant), type, id, document);
+			if (this.pending != null) {
+				this.pending.add(() -> apply(this.indexOf(tenant), type, id, document));
+			}
+		}
+	}
+
+	@TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+	public void onChanges(final EntityChanges changes) {
+		if (SearchType.of(changes.getEntityType()) != null) {
+			changes.getChanges().forEach(this::onChange);
+		}
+	}
+
+	/* Only called under lock */
+	private SearchIndex indexOf(final String tenant) {
+		return this.indexes.computeIfAbsent(tenant, key -> new SearchIndex(this.maxExpansions));
+	}
+
+	/* Searches are answered with 503 until a build succeeds, so a failed build is retried */
+	private void build(final int attempt) {
+		final var started = System.nanoTime();
+		synchronized (this.lock) {
+			this.pending = new ArrayList<>();
+		}
+		try {
+			final var built = new ConcurrentHashMap<String, SearchIndex>();
+			final var tasks = new ArrayList<Future<?>>();
+			for (final var tenant : this.tenantService.getTenants()) {
+				final var index = new SearchIndex(this.maxExpansions);
+				built.put(tenant, index);
+				this.loaders.forEach(
+						(type, loader) ->
+								tasks.add(
+										this.pool.submit(
+												() -> TenantContext.run(tenant, () -> this.load(index, type, loader)))));
+			}
+			for (final var task : tasks) {
+				task.get();
+			}
+			synchronized (this.lock) {
+				this.indexes = built;
+				this.pending.forEach(Runnable::run);
+				this.ready = true;
+			}
+			logger.info(
+					"Search indexes of {} tenants and {} documents built in {} ms.",
+					built.size(),
+					built.values().stream().mapToInt(SearchIndex::size).sum(),
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final ExecutionException | RuntimeException e) {
+			final var delay = Math.min(MAX_REBUILD_DELAY_SECONDS, 1L << Math.min(attempt, 16));
+			logger.error("Search index build failed, retrying in {} s.", delay, e);
+			if (!this.buildExecutor.isShutdown()) {
+				this.buildExecutor.schedule(() -> this.build(attempt + 1), delay, TimeUnit.SECONDS);
+			}
+		} finally {
+			synchronized (this.lock) {
+				this.pending = null;
+			}
+		}
+	}
+
+	/* Read on a cursor in one transaction, tokenized in parallel on the pool of the caller */
+	private void load(
+			final SearchIndex target,
+			final SearchType type,
+			final Supplier<Stream<SearchDocument>> loader) {
+		final var documents =
+				this.readOnlyTransactionTemplate.execute(
+						status -> {
+							try (var stream = loader.get()) {
+								return stream.toList();
+							}
+						});
+		documents.parallelStream().forEach(document -> apply(target, type, document.getId(), document));
+	}
+
+	private SearchDocument documentOf(final SearchType type, final EntityChange change) {
+		final var data = change.getData();
+		if (data instanceof Customer customer) {
+			return new SearchDocument(customer.getId(), customer.getName(), customer.getAddress());
+		}
+		if (data instanceof Lead lead) {
+			return new SearchDocument(lead.getId(), lead.getName(), lead.getSource());
+		}
+		if (data instanceof Opportunity opportunity) {
+			return new SearchDocument(opportunity.getId(), opportunity.getDescription());
+		}
+		return this.finders.get(type).apply(change.getId()).orElse(null);
+	}
+
+	private static void apply(
+			final SearchIndex index,
+			final SearchType type,
+			final Long id,
+			final SearchDocument document) {
+		if (document == null) {
+			index.remove(type, id);
+		} else {
+			index.put(type, id, document.getTitle(), document.getText());
+		}
+	}
+}
@@ -0,0 +1,11 @@
+package gr.digital.systems.crm.service;
+
+import java.util.Set;
+
+public interface TenantService {
+	Set<String> getTenants();
+
+	Set<String> getDedicated();
+
+	boolean isDedicated(final String tenant);
+}
@@ -0,0 +1,85 @@
+package gr.digital.systems.crm.service;
+
+import com.zaxxer.hikari.HikariConfig;
+import gr.digital.systems.crm.component.BaseComponent;
+import gr.digital.systems.crm.configuration.DataSourceConfig;
+import gr.digital.systems.crm.utils.TenantContext;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Knows the tenants that have data, so the in-memory indexes and the job queues can be loaded for
+ * each of them at startup. Tenants that appear later start with empty indexes.
+ */
+@Service
+public class TenantServiceImpl extends BaseComponent implements TenantService {
+
+	/* Native, so the tenant restriction of the entity queries does not apply */
+	private static final String TENANTS_QUERY =
+			"select tenantId from BaseEntity"
+					+ " union select tenantId from ImportJob"
+					+ " union select tenantId from ConversionJob";
+
+	private final Set<String> dedicated;
+	private final TransactionTemplate readOnlyTransactionTemplate;
+
+	@PersistenceContext private EntityManager entityManager;
+
+	@Autowired
+	public TenantServiceImpl(
+			final Environment environment, final PlatformTransactionManager transactionManager) {
+		this.dedicated =
+				Set.copyOf(
+						Binder.get(environment)
+								.bind(
+										DataSourceConfig.TENANTS_PROPERTY,
+										Bindable.mapOf(String.class, HikariConfig.class))
+								.orElseGet(Map::of)
+								.keySet());
+		this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+		this.readOnlyTransactionTemplate.setReadOnly(true);
+	}
+
+	/**
+	 * @return The default tenant, the tenants with a datasource of their own and the tenants with
+	 *     rows in the shared datasource.
+	 */
+	@Override
+	public Set<String> getTenants() {
+		final var tenants = new TreeSet<String>(this.dedicated);
+		tenants.add(TenantContext.DEFAULT_TENANT);
+		TenantContext.run(
+				TenantContext.DEFAULT_TENANT,
+				() ->
+						this.readOnlyTransactionTemplate.executeWithoutResult(
+								status ->
+										this.entityManager
+												.createNativeQuery(TENANTS_QUERY, String.class)
+												.getResultList()
+												.forEach(tenant -> tenants.add((String) tenant))));
+		return tenants;
+	}
+
+	/**
+	 * @return The tenants with a datasource of their own.
+	 */
+	@Override
+	public Set<String> getDedicated() {
+		return this.dedicated;
+	}
+
+	@Override
+	public boolean isDedicated(final String tenant) {
+		return this.dedicated.contains(tenant);
+	}
+}
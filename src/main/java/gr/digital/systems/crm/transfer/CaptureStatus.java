@@ -0,0 +1,14 @@
+package gr.digital.systems.crm.transfer;
+
+import gr.digital.systems.crm.model.JobStatus;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder(toBuilder = true)
+public class CaptureStatus {
+	String trackingId;
+	JobStatus status;
+	Long leadId;
+	String error;
+}
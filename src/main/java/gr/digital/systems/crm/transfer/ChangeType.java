@@ -0,0 +1,7 @@
+package gr.digital.systems.crm.transfer;
+
+public enum ChangeType {
+	CREATED,
+	UPDATED,
+	DELETED
+}
@@ -0,0 +1,14 @@
+package gr.digital.systems.crm.transfer;
+
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Opportunity;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class ConversionResult {
+	Long leadId;
+	Customer customer;
+	Opportunity opportunity;
+}
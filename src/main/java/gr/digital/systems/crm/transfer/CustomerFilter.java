@@ -0,0 +1,10 @@
+package gr.digital.systems.crm.transfer;
+
+import lombok.Value;
+
+@Value
+public class CustomerFilter {
+	String name;
+	String email;
+	String phone;
+}
@@ -0,0 +1,26 @@
+package gr.digital.systems.crm.transfer;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import gr.digital.systems.crm.model.BaseEntity;
+import java.time.Instant;
+import lombok.Builder;
+import lombok.Value;
+
+/** A committed mutation of an entity, published by the services and streamed to subscribers. */
+@Value
+@Builder
+public class EntityChange {
+
+	@JsonIgnore Class<? extends BaseEntity> entityType;
+
+	/* Subscribers and in-memory indexes only see the changes of their own tenant */
+	@JsonIgnore String tenantId;
+
+	ChangeType type;
+	Long id;
+
+	/* The entity after the change, null for deletes and partial updates */
+	BaseEntity data;
+
+	@Builder.Default Instant timestamp = Instant.now();
+}
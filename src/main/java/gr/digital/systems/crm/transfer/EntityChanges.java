@@ -0,0 +1,21 @@
+package gr.digital.systems.crm.transfer;
+
+import gr.digital.systems.crm.model.BaseEntity;
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The changes of one JDBC batch of a bulk save, published as a single event so a large save
+ * registers one commit callback per batch and listener instead of one per row.
+ */
+@Value
+@Builder
+public class EntityChanges {
+
+	Class<? extends BaseEntity> entityType;
+
+	String tenantId;
+
+	List<EntityChange> changes;
+}
@@ -0,0 +1,15 @@
+package gr.digital.systems.crm.transfer;
+
+import java.time.Instant;
+import lombok.Value;
+
+/* The cache validators of an entity or of a whole collection, read without loading the entities */
+@Value
+public class EntityRevision {
+
+	/* Unquoted for a single entity, weak W/"..." for a collection */
+	String entityTag;
+
+	/* Null when no modification time is known, e.g. rows written before it was tracked */
+	Instant lastModified;
+}
@@ -0,0 +1,32 @@
+package gr.digital.systems.crm.transfer;
+
+import gr.digital.systems.crm.exception.CrmException;
+import java.util.Arrays;
+import lombok.Getter;
+
+@Getter
+public enum FileFormat {
+	CSV("text/csv", "csv"),
+	XML("application/xml", "xml");
+
+	private final String mediaType;
+	private final String extension;
+
+	FileFormat(final String mediaType, final String extension) {
+		this.mediaType = mediaType;
+		this.extension = extension;
+	}
+
+	/**
+	 * Resolves the format from its name, ignoring case.
+	 *
+	 * @param name The name of the format, e.g. csv.
+	 * @return The matching format.
+	 */
+	public static FileFormat from(final String name) {
+		return Arrays.stream(values())
+				.filter(format -> format.name().equalsIgnoreCase(name))
+				.findFirst()
+				.orElseThrow(() -> new CrmException("Unsupported file format: " + name));
+	}
+}
@@ -0,0 +1,17 @@
+package gr.digital.systems.crm.transfer;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class KeysetPage<T> {
+
+	List<T> items;
+
+	/* The id to pass as "after" to fetch the next page, null when this is the last page */
+	Long nextCursor;
+
+	boolean hasMore;
+}
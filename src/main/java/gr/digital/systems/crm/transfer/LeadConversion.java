@@ -0,0 +1,24 @@
+package gr.digital.systems.crm.transfer;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
+
+@Value
+@Builder
+@Jacksonized
+public class LeadConversion {
+
+	/* Bulk conversions select the listed leads, or else all leads of the source */
+	List<Long> ids;
+
+	String source;
+
+	/* Single conversions may attach the opportunity to an existing customer, e.g. a matched one */
+	Long customerId;
+
+	String description;
+	Double value;
+	String status;
+}
@@ -0,0 +1,11 @@
+package gr.digital.systems.crm.transfer;
+
+import lombok.Value;
+
+@Value
+public class LeadFilter {
+	String name;
+	String email;
+	String phone;
+	String source;
+}
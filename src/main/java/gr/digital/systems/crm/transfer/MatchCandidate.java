@@ -0,0 +1,12 @@
+package gr.digital.systems.crm.transfer;
+
+import lombok.Value;
+
+/* The matching fields of a lead or customer, loaded without the rest of the entity */
+@Value
+public class MatchCandidate {
+	Long id;
+	String name;
+	String email;
+	String phone;
+}
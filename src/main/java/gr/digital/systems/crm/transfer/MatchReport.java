@@ -0,0 +1,22 @@
+package gr.digital.systems.crm.transfer;
+
+import java.time.Instant;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class MatchReport {
+	boolean running;
+
+	/* False for the index load at startup, which finds no matches */
+	boolean batch;
+
+	Instant startedAt;
+	Instant finishedAt;
+	long leads;
+	long customers;
+	long duplicateLeads;
+	long customerMatches;
+	String error;
+}
@@ -0,0 +1,12 @@
+package gr.digital.systems.crm.transfer;
+
+import lombok.Value;
+
+@Value
+public class OpportunitySummary {
+	Long id;
+	String description;
+	double value;
+	String status;
+	Long customerId;
+}
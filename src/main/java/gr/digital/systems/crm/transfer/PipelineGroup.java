@@ -0,0 +1,17 @@
+package gr.digital.systems.crm.transfer;
+
+import java.math.BigDecimal;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class PipelineGroup {
+
+	/* The status or the customer id of the group, "none" for opportunities without one */
+	String key;
+
+	long count;
+	BigDecimal total;
+	BigDecimal average;
+}
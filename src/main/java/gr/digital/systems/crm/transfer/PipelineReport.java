@@ -0,0 +1,16 @@
+package gr.digital.systems.crm.transfer;
+
+import java.math.BigDecimal;
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class PipelineReport {
+	long count;
+	BigDecimal total;
+	BigDecimal average;
+	List<PipelineGroup> byStatus;
+	List<PipelineGroup> byCustomer;
+}
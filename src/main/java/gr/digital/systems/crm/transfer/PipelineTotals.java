@@ -0,0 +1,11 @@
+package gr.digital.systems.crm.transfer;
+
+import lombok.Value;
+
+/* One group of the opportunity pipeline as aggregated by the database */
+@Value
+public class PipelineTotals {
+	String key;
+	Long count;
+	Double total;
+}
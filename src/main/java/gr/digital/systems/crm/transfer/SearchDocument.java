@@ -0,0 +1,17 @@
+package gr.digital.systems.crm.transfer;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/** The searchable fields of an entity, the title ranks above the text. */
+@Value
+@AllArgsConstructor
+public class SearchDocument {
+	Long id;
+	String title;
+	String text;
+
+	public SearchDocument(final Long id, final String title) {
+		this(id, title, null);
+	}
+}
@@ -0,0 +1,13 @@
+package gr.digital.systems.crm.transfer;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class SearchHit {
+	SearchType type;
+	Long id;
+	String title;
+	double score;
+}
@@ -0,0 +1,17 @@
+package gr.digital.systems.crm.transfer;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class SearchResult {
+
+	/* Number of matching documents across all pages */
+	long total;
+
+	int page;
+	int size;
+	List<SearchHit> hits;
+}
@@ -0,0 +1,49 @@
+package gr.digital.systems.crm.transfer;
+
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.BaseEntity;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.model.Opportunity;
+import java.util.Arrays;
+import lombok.Getter;
+
+@Getter
+public enum SearchType {
+	/* Name and address */
+	CUSTOMER(Customer.class),
+	/* Name and source */
+	LEAD(Lead.class),
+	/* Description */
+	OPPORTUNITY(Opportunity.class);
+
+	private final Class<? extends BaseEntity> entityType;
+
+	SearchType(final Class<? extends BaseEntity> entityType) {
+		this.entityType = entityType;
+	}
+
+	/**
+	 * Resolves the type from its name, ignoring case.
+	 *
+	 * @param name The name of the type, e.g. customer.
+	 * @return The matching type.
+	 */
+	public static SearchType from(final String name) {
+		return Arrays.stream(values())
+				.filter(type -> type.name().equalsIgnoreCase(name))
+				.findFirst()
+				.orElseThrow(() -> new CrmException("Unsupported search type: " + name));
+	}
+
+	/**
+	 * @param entityType The class of an entity.
+	 * @return The type of the entity, or null when it is not searchable.
+	 */
+	public static SearchType of(final Class<?> entityType) {
+		return Arrays.stream(values())
+				.filter(type -> type.entityType == entityType)
+				.findFirst()
+				.orElse(null);
+	}
+}
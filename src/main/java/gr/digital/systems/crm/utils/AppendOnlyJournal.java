@@ -0,0 +1,284 @@
+package gr.digital.systems.crm.utils;
+
+import gr.digital.systems.crm.exception.CrmException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A write-ahead journal of single-line records in numbered segment files. Records get increasing
+ * sequence numbers; a commit marks every record up to a sequence as applied and deletes the
+ * segments that hold only applied records. The records not yet applied at startup are available for
+ * replay. Appends only write, a sync forces them to the device in groups: the first caller forces
+ * every record appended so far and the callers waiting behind it return without forcing again. The
+ * journal is guarded by locks rather than monitors, so virtual threads waiting on it or on a force
+ * do not pin their carrier.
+ */
+public class AppendOnlyJournal implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AppendOnlyJournal.class);
+
+	private static final String SEGMENT_PREFIX = "journal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String CHECKPOINT = "checkpoint";
+
+	private final Path directory;
+	private final boolean fsync;
+	private final long segmentSize;
+	private final List<Entry> pending = new ArrayList<>();
+
+	/* Guards the segments and the open channel, held while writing but never while forcing */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/* Held by the one caller forcing a group, the callers behind it are covered by its force */
+	private final ReentrantLock forceLock = new ReentrantLock();
+
+	/* The highest sequence forced to the device */
+	private final AtomicLong durable = new AtomicLong();
+
+	/* Segments rotated out before their records were forced, the next sync forces and closes them */
+	private final List<FileChannel> unforced = new ArrayList<>();
+
+	/* First sequence of every segment, the last one is open for appends */
+	private final List<Long> segments = new ArrayList<>();
+
+	private FileChannel channel;
+	private long nextSequence;
+	private long checkpoint;
+
+	/**
+	 * Opens the journal in the directory and reads the records past the last checkpoint.
+	 *
+	 * @param directory The directory of the segment files, created when missing.
+	 * @param fsync Whether a sync forces the appended records to the device.
+	 * @param segmentSize The size in bytes after which appends continue in a new segment.
+	 */
+	public AppendOnlyJournal(final Path directory, final boolean fsync, final long segmentSize) {
+		this.directory = directory;
+		this.fsync = fsync;
+		this.segmentSize = segmentSize;
+		try {
+			Files.createDirectories(directory);
+			final var checkpointFile = directory.resolve(CHECKPOINT);
+			this.checkpoint =
+					Files.exists(checkpointFile)
+							? Long.parseLong(Files.readString(checkpointFile).trim())
+							: 0;
+			this.nextSequence = this.checkpoint + 1;
+			for (final var segment : this.listSegments()) {
+				this.segments.add(firstSequence(segment));
+				this.read(segment);
+			}
+			/* What was read back is on the device already */
+			this.durable.set(this.nextSequence - 1);
+			this.openSegment();
+		} catch (final IOException | NumberFormatException e) {
+			throw new CrmException("Cannot open the journal in " + directory, e);
+		}
+	}
+
+	/**
+	 * The records that were appended but not committed before the journal was last closed.
+	 *
+	 * @return The records in sequence order.
+	 */
+	public List<Entry> getPending() {
+		return List.copyOf(this.pending);
+	}
+
+	/**
+	 * Appends a record without forcing it, see {@link #sync(long)}.
+	 *
+	 * @param payload The record, must not contain line breaks.
+	 * @return The sequence of the record.
+	 */
+	public long append(final String payload) {
+		this.lock.lock();
+		try {
+			if (this.channel.size() >= this.segmentSize) {
+				if (this.fsync) {
+					this.unforced.add(this.channel);
+				} else {
+					this.channel.close();
+				}
+				this.openSegment();
+			}
+			final var sequence = this.nextSequence++;
+			final var line =
+					ByteBuffer.wrap((sequence + "\t" + payload + "\n").getBytes(StandardCharsets.UTF_8));
+			while (line.hasRemaining()) {
+				this.channel.write(line);
+			}
+			return sequence;
+		} catch (final IOException e) {
+			throw new CrmException("Cannot append to the journal", e);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until the record is on the device. Only one caller forces at a time, and its force covers
+	 * every record appended before it started, so concurrent appends share a single force. Returns at
+	 * once when fsync is off.
+	 *
+	 * @param sequence The sequence of an appended record.
+	 * @return Whether this call forced the journal, false when an earlier force covered the record.
+	 */
+	public boolean sync(final long sequence) {
+		if (!this.fsync || sequence <= this.durable.get()) {
+			return false;
+		}
+		this.forceLock.lock();
+		try {
+			if (sequence <= this.durable.get()) {
+				return false;
+			}
+			final long forced;
+			final FileChannel current;
+			final List<FileChannel> rotated;
+			this.lock.lock();
+			try {
+				forced = this.nextSequence - 1;
+				current = this.channel;
+				rotated = List.copyOf(this.unforced);
+				this.unforced.clear();
+			} finally {
+				this.lock.unlock();
+			}
+
+			/* Appends continue into the open segment meanwhile, they join the next group */
+			for (final var segment : rotated) {
+				segment.force(false);
+				segment.close();
+			}
+			current.force(false);
+			this.durable.accumulateAndGet(forced, Math::max);
+			return true;
+		} catch (final IOException e) {
+			throw new CrmException("Cannot sync the journal", e);
+		} finally {
+			this.forceLock.unlock();
+		}
+	}
+
+	/**
+	 * Marks the records up to the sequence as applied and deletes the closed segments that hold no
+	 * other records.
+	 *
+	 * @param sequence The sequence of the last applied record.
+	 */
+	public void commit(final long sequence) {
+		this.lock.lock();
+		try {
+			if (sequence <= this.checkpoint) {
+				return;
+			}
+			final var temporary = this.directory.resolve(CHECKPOINT + ".tmp");
+			Files.writeString(temporary, Long.toString(sequence));
+			Files.move(
+					temporary,
+					this.directory.resolve(CHECKPOINT),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			this.checkpoint = sequence;
+
+			/* A closed segment ends right before the first sequence of the next one */
+			while (this.segments.size() > 1 && this.segments.get(1) - 1 <= sequence) {
+				Files.deleteIfExists(segment(this.segments.remove(0)));
+			}
+		} catch (final IOException e) {
+			throw new CrmException("Cannot commit the journal", e);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/* Forces what was appended and not synced yet, a clean shutdown leaves nothing unforced */
+	@Override
+	public void close() throws IOException {
+		this.forceLock.lock();
+		this.lock.lock();
+		try {
+			for (final var segment : this.unforced) {
+				segment.force(false);
+				segment.close();
+			}
+			this.unforced.clear();
+			if (this.fsync && this.channel.isOpen()) {
+				this.channel.force(false);
+			}
+			this.channel.close();
+		} finally {
+			this.lock.unlock();
+			this.forceLock.unlock();
+		}
+	}
+
+	private List<Path> listSegments() throws IOException {
+		try (Stream<Path> files = Files.list(this.directory)) {
+			return files
+					.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+					.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+					.sorted(Comparator.comparingLong(AppendOnlyJournal::firstSequence))
+					.toList();
+		}
+	}
+
+	private void read(final Path segment) throws IOException {
+		try (var lines = Files.lines(segment, StandardCharsets.UTF_8)) {
+			lines.forEach(
+					line -> {
+						final var tab = line.indexOf('\t');
+						try {
+							final var sequence = Long.parseLong(line.substring(0, Math.max(tab, 0)));
+							this.nextSequence = Math.max(this.nextSequence, sequence + 1);
+							if (sequence > this.checkpoint) {
+								this.pending.add(new Entry(sequence, line.substring(tab + 1)));
+							}
+						} catch (final NumberFormatException e) {
+							/* A record torn by a crash in the middle of an append */
+							LOG.warn("Skipping a malformed journal record in {}.", segment);
+						}
+					});
+		}
+	}
+
+	/* Every start appends to a new segment, never after a possibly torn record */
+	private void openSegment() throws IOException {
+		this.segments.add(this.nextSequence);
+		this.channel =
+				FileChannel.open(
+						segment(this.nextSequence),
+						StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE,
+						StandardOpenOption.APPEND);
+	}
+
+	private Path segment(final long firstSequence) {
+		return this.directory.resolve(SEGMENT_PREFIX + firstSequence + SEGMENT_SUFFIX);
+	}
+
+	private static long firstSequence(final Path segment) {
+		final var name = segment.getFileName().toString();
+		return Long.parseLong(
+				name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	/** A record read back from the journal. */
+	public record Entry(long sequence, String payload) {}
+}
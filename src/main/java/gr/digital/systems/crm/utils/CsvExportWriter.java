@@ -0,0 +1,81 @@
+package gr.digital.systems.crm.utils;
+
+import gr.digital.systems.crm.exception.CrmException;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+public class CsvExportWriter implements ExportWriter {
+
+	private static final String SEPARATOR = ",";
+	private static final String LINE_END = "\r\n";
+	private static final String FORMULA_START = "=+-@\t\r";
+
+	private final Writer writer;
+
+	public CsvExportWriter(final Writer writer) {
+		this.writer = writer;
+	}
+
+	@Override
+	public void begin(final List<String> columns) {
+		this.writeLine(List.copyOf(columns));
+	}
+
+	@Override
+	public void write(final List<Object> values) {
+		this.writeLine(values);
+	}
+
+	@Override
+	public void end() {
+		try {
+			this.writer.flush();
+		} catch (final IOException e) {
+			throw new CrmException("Cannot write the CSV export", e);
+		}
+	}
+
+	private void writeLine(final List<?> values) {
+		try {
+			for (int i = 0; i < values.size(); i++) {
+				if (i > 0) {
+					this.writer.write(SEPARATOR);
+				}
+				this.writer.write(escape(values.get(i)));
+			}
+			this.writer.write(LINE_END);
+		} catch (final IOException e) {
+			throw new CrmException("Cannot write the CSV export", e);
+		}
+	}
+
+	/* RFC 4180: fields with separators, quotes or line breaks are quoted and quotes doubled */
+	private static String escape(final Object value) {
+		if (value == null) {
+			return "";
+		}
+		final var text = neutralise(value);
+		if (text.contains(SEPARATOR)
+				|| text.contains("\"")
+				|| text.contains("\n")
+				|| text.contains("\r")) {
+			return "\"" + text.replace("\"", "\"\"") + "\"";
+		}
+		return text;
+	}
+
+	/*
+	 * Spreadsheets run text cells starting with a formula character as formulas, a leading quote
+	 * keeps them text. Numbers are left alone, a negative value stays a number
+	 */
+	private static String neutralise(final Object value) {
+		final var text = value.toString();
+		if (!(value instanceof Number)
+				&& !text.isEmpty()
+				&& FORMULA_START.indexOf(text.charAt(0)) >= 0) {
+			return "'" + text;
+		}
+		return text;
+	}
+}
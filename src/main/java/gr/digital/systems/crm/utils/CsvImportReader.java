@@ -0,0 +1,96 @@
+package gr.digital.systems.crm.utils;
+
+import gr.digital.systems.crm.exception.CrmException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class CsvImportReader implements ImportReader {
+
+	private static final int SEPARATOR = ',';
+	private static final int QUOTE = '"';
+	private static final int END_OF_FILE = -1;
+
+	private final BufferedReader reader;
+	private final List<String> header;
+
+	/**
+	 * Creates a reader over RFC 4180 CSV, the first record is the header and names the fields.
+	 *
+	 * @param reader The reader of the CSV content.
+	 */
+	public CsvImportReader(final Reader reader) {
+		this.reader = new BufferedReader(reader);
+		final var names = this.readRecord();
+		if (names == null) {
+			throw new CrmException("The CSV file has no header");
+		}
+		this.header = names.stream().map(name -> name.trim().toLowerCase(Locale.ROOT)).toList();
+	}
+
+	@Override
+	public Map<String, String> next() {
+		final var values = this.readRecord();
+		if (values == null) {
+			return null;
+		}
+		final var record = new HashMap<String, String>(this.header.size() * 2);
+		for (int i = 0; i < this.header.size() && i < values.size(); i++) {
+			record.put(this.header.get(i), values.get(i));
+		}
+		return record;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.reader.close();
+	}
+
+	/* Reads a single record, quoted fields may contain separators, doubled quotes and line breaks */
+	private List<String> readRecord() {
+		try {
+			var character = this.reader.read();
+			if (character == END_OF_FILE) {
+				return null;
+			}
+
+			final var values = new ArrayList<String>();
+			final var field = new StringBuilder();
+			var quoted = false;
+			while (character != END_OF_FILE) {
+				if (quoted) {
+					if (character == QUOTE) {
+						this.reader.mark(1);
+						if (this.reader.read() == QUOTE) {
+							field.append('"');
+						} else {
+							this.reader.reset();
+							quoted = false;
+						}
+					} else {
+						field.append((char) character);
+					}
+				} else if (character == QUOTE) {
+					quoted = true;
+				} else if (character == SEPARATOR) {
+					values.add(field.toString());
+					field.setLength(0);
+				} else if (character == '\n') {
+					break;
+				} else if (character != '\r') {
+					field.append((char) character);
+				}
+				character = this.reader.read();
+			}
+			values.add(field.toString());
+			return values;
+		} catch (final IOException e) {
+			throw new CrmException("Cannot read the CSV file", e);
+		}
+	}
+}
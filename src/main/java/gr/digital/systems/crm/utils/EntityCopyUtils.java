@@ -0,0 +1,42 @@
+package gr.digital.systems.crm.utils;
+
+import gr.digital.systems.crm.model.BaseEntity;
+import java.lang.reflect.Modifier;
+import org.hibernate.Hibernate;
+import org.springframework.beans.BeanUtils;
+import org.springframework.util.ReflectionUtils;
+
+public class EntityCopyUtils {
+
+	private EntityCopyUtils() {}
+
+	/**
+	 * Copies an entity field by field, including the related entities it holds. Related entities that
+	 * were never loaded are kept as they are, they cannot be changed without a session.
+	 *
+	 * @param entity The entity, may be null.
+	 * @param <T> The entity type.
+	 * @return A detached copy that shares no mutable entity with the original.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends BaseEntity> T copy(final T entity) {
+		if (entity == null) {
+			return null;
+		}
+		final var source = (T) Hibernate.unproxy(entity);
+		final var copy = (T) BeanUtils.instantiateClass(source.getClass());
+		ReflectionUtils.doWithFields(
+				source.getClass(),
+				field -> {
+					ReflectionUtils.makeAccessible(field);
+					final var value = field.get(source);
+					field.set(
+							copy,
+							value instanceof BaseEntity related && Hibernate.isInitialized(related)
+									? copy(related)
+									: value);
+				},
+				field -> !Modifier.isStatic(field.getModifiers()));
+		return copy;
+	}
+}
@@ -0,0 +1,73 @@
+package gr.digital.systems.crm.utils;
+
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.BaseEntity;
+import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.transfer.EntityRevision;
+import org.springframework.web.context.request.WebRequest;
+
+public class EntityTagUtils {
+
+	private EntityTagUtils() {}
+
+	/**
+	 * Builds the ETag of an entity from its version. An opportunity is served with its customer, so
+	 * its tag also holds the version of the customer, e.g. "3-7".
+	 *
+	 * @param entity The entity.
+	 * @return The version as an unquoted tag, ResponseEntity adds the quotes.
+	 */
+	public static String of(final BaseEntity entity) {
+		if (entity instanceof Opportunity opportunity && opportunity.getCustomer() != null) {
+			return of(entity.getVersion(), opportunity.getCustomer().getVersion());
+		}
+		return String.valueOf(entity.getVersion());
+	}
+
+	/**
+	 * Builds the ETag of an entity served with a related entity.
+	 *
+	 * @param version The version of the entity.
+	 * @param relatedVersion The version of the related entity, null when there is none.
+	 * @return The unquoted tag.
+	 */
+	public static String of(final Long version, final Long relatedVersion) {
+		return relatedVersion == null ? String.valueOf(version) : version + "-" + relatedVersion;
+	}
+
+	/**
+	 * Reads the version an If-Match header expects.
+	 *
+	 * @param ifMatch The header value, e.g. "3", W/"3" or "3-7" with the version of a related entity.
+	 * @return The expected version, or null when the header is missing or matches any version.
+	 */
+	public static Long version(final String ifMatch) {
+		if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+			return null;
+		}
+		var tag = ifMatch.trim();
+		if (tag.startsWith("W/")) {
+			tag = tag.substring(2);
+		}
+		try {
+			/* Only the version of the entity itself is checked, not the one of a related entity */
+			return Long.valueOf(tag.replace("\"", "").split("-", 2)[0]);
+		} catch (final NumberFormatException e) {
+			throw new CrmException("Invalid If-Match header: " + ifMatch);
+		}
+	}
+
+	/**
+	 * Checks the If-None-Match and If-Modified-Since headers against a revision. Sets the ETag and
+	 * Last-Modified headers, and the 304 status when the client copy is still current.
+	 *
+	 * @param request The current request.
+	 * @param revision The current revision of the requested entity or collection.
+	 * @return True when the handler must return without a body.
+	 */
+	public static boolean notModified(final WebRequest request, final EntityRevision revision) {
+		final var lastModified = revision.getLastModified();
+		return request.checkNotModified(
+				revision.getEntityTag(), lastModified == null ? -1 : lastModified.toEpochMilli());
+	}
+}
@@ -0,0 +1,10 @@
+package gr.digital.systems.crm.utils;
+
+import java.util.function.Function;
+import lombok.Value;
+
+@Value(staticConstructor = "of")
+public class ExportColumn<T> {
+	String name;
+	Function<T, Object> value;
+}
@@ -0,0 +1,24 @@
+package gr.digital.systems.crm.utils;
+
+import java.util.List;
+
+/** Writes exported rows one at a time, nothing is kept after a row has been written. */
+public interface ExportWriter {
+
+	/**
+	 * Writes whatever precedes the rows, e.g. a header line or the root element.
+	 *
+	 * @param columns The names of the exported columns.
+	 */
+	void begin(final List<String> columns);
+
+	/**
+	 * Writes a single row.
+	 *
+	 * @param values The values of the row, in the same order as the columns.
+	 */
+	void write(final List<Object> values);
+
+	/** Writes whatever follows the rows and flushes everything to the underlying channel. */
+	void end();
+}
@@ -0,0 +1,15 @@
+package gr.digital.systems.crm.utils;
+
+import java.io.Closeable;
+import java.util.Map;
+
+/** Reads imported records one at a time, only the current record is kept in memory. */
+public interface ImportReader extends Closeable {
+
+	/**
+	 * Reads the next record of the file.
+	 *
+	 * @return The record as field name to value, or null when the file has no more records.
+	 */
+	Map<String, String> next();
+}
@@ -0,0 +1,169 @@
+package gr.digital.systems.crm.utils;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.Value;
+
+/** The normalized keys a lead or customer is matched on, null where the field gives no key. */
+@Value
+public class MatchKeys {
+
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	private static final Pattern NON_LETTERS = Pattern.compile("[^\\p{L}]+");
+	private static final Pattern NON_DIGITS = Pattern.compile("\\D+");
+
+	/* Shorter numbers are extensions or typos, longer ones are compared on their last digits */
+	private static final int MIN_PHONE_DIGITS = 7;
+	private static final int PHONE_DIGITS = 10;
+
+	/* Letters of each name token that go into the blocking key */
+	private static final int BLOCK_PREFIX = 2;
+
+	String email;
+	String phone;
+	String name;
+
+	/* Names are only compared with names of the same block */
+	String block;
+
+	public static MatchKeys of(final String name, final String email, final String phone) {
+		final var normalizedName = name(name);
+		return new MatchKeys(email(email), phone(phone), normalizedName, block(normalizedName));
+	}
+
+	/**
+	 * Lower cases the address and drops a +tag from its local part.
+	 *
+	 * @param email The email as entered.
+	 * @return The normalized email, or null when it is not an address.
+	 */
+	public static String email(final String email) {
+		if (email == null) {
+			return null;
+		}
+		final var normalized = email.trim().toLowerCase(Locale.ROOT);
+		final var at = normalized.lastIndexOf('@');
+		if (at <= 0 || at == normalized.length() - 1) {
+			return null;
+		}
+		final var plus = normalized.indexOf('+');
+		return plus > 0 && plus < at
+				? normalized.substring(0, plus) + normalized.substring(at)
+				: normalized;
+	}
+
+	/**
+	 * Keeps the digits of the number, without the country or trunk prefix.
+	 *
+	 * @param phone The phone as entered.
+	 * @return The last ten digits, or null when the number is too short.
+	 */
+	public static String phone(final String phone) {
+		if (phone == null) {
+			return null;
+		}
+		final var digits = NON_DIGITS.matcher(phone).replaceAll("");
+		if (digits.length() < MIN_PHONE_DIGITS) {
+			return null;
+		}
+		return digits.length() > PHONE_DIGITS
+				? digits.substring(digits.length() - PHONE_DIGITS)
+				: digits;
+	}
+
+	/**
+	 * Lower cases the name, strips accents and punctuation and sorts its tokens, so "Smith, John" and
+	 * "John Smith" normalize alike.
+	 *
+	 * @param name The name as entered.
+	 * @return The sorted tokens separated by spaces, or null when the name has no letters.
+	 */
+	public static String name(final String name) {
+		if (name == null) {
+			return null;
+		}
+		final var letters =
+				NON_LETTERS
+						.matcher(
+								DIACRITICS
+										.matcher(Normalizer.normalize(name, Normalizer.Form.NFD))
+										.replaceAll("")
+										.toLowerCase(Locale.ROOT))
+						.replaceAll(" ")
+						.trim();
+		if (letters.isEmpty()) {
+			return null;
+		}
+		return Arrays.stream(letters.split(" ")).sorted().collect(Collectors.joining(" "));
+	}
+
+	/* The first letters of every token, typos past them still land in the same block */
+	private static String block(final String name) {
+		if (name == null) {
+			return null;
+		}
+		return Arrays.stream(name.split(" "))
+				.map(token -> token.substring(0, Math.min(BLOCK_PREFIX, token.length())))
+				.collect(Collectors.joining("|"));
+	}
+
+	/**
+	 * Jaro-Winkler similarity of two normalized names, favouring names with a common prefix.
+	 *
+	 * @param first The first name.
+	 * @param second The second name.
+	 * @return 1 for equal names down to 0 for names without common characters.
+	 */
+	public static double similarity(final String first, final String second) {
+		if (first.equals(second)) {
+			return 1;
+		}
+		final var window = Math.max(0, Math.max(first.length(), second.length()) / 2 - 1);
+		final var firstMatched = new boolean[first.length()];
+		final var secondMatched = new boolean[second.length()];
+		var matches = 0;
+		for (var i = 0; i < first.length(); i++) {
+			final var to = Math.min(second.length(), i + window + 1);
+			for (var j = Math.max(0, i - window); j < to; j++) {
+				if (!secondMatched[j] && first.charAt(i) == second.charAt(j)) {
+					firstMatched[i] = true;
+					secondMatched[j] = true;
+					matches++;
+					break;
+				}
+			}
+		}
+		if (matches == 0) {
+			return 0;
+		}
+
+		var transpositions = 0;
+		for (int i = 0, j = 0; i < first.length(); i++) {
+			if (firstMatched[i]) {
+				while (!secondMatched[j]) {
+					j++;
+				}
+				if (first.charAt(i) != second.charAt(j)) {
+					transpositions++;
+				}
+				j++;
+			}
+		}
+
+		final double common = matches;
+		final var jaro =
+				(common / first.length()
+								+ common / second.length()
+								+ (common - transpositions / 2.0) / common)
+						/ 3;
+		var prefix = 0;
+		final var maxPrefix = Math.min(4, Math.min(first.length(), second.length()));
+		while (prefix < maxPrefix && first.charAt(prefix) == second.charAt(prefix)) {
+			prefix++;
+		}
+		return jaro + prefix * 0.1 * (1 - jaro);
+	}
+}
@@ -0,0 +1,68 @@
+package gr.digital.systems.crm.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.digital.systems.crm.exception.CrmException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends rows as newline delimited JSON to one gzip file per tenant and month, e.g.
+ * acme/2024-05.ndjson.gz under the archive directory. Every append adds a gzip member to the file,
+ * zcat and GZIPInputStream read the members of a file back as a single stream.
+ */
+public class MonthlyArchive {
+
+	private static final String SUFFIX = ".ndjson.gz";
+	private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+	private final Path directory;
+	private final ObjectMapper objectMapper;
+
+	/**
+	 * @param directory The directory of the archive, created on the first append.
+	 * @param objectMapper The mapper used to serialize each row.
+	 */
+	public MonthlyArchive(final Path directory, final ObjectMapper objectMapper) {
+		this.directory = directory;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * Appends the rows to the file of the month and forces it to the device, so the rows can be
+	 * deleted from the database once this returns.
+	 *
+	 * @param tenant The tenant of the rows.
+	 * @param month The month the rows belong to.
+	 * @param rows The rows to append.
+	 * @return The archive file.
+	 */
+	public Path append(final String tenant, final YearMonth month, final List<?> rows) {
+		final var file = this.file(tenant, month);
+		try {
+			Files.createDirectories(file.getParent());
+			try (var fileOutputStream = new FileOutputStream(file.toFile(), true)) {
+				final var gzipOutputStream = new GZIPOutputStream(fileOutputStream, GZIP_BUFFER_SIZE);
+				rows.forEach(NdjsonUtils.lineWriter(this.objectMapper, gzipOutputStream));
+				gzipOutputStream.finish();
+				fileOutputStream.getChannel().force(true);
+			}
+		} catch (final IOException e) {
+			throw new CrmException("Cannot append to the archive " + file, e);
+		}
+		return file;
+	}
+
+	/**
+	 * @param tenant The tenant id.
+	 * @param month The month.
+	 * @return The archive file of the tenant and month, which need not exist.
+	 */
+	public Path file(final String tenant, final YearMonth month) {
+		return this.directory.resolve(tenant).resolve(month + SUFFIX);
+	}
+}
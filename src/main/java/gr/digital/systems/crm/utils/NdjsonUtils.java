@@ -0,0 +1,36 @@
+package gr.digital.systems.crm.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.digital.systems.crm.exception.CrmException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+public class NdjsonUtils {
+
+	private NdjsonUtils() {}
+
+	private static final int NEW_LINE = '\n';
+
+	/**
+	 * Creates a consumer that writes every accepted item as a single JSON line to the given stream.
+	 *
+	 * @param objectMapper The mapper used to serialize each item.
+	 * @param outputStream The stream to write the lines to, it is left open.
+	 * @return Consumer writing newline delimited JSON.
+	 */
+	public static <T> Consumer<T> lineWriter(
+			final ObjectMapper objectMapper, final OutputStream outputStream) {
+		/* The response stream must survive every single value written to it */
+		final var writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		return item -> {
+			try {
+				writer.writeValue(outputStream, item);
+				outputStream.write(NEW_LINE);
+			} catch (final IOException e) {
+				throw new CrmException("Cannot write item to the response stream", e);
+			}
+		};
+	}
+}
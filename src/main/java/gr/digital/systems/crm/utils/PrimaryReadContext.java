@@ -0,0 +1,27 @@
+package gr.digital.systems.crm.utils;
+
+/**
+ * Whether the reads of the current thread must see the latest commit. Read-only transactions are
+ * otherwise served by the replicas, which may lag behind the primary.
+ */
+public final class PrimaryReadContext {
+
+	private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+	private PrimaryReadContext() {}
+
+	public static boolean isActive() {
+		return Boolean.TRUE.equals(PRIMARY.get());
+	}
+
+	/**
+	 * @param active True to read on the primary until it is set back, false to use the replicas.
+	 */
+	public static void set(final boolean active) {
+		if (active) {
+			PRIMARY.set(Boolean.TRUE);
+		} else {
+			PRIMARY.remove();
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package gr.digital.systems.crm.utils;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/** Splits text into the terms of the search index. */
+public final class SearchTerms {
+
+	private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+	private SearchTerms() {}
+
+	/**
+	 * Lower cases the text, strips accents and splits it on everything but letters and digits, so
+	 * "Αθήνα" and "ΑΘΗΝΑ" give the same term.
+	 *
+	 * @param text The text as entered, may be null.
+	 * @return The terms in order of appearance.
+	 */
+	public static List<String> of(final String text) {
+		if (text == null || text.isBlank()) {
+			return List.of();
+		}
+		final var normalized =
+				DIACRITICS
+						.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+						.replaceAll("")
+						.toLowerCase(Locale.ROOT)
+						.replace('ς', 'σ');
+		return Arrays.stream(SEPARATORS.split(normalized)).filter(term -> !term.isEmpty()).toList();
+	}
+
+	/**
+	 * Levenshtein distance of two terms, giving up once it exceeds the bound.
+	 *
+	 * @param first The first term.
+	 * @param second The second term.
+	 * @param max The largest distance of interest.
+	 * @return The distance, or max + 1 when it is larger than max.
+	 */
+	public static int distance(final String first, final String second, final int max) {
+		if (Math.abs(first.length() - second.length()) > max) {
+			return max + 1;
+		}
+		var previous = new int[second.length() + 1];
+		var current = new int[second.length() + 1];
+		for (var j = 0; j <= second.length(); j++) {
+			previous[j] = j;
+		}
+		for (var i = 1; i <= first.length(); i++) {
+			current[0] = i;
+			var rowMin = i;
+			for (var j = 1; j <= second.length(); j++) {
+				final var cost = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+				current[j] =
+						Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if (rowMin > max) {
+				return max + 1;
+			}
+			final var swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return Math.min(previous[second.length()], max + 1);
+	}
+}
@@ -0,0 +1,82 @@
+package gr.digital.systems.crm.utils;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * The tenant the current thread works for. Requests are bound to the tenant of their token, work
+ * handed to other threads carries the tenant of the thread that queued it, and everything else runs
+ * for the default tenant.
+ */
+public final class TenantContext {
+
+	/* Tenant of tokens without a tenant claim, and of all rows written before tenants existed */
+	public static final String DEFAULT_TENANT = "default";
+
+	private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+	private static final ThreadLocal<String> TENANT = new ThreadLocal<>();
+
+	private TenantContext() {}
+
+	/**
+	 * @return The tenant of the current thread, the default tenant when none is bound.
+	 */
+	public static String get() {
+		final var tenant = TENANT.get();
+		return tenant == null ? DEFAULT_TENANT : tenant;
+	}
+
+	/**
+	 * Binds the tenant to the current thread until {@link #clear()}.
+	 *
+	 * @param tenant The tenant id, letters, digits, underscores and dashes only.
+	 */
+	public static void set(final String tenant) {
+		if (!isValid(tenant)) {
+			throw new IllegalArgumentException("Invalid tenant id: " + tenant);
+		}
+		TENANT.set(tenant);
+	}
+
+	public static void clear() {
+		TENANT.remove();
+	}
+
+	public static boolean isValid(final String tenant) {
+		return tenant != null && TENANT_ID.matcher(tenant).matches();
+	}
+
+	/* Restores the previous tenant afterwards, so nested calls and pooled threads stay clean */
+	public static <T> T call(final String tenant, final Supplier<T> supplier) {
+		final var previous = TENANT.get();
+		set(tenant);
+		try {
+			return supplier.get();
+		} finally {
+			if (previous == null) {
+				TENANT.remove();
+			} else {
+				TENANT.set(previous);
+			}
+		}
+	}
+
+	public static void run(final String tenant, final Runnable runnable) {
+		call(
+				tenant,
+				() -> {
+					runnable.run();
+					return null;
+				});
+	}
+
+	/**
+	 * @param runnable Work to run on another thread.
+	 * @return The work bound to the tenant of the calling thread.
+	 */
+	public static Runnable wrap(final Runnable runnable) {
+		final var tenant = get();
+		return () -> run(tenant, runnable);
+	}
+}
@@ -0,0 +1,47 @@
+package gr.digital.systems.crm.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket, kept as the single theoretical arrival time of the generic cell rate
+ * algorithm: every request moves it one emission interval ahead, and a request is refused while it
+ * lies more than the burst ahead of now.
+ */
+public class TokenBucket {
+
+	private final long interval;
+	private final long tolerance;
+	private final AtomicLong arrival;
+
+	/**
+	 * @param rate The tokens added per second.
+	 * @param burst The tokens the bucket holds when full.
+	 * @param now The current {@link System#nanoTime()}.
+	 */
+	public TokenBucket(final double rate, final int burst, final long now) {
+		this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		this.tolerance = this.interval * Math.max(0, burst - 1);
+		this.arrival = new AtomicLong(now);
+	}
+
+	/**
+	 * Takes a token when one is available.
+	 *
+	 * @param now The current {@link System#nanoTime()}.
+	 * @return 0 when a token was taken, otherwise the nanoseconds until the next token.
+	 */
+	public long tryAcquire(final long now) {
+		while (true) {
+			final var current = this.arrival.get();
+			final var start = current - now < 0 ? now : current;
+			final var wait = start - this.tolerance - now;
+			if (wait > 0) {
+				return wait;
+			}
+			if (this.arrival.compareAndSet(current, start + this.interval)) {
+				return 0;
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package gr.digital.systems.crm.utils;
+
+import gr.digital.systems.crm.exception.CrmException;
+import java.io.Writer;
+import java.util.List;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+public class XmlExportWriter implements ExportWriter {
+
+	private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	private final Writer writer;
+	private final String rootElement;
+	private final String rowElement;
+
+	private XMLStreamWriter xmlStreamWriter;
+	private List<String> columns;
+
+	/**
+	 * Creates a StAX backed writer, every row is written as soon as it is received.
+	 *
+	 * @param writer The writer to stream the document to.
+	 * @param rootElement The name of the document element, e.g. customers.
+	 * @param rowElement The name of the element of each row, e.g. customer.
+	 */
+	public XmlExportWriter(final Writer writer, final String rootElement, final String rowElement) {
+		this.writer = writer;
+		this.rootElement = rootElement;
+		this.rowElement = rowElement;
+	}
+
+	@Override
+	public void begin(final List<String> columns) {
+		this.columns = List.copyOf(columns);
+		try {
+			this.xmlStreamWriter = XML_OUTPUT_FACTORY.createXMLStreamWriter(this.writer);
+			this.xmlStreamWriter.writeStartDocument("UTF-8", "1.0");
+			this.xmlStreamWriter.writeStartElement(this.rootElement);
+		} catch (final XMLStreamException e) {
+			throw new CrmException("Cannot write the XML export", e);
+		}
+	}
+
+	@Override
+	public void write(final List<Object> values) {
+		try {
+			this.xmlStreamWriter.writeStartElement(this.rowElement);
+			for (int i = 0; i < this.columns.size(); i++) {
+				final var value = values.get(i);
+				/* Null values are left out instead of written as empty elements */
+				if (value != null) {
+					this.xmlStreamWriter.writeStartElement(this.columns.get(i));
+					this.xmlStreamWriter.writeCharacters(value.toString());
+					this.xmlStreamWriter.writeEndElement();
+				}
+			}
+			this.xmlStreamWriter.writeEndElement();
+		} catch (final XMLStreamException e) {
+			throw new CrmException("Cannot write the XML export", e);
+		}
+	}
+
+	@Override
+	public void end() {
+		try {
+			this.xmlStreamWriter.writeEndElement();
+			this.xmlStreamWriter.writeEndDocument();
+			this.xmlStreamWriter.flush();
+			this.writer.flush();
+		} catch (final Exception e) {
+			throw new CrmException("Cannot write the XML export", e);
+		}
+	}
+}
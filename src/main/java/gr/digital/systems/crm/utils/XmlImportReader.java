@@ -0,0 +1,87 @@
+package gr.digital.systems.crm.utils;
+
+import gr.digital.systems.crm.exception.CrmException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+public class XmlImportReader implements ImportReader {
+
+	private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+	private final Reader reader;
+	private final XMLStreamReader xmlStreamReader;
+	private final String rowElement;
+
+	/**
+	 * Creates a StAX reader, every row element is read as one record and its child elements as the
+	 * fields of the record.
+	 *
+	 * @param reader The reader of the XML content.
+	 * @param rowElement The name of the element of each row, e.g. lead.
+	 */
+	public XmlImportReader(final Reader reader, final String rowElement) {
+		this.reader = reader;
+		this.rowElement = rowElement;
+		try {
+			this.xmlStreamReader = XML_INPUT_FACTORY.createXMLStreamReader(reader);
+		} catch (final XMLStreamException e) {
+			throw new CrmException("Cannot read the XML file", e);
+		}
+	}
+
+	@Override
+	public Map<String, String> next() {
+		try {
+			/* Move to the start of the next row */
+			while (this.xmlStreamReader.hasNext()) {
+				if (this.xmlStreamReader.next() == XMLStreamConstants.START_ELEMENT
+						&& this.rowElement.equals(this.xmlStreamReader.getLocalName())) {
+					return this.readRow();
+				}
+			}
+			return null;
+		} catch (final XMLStreamException e) {
+			throw new CrmException("Cannot read the XML file", e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			this.xmlStreamReader.close();
+		} catch (final XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			this.reader.close();
+		}
+	}
+
+	private Map<String, String> readRow() throws XMLStreamException {
+		final var record = new HashMap<String, String>();
+		while (this.xmlStreamReader.hasNext()) {
+			final var event = this.xmlStreamReader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				final var field = this.xmlStreamReader.getLocalName();
+				record.put(field, this.xmlStreamReader.getElementText());
+			} else if (event == XMLStreamConstants.END_ELEMENT
+					&& this.rowElement.equals(this.xmlStreamReader.getLocalName())) {
+				break;
+			}
+		}
+		return record;
+	}
+
+	/* Uploaded files are untrusted, DTDs and external entities are never resolved */
+	private static XMLInputFactory createInputFactory() {
+		final var factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+}
@@ -0,0 +1,59 @@
+package gr.digital.systems.crm.component;
+
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.service.CustomerService;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdSequenceSeederTests {
+
+	@Autowired private IdSequenceSeeder idSequenceSeeder;
+	@Autowired private CustomerService customerService;
+	@Autowired private JdbcTemplate jdbcTemplate;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	@Test
+	void generatedIdsMovePastRowsInsertedWithoutTheSequence() {
+		/* A row of the IDENTITY era, far above the values the sequence handed out so far */
+		final var existing =
+				this.jdbcTemplate.queryForObject("select coalesce(max(id), 0) from BaseEntity", Long.class)
+						+ 10_000;
+		/* The pool does not auto-commit */
+		new TransactionTemplate(this.transactionManager)
+				.executeWithoutResult(
+						status ->
+								this.jdbcTemplate.update(
+										"insert into BaseEntity (DTYPE, id, version, name) values ('Customer', ?, 0, ?)",
+										existing,
+										"Identity era"));
+
+		this.idSequenceSeeder.seed();
+
+		/* The ids already allocated in memory are used up first, the next block starts past the row */
+		final var ids =
+				this.customerService
+						.createAll(
+								IntStream.range(0, 51)
+										.mapToObj(i -> new Customer("After seeding " + i, null, null, null))
+										.toList())
+						.stream()
+						.map(Customer::getId)
+						.toList();
+		Assertions.assertFalse(ids.contains(existing));
+		Assertions.assertTrue(ids.get(ids.size() - 1) > existing);
+
+		/* Seeding again leaves a sequence that is already past the rows alone */
+		this.idSequenceSeeder.seed();
+		Assertions.assertTrue(
+				this.customerService.create(new Customer("Later", null, null, null)).getId() > existing);
+	}
+}
@@ -0,0 +1,85 @@
+package gr.digital.systems.crm.component;
+
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class JwtRequestFilterTests {
+
+	private static final String KEY = "your-very-strong-test-character-secret-key";
+
+	private SimpleMeterRegistry meterRegistry;
+	private JwtRequestFilter jwtRequestFilter;
+
+	@BeforeEach
+	void setUp() {
+		final var environmentPropertiesConfig = Mockito.mock(EnvironmentPropertiesConfig.class);
+		Mockito.when(environmentPropertiesConfig.getJwtKey()).thenReturn(KEY);
+		Mockito.when(environmentPropertiesConfig.getJwtCacheMaxSize()).thenReturn(100L);
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.jwtRequestFilter = new JwtRequestFilter(environmentPropertiesConfig, this.meterRegistry);
+	}
+
+	@Test
+	void repeatedTokenIsVerifiedOnce() {
+		final var token = this.token(KEY, new Date(System.currentTimeMillis() + 60_000));
+
+		Assertions.assertEquals("nginx-api", this.jwtRequestFilter.verify(token).getSubject());
+		Assertions.assertEquals("nginx-api", this.jwtRequestFilter.verify(token).getSubject());
+
+		Assertions.assertEquals(1, this.count("miss"));
+		Assertions.assertEquals(1, this.count("hit"));
+		Assertions.assertEquals(1, this.meterRegistry.get("jwt.parse").timer().count());
+	}
+
+	@Test
+	void tokenSignedWithAnotherKeyIsRejectedAndNotCached() {
+		final var token =
+				this.token(
+						"another-very-strong-test-character-secret-key",
+						new Date(System.currentTimeMillis() + 60_000));
+
+		Assertions.assertThrows(Exception.class, () -> this.jwtRequestFilter.verify(token));
+		Assertions.assertThrows(Exception.class, () -> this.jwtRequestFilter.verify(token));
+
+		Assertions.assertEquals(2, this.count("miss"));
+		Assertions.assertEquals(0, this.count("hit"));
+	}
+
+	@Test
+	void tenantIsReadFromTheConfiguredClaim() {
+		final var environmentPropertiesConfig = Mockito.mock(EnvironmentPropertiesConfig.class);
+		Mockito.when(environmentPropertiesConfig.getJwtKey()).thenReturn(KEY);
+		Mockito.when(environmentPropertiesConfig.getJwtCacheMaxSize()).thenReturn(100L);
+		Mockito.when(environmentPropertiesConfig.getTenantClaim()).thenReturn("tenant");
+		final var filter = new JwtRequestFilter(environmentPropertiesConfig, this.meterRegistry);
+		final var claims = Jwts.claims().setSubject("nginx-api");
+
+		/* Tokens without the claim, or any token when no claim is configured, use the default */
+		Assertions.assertEquals(TenantContext.DEFAULT_TENANT, filter.tenantOf(claims));
+		claims.put("tenant", "acme");
+		Assertions.assertEquals("acme", filter.tenantOf(claims));
+		Assertions.assertEquals(TenantContext.DEFAULT_TENANT, this.jwtRequestFilter.tenantOf(claims));
+	}
+
+	private String token(final String key, final Date expiration) {
+		return Jwts.builder()
+				.setIssuer("nginx")
+				.setSubject("nginx-api")
+				.setExpiration(expiration)
+				.signWith(Keys.hmacShaKeyFor(key.getBytes(StandardCharsets.UTF_8)))
+				.compact();
+	}
+
+	private double count(final String result) {
+		return this.meterRegistry.get("jwt.verification.cache").tag("result", result).counter().count();
+	}
+}
@@ -0,0 +1,116 @@
+package gr.digital.systems.crm.component;
+
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class RateLimitFilterTests {
+
+	private SimpleMeterRegistry meterRegistry;
+	private RateLimitFilter rateLimitFilter;
+
+	@BeforeEach
+	void setUp() {
+		final var environmentPropertiesConfig = Mockito.mock(EnvironmentPropertiesConfig.class);
+		Mockito.when(environmentPropertiesConfig.isRateLimitEnabled()).thenReturn(true);
+		Mockito.when(environmentPropertiesConfig.getRateLimitRate()).thenReturn(1d);
+		Mockito.when(environmentPropertiesConfig.getRateLimitBurst()).thenReturn(3);
+		Mockito.when(environmentPropertiesConfig.getRateLimitBucketsMaxSize()).thenReturn(100L);
+		Mockito.when(environmentPropertiesConfig.getRateLimitMinInFlight()).thenReturn(1);
+		Mockito.when(environmentPropertiesConfig.getRateLimitMaxInFlight()).thenReturn(2);
+		Mockito.when(environmentPropertiesConfig.getRateLimitDbWaitThreshold()).thenReturn(50d);
+		Mockito.when(environmentPropertiesConfig.getRateLimitProxySubjects())
+				.thenReturn(Set.of("nginx-api"));
+		Mockito.when(environmentPropertiesConfig.getRateLimitClientHeader()).thenReturn("X-Real-IP");
+		this.meterRegistry = new SimpleMeterRegistry();
+		this.rateLimitFilter = new RateLimitFilter(environmentPropertiesConfig, this.meterRegistry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.rateLimitFilter.destroy();
+	}
+
+	@Test
+	void subjectOverItsBurstIsRefusedWithoutAffectingOthers() throws Exception {
+		for (var i = 0; i < 3; i++) {
+			Assertions.assertEquals(200, this.filter("alice").getStatus());
+		}
+		final var refused = this.filter("alice");
+
+		Assertions.assertEquals(429, refused.getStatus());
+		Assertions.assertEquals("1", refused.getHeader(HttpHeaders.RETRY_AFTER));
+		Assertions.assertEquals(200, this.filter("bob").getStatus());
+		Assertions.assertEquals(
+				1,
+				this.meterRegistry.get("crm.ratelimit.rejected").tag("reason", "rate").counter().count());
+	}
+
+	@Test
+	void requestsSignedByTheProxyAreLimitedPerClient() throws Exception {
+		for (var i = 0; i < 3; i++) {
+			Assertions.assertEquals(200, this.filter("nginx-api", "10.0.0.1").getStatus());
+		}
+		Assertions.assertEquals(429, this.filter("nginx-api", "10.0.0.1").getStatus());
+
+		/* Another client behind the same proxy keeps its own budget */
+		Assertions.assertEquals(200, this.filter("nginx-api", "10.0.0.2").getStatus());
+	}
+
+	@Test
+	void slowConnectionsShrinkTheInFlightLimitAndShed() throws Exception {
+		final var acquire = Timer.builder("hikaricp.connections.acquire").register(this.meterRegistry);
+		acquire.record(Duration.ofMillis(200));
+		this.rateLimitFilter.adjust();
+		Assertions.assertEquals(1, this.rateLimitFilter.getInFlightLimit());
+
+		/* A second request while the first is being served */
+		final var nested = new MockHttpServletResponse();
+		final var first = new MockHttpServletResponse();
+		this.rateLimitFilter.doFilter(
+				this.request("alice"),
+				first,
+				(request, response) ->
+						this.rateLimitFilter.doFilter(this.request("bob"), nested, new MockFilterChain()));
+		Assertions.assertEquals(200, first.getStatus());
+		Assertions.assertEquals(503, nested.getStatus());
+		Assertions.assertEquals("1", nested.getHeader(HttpHeaders.RETRY_AFTER));
+
+		/* Fast connections and requests turned away at the limit grow it back */
+		acquire.record(Duration.ofMillis(1));
+		this.rateLimitFilter.adjust();
+		Assertions.assertEquals(2, this.rateLimitFilter.getInFlightLimit());
+	}
+
+	private MockHttpServletResponse filter(final String subject) throws Exception {
+		return this.filter(subject, null);
+	}
+
+	private MockHttpServletResponse filter(final String subject, final String client)
+			throws Exception {
+		final var request = this.request(subject);
+		if (client != null) {
+			request.addHeader("X-Real-IP", client);
+		}
+		final var response = new MockHttpServletResponse();
+		this.rateLimitFilter.doFilter(request, response, new MockFilterChain());
+		return response;
+	}
+
+	private MockHttpServletRequest request(final String subject) {
+		final var request = new MockHttpServletRequest("GET", "/api/v1/customers/findAll");
+		request.setAttribute(JwtRequestFilter.SUBJECT_ATTRIBUTE, subject);
+		return request;
+	}
+}
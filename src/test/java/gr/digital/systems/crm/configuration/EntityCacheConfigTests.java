@@ -0,0 +1,108 @@
+package gr.digital.systems.crm.configuration;
+
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.service.CustomerService;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class EntityCacheConfigTests {
+
+	private static final String OTHER_TENANT = "cache-other";
+
+	@Autowired private CustomerService customerService;
+	@Autowired private CacheManager cacheManager;
+	@Autowired private MeterRegistry meterRegistry;
+	@Autowired private NamedParameterJdbcTemplate jdbcTemplate;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	@Test
+	void lookupsAreServedFromTheCacheUntilTheServiceWritesTheEntity() {
+		final var id = this.customerService.create(new Customer("Cached", null, null, null)).getId();
+		Assertions.assertEquals("Cached", this.customerService.get(id).getName());
+
+		/* A write that bypasses the service is not seen while the entry lives */
+		this.rename(id, "Bypassed");
+		Assertions.assertEquals("Cached", this.customerService.get(id).getName());
+		Assertions.assertEquals("Cached", this.cached(EntityCacheConfig.CUSTOMERS, id).getName());
+
+		/* An update refreshes the entry, a patch evicts it */
+		final var customer = this.customerService.get(id);
+		customer.setName("Updated");
+		this.customerService.update(customer);
+		Assertions.assertEquals("Updated", this.cached(EntityCacheConfig.CUSTOMERS, id).getName());
+		this.customerService.patch(id, Map.of("name", "Patched"), null);
+		Assertions.assertNull(this.cached(EntityCacheConfig.CUSTOMERS, id));
+		Assertions.assertEquals("Patched", this.customerService.get(id).getName());
+
+		this.customerService.deleteById(id);
+		Assertions.assertNull(this.cached(EntityCacheConfig.CUSTOMERS, id));
+		Assertions.assertThrows(CrmException.class, () -> this.customerService.get(id));
+
+		Assertions.assertTrue(
+				this.meterRegistry
+								.get("cache.gets")
+								.tags("cache", EntityCacheConfig.CUSTOMERS, "result", "hit")
+								.functionCounter()
+								.count()
+						>= 1);
+	}
+
+	@Test
+	void callersChangeTheirOwnCopiesOfACachedEntity() {
+		final var id = this.customerService.create(new Customer("Shared", null, null, null)).getId();
+		final var read = this.customerService.get(id);
+		read.setName("Changed by a reader");
+		Assertions.assertEquals("Shared", this.customerService.get(id).getName());
+		Assertions.assertNotSame(this.customerService.get(id), this.customerService.get(id));
+
+		/* The instance an update returns is not the cached one either */
+		final var updated = this.customerService.update(this.customerService.get(id));
+		updated.setName("Changed by a writer");
+		Assertions.assertEquals("Shared", this.cached(EntityCacheConfig.CUSTOMERS, id).getName());
+		Assertions.assertEquals("Shared", this.customerService.get(id).getName());
+	}
+
+	@Test
+	void everyTenantHasItsOwnCache() {
+		final var id =
+				TenantContext.call(
+						OTHER_TENANT,
+						() -> {
+							final var created =
+									this.customerService.create(new Customer("Other tenant", null, null, null));
+							return this.customerService.get(created.getId()).getId();
+						});
+
+		final var otherCache = EntityCacheConfig.cacheName(EntityCacheConfig.CUSTOMERS, OTHER_TENANT);
+		Assertions.assertEquals("customers:" + OTHER_TENANT, otherCache);
+		Assertions.assertNotNull(this.cached(otherCache, id));
+		Assertions.assertNull(this.cached(EntityCacheConfig.CUSTOMERS, id));
+		Assertions.assertThrows(CrmException.class, () -> this.customerService.get(id));
+	}
+
+	private Customer cached(final String cacheName, final Long id) {
+		return this.cacheManager.getCache(cacheName).get(id, Customer.class);
+	}
+
+	private void rename(final Long id, final String name) {
+		new TransactionTemplate(this.transactionManager)
+				.executeWithoutResult(
+						status ->
+								this.jdbcTemplate.update(
+										"update BaseEntity set name = :name where id = :id",
+										Map.of("name", name, "id", id)));
+	}
+}
@@ -0,0 +1,131 @@
+package gr.digital.systems.crm.configuration;
+
+import gr.digital.systems.crm.component.PrimaryRead;
+import gr.digital.systems.crm.component.PrimaryReadAspect;
+import gr.digital.systems.crm.utils.PrimaryReadContext;
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ReplicaRoutingDataSourceTests {
+
+	private static final String LAG_QUERY = "select Seconds_Behind_Source from replica_status";
+
+	private final List<DriverManagerDataSource> nodes =
+			List.of(node("primary"), node("replica0"), node("replica1"));
+
+	private ReplicaRoutingDataSource routingDataSource;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate writeTemplate;
+	private TransactionTemplate readTemplate;
+
+	@BeforeEach
+	void setUp() {
+		for (final var node : this.nodes) {
+			final var jdbc = new JdbcTemplate(node);
+			jdbc.execute("create table node (name varchar(20))");
+			jdbc.execute("create table replica_status (Seconds_Behind_Source bigint)");
+			jdbc.update("insert into node values (?)", node.getUrl().replaceAll(".*:mem:(\\w+).*", "$1"));
+		}
+		this.routingDataSource =
+				new ReplicaRoutingDataSource(
+						this.nodes.get(0), this.nodes.subList(1, 3), LAG_QUERY, "Seconds_Behind_Source", 5, 0);
+		final var dataSource = new LazyConnectionDataSourceProxy(this.routingDataSource);
+		final var transactionManager = new DataSourceTransactionManager(dataSource);
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.writeTemplate = new TransactionTemplate(transactionManager);
+		this.readTemplate = new TransactionTemplate(transactionManager);
+		this.readTemplate.setReadOnly(true);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		for (final var node : this.nodes) {
+			new JdbcTemplate(node).execute("shutdown");
+		}
+		this.routingDataSource.close();
+	}
+
+	@Test
+	void readOnlyTransactionsAlternateBetweenReplicas() {
+		Assertions.assertEquals("primary", this.name(this.writeTemplate));
+		Assertions.assertEquals(
+				"primary", this.jdbcTemplate.queryForObject("select name from node", String.class));
+		Assertions.assertEquals(
+				List.of("replica0", "replica1", "replica0", "replica1"),
+				List.of(
+						this.name(this.readTemplate),
+						this.name(this.readTemplate),
+						this.name(this.readTemplate),
+						this.name(this.readTemplate)));
+	}
+
+	@Test
+	void laggingOrStoppedReplicasAreSkipped() {
+		new JdbcTemplate(this.nodes.get(1)).update("insert into replica_status values (30)");
+		this.routingDataSource.checkHealth();
+		Assertions.assertEquals("replica1", this.name(this.readTemplate));
+		Assertions.assertEquals("replica1", this.name(this.readTemplate));
+
+		/* No healthy replica left, reads fail over to the primary */
+		new JdbcTemplate(this.nodes.get(2)).update("insert into replica_status values (null)");
+		this.routingDataSource.checkHealth();
+		Assertions.assertEquals("primary", this.name(this.readTemplate));
+
+		new JdbcTemplate(this.nodes.get(1))
+				.update("update replica_status set Seconds_Behind_Source = 1");
+		this.routingDataSource.checkHealth();
+		Assertions.assertEquals("replica0", this.name(this.readTemplate));
+	}
+
+	@Test
+	void primaryReadsSkipTheReplicasEvenWhenReadOnly() {
+		final var factory = new AspectJProxyFactory(new Reader(this));
+		factory.setProxyTargetClass(true);
+		factory.addAspect(new PrimaryReadAspect());
+		final Reader reader = factory.getProxy();
+
+		Assertions.assertEquals("primary", reader.primaryRead());
+		Assertions.assertFalse(PrimaryReadContext.isActive());
+		Assertions.assertEquals("replica0", reader.read());
+		Assertions.assertEquals("primary", reader.primaryRead());
+		Assertions.assertEquals("replica1", reader.read());
+	}
+
+	/* A service reading in read-only transactions, one of its reads marked for the primary */
+	static class Reader {
+
+		private final ReplicaRoutingDataSourceTests tests;
+
+		Reader(final ReplicaRoutingDataSourceTests tests) {
+			this.tests = tests;
+		}
+
+		@PrimaryRead
+		public String primaryRead() {
+			return this.tests.name(this.tests.readTemplate);
+		}
+
+		public String read() {
+			return this.tests.name(this.tests.readTemplate);
+		}
+	}
+
+	private String name(final TransactionTemplate transactionTemplate) {
+		return transactionTemplate.execute(
+				status -> this.jdbcTemplate.queryForObject("select name from node", String.class));
+	}
+
+	private static DriverManagerDataSource node(final String name) {
+		return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+	}
+}
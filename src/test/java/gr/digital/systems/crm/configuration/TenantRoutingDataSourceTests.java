@@ -0,0 +1,120 @@
+package gr.digital.systems.crm.configuration;
+
+import gr.digital.systems.crm.utils.TenantContext;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class TenantRoutingDataSourceTests {
+
+	private final List<DriverManagerDataSource> nodes = List.of(node("shared"), node("large"));
+
+	private TenantRoutingDataSource routingDataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		for (final var node : this.nodes) {
+			final var jdbc = new JdbcTemplate(node);
+			jdbc.execute("create table node (name varchar(20))");
+			jdbc.update("insert into node values (?)", node.getUrl().replaceAll(".*:mem:(\\w+).*", "$1"));
+		}
+		this.routingDataSource =
+				new TenantRoutingDataSource(this.nodes.get(0), Map.of("large", this.nodes.get(1)), 2, 50);
+		this.jdbcTemplate = new JdbcTemplate(this.routingDataSource);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		for (final var node : this.nodes) {
+			new JdbcTemplate(node).execute("shutdown");
+		}
+		this.routingDataSource.close();
+	}
+
+	@Test
+	void tenantsWithADataSourceOfTheirOwnAreRoutedToIt() {
+		Assertions.assertEquals("shared", this.name(TenantContext.DEFAULT_TENANT));
+		Assertions.assertEquals("shared", this.name("small"));
+		Assertions.assertEquals("large", this.name("large"));
+	}
+
+	@Test
+	void aTenantCannotHoldMoreSharedConnectionsThanItsBudget() throws Exception {
+		final var executor = Executors.newFixedThreadPool(3);
+		try {
+			final var first = this.connect(executor, "busy").get();
+			final var second = this.connect(executor, "busy").get();
+			Assertions.assertEquals(0, this.routingDataSource.available("busy"));
+
+			/* The budget of the busy tenant is spent, the other tenants still get connections */
+			final var third = this.connect(executor, "busy");
+			final var failure = Assertions.assertThrows(ExecutionException.class, third::get);
+			Assertions.assertInstanceOf(SQLTransientConnectionException.class, failure.getCause());
+			Assertions.assertEquals("shared", this.name("quiet"));
+
+			first.close();
+			first.close();
+			Assertions.assertEquals(1, this.routingDataSource.available("busy"));
+			this.connect(executor, "busy").get().close();
+			second.close();
+			Assertions.assertEquals(2, this.routingDataSource.available("busy"));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void aThreadHoldingAConnectionOpensMoreWithoutWaitingForItself() throws SQLException {
+		TenantContext.set("busy");
+		try {
+			/* E.g. the isolated connection of the id generator inside a transaction */
+			final var outer = this.routingDataSource.getConnection();
+			final var inner = this.routingDataSource.getConnection();
+			final var another = this.routingDataSource.getConnection();
+			Assertions.assertEquals(1, this.routingDataSource.available("busy"));
+
+			inner.close();
+			another.close();
+			Assertions.assertEquals(1, this.routingDataSource.available("busy"));
+			outer.close();
+			Assertions.assertEquals(2, this.routingDataSource.available("busy"));
+		} finally {
+			TenantContext.clear();
+		}
+	}
+
+	private Future<Connection> connect(final ExecutorService executor, final String tenant) {
+		return executor.submit(
+				() -> {
+					TenantContext.set(tenant);
+					try {
+						return this.routingDataSource.getConnection();
+					} finally {
+						TenantContext.clear();
+					}
+				});
+	}
+
+	private String name(final String tenant) {
+		return TenantContext.call(
+				tenant, () -> this.jdbcTemplate.queryForObject("select name from node", String.class));
+	}
+
+	private static DriverManagerDataSource node(final String name) {
+		return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+	}
+}
@@ -0,0 +1,83 @@
+package gr.digital.systems.crm.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+/** Sends authenticated requests through the whole filter chain of one shared test context. */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+abstract class BaseControllerTests {
+
+	@Autowired protected MockMvc mockMvc;
+	@Autowired protected ObjectMapper objectMapper;
+
+	@Value("${jwt.key}")
+	private String jwtKey;
+
+	/**
+	 * @param request The request to send, signed for the default tenant.
+	 * @return The response, after the async dispatch of streamed and deferred results.
+	 */
+	protected MockHttpServletResponse perform(final MockHttpServletRequestBuilder request)
+			throws Exception {
+		return this.perform(request, null);
+	}
+
+	/**
+	 * @param request The request to send.
+	 * @param tenant The tenant claim of the token, null for a token without one.
+	 * @return The response, after the async dispatch of streamed and deferred results.
+	 */
+	protected MockHttpServletResponse perform(
+			final MockHttpServletRequestBuilder request, final String tenant) throws Exception {
+		final var result = this.mockMvc.perform(request.header("X-JWT-Token", this.token(tenant)));
+		if (result.andReturn().getRequest().isAsyncStarted()) {
+			return this.mockMvc
+					.perform(MockMvcRequestBuilders.asyncDispatch(result.andReturn()))
+					.andReturn()
+					.getResponse();
+		}
+		return result.andReturn().getResponse();
+	}
+
+	/* The data of an ApiResponse body */
+	protected JsonNode data(final MockHttpServletResponse response) throws Exception {
+		return this.objectMapper.readTree(response.getContentAsByteArray()).get("data");
+	}
+
+	protected MockHttpServletRequestBuilder json(
+			final MockHttpServletRequestBuilder request, final Object body) throws Exception {
+		return request
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(this.objectMapper.writeValueAsString(body));
+	}
+
+	private String token(final String tenant) {
+		final var builder =
+				Jwts.builder()
+						.setIssuer("nginx")
+						.setSubject("nginx-api")
+						.setExpiration(new Date(System.currentTimeMillis() + 600_000));
+		if (tenant != null) {
+			builder.claim("tenant", tenant);
+		}
+		return builder
+				.signWith(Keys.hmacShaKeyFor(this.jwtKey.getBytes(StandardCharsets.UTF_8)))
+				.compact();
+	}
+}
@@ -0,0 +1,206 @@
+package gr.digital.systems.crm.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+class CustomerControllerTests extends BaseControllerTests {
+
+	@Test
+	void updateRequiresAndChecksTheVersion() throws Exception {
+		final var id = this.create("Versioned");
+
+		Assertions.assertEquals(1, this.put(id, "First", 0L, null).get("version").asLong());
+
+		/* Stale in the body or in If-Match */
+		Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED.value(), this.putStatus(id, 0L, null));
+		Assertions.assertEquals(HttpStatus.PRECONDITION_FAILED.value(), this.putStatus(id, 1L, "0"));
+
+		/* If-Match takes precedence over the body */
+		Assertions.assertEquals(2, this.put(id, "Second", 0L, "\"1\"").get("version").asLong());
+
+		/* Without any version the update is refused rather than overwriting */
+		Assertions.assertEquals(
+				HttpStatus.PRECONDITION_REQUIRED.value(), this.putStatus(id, null, null));
+		final var customer = this.find(id);
+		Assertions.assertEquals("Second", customer.get("name").asText());
+		Assertions.assertEquals(2, customer.get("version").asLong());
+	}
+
+	@Test
+	void patchChecksTheVersionOnlyWhenOneIsSent() throws Exception {
+		final var id = this.create("Patched");
+
+		final var matching = this.patch(id, "First", "0");
+		Assertions.assertEquals(HttpStatus.OK.value(), matching.getStatus());
+		Assertions.assertEquals("\"1\"", matching.getHeader(HttpHeaders.ETAG));
+
+		Assertions.assertEquals(
+				HttpStatus.PRECONDITION_FAILED.value(), this.patch(id, "Stale", "0").getStatus());
+		Assertions.assertEquals("First", this.find(id).get("name").asText());
+
+		Assertions.assertEquals(HttpStatus.OK.value(), this.patch(id, "Second", null).getStatus());
+		final var customer = this.find(id);
+		Assertions.assertEquals("Second", customer.get("name").asText());
+		Assertions.assertEquals(2, customer.get("version").asLong());
+	}
+
+	@Test
+	void projectionsSelectOnlyPublicFields() throws Exception {
+		this.create("Projected");
+
+		final var projected =
+				this.perform(MockMvcRequestBuilders.get("/api/v1/customers/findAll?fields=name,email"));
+		Assertions.assertEquals(HttpStatus.OK.value(), projected.getStatus());
+		final var first = this.data(projected).get(0);
+		Assertions.assertTrue(first.has("id"));
+		Assertions.assertTrue(first.has("name"));
+		Assertions.assertFalse(first.has("version"));
+
+		for (final var internal : List.of("version", "lastModified", "tenantId", "deletedAt")) {
+			Assertions.assertEquals(
+					HttpStatus.BAD_REQUEST.value(),
+					this.perform(
+									MockMvcRequestBuilders.get("/api/v1/customers/findAll?fields=name," + internal))
+							.getStatus());
+		}
+	}
+
+	@Test
+	void negotiatedResponsesVaryByAccept() throws Exception {
+		final var id = this.create("Negotiated");
+
+		final var json = this.perform(MockMvcRequestBuilders.get("/api/v1/customers/find/" + id));
+		final var cbor =
+				this.perform(
+						MockMvcRequestBuilders.get("/api/v1/customers/find/" + id)
+								.accept(MediaType.parseMediaType("application/cbor")));
+		Assertions.assertEquals(MediaType.APPLICATION_JSON_VALUE, json.getContentType());
+		Assertions.assertEquals("application/cbor", cbor.getContentType());
+		Assertions.assertTrue(json.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+		Assertions.assertTrue(cbor.getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT));
+	}
+
+	@Test
+	void pagesFollowTheCursorAndTheStreamWritesOneLinePerCustomer() throws Exception {
+		final var first = this.create("Keyset 1");
+		final var second = this.create("Keyset 2");
+		final var third = this.create("Keyset 3");
+
+		final var page =
+				this.data(
+						this.perform(
+								MockMvcRequestBuilders.get(
+										"/api/v1/customers/findAll/page?size=2&after=" + (first - 1))));
+		Assertions.assertEquals(List.of(first, second), this.ids(page.get("items")));
+		Assertions.assertTrue(page.get("hasMore").asBoolean());
+		Assertions.assertEquals(second, page.get("nextCursor").asLong());
+
+		final var last =
+				this.data(
+						this.perform(
+								MockMvcRequestBuilders.get(
+										"/api/v1/customers/findAll/page?size=2&after=" + second)));
+		Assertions.assertEquals(List.of(third), this.ids(last.get("items")));
+		Assertions.assertFalse(last.get("hasMore").asBoolean());
+		Assertions.assertTrue(last.get("nextCursor").isNull());
+
+		final var stream =
+				this.perform(
+						MockMvcRequestBuilders.get("/api/v1/customers/findAll/stream")
+								.accept(MediaType.APPLICATION_NDJSON));
+		Assertions.assertEquals(HttpStatus.OK.value(), stream.getStatus());
+		Assertions.assertEquals(MediaType.APPLICATION_NDJSON_VALUE, stream.getContentType());
+		final var streamed = new ArrayList<Long>();
+		for (final var line : stream.getContentAsString().split("\n")) {
+			streamed.add(this.objectMapper.readTree(line).get("id").asLong());
+		}
+		Assertions.assertTrue(streamed.containsAll(List.of(first, second, third)));
+		/* Rows come off the cursor in id order */
+		Assertions.assertEquals(streamed.stream().sorted().toList(), streamed);
+	}
+
+	@Test
+	void searchFiltersByNamePrefixAndEmail() throws Exception {
+		final var first = this.create("Searched-one");
+		final var second = this.create("Searched-two");
+		this.create("Unsearched");
+
+		final var byPrefix =
+				this.data(
+						this.perform(MockMvcRequestBuilders.get("/api/v1/customers/search?name=Searched")));
+		Assertions.assertEquals(List.of(first, second), this.ids(byPrefix.get("items")));
+		final var byEmail =
+				this.data(
+						this.perform(
+								MockMvcRequestBuilders.get(
+										"/api/v1/customers/search?name=Searched&email=searched-two@test.gr")));
+		Assertions.assertEquals(List.of(second), this.ids(byEmail.get("items")));
+	}
+
+	private long create(final String name) throws Exception {
+		return this.data(
+						this.perform(
+								this.json(
+										MockMvcRequestBuilders.post("/api/v1/customers/create"),
+										Map.of("name", name, "email", name.toLowerCase() + "@test.gr"))))
+				.get("id")
+				.asLong();
+	}
+
+	private List<Long> ids(final JsonNode items) {
+		final var ids = new ArrayList<Long>();
+		items.forEach(item -> ids.add(item.get("id").asLong()));
+		return ids;
+	}
+
+	private JsonNode find(final long id) throws Exception {
+		return this.data(this.perform(MockMvcRequestBuilders.get("/api/v1/customers/find/" + id)));
+	}
+
+	private JsonNode put(final long id, final String name, final Long version, final String ifMatch)
+			throws Exception {
+		final var response = this.putResponse(id, name, version, ifMatch);
+		Assertions.assertEquals(HttpStatus.OK.value(), response.getStatus());
+		return this.data(response);
+	}
+
+	private int putStatus(final long id, final Long version, final String ifMatch) throws Exception {
+		return this.putResponse(id, "Rejected", version, ifMatch).getStatus();
+	}
+
+	private MockHttpServletResponse putResponse(
+			final long id, final String name, final Long version, final String ifMatch) throws Exception {
+		final var body = new LinkedHashMap<String, Object>();
+		body.put("id", id);
+		body.put("name", name);
+		if (version != null) {
+			body.put("version", version);
+		}
+		final var request = this.json(MockMvcRequestBuilders.put("/api/v1/customers/update"), body);
+		if (ifMatch != null) {
+			request.header(HttpHeaders.IF_MATCH, ifMatch);
+		}
+		return this.perform(request);
+	}
+
+	private MockHttpServletResponse patch(final long id, final String name, final String ifMatch)
+			throws Exception {
+		final var request =
+				this.json(
+						MockMvcRequestBuilders.patch("/api/v1/customers/update/" + id), Map.of("name", name));
+		if (ifMatch != null) {
+			request.header(HttpHeaders.IF_MATCH, ifMatch);
+		}
+		return this.perform(request);
+	}
+}
@@ -0,0 +1,62 @@
+package gr.digital.systems.crm.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+class LeadControllerTests extends BaseControllerTests {
+
+	@Test
+	void searchCombinesTheCriteriaAndPagesTheMatches() throws Exception {
+		final var fair = this.create("Filter_A fair", "fair@filter.example", "2100000001", "fair");
+		final var web = this.create("Filter_A web", "web@filter.example", "2100000002", "web");
+		/* The underscore of the prefix is matched literally, not as a wildcard */
+		this.create("FilterXA wildcard", "wildcard@filter.example", "2100000003", "fair");
+
+		Assertions.assertEquals(List.of(fair, web), this.search("name=Filter_A"));
+		Assertions.assertEquals(List.of(fair), this.search("name=Filter_A&source=fair"));
+		Assertions.assertEquals(List.of(web), this.search("email=web@filter.example"));
+		Assertions.assertEquals(List.of(web), this.search("phone=2100000002&name=Filter"));
+		Assertions.assertEquals(List.of(), this.search("name=Filter_A&source=web&phone=2100000001"));
+
+		final var page = this.page("name=Filter_A&size=1");
+		Assertions.assertTrue(page.get("hasMore").asBoolean());
+		Assertions.assertEquals(fair, page.get("nextCursor").asLong());
+		final var last = this.page("name=Filter_A&size=1&after=" + fair);
+		Assertions.assertEquals(List.of(web), this.ids(last));
+		Assertions.assertFalse(last.get("hasMore").asBoolean());
+	}
+
+	private long create(
+			final String name, final String email, final String phone, final String source)
+			throws Exception {
+		return this.data(
+						this.perform(
+								this.json(
+										MockMvcRequestBuilders.post("/api/v1/leads/create"),
+										Map.of("name", name, "email", email, "phone", phone, "source", source))))
+				.get("id")
+				.asLong();
+	}
+
+	private List<Long> search(final String query) throws Exception {
+		return this.ids(this.page(query));
+	}
+
+	private JsonNode page(final String query) throws Exception {
+		final var response = this.perform(MockMvcRequestBuilders.get("/api/v1/leads/search?" + query));
+		Assertions.assertEquals(HttpStatus.OK.value(), response.getStatus());
+		return this.data(response);
+	}
+
+	private List<Long> ids(final JsonNode page) {
+		final var ids = new ArrayList<Long>();
+		page.get("items").forEach(item -> ids.add(item.get("id").asLong()));
+		return ids;
+	}
+}
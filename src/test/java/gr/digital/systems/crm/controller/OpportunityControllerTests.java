@@ -0,0 +1,145 @@
+package gr.digital.systems.crm.controller;
+
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+class OpportunityControllerTests extends BaseControllerTests {
+
+	@Test
+	void theCustomerCanBeNamedByItsIdAlone() throws Exception {
+		final var customerId = this.createCustomer("Referenced");
+		final var id = this.createOpportunity(customerId, "Referencing");
+
+		Assertions.assertEquals(
+				"Referenced",
+				this.data(this.perform(MockMvcRequestBuilders.get("/api/v1/opportunities/find/" + id)))
+						.get("customer")
+						.get("name")
+						.asText());
+	}
+
+	@Test
+	void anUpdateKeepsTheTenantOfTheOpportunity() throws Exception {
+		final var customerId = this.createCustomer("Updated");
+		final var id = this.createOpportunity(customerId, "Updating");
+
+		final var updated =
+				this.perform(
+						this.json(
+								MockMvcRequestBuilders.put("/api/v1/opportunities/update"),
+								Map.of(
+										"id",
+										id,
+										"version",
+										0,
+										"description",
+										"Updated",
+										"value",
+										2000,
+										"status",
+										"WON",
+										"customer",
+										Map.of("id", customerId))));
+		Assertions.assertEquals(HttpStatus.OK.value(), updated.getStatus());
+		Assertions.assertEquals(
+				"WON",
+				this.data(this.perform(MockMvcRequestBuilders.get("/api/v1/opportunities/find/" + id)))
+						.get("status")
+						.asText());
+	}
+
+	@Test
+	void findIsRevalidatedWhenTheEmbeddedCustomerChanges() throws Exception {
+		final var customerId = this.createCustomer("Embedded");
+		final var id = this.createOpportunity(customerId, "Embedding");
+
+		final var found = this.perform(MockMvcRequestBuilders.get("/api/v1/opportunities/find/" + id));
+		final var tag = found.getHeader(HttpHeaders.ETAG);
+		Assertions.assertEquals("\"0-0\"", tag);
+		Assertions.assertTrue(found.getHeader(HttpHeaders.CACHE_CONTROL).contains("private"));
+		Assertions.assertEquals(HttpStatus.NOT_MODIFIED.value(), this.find(id, tag).getStatus());
+
+		this.perform(
+				this.json(
+						MockMvcRequestBuilders.patch("/api/v1/customers/update/" + customerId),
+						Map.of("name", "Renamed")));
+		final var changed = this.find(id, tag);
+		Assertions.assertEquals(HttpStatus.OK.value(), changed.getStatus());
+		Assertions.assertEquals("\"0-1\"", changed.getHeader(HttpHeaders.ETAG));
+		Assertions.assertEquals("Renamed", this.data(changed).get("customer").get("name").asText());
+
+		/* The tag served by a read is accepted by If-Match, only the opportunity version is checked */
+		final var patched =
+				this.perform(
+						this.json(
+										MockMvcRequestBuilders.patch("/api/v1/opportunities/update/" + id),
+										Map.of("description", "Patched"))
+								.header(HttpHeaders.IF_MATCH, changed.getHeader(HttpHeaders.ETAG)));
+		Assertions.assertEquals(HttpStatus.OK.value(), patched.getStatus());
+		Assertions.assertEquals("\"1-1\"", patched.getHeader(HttpHeaders.ETAG));
+	}
+
+	@Test
+	void findAllIsRevalidatedAfterADelete() throws Exception {
+		final var id = this.createOpportunity(this.createCustomer("Listed"), "Listed");
+
+		final var listed = this.perform(MockMvcRequestBuilders.get("/api/v1/opportunities/findAll"));
+		final var tag = listed.getHeader(HttpHeaders.ETAG);
+		Assertions.assertNotNull(tag);
+		/* The latest modification of the remaining rows would not move with a delete */
+		Assertions.assertNull(listed.getHeader(HttpHeaders.LAST_MODIFIED));
+		Assertions.assertEquals(
+				HttpStatus.NOT_MODIFIED.value(),
+				this.perform(
+								MockMvcRequestBuilders.get("/api/v1/opportunities/findAll")
+										.header(HttpHeaders.IF_NONE_MATCH, tag))
+						.getStatus());
+
+		this.perform(MockMvcRequestBuilders.delete("/api/v1/opportunities/delete/" + id));
+		final var relisted =
+				this.perform(
+						MockMvcRequestBuilders.get("/api/v1/opportunities/findAll")
+								.header(HttpHeaders.IF_NONE_MATCH, tag));
+		Assertions.assertEquals(HttpStatus.OK.value(), relisted.getStatus());
+		Assertions.assertNotEquals(tag, relisted.getHeader(HttpHeaders.ETAG));
+	}
+
+	private MockHttpServletResponse find(final long id, final String ifNoneMatch) throws Exception {
+		return this.perform(
+				MockMvcRequestBuilders.get("/api/v1/opportunities/find/" + id)
+						.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch));
+	}
+
+	private long createCustomer(final String name) throws Exception {
+		return this.data(
+						this.perform(
+								this.json(
+										MockMvcRequestBuilders.post("/api/v1/customers/create"),
+										Map.of("name", name, "email", name.toLowerCase() + "@test.gr"))))
+				.get("id")
+				.asLong();
+	}
+
+	private long createOpportunity(final long customerId, final String description) throws Exception {
+		final var created =
+				this.perform(
+						this.json(
+								MockMvcRequestBuilders.post("/api/v1/opportunities/create"),
+								Map.of(
+										"description",
+										description,
+										"value",
+										1000,
+										"status",
+										"OPEN",
+										"customer",
+										Map.of("id", customerId))));
+		Assertions.assertEquals(HttpStatus.OK.value(), created.getStatus());
+		return this.data(created).get("id").asLong();
+	}
+}
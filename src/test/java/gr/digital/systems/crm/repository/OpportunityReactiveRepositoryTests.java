@@ -0,0 +1,89 @@
+package gr.digital.systems.crm.repository;
+
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.service.CustomerService;
+import gr.digital.systems.crm.service.OpportunityService;
+import gr.digital.systems.crm.utils.TenantContext;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/* Reads over R2DBC the rows written over JPA, both reach the same in-memory H2 database */
+@SpringBootTest
+@ActiveProfiles("test")
+class OpportunityReactiveRepositoryTests {
+
+	private static final String OTHER_TENANT = "reactive-other";
+
+	@Autowired private OpportunityReactiveRepository opportunityReactiveRepository;
+	@Autowired private CustomerService customerService;
+	@Autowired private OpportunityService opportunityService;
+	@Autowired private NamedParameterJdbcTemplate jdbcTemplate;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	@Test
+	void rowsAreMappedWithTheirCustomer() {
+		final var customer =
+				this.customerService.create(
+						new Customer("Reactive", "reactive@crm.gr", "2101234567", "Athens"));
+		final var id =
+				this.opportunityService.create(new Opportunity("Mapped", 1500.5, "WON", customer)).getId();
+		final var unassigned =
+				this.opportunityService.create(new Opportunity("Unassigned", 10, "OPEN", null)).getId();
+
+		final var opportunity = this.opportunityReactiveRepository.findById(id).block();
+
+		Assertions.assertNotNull(opportunity);
+		Assertions.assertEquals(id, opportunity.getId());
+		Assertions.assertEquals(0L, opportunity.getVersion());
+		Assertions.assertEquals("Mapped", opportunity.getDescription());
+		Assertions.assertEquals(1500.5, opportunity.getValue());
+		Assertions.assertEquals("WON", opportunity.getStatus());
+		Assertions.assertEquals(customer.getId(), opportunity.getCustomer().getId());
+		Assertions.assertEquals(0L, opportunity.getCustomer().getVersion());
+		Assertions.assertEquals("Reactive", opportunity.getCustomer().getName());
+		Assertions.assertEquals("reactive@crm.gr", opportunity.getCustomer().getEmail());
+		Assertions.assertEquals("2101234567", opportunity.getCustomer().getPhone());
+		Assertions.assertEquals("Athens", opportunity.getCustomer().getAddress());
+		Assertions.assertNull(
+				this.opportunityReactiveRepository.findById(unassigned).block().getCustomer());
+	}
+
+	@Test
+	void deletedRowsAndRowsOfOtherTenantsAreSkipped() {
+		final var live = this.opportunity("Live");
+		final var deleted = this.opportunity("Deleted");
+		this.opportunityService.deleteById(deleted);
+		final var other = this.opportunity("Other tenant");
+		new TransactionTemplate(this.transactionManager)
+				.executeWithoutResult(
+						status ->
+								this.jdbcTemplate.update(
+										"update BaseEntity set tenantId = :tenant where id = :id",
+										Map.of("tenant", OTHER_TENANT, "id", other)));
+
+		Assertions.assertNotNull(this.opportunityReactiveRepository.findById(live).block());
+		Assertions.assertNull(this.opportunityReactiveRepository.findById(deleted).block());
+		Assertions.assertNull(this.opportunityReactiveRepository.findById(other).block());
+		final var ids =
+				this.opportunityReactiveRepository.findAll().map(Opportunity::getId).collectList().block();
+		Assertions.assertTrue(ids.contains(live));
+		Assertions.assertFalse(ids.contains(deleted));
+		Assertions.assertFalse(ids.contains(other));
+
+		Assertions.assertNotNull(
+				TenantContext.call(
+						OTHER_TENANT, () -> this.opportunityReactiveRepository.findById(other).block()));
+	}
+
+	private Long opportunity(final String description) {
+		return this.opportunityService.create(new Opportunity(description, 1, "OPEN", null)).getId();
+	}
+}
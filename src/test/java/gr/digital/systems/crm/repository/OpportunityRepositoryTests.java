@@ -0,0 +1,73 @@
+package gr.digital.systems.crm.repository;
+
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Opportunity;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class OpportunityRepositoryTests {
+
+	private static final int CUSTOMERS = 5;
+
+	@Autowired private OpportunityRepository opportunityRepository;
+	@Autowired private EntityManager entityManager;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < CUSTOMERS; i++) {
+			final var customer = new Customer("customer" + i, "c" + i + "@crm.gr", "210" + i, "Athens");
+			this.entityManager.persist(customer);
+			this.entityManager.persist(new Opportunity("first", 10, "OPEN", customer));
+			this.entityManager.persist(new Opportunity("second", 20, "WON", customer));
+		}
+		this.entityManager.flush();
+		this.entityManager.clear();
+
+		this.statistics =
+				this.entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		this.statistics.clear();
+	}
+
+	@Test
+	void findAllLoadsCustomersInSingleStatement() {
+		final var opportunities = this.opportunityRepository.findAll();
+
+		Assertions.assertEquals(CUSTOMERS * 2, opportunities.size());
+		opportunities.forEach(o -> Assertions.assertNotNull(o.getCustomer().getName()));
+		Assertions.assertEquals(1, this.statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void keysetPageLoadsCustomersInSingleStatement() {
+		final var opportunities =
+				this.opportunityRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(CUSTOMERS));
+
+		Assertions.assertEquals(CUSTOMERS, opportunities.size());
+		opportunities.forEach(o -> Assertions.assertNotNull(o.getCustomer().getName()));
+		Assertions.assertEquals(1, this.statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void summariesDoNotTouchCustomers() {
+		final var summaries = this.opportunityRepository.findAllSummaries();
+
+		Assertions.assertEquals(CUSTOMERS * 2, summaries.size());
+		summaries.forEach(s -> Assertions.assertNotNull(s.getCustomerId()));
+		Assertions.assertEquals(1, this.statistics.getPrepareStatementCount());
+		Assertions.assertEquals(0, this.statistics.getEntityLoadCount());
+	}
+}
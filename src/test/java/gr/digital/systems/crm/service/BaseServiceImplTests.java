@@ -0,0 +1,179 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.exception.ServiceOverloadedException;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.model.LeadMatch;
+import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.repository.CustomerReactiveRepository;
+import gr.digital.systems.crm.repository.CustomerRepository;
+import gr.digital.systems.crm.transfer.ChangeType;
+import gr.digital.systems.crm.transfer.EntityChange;
+import gr.digital.systems.crm.transfer.EntityChanges;
+import gr.digital.systems.crm.transfer.SearchType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@RecordApplicationEvents
+class BaseServiceImplTests {
+
+	@Autowired private CustomerService customerService;
+	@Autowired private CustomerRepository customerRepository;
+	@Autowired private LeadService leadService;
+	@Autowired private OpportunityService opportunityService;
+	@Autowired private MatchingService matchingService;
+	@Autowired private SearchService searchService;
+	@Autowired private ApplicationEvents applicationEvents;
+	@Autowired private CustomerReactiveRepository customerReactiveRepository;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext private EntityManager entityManager;
+
+	@Test
+	void createAllDetachesOnlyItsOwnBatches() {
+		final var loadedBefore =
+				this.customerService.create(new Customer("Loaded before", null, null, null)).getId();
+
+		new TransactionTemplate(this.transactionManager)
+				.executeWithoutResult(
+						status -> {
+							final var customer = this.customerRepository.findById(loadedBefore).orElseThrow();
+							/* More than two JDBC batches of 50 */
+							final var created =
+									this.customerService.createAll(
+											IntStream.range(0, 120)
+													.mapToObj(i -> new Customer("Batched " + i, null, null, null))
+													.toList());
+
+							Assertions.assertTrue(this.entityManager.contains(customer));
+							Assertions.assertEquals(120, created.size());
+							Assertions.assertTrue(created.stream().noneMatch(this.entityManager::contains));
+							final var ids = new HashSet<Long>();
+							created.forEach(item -> Assertions.assertTrue(ids.add(item.getId())));
+						});
+	}
+
+	@Test
+	void createAllKeepsAManagedItemManaged() {
+		final var id = this.customerService.create(new Customer("Managed", null, null, null)).getId();
+
+		new TransactionTemplate(this.transactionManager)
+				.executeWithoutResult(
+						status -> {
+							final var customer = this.customerRepository.findById(id).orElseThrow();
+							customer.setName("Managed and renamed");
+							this.customerService.createAll(customer);
+							Assertions.assertTrue(this.entityManager.contains(customer));
+						});
+		Assertions.assertEquals(
+				"Managed and renamed", this.customerRepository.findById(id).orElseThrow().getName());
+	}
+
+	@Test
+	void aDeletedItemIsHiddenFromJpaR2dbcAndPatches() {
+		final var id = this.customerService.create(new Customer("Deleted", null, null, null)).getId();
+		this.customerService.deleteById(id);
+
+		Assertions.assertTrue(this.customerRepository.findById(id).isEmpty());
+		Assertions.assertTrue(
+				this.customerRepository.findAll().stream().noneMatch(item -> item.getId().equals(id)));
+		Assertions.assertThrows(CrmException.class, () -> this.customerService.get(id));
+		Assertions.assertNull(this.customerReactiveRepository.findById(id).block());
+		Assertions.assertTrue(
+				this.customerReactiveRepository
+						.findAll()
+						.filter(item -> item.getId().equals(id))
+						.collectList()
+						.block()
+						.isEmpty());
+		Assertions.assertThrows(
+				CrmException.class, () -> this.customerService.patch(id, Map.of("name", "Restored"), null));
+	}
+
+	@Test
+	void createAllPublishesOneEventPerBatch() {
+		this.customerService.createAll(
+				IntStream.range(0, 120)
+						.mapToObj(i -> new Customer("Published " + i, null, null, null))
+						.toList());
+
+		Assertions.assertEquals(0, this.applicationEvents.stream(EntityChange.class).count());
+		final var batches = this.applicationEvents.stream(EntityChanges.class).toList();
+		Assertions.assertEquals(
+				List.of(50, 50, 20), batches.stream().map(batch -> batch.getChanges().size()).toList());
+		batches.stream()
+				.flatMap(batch -> batch.getChanges().stream())
+				.forEach(
+						change -> {
+							Assertions.assertEquals(ChangeType.CREATED, change.getType());
+							Assertions.assertNotNull(change.getTimestamp());
+						});
+	}
+
+	@Test
+	void theListenersApplyTheChangesOfABatch() throws InterruptedException {
+		/* The search and match indexes load after startup */
+		this.await(() -> !this.matchingService.getReport().isRunning());
+
+		this.customerService.createAll(
+				new Customer("Quillbatch One", null, null, null),
+				new Customer("Quillbatch Two", null, null, null));
+		this.await(
+				() -> {
+					try {
+						return this.searchService
+										.search("quillbatch", Set.of(SearchType.CUSTOMER), 0, 10)
+										.getTotal()
+								== 2;
+					} catch (final ServiceOverloadedException e) {
+						return false;
+					}
+				});
+
+		final var stored =
+				this.leadService.createAll(new Lead("Batched", "batched@listeners.example", null, null));
+		final var matches =
+				this.leadService.create(new Lead("Single", "batched@listeners.example", null, null));
+		Assertions.assertEquals(
+				List.of(stored.get(0).getId()),
+				this.matchingService.getMatches(matches.getId()).stream()
+						.map(LeadMatch::getMatchedId)
+						.toList());
+
+		/* A cached opportunity embeds its customer, a batch update of the customer evicts it */
+		final var customer = this.customerService.create(new Customer("Embedded", null, null, null));
+		final var opportunity =
+				this.opportunityService.create(new Opportunity("Cached", 1, "OPEN", customer));
+		this.opportunityService.get(opportunity.getId());
+		customer.setName("Renamed in a batch");
+		this.customerService.createAll(customer);
+		Assertions.assertEquals(
+				"Renamed in a batch",
+				this.opportunityService.get(opportunity.getId()).getCustomer().getName());
+	}
+
+	private void await(final BooleanSupplier condition) throws InterruptedException {
+		for (var i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+			Thread.sleep(50);
+		}
+		Assertions.assertTrue(condition.getAsBoolean());
+	}
+}
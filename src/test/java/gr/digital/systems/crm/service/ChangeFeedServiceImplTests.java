@@ -0,0 +1,94 @@
+package gr.digital.systems.crm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.transfer.ChangeType;
+import gr.digital.systems.crm.transfer.EntityChange;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class ChangeFeedServiceImplTests {
+
+	@Test
+	void aStalledClientIsDroppedWithoutHoldingUpTheOthers() throws Exception {
+		final var environmentPropertiesConfig = Mockito.mock(EnvironmentPropertiesConfig.class);
+		Mockito.when(environmentPropertiesConfig.getChangesBufferSize()).thenReturn(16);
+		Mockito.when(environmentPropertiesConfig.getChangesSenders()).thenReturn(1);
+		Mockito.when(environmentPropertiesConfig.getChangesTimeout()).thenReturn(60000L);
+		Mockito.when(environmentPropertiesConfig.getChangesWriteTimeout()).thenReturn(200L);
+		final var meterRegistry = new SimpleMeterRegistry();
+		final var changeFeedService =
+				new ChangeFeedServiceImpl(
+						environmentPropertiesConfig,
+						new ObjectMapper().findAndRegisterModules(),
+						meterRegistry);
+
+		/* The stalled client never reads, so its write blocks until the connection goes away */
+		final var connectionClosed = new CountDownLatch(1);
+		final var received = new AtomicInteger();
+		try {
+			changeFeedService.subscribe(Customer.class, new StalledEmitter(connectionClosed));
+			changeFeedService.subscribe(Customer.class, new CountingEmitter(received));
+
+			/* The only sender must not stay behind the stalled write */
+			changeFeedService.onChange(change(1L));
+			changeFeedService.onChange(change(2L));
+			final var dropped = meterRegistry.get("crm.changes.dropped").counter();
+			for (var i = 0; i < 200 && (received.get() < 2 || dropped.count() < 1); i++) {
+				Thread.sleep(50);
+			}
+
+			Assertions.assertEquals(2, received.get());
+			Assertions.assertEquals(1, dropped.count());
+		} finally {
+			connectionClosed.countDown();
+			changeFeedService.destroy();
+		}
+	}
+
+	private static EntityChange change(final Long id) {
+		return EntityChange.builder()
+				.entityType(Customer.class)
+				.tenantId(TenantContext.get())
+				.type(ChangeType.UPDATED)
+				.id(id)
+				.build();
+	}
+
+	private static class StalledEmitter extends SseEmitter {
+		private final CountDownLatch connectionClosed;
+
+		StalledEmitter(final CountDownLatch connectionClosed) {
+			this.connectionClosed = connectionClosed;
+		}
+
+		@Override
+		public void send(final SseEventBuilder builder) {
+			try {
+				this.connectionClosed.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static class CountingEmitter extends SseEmitter {
+		private final AtomicInteger received;
+
+		CountingEmitter(final AtomicInteger received) {
+			this.received = received;
+		}
+
+		@Override
+		public void send(final SseEventBuilder builder) {
+			this.received.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.transfer.FileFormat;
+import gr.digital.systems.crm.transfer.KeysetPage;
+import gr.digital.systems.crm.utils.ExportColumn;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ExportServiceImplTests {
+
+	@Autowired private EntityManagerFactory entityManagerFactory;
+	@Autowired private CustomerService storedCustomerService;
+
+	private CustomerService customerService;
+	private ExportServiceImpl exportService;
+
+	@BeforeEach
+	void setUp() {
+		final var environmentPropertiesConfig = Mockito.mock(EnvironmentPropertiesConfig.class);
+		Mockito.when(environmentPropertiesConfig.getExportBatchSize()).thenReturn(2);
+		this.exportService =
+				new ExportServiceImpl(this.entityManagerFactory, environmentPropertiesConfig);
+
+		/* Five customers served in two keyset batches */
+		this.customerService = Mockito.mock(CustomerService.class);
+		Mockito.when(this.customerService.getExportColumns())
+				.thenReturn(
+						List.of(
+								ExportColumn.of("id", Customer::getId),
+								ExportColumn.of("name", Customer::getName),
+								ExportColumn.of("email", Customer::getEmail)));
+		Mockito.when(this.customerService.findAfter(null, 2))
+				.thenReturn(
+						KeysetPage.<Customer>builder()
+								.items(
+										List.of(
+												customer(1L, "Plain", "plain@export.example"),
+												customer(2L, "Quoted \"Name\", Ltd", null)))
+								.nextCursor(2L)
+								.hasMore(true)
+								.build());
+		Mockito.when(this.customerService.findAfter(2L, 2))
+				.thenReturn(
+						KeysetPage.<Customer>builder()
+								.items(
+										List.of(
+												customer(3L, "<Tagged> & Co", "tagged@export.example"),
+												customer(4L, "=HYPERLINK(\"http://evil.example\")", "@sum"),
+												customer(5L, "-1+2", "+30 210")))
+								.hasMore(false)
+								.build());
+	}
+
+	@Test
+	void csvRowsAreEscapedAndReadInBatches() {
+		final var outputStream = new ByteArrayOutputStream();
+
+		final var rows =
+				this.exportService.export(
+						this.customerService, FileFormat.CSV, false, "customers", "customer", outputStream);
+
+		Assertions.assertEquals(5, rows);
+		/* Cells that a spreadsheet would run as formulas are kept as text */
+		Assertions.assertEquals(
+				"id,name,email\r\n"
+						+ "1,Plain,plain@export.example\r\n"
+						+ "2,\"Quoted \"\"Name\"\", Ltd\",\r\n"
+						+ "3,<Tagged> & Co,tagged@export.example\r\n"
+						+ "4,\"'=HYPERLINK(\"\"http://evil.example\"\")\",'@sum\r\n"
+						+ "5,'-1+2,'+30 210\r\n",
+				outputStream.toString(StandardCharsets.UTF_8));
+		Mockito.verify(this.customerService).findAfter(null, 2);
+		Mockito.verify(this.customerService).findAfter(2L, 2);
+		Mockito.verify(this.customerService, Mockito.never()).findAll();
+	}
+
+	@Test
+	void gzippedXmlIsAWellFormedDocument() throws Exception {
+		final var outputStream = new ByteArrayOutputStream();
+
+		this.exportService.export(
+				this.customerService, FileFormat.XML, true, "customers", "customer", outputStream);
+
+		try (var inputStream =
+				new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray()))) {
+			final var document =
+					DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(inputStream);
+			Assertions.assertEquals("customers", document.getDocumentElement().getNodeName());
+			final var rows = document.getElementsByTagName("customer");
+			Assertions.assertEquals(5, rows.getLength());
+			Assertions.assertEquals(
+					"<Tagged> & Co", document.getElementsByTagName("name").item(2).getTextContent());
+			/* Null values are left out of their row */
+			Assertions.assertEquals(4, document.getElementsByTagName("email").getLength());
+		}
+	}
+
+	@Test
+	void storedRowsAreReleasedFromTheRequestPersistenceContextBatchByBatch() {
+		final var customers = new ArrayList<Customer>();
+		for (var i = 0; i < 7; i++) {
+			customers.add(new Customer("Exported " + i, "exported" + i + "@export.example", null, null));
+		}
+		this.storedCustomerService.createAll(customers);
+
+		/* Bound the way open-session-in-view binds it to the streaming thread of the response */
+		final var entityManager = this.entityManagerFactory.createEntityManager();
+		TransactionSynchronizationManager.bindResource(
+				this.entityManagerFactory, new EntityManagerHolder(entityManager));
+		try {
+			final var outputStream = new ByteArrayOutputStream();
+			final var rows =
+					this.exportService.export(
+							this.storedCustomerService,
+							FileFormat.CSV,
+							false,
+							"customers",
+							"customer",
+							outputStream);
+
+			final var csv = outputStream.toString(StandardCharsets.UTF_8);
+			Assertions.assertTrue(rows >= 7);
+			for (var i = 0; i < 7; i++) {
+				Assertions.assertTrue(csv.contains(",Exported " + i + ",exported" + i + "@export.example"));
+			}
+			Assertions.assertEquals(
+					0, entityManager.unwrap(Session.class).getStatistics().getEntityCount());
+		} finally {
+			TransactionSynchronizationManager.unbindResource(this.entityManagerFactory);
+			entityManager.close();
+		}
+	}
+
+	private static Customer customer(final Long id, final String name, final String email) {
+		final var customer = new Customer(name, email, null, null);
+		customer.setId(id);
+		return customer;
+	}
+}
@@ -0,0 +1,113 @@
+package gr.digital.systems.crm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.model.JobStatus;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.repository.LeadRepository;
+import gr.digital.systems.crm.transfer.CaptureStatus;
+import gr.digital.systems.crm.utils.AppendOnlyJournal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LeadCaptureServiceImplTests {
+
+	@Autowired private LeadService leadService;
+	@Autowired private LeadRepository leadRepository;
+	@Autowired private ObjectMapper objectMapper;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	@TempDir Path directory;
+
+	private EnvironmentPropertiesConfig environmentPropertiesConfig;
+
+	@BeforeEach
+	void setUp() {
+		this.environmentPropertiesConfig = Mockito.mock(EnvironmentPropertiesConfig.class);
+		Mockito.when(this.environmentPropertiesConfig.getCaptureQueueSize()).thenReturn(1000);
+		Mockito.when(this.environmentPropertiesConfig.getCaptureBatchSize()).thenReturn(10);
+		Mockito.when(this.environmentPropertiesConfig.getCaptureOfferTimeout()).thenReturn(1000L);
+		Mockito.when(this.environmentPropertiesConfig.getCaptureStatusMaxSize()).thenReturn(1000L);
+		Mockito.when(this.environmentPropertiesConfig.isCaptureJournalEnabled()).thenReturn(true);
+		Mockito.when(this.environmentPropertiesConfig.isCaptureJournalFsync()).thenReturn(true);
+		Mockito.when(this.environmentPropertiesConfig.getCaptureJournalDirectory())
+				.thenReturn(this.directory.toString());
+		Mockito.when(this.environmentPropertiesConfig.getCaptureJournalSegmentSize()).thenReturn(1024L);
+	}
+
+	@Test
+	void concurrentCapturesAreJournaledStoredAndCommitted() throws Exception {
+		final var captureService = this.captureService();
+		final var executor = Executors.newFixedThreadPool(8);
+		final var statuses = new ArrayList<CaptureStatus>();
+		try {
+			final var tasks = new ArrayList<Callable<CaptureStatus>>();
+			for (var i = 0; i < 50; i++) {
+				final var lead =
+						new Lead("Captured " + i, "captured" + i + "@capture.example", null, "web");
+				tasks.add(() -> captureService.capture(lead));
+			}
+			for (final var result : executor.invokeAll(tasks)) {
+				statuses.add(result.get());
+			}
+			for (final var status : statuses) {
+				Assertions.assertEquals(JobStatus.QUEUED, status.getStatus());
+				Assertions.assertNotNull(this.await(captureService, status.getTrackingId()).getLeadId());
+			}
+		} finally {
+			executor.shutdown();
+			captureService.destroy();
+		}
+
+		Assertions.assertEquals(
+				50,
+				this.leadRepository.findAll().stream()
+						.filter(lead -> lead.getEmail() != null && lead.getEmail().endsWith("@capture.example"))
+						.count());
+		/* Every stored capture was committed, nothing is left to replay */
+		try (var journal = new AppendOnlyJournal(this.directory, false, 1024)) {
+			Assertions.assertTrue(journal.getPending().isEmpty());
+		}
+	}
+
+	private LeadCaptureServiceImpl captureService() {
+		final var captureService =
+				new LeadCaptureServiceImpl(
+						this.leadService,
+						this.leadRepository,
+						this.objectMapper,
+						this.transactionManager,
+						new SimpleMeterRegistry(),
+						this.environmentPropertiesConfig);
+		captureService.init();
+		captureService.start();
+		return captureService;
+	}
+
+	/* Captures are stored by the flusher thread, the test polls until the capture completes */
+	private CaptureStatus await(final LeadCaptureServiceImpl captureService, final String trackingId)
+			throws InterruptedException {
+		for (var i = 0; i < 200; i++) {
+			final var status = captureService.get(trackingId);
+			if (status.getStatus() == JobStatus.COMPLETED) {
+				return status;
+			}
+			Thread.sleep(50);
+		}
+		throw new AssertionError("Capture " + trackingId + " was not stored");
+	}
+}
@@ -0,0 +1,150 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.ConversionJob;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.JobStatus;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.repository.ConversionJobRepository;
+import gr.digital.systems.crm.repository.CustomerRepository;
+import gr.digital.systems.crm.repository.LeadRepository;
+import gr.digital.systems.crm.transfer.LeadConversion;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LeadConversionServiceImplTests {
+
+	@Autowired private LeadConversionService leadConversionService;
+	@Autowired private LeadService leadService;
+	@Autowired private CustomerService customerService;
+	@Autowired private OpportunityService opportunityService;
+	@Autowired private LeadRepository leadRepository;
+	@Autowired private CustomerRepository customerRepository;
+	@Autowired private ConversionJobRepository conversionJobRepository;
+	@Autowired private TenantService tenantService;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	/* Converts bulk jobs in chunks of two leads */
+	private LeadConversionServiceImpl chunkedConversionService;
+
+	@BeforeEach
+	void setUp() {
+		final var environmentPropertiesConfig = Mockito.mock(EnvironmentPropertiesConfig.class);
+		Mockito.when(environmentPropertiesConfig.getConversionChunkSize()).thenReturn(2);
+		this.chunkedConversionService =
+				new LeadConversionServiceImpl(
+						this.leadService,
+						this.customerService,
+						this.opportunityService,
+						this.leadRepository,
+						this.conversionJobRepository,
+						this.tenantService,
+						this.transactionManager,
+						environmentPropertiesConfig);
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.chunkedConversionService.destroy();
+	}
+
+	@Test
+	void aLeadIsConvertedOnlyOnce() {
+		final var leadId = this.lead("Converted once", "web");
+
+		final var result =
+				this.leadConversionService.convert(leadId, LeadConversion.builder().value(10d).build());
+
+		Assertions.assertEquals("Converted once", result.getCustomer().getName());
+		Assertions.assertEquals("Converted lead from web", result.getOpportunity().getDescription());
+		Assertions.assertThrows(
+				CrmException.class,
+				() -> this.leadConversionService.convert(leadId, LeadConversion.builder().build()));
+		Assertions.assertEquals(1, this.customers("Converted once"));
+
+		/* A job that selects the converted lead again counts it as missing */
+		final var job =
+				this.await(
+						JobStatus.COMPLETED,
+						this.chunkedConversionService.submit(
+								LeadConversion.builder().ids(List.of(leadId)).build()));
+		Assertions.assertEquals(0, job.getConvertedLeads());
+		Assertions.assertEquals(1, job.getMissingLeads());
+		Assertions.assertEquals(1, this.customers("Converted once"));
+	}
+
+	@Test
+	void aFailedJobResumesAfterItsLastCommittedChunk() {
+		final var first = this.lead("Resumed 1", "web");
+		final var second = this.lead("Resumed 2", "web");
+		/* The description of its opportunity is longer than the column, the second chunk fails */
+		final var failing = this.lead("Resumed 3", "w".repeat(250));
+		final var fourth = this.lead("Resumed 4", "web");
+
+		final var failed =
+				this.await(
+						JobStatus.FAILED,
+						this.chunkedConversionService.submit(
+								LeadConversion.builder().ids(List.of(fourth, failing, second, first)).build()));
+		Assertions.assertEquals(second, failed.getLastLeadId());
+		Assertions.assertEquals(2, failed.getConvertedLeads());
+		Assertions.assertNotNull(failed.getError());
+		/* The failed chunk rolled back as a whole */
+		Assertions.assertTrue(this.leadRepository.existsById(failing));
+		Assertions.assertTrue(this.leadRepository.existsById(fourth));
+		Assertions.assertEquals(0, this.customers("Resumed 4"));
+
+		this.leadService.patch(failing, Map.of("source", "web"), null);
+		final var resumed =
+				this.await(JobStatus.COMPLETED, this.chunkedConversionService.resume(failed.getId()));
+
+		Assertions.assertNull(resumed.getError());
+		Assertions.assertEquals(4, resumed.getProcessedLeads());
+		Assertions.assertEquals(4, resumed.getConvertedLeads());
+		Assertions.assertEquals(0, resumed.getMissingLeads());
+		for (final var name : List.of("Resumed 1", "Resumed 2", "Resumed 3", "Resumed 4")) {
+			Assertions.assertEquals(1, this.customers(name));
+		}
+		Assertions.assertFalse(this.leadRepository.existsById(fourth));
+	}
+
+	private Long lead(final String name, final String source) {
+		return this.leadService.create(new Lead(name, null, null, source)).getId();
+	}
+
+	private long customers(final String name) {
+		return this.customerRepository.findAll().stream()
+				.map(Customer::getName)
+				.filter(name::equals)
+				.count();
+	}
+
+	/* Jobs run on the executor of the service, the test polls until the job reaches the status */
+	private ConversionJob await(final JobStatus status, final ConversionJob submitted) {
+		for (var i = 0; i < 200; i++) {
+			final var job = this.chunkedConversionService.get(submitted.getId());
+			if (job.getStatus() == status) {
+				return job;
+			}
+			try {
+				Thread.sleep(50);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		throw new AssertionError("Conversion job " + submitted.getId() + " did not reach " + status);
+	}
+}
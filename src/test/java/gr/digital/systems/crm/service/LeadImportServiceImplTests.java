@@ -0,0 +1,152 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.model.ImportJob;
+import gr.digital.systems.crm.model.JobStatus;
+import gr.digital.systems.crm.model.Lead;
+import gr.digital.systems.crm.repository.ImportJobRepository;
+import gr.digital.systems.crm.repository.LeadRepository;
+import gr.digital.systems.crm.transfer.FileFormat;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LeadImportServiceImplTests {
+
+	@Autowired private LeadService leadService;
+	@Autowired private LeadRepository leadRepository;
+	@Autowired private ImportJobRepository importJobRepository;
+	@Autowired private TenantService tenantService;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	@TempDir Path directory;
+
+	private LeadImportServiceImpl leadImportService;
+
+	@BeforeEach
+	void setUp() {
+		final var environmentPropertiesConfig = Mockito.mock(EnvironmentPropertiesConfig.class);
+		Mockito.when(environmentPropertiesConfig.getImportDirectory())
+				.thenReturn(this.directory.toString());
+		/* Small chunks, so every file spans several chunks and workers */
+		Mockito.when(environmentPropertiesConfig.getImportChunkSize()).thenReturn(2);
+		Mockito.when(environmentPropertiesConfig.getImportWorkers()).thenReturn(2);
+		this.leadImportService =
+				new LeadImportServiceImpl(
+						this.leadService,
+						this.leadRepository,
+						this.importJobRepository,
+						this.tenantService,
+						this.transactionManager,
+						environmentPropertiesConfig);
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.leadImportService.destroy();
+	}
+
+	@Test
+	void emailsAreDeduplicatedIgnoringCaseWithinAndAcrossChunksAndAgainstStoredLeads()
+			throws Exception {
+		this.leadService.create(new Lead("Stored", "Stored@Dedupe.Example", null, null));
+
+		final var job =
+				this.await(
+						JobStatus.COMPLETED,
+						this.submit(
+								"name,email,source\n"
+										+ "Stored again,stored@dedupe.example,web\n"
+										+ "Invalid,not-an-email,web\n"
+										+ "First,First@Dedupe.Example,web\n"
+										+ "First again,first@dedupe.example,web\n"
+										+ "Second,second@dedupe.example,web\n"
+										+ "First in a later chunk,FIRST@dedupe.example,web\n"
+										+ "Third,third@dedupe.example,web\n"));
+
+		Assertions.assertEquals(7, job.getProcessedRows());
+		Assertions.assertEquals(3, job.getImportedRows());
+		Assertions.assertEquals(3, job.getDuplicateRows());
+		Assertions.assertEquals(1, job.getInvalidRows());
+		Assertions.assertEquals(
+				List.of("first@dedupe.example", "second@dedupe.example", "third@dedupe.example"),
+				this.leadRepository.findAll().stream()
+						.map(Lead::getEmail)
+						.filter(email -> email != null && email.endsWith("@dedupe.example"))
+						.sorted()
+						.toList());
+		Assertions.assertFalse(Files.exists(this.directory.resolve(job.getFileName())));
+	}
+
+	@Test
+	void aFailedJobResumesAfterItsLastCommittedChunk() throws Exception {
+		final var rows = new StringBuilder();
+		for (final var name : List.of("one", "two", "three", "four")) {
+			rows.append("<lead><email>").append(name).append("@resume.example</email></lead>");
+		}
+		/* The file breaks in the third chunk, only the first was persisted by then */
+		final var failed =
+				this.await(
+						JobStatus.FAILED,
+						this.leadImportService.submit(
+								this.stream("<leads>" + rows + "<lead><email>five@resume.example</email>"),
+								FileFormat.XML));
+		Assertions.assertEquals(2, failed.getProcessedRows());
+		Assertions.assertNotNull(failed.getError());
+
+		Files.writeString(
+				this.directory.resolve(failed.getFileName()),
+				"<leads>"
+						+ rows
+						+ "<lead><email>five@resume.example</email></lead>"
+						+ "<lead><email>six@resume.example</email></lead></leads>");
+		final var resumed =
+				this.await(JobStatus.COMPLETED, this.leadImportService.resume(failed.getId()));
+
+		Assertions.assertNull(resumed.getError());
+		Assertions.assertEquals(6, resumed.getProcessedRows());
+		/* The committed rows are skipped, not found again as duplicates */
+		Assertions.assertEquals(6, resumed.getImportedRows());
+		Assertions.assertEquals(0, resumed.getDuplicateRows());
+		Assertions.assertEquals(
+				6,
+				this.leadRepository.findAll().stream()
+						.filter(lead -> lead.getEmail() != null && lead.getEmail().endsWith("@resume.example"))
+						.count());
+	}
+
+	private ImportJob submit(final String csv) {
+		return this.leadImportService.submit(this.stream(csv), FileFormat.CSV);
+	}
+
+	private ByteArrayInputStream stream(final String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/* Jobs run on the executor of the service, the test polls until the job reaches the status */
+	private ImportJob await(final JobStatus status, final ImportJob submitted)
+			throws InterruptedException {
+		for (var i = 0; i < 200; i++) {
+			final var job = this.leadImportService.get(submitted.getId());
+			if (job.getStatus() == status) {
+				return job;
+			}
+			Thread.sleep(50);
+		}
+		throw new AssertionError("Import job " + submitted.getId() + " did not reach " + status);
+	}
+}
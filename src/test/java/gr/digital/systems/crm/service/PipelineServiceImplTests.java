@@ -0,0 +1,145 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.repository.OpportunityRepository;
+import gr.digital.systems.crm.transfer.PipelineGroup;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PipelineServiceImplTests {
+
+	@Autowired private PipelineService pipelineService;
+	@Autowired private CustomerService customerService;
+	@Autowired private OpportunityService opportunityService;
+	@Autowired private OpportunityRepository opportunityRepository;
+
+	@Test
+	void anInsertIsAddedToItsGroups() {
+		final var customer = this.customer("Inserted");
+		this.opportunity(customer, 100, "PIPELINE_INSERTED");
+
+		this.assertGroup(this.byCustomer(customer), 1, 100);
+		this.assertGroup(this.byStatus("PIPELINE_INSERTED"), 1, 100);
+	}
+
+	@Test
+	void aStatusChangeMovesTheOpportunityToItsNewStatus() {
+		final var customer = this.customer("Status changed");
+		final var opportunity = this.opportunity(customer, 200, "PIPELINE_OPEN");
+
+		this.opportunityService.patch(opportunity.getId(), Map.of("status", "PIPELINE_CLOSED"), null);
+
+		Assertions.assertTrue(this.byStatus("PIPELINE_OPEN").isEmpty());
+		this.assertGroup(this.byStatus("PIPELINE_CLOSED"), 1, 200);
+		this.assertGroup(this.byCustomer(customer), 1, 200);
+	}
+
+	@Test
+	void aValueChangeMovesTheTotals() {
+		final var customer = this.customer("Value changed");
+		final var opportunity = this.opportunity(customer, 300, "PIPELINE_VALUED");
+		this.opportunity(customer, 50, "PIPELINE_VALUED");
+
+		opportunity.setValue(125);
+		this.opportunityService.update(opportunity);
+
+		this.assertGroup(this.byCustomer(customer), 2, 175);
+		this.assertGroup(this.byStatus("PIPELINE_VALUED"), 2, 175);
+	}
+
+	@Test
+	void aDeleteRemovesTheOpportunityFromItsGroups() {
+		final var customer = this.customer("Deleted");
+		final var deleted = this.opportunity(customer, 400, "PIPELINE_DELETED");
+		this.opportunity(customer, 10, "PIPELINE_KEPT");
+
+		this.opportunityService.deleteById(deleted.getId());
+
+		Assertions.assertTrue(this.byStatus("PIPELINE_DELETED").isEmpty());
+		this.assertGroup(this.byCustomer(customer), 1, 10);
+	}
+
+	@Test
+	void aRebuildKeepsTheTotalsTheListenerMoved() {
+		final var customer = this.customer("Rebuilt");
+		this.opportunity(customer, 60, "PIPELINE_REBUILT");
+		final var before = this.byCustomer(customer).orElseThrow();
+
+		this.pipelineService.rebuild();
+
+		Assertions.assertEquals(Optional.of(before), this.byCustomer(customer));
+	}
+
+	@Test
+	void aCommitDuringARebuildIsCountedOnce() {
+		final var customer = this.customer("Committed during rebuild");
+		this.opportunity(customer, 70, "PIPELINE_DURING");
+
+		/* Another opportunity commits after the snapshot of the sums, its listener runs meanwhile */
+		final var repository =
+				Mockito.mock(
+						OpportunityRepository.class, AdditionalAnswers.delegatesTo(this.opportunityRepository));
+		Mockito.doAnswer(
+						invocation -> {
+							CompletableFuture.runAsync(() -> this.opportunity(customer, 30, "PIPELINE_DURING"))
+									.join();
+							return this.opportunityRepository.sumByCustomer();
+						})
+				.when(repository)
+				.sumByCustomer();
+		/* Hibernate takes one listener per class, so the registered service reads through the mock */
+		final var target = AopTestUtils.getUltimateTargetObject(this.pipelineService);
+		ReflectionTestUtils.setField(target, "opportunityRepository", repository);
+		try {
+			this.pipelineService.rebuild();
+		} finally {
+			ReflectionTestUtils.setField(target, "opportunityRepository", this.opportunityRepository);
+		}
+
+		this.assertGroup(this.byStatus("PIPELINE_DURING"), 2, 100);
+		this.assertGroup(this.byCustomer(customer), 2, 100);
+	}
+
+	private Customer customer(final String name) {
+		return this.customerService.create(new Customer(name, null, null, null));
+	}
+
+	private Opportunity opportunity(
+			final Customer customer, final double value, final String status) {
+		return this.opportunityService.create(new Opportunity("Pipeline", value, status, customer));
+	}
+
+	private Optional<PipelineGroup> byStatus(final String status) {
+		return find(this.pipelineService.getReport().getByStatus(), status);
+	}
+
+	private Optional<PipelineGroup> byCustomer(final Customer customer) {
+		return find(this.pipelineService.getReport().getByCustomer(), String.valueOf(customer.getId()));
+	}
+
+	private static Optional<PipelineGroup> find(final List<PipelineGroup> groups, final String key) {
+		return groups.stream().filter(group -> group.getKey().equals(key)).findFirst();
+	}
+
+	private void assertGroup(
+			final Optional<PipelineGroup> group, final long count, final double total) {
+		Assertions.assertTrue(group.isPresent());
+		Assertions.assertEquals(count, group.get().getCount());
+		Assertions.assertEquals(0, BigDecimal.valueOf(total).compareTo(group.get().getTotal()));
+	}
+}
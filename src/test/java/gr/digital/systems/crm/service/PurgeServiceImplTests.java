@@ -0,0 +1,129 @@
+package gr.digital.systems.crm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.digital.systems.crm.configuration.EnvironmentPropertiesConfig;
+import gr.digital.systems.crm.exception.CrmException;
+import gr.digital.systems.crm.model.Customer;
+import gr.digital.systems.crm.model.Opportunity;
+import gr.digital.systems.crm.utils.TenantContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PurgeServiceImplTests {
+
+	private static final String OTHER_TENANT = "purge-other";
+
+	@Autowired private CustomerService customerService;
+	@Autowired private OpportunityService opportunityService;
+	@Autowired private NamedParameterJdbcTemplate jdbcTemplate;
+	@Autowired private ObjectMapper objectMapper;
+	@Autowired private PlatformTransactionManager transactionManager;
+
+	@TempDir Path directory;
+
+	private EnvironmentPropertiesConfig environmentPropertiesConfig;
+
+	@BeforeEach
+	void setUp() {
+		this.environmentPropertiesConfig = Mockito.mock(EnvironmentPropertiesConfig.class);
+		Mockito.when(this.environmentPropertiesConfig.getPurgeCron()).thenReturn("-");
+		Mockito.when(this.environmentPropertiesConfig.getPurgeRetentionDays()).thenReturn(30L);
+		Mockito.when(this.environmentPropertiesConfig.getPurgeBatchSize()).thenReturn(2);
+		Mockito.when(this.environmentPropertiesConfig.getPurgeMaxBatches()).thenReturn(100);
+		Mockito.when(this.environmentPropertiesConfig.isPurgeArchiveEnabled()).thenReturn(true);
+		Mockito.when(this.environmentPropertiesConfig.getPurgeArchiveDirectory())
+				.thenReturn(this.directory.toString());
+	}
+
+	@Test
+	void onlyUnreferencedTombstonesOfThePurgedTenantsPastTheRetentionAreRemoved() {
+		final var expired = this.deletedCustomer("Expired", 40);
+		final var retained = this.deletedCustomer("Retained", 10);
+		final var otherTenant = this.deletedCustomer("Other tenant", 40);
+		this.update(
+				"update BaseEntity set tenantId = :tenant where id = :id",
+				Map.of("tenant", OTHER_TENANT, "id", otherTenant));
+
+		/* The opportunity is deleted too but within the retention, it still holds its customer */
+		final var referenced =
+				this.customerService.create(new Customer("Referenced", null, null, null));
+		final var opportunity =
+				this.opportunityService.create(new Opportunity("Referencing", 1, "OPEN", referenced));
+		this.opportunityService.deleteById(opportunity.getId());
+		this.customerService.deleteById(referenced.getId());
+		this.age(referenced.getId(), 40);
+
+		final var purged = this.purgeService().purge();
+
+		Assertions.assertTrue(purged >= 1);
+		Assertions.assertFalse(this.exists(expired));
+		Assertions.assertTrue(this.exists(retained));
+		Assertions.assertTrue(this.exists(otherTenant));
+		Assertions.assertTrue(this.exists(referenced.getId()));
+		Assertions.assertTrue(Files.isDirectory(this.directory.resolve(TenantContext.DEFAULT_TENANT)));
+		Assertions.assertFalse(Files.exists(this.directory.resolve(OTHER_TENANT)));
+	}
+
+	@Test
+	void theArchiveNeedsADirectory() {
+		Mockito.when(this.environmentPropertiesConfig.getPurgeArchiveDirectory()).thenReturn("");
+
+		Assertions.assertThrows(CrmException.class, this::purgeService);
+	}
+
+	private PurgeServiceImpl purgeService() {
+		final var tenantService = Mockito.mock(TenantService.class);
+		Mockito.when(tenantService.getTenants()).thenReturn(Set.of(TenantContext.DEFAULT_TENANT));
+		return new PurgeServiceImpl(
+				tenantService,
+				this.jdbcTemplate,
+				this.objectMapper,
+				this.transactionManager,
+				new SimpleMeterRegistry(),
+				this.environmentPropertiesConfig);
+	}
+
+	private Long deletedCustomer(final String name, final int daysAgo) {
+		final var id = this.customerService.create(new Customer(name, null, null, null)).getId();
+		this.customerService.deleteById(id);
+		this.age(id, daysAgo);
+		return id;
+	}
+
+	private void age(final Long id, final int daysAgo) {
+		this.update(
+				"update BaseEntity set deletedAt = :deletedAt where id = :id",
+				Map.of(
+						"deletedAt", Timestamp.from(Instant.now().minus(Duration.ofDays(daysAgo))), "id", id));
+	}
+
+	private void update(final String statement, final Map<String, Object> parameters) {
+		new TransactionTemplate(this.transactionManager)
+				.executeWithoutResult(status -> this.jdbcTemplate.update(statement, parameters));
+	}
+
+	private boolean exists(final Long id) {
+		return this.jdbcTemplate.queryForObject(
+						"select count(*) from BaseEntity where id = :id", Map.of("id", id), Long.class)
+				== 1;
+	}
+}
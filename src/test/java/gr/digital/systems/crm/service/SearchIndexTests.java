@@ -0,0 +1,77 @@
+package gr.digital.systems.crm.service;
+
+import gr.digital.systems.crm.transfer.SearchHit;
+import gr.digital.systems.crm.transfer.SearchType;
+import java.util.EnumSet;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SearchIndexTests {
+
+	private static final EnumSet<SearchType> ALL = EnumSet.allOf(SearchType.class);
+
+	private SearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		this.index = new SearchIndex(50);
+		this.index.put(SearchType.CUSTOMER, 1L, "Acme Hellas", "Λεωφόρος Κηφισίας 10, Αθήνα");
+		this.index.put(SearchType.CUSTOMER, 2L, "Papadopoulos Logistics", "Thessaloniki");
+		this.index.put(SearchType.LEAD, 3L, "Maria Acmeson", "website");
+		this.index.put(SearchType.OPPORTUNITY, 4L, "Fleet renewal for Acme", null);
+	}
+
+	@Test
+	void exactMatchesRankAbovePrefixMatchesAndTitlesAboveText() {
+		final var result = this.index.search("acme", ALL, 0, 10);
+
+		Assertions.assertEquals(3, result.getTotal());
+		Assertions.assertEquals(
+				List.of(SearchType.CUSTOMER, SearchType.OPPORTUNITY, SearchType.LEAD),
+				result.getHits().stream().map(SearchHit::getType).toList());
+		Assertions.assertEquals(
+				List.of(1L),
+				this.index.search("ΑΘΗΝΑ", ALL, 0, 10).getHits().stream().map(SearchHit::getId).toList());
+	}
+
+	@Test
+	void everyTermMustMatchWithPrefixesAndTypos() {
+		Assertions.assertEquals(
+				List.of(2L), this.ids(this.index.search("papadopolous thess", ALL, 0, 10).getHits()));
+		Assertions.assertEquals(0, this.index.search("acme thessaloniki", ALL, 0, 10).getTotal());
+		Assertions.assertEquals(
+				List.of(3L),
+				this.ids(this.index.search("acme", EnumSet.of(SearchType.LEAD), 0, 10).getHits()));
+	}
+
+	@Test
+	void updatesAndDeletesReplaceTheTerms() {
+		this.index.put(SearchType.CUSTOMER, 2L, "Papadopoulos Freight", "Patra");
+		this.index.remove(SearchType.OPPORTUNITY, 4L);
+
+		Assertions.assertEquals(0, this.index.search("logistics", ALL, 0, 10).getTotal());
+		Assertions.assertEquals(
+				List.of(2L), this.ids(this.index.search("patra", ALL, 0, 10).getHits()));
+		Assertions.assertEquals(List.of(3L), this.ids(this.index.search("acme", ALL, 1, 1).getHits()));
+		Assertions.assertEquals(3, this.index.size());
+	}
+
+	@Test
+	void aTokenExpandsToAtMostMaxExpansionsTerms() {
+		final var limited = new SearchIndex(2);
+		limited.put(SearchType.CUSTOMER, 1L, "Acme", null);
+		limited.put(SearchType.CUSTOMER, 2L, "Acmeholdings", null);
+		limited.put(SearchType.CUSTOMER, 3L, "Acmeindustries", null);
+		limited.put(SearchType.CUSTOMER, 4L, "Acmelogistics", null);
+
+		/* The exact term and the first prefixed term */
+		Assertions.assertEquals(
+				List.of(1L, 2L), this.ids(limited.search("acme", ALL, 0, 10).getHits()));
+	}
+
+	private List<Long> ids(final List<SearchHit> hits) {
+		return hits.stream().map(SearchHit::getId).toList();
+	}
+}
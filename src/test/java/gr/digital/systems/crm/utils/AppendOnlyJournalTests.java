@@ -0,0 +1,123 @@
+package gr.digital.systems.crm.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AppendOnlyJournalTests {
+
+	@TempDir Path directory;
+
+	@Test
+	void uncommittedRecordsAreReplayedAfterReopening() throws IOException {
+		try (var journal = new AppendOnlyJournal(this.directory, false, 1024)) {
+			Assertions.assertEquals(1, journal.append("first"));
+			Assertions.assertEquals(2, journal.append("second"));
+			Assertions.assertEquals(3, journal.append("third"));
+			journal.commit(1);
+		}
+
+		try (var journal = new AppendOnlyJournal(this.directory, false, 1024)) {
+			Assertions.assertEquals(
+					List.of(
+							new AppendOnlyJournal.Entry(2, "second"), new AppendOnlyJournal.Entry(3, "third")),
+					journal.getPending());
+			Assertions.assertEquals(4, journal.append("fourth"));
+		}
+	}
+
+	@Test
+	void committedSegmentsAreDeleted() throws IOException {
+		try (var journal = new AppendOnlyJournal(this.directory, true, 16)) {
+			for (var i = 0; i < 10; i++) {
+				journal.append("record-" + i);
+			}
+			journal.commit(10);
+			Assertions.assertEquals(1, this.segments());
+		}
+
+		try (var journal = new AppendOnlyJournal(this.directory, false, 16)) {
+			Assertions.assertTrue(journal.getPending().isEmpty());
+			Assertions.assertEquals(11, journal.append("next"));
+		}
+	}
+
+	@Test
+	void oneForceCoversEveryRecordAppendedBeforeIt() throws IOException {
+		try (var journal = new AppendOnlyJournal(this.directory, true, 1024)) {
+			final var first = journal.append("first");
+			final var second = journal.append("second");
+
+			Assertions.assertTrue(journal.sync(second));
+			Assertions.assertFalse(journal.sync(first));
+			Assertions.assertFalse(journal.sync(second));
+			Assertions.assertTrue(journal.sync(journal.append("third")));
+		}
+
+		try (var journal = new AppendOnlyJournal(this.directory, false, 1024)) {
+			Assertions.assertFalse(journal.sync(journal.append("unforced")));
+		}
+	}
+
+	@Test
+	void concurrentAppendsSurviveRotatedSegments() throws Exception {
+		final var executor = Executors.newFixedThreadPool(8);
+		try (var journal = new AppendOnlyJournal(this.directory, true, 64)) {
+			final var tasks = new ArrayList<Callable<Long>>();
+			for (var i = 0; i < 200; i++) {
+				final var payload = "record-" + i;
+				tasks.add(
+						() -> {
+							final var sequence = journal.append(payload);
+							journal.sync(sequence);
+							return sequence;
+						});
+			}
+			for (final var result : executor.invokeAll(tasks)) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		try (var journal = new AppendOnlyJournal(this.directory, false, 64)) {
+			final var pending = journal.getPending();
+			Assertions.assertEquals(200, pending.size());
+			for (var i = 0; i < pending.size(); i++) {
+				Assertions.assertEquals(i + 1, pending.get(i).sequence());
+			}
+		}
+	}
+
+	@Test
+	void tornRecordIsSkipped() throws IOException {
+		try (var journal = new AppendOnlyJournal(this.directory, false, 1024)) {
+			journal.append("complete");
+		}
+		try (var files = Files.list(this.directory)) {
+			Files.writeString(
+					files.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow(),
+					"1\tcomplete\n2",
+					StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		try (var journal = new AppendOnlyJournal(this.directory, false, 1024)) {
+			Assertions.assertEquals(
+					List.of(new AppendOnlyJournal.Entry(1, "complete")), journal.getPending());
+		}
+	}
+
+	private long segments() throws IOException {
+		try (var files = Files.list(this.directory)) {
+			return files.filter(file -> file.toString().endsWith(".log")).count();
+		}
+	}
+}
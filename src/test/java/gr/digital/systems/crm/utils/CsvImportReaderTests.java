@@ -0,0 +1,38 @@
+package gr.digital.systems.crm.utils;
+
+import gr.digital.systems.crm.exception.CrmException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CsvImportReaderTests {
+
+	@Test
+	void quotedFieldsKeepSeparatorsQuotesAndLineBreaks() throws IOException {
+		try (var reader =
+				new CsvImportReader(
+						new StringReader(
+								" Name ,EMAIL,phone\r\n"
+										+ "\"Papadopoulos, Maria\",maria@example.com,210\r\n"
+										+ "\"The \"\"Acme\"\" buyer\",\"buyer@example.com\",\"line\nbreak\"\n"
+										+ "Short row\n"))) {
+			Assertions.assertEquals(
+					Map.of("name", "Papadopoulos, Maria", "email", "maria@example.com", "phone", "210"),
+					reader.next());
+			Assertions.assertEquals(
+					Map.of(
+							"name", "The \"Acme\" buyer", "email", "buyer@example.com", "phone", "line\nbreak"),
+					reader.next());
+			/* Missing trailing fields are left out of the record */
+			Assertions.assertEquals(Map.of("name", "Short row"), reader.next());
+			Assertions.assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void anEmptyFileHasNoHeader() {
+		Assertions.assertThrows(CrmException.class, () -> new CsvImportReader(new StringReader("")));
+	}
+}
@@ -0,0 +1,33 @@
+package gr.digital.systems.crm.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class MatchKeysTests {
+
+	@Test
+	void emailAndPhoneAreNormalized() {
+		Assertions.assertEquals("john.smith@mail.com", MatchKeys.email(" John.Smith+news@Mail.com "));
+		Assertions.assertNull(MatchKeys.email("not-an-address"));
+		Assertions.assertEquals("2101234567", MatchKeys.phone("+30 (210) 123-4567"));
+		Assertions.assertEquals("2101234567", MatchKeys.phone("2101234567"));
+		Assertions.assertNull(MatchKeys.phone("123"));
+	}
+
+	@Test
+	void namesShareTheBlockRegardlessOfOrderAndAccents() {
+		final var first = MatchKeys.of("Smith, Jöhn", null, null);
+		final var second = MatchKeys.of("John SMITH", null, null);
+
+		Assertions.assertEquals("john smith", first.getName());
+		Assertions.assertEquals(first.getBlock(), second.getBlock());
+		Assertions.assertEquals(1, MatchKeys.similarity(first.getName(), second.getName()));
+	}
+
+	@Test
+	void similarityFollowsJaroWinkler() {
+		Assertions.assertEquals(0.961, MatchKeys.similarity("martha", "marhta"), 0.001);
+		Assertions.assertEquals(0.840, MatchKeys.similarity("dwayne", "duane"), 0.001);
+		Assertions.assertEquals(0, MatchKeys.similarity("abc", "xyz"));
+	}
+}
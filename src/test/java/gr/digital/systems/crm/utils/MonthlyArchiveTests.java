@@ -0,0 +1,43 @@
+package gr.digital.systems.crm.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MonthlyArchiveTests {
+
+	@TempDir Path directory;
+
+	@Test
+	void appendsAreReadBackAsOneStreamPerTenantAndMonth() throws IOException {
+		final var archive = new MonthlyArchive(this.directory, new ObjectMapper());
+		final var may = YearMonth.of(2024, 5);
+
+		final var file = archive.append("acme", may, List.of(Map.of("id", 1)));
+		archive.append("acme", may, List.of(Map.of("id", 2), Map.of("id", 3)));
+		archive.append("acme", YearMonth.of(2024, 6), List.of(Map.of("id", 4)));
+		archive.append("other", may, List.of(Map.of("id", 5)));
+
+		Assertions.assertEquals(this.directory.resolve("acme").resolve("2024-05.ndjson.gz"), file);
+		Assertions.assertEquals(
+				List.of("{\"id\":1}", "{\"id\":2}", "{\"id\":3}"), this.lines(archive.file("acme", may)));
+		Assertions.assertEquals(
+				List.of("{\"id\":4}"), this.lines(archive.file("acme", YearMonth.of(2024, 6))));
+		Assertions.assertEquals(List.of("{\"id\":5}"), this.lines(archive.file("other", may)));
+	}
+
+	private List<String> lines(final Path file) throws IOException {
+		try (var inputStream = new GZIPInputStream(Files.newInputStream(file))) {
+			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+		}
+	}
+}
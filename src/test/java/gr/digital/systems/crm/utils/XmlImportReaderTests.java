@@ -0,0 +1,39 @@
+package gr.digital.systems.crm.utils;
+
+import gr.digital.systems.crm.exception.CrmException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class XmlImportReaderTests {
+
+	@Test
+	void everyRowElementIsOneRecord() throws IOException {
+		try (var reader =
+				new XmlImportReader(
+						new StringReader(
+								"<leads><meta><name>Ignored</name></meta>"
+										+ "<lead><name>Maria &amp; Co</name><email>maria@example.com</email></lead>"
+										+ "<lead><name>Nikos</name><phone>210</phone></lead></leads>"),
+						"lead")) {
+			Assertions.assertEquals(
+					Map.of("name", "Maria & Co", "email", "maria@example.com"), reader.next());
+			Assertions.assertEquals(Map.of("name", "Nikos", "phone", "210"), reader.next());
+			Assertions.assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void externalEntitiesAreNeverResolved() throws IOException {
+		try (var reader =
+				new XmlImportReader(
+						new StringReader(
+								"<!DOCTYPE leads [<!ENTITY secret SYSTEM \"file:///etc/passwd\">]>"
+										+ "<leads><lead><name>&secret;</name></lead></leads>"),
+						"lead")) {
+			Assertions.assertThrows(CrmException.class, reader::next);
+		}
+	}
+}